@@ -0,0 +1,435 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.Tag;
+import com.simpy.api.rest.client.beans.Topic;
+import com.simpy.api.rest.client.beans.Watchlist;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AsyncSimpy runs the calls of a threadsafe {@link Simpy} object on an {@link Executor} and
+ * returns a {@link CompletableFuture} for each result, so that several calls may be in
+ * flight at once without blocking the caller.
+ * <p/>
+ * The {@link Simpy} object must have been created with one of its pooled constructors.
+ * Since calls run on executor threads, {@link Simpy#getHttpResult()} of the calling thread
+ * does not describe them. Instead the HTTP status of each call is checked on the thread
+ * that made it, and a future whose request did not return HTTP 200 completes exceptionally
+ * with a {@link SimpyException} holding that status. So does a future whose response broke
+ * off, for which {@link Simpy#getReadStatus()} returns
+ * {@link SimpyConstants#READ_STATUS_INCOMPLETE}. Status codes returned by Simpy for
+ * mutating calls are passed on as results.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class AsyncSimpy {
+
+    private static Log logger = LogFactory.getLog(AsyncSimpy.class);
+
+    private Simpy simpy;
+    private Executor executor;
+    private ExecutorService ownedExecutor;
+
+    /**
+     * Create an object to call Simpy asynchronously on a virtual thread per call, or on a
+     * pool of daemon threads if virtual threads are not available in this Java runtime
+     *
+     * @param simpy Threadsafe {@link Simpy} object
+     * @throws IllegalArgumentException If <code>simpy</code> is <code>null</code> or uses a
+     *                                  single connection
+     */
+    public AsyncSimpy(Simpy simpy) {
+        this(simpy, createDefaultExecutor());
+        ownedExecutor = (ExecutorService) executor;
+    }
+
+    /**
+     * Create an object to call Simpy asynchronously on the given {@link Executor}
+     *
+     * @param simpy    Threadsafe {@link Simpy} object
+     * @param executor {@link Executor} used to run the calls
+     * @throws IllegalArgumentException If either <code>simpy</code> or <code>executor</code> is
+     *                                  <code>null</code>, or if <code>simpy</code> uses a
+     *                                  single connection
+     */
+    public AsyncSimpy(Simpy simpy, Executor executor) {
+        if (simpy == null) {
+            throw new IllegalArgumentException("simpy is a required parameter");
+        }
+
+        if (executor == null) {
+            throw new IllegalArgumentException("executor is a required parameter");
+        }
+
+        if (!simpy.isThreadsafe()) {
+            throw new IllegalArgumentException("simpy must be created with a pooled constructor");
+        }
+
+        this.simpy = simpy;
+        this.executor = executor;
+    }
+
+    /**
+     * Create the default {@link ExecutorService}, one virtual thread per task where supported
+     *
+     * @return {@link ExecutorService}
+     */
+    private static ExecutorService createDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            logger.debug("Virtual threads not available, using a cached thread pool");
+        }
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "AsyncSimpy-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Return the {@link Simpy} object used for the calls
+     *
+     * @return {@link Simpy}
+     */
+    public Simpy getSimpy() {
+        return simpy;
+    }
+
+    /**
+     * Return the {@link Executor} used for the calls
+     *
+     * @return {@link Executor}
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Shut down the default executor if this object created it. Executors passed in by the
+     * caller are left running.
+     */
+    public void shutdown() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * @see Simpy#getTags()
+     */
+    public CompletableFuture<List<Tag>> getTags() {
+        return submit(new Read<List<Tag>>() {
+            List<Tag> call() {
+                return typed(simpy.getTags());
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#getAllLinks(String, String, String, String)
+     */
+    public CompletableFuture<List<Link>> getAllLinks(final String q, final String date, final String afterDate, final String beforeDate) {
+        return submit(new Read<List<Link>>() {
+            List<Link> call() {
+                return typed(simpy.getAllLinks(q, date, afterDate, beforeDate));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#getLinks(String, String, String, String)
+     */
+    public CompletableFuture<List<Link>> getLinks(final String q, final String date, final String afterDate, final String beforeDate) {
+        return submit(new Read<List<Link>>() {
+            List<Link> call() {
+                return typed(simpy.getLinks(q, date, afterDate, beforeDate));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#getLinks(String, String, String, String, int)
+     */
+    public CompletableFuture<List<Link>> getLinks(final String q, final String date, final String afterDate, final String beforeDate, final int limit) {
+        return submit(new Read<List<Link>>() {
+            List<Link> call() {
+                return typed(simpy.getLinks(q, date, afterDate, beforeDate, limit));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#removeTag(String)
+     */
+    public CompletableFuture<Integer> removeTag(final String tag) {
+        return submit(new Call<Integer>() {
+            Integer call() {
+                return Integer.valueOf(simpy.removeTag(tag));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#renameTag(String, String)
+     */
+    public CompletableFuture<Integer> renameTag(final String fromTag, final String toTag) {
+        return submit(new Call<Integer>() {
+            Integer call() {
+                return Integer.valueOf(simpy.renameTag(fromTag, toTag));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#mergeTags(String, String, String)
+     */
+    public CompletableFuture<Integer> mergeTags(final String fromTag1, final String fromTag2, final String toTag) {
+        return submit(new Call<Integer>() {
+            Integer call() {
+                return Integer.valueOf(simpy.mergeTags(fromTag1, fromTag2, toTag));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#splitTag(String, String, String)
+     */
+    public CompletableFuture<Integer> splitTag(final String tag, final String toTag1, final String toTag2) {
+        return submit(new Call<Integer>() {
+            Integer call() {
+                return Integer.valueOf(simpy.splitTag(tag, toTag1, toTag2));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#getTopics()
+     */
+    public CompletableFuture<List<Topic>> getTopics() {
+        return submit(new Read<List<Topic>>() {
+            List<Topic> call() {
+                return typed(simpy.getTopics());
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#getTopic(int)
+     */
+    public CompletableFuture<Topic> getTopic(final int topicId) {
+        return submit(new Read<Topic>() {
+            Topic call() {
+                return simpy.getTopic(topicId);
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#getAllNotes(String)
+     */
+    public CompletableFuture<List<Note>> getAllNotes(final String q) {
+        return submit(new Read<List<Note>>() {
+            List<Note> call() {
+                return typed(simpy.getAllNotes(q));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#getNotes(String)
+     */
+    public CompletableFuture<List<Note>> getNotes(final String q) {
+        return submit(new Read<List<Note>>() {
+            List<Note> call() {
+                return typed(simpy.getNotes(q));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#getNotes(String, int)
+     */
+    public CompletableFuture<List<Note>> getNotes(final String q, final int limit) {
+        return submit(new Read<List<Note>>() {
+            List<Note> call() {
+                return typed(simpy.getNotes(q, limit));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#saveLink(String, String, int, String, String, String)
+     */
+    public CompletableFuture<Integer> saveLink(final String title, final String href, final int accessType, final String tags, final String nickname, final String note) {
+        return submit(new Call<Integer>() {
+            Integer call() {
+                return Integer.valueOf(simpy.saveLink(title, href, accessType, tags, nickname, note));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#deleteLink(String)
+     */
+    public CompletableFuture<Integer> deleteLink(final String href) {
+        return submit(new Call<Integer>() {
+            Integer call() {
+                return Integer.valueOf(simpy.deleteLink(href));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#deleteNote(String)
+     */
+    public CompletableFuture<Integer> deleteNote(final String noteId) {
+        return submit(new Call<Integer>() {
+            Integer call() {
+                return Integer.valueOf(simpy.deleteNote(noteId));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#saveNote(String, String, String)
+     */
+    public CompletableFuture<Integer> saveNote(final String title, final String tags, final String description) {
+        return submit(new Call<Integer>() {
+            Integer call() {
+                return Integer.valueOf(simpy.saveNote(title, tags, description));
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#getWatchlists()
+     */
+    public CompletableFuture<List<Watchlist>> getWatchlists() {
+        return submit(new Read<List<Watchlist>>() {
+            List<Watchlist> call() {
+                return typed(simpy.getWatchlists());
+            }
+        });
+    }
+
+    /**
+     * @see Simpy#getWatchlist(int)
+     */
+    public CompletableFuture<Watchlist> getWatchlist(final int watchlistId) {
+        return submit(new Read<Watchlist>() {
+            Watchlist call() {
+                return simpy.getWatchlist(watchlistId);
+            }
+        });
+    }
+
+    /**
+     * Run a call on the executor, completing the future exceptionally if the request did not
+     * return HTTP 200, the response of a {@link Read} broke off or the call threw an exception
+     *
+     * @param call Call to run
+     * @return {@link CompletableFuture} for the result of the call
+     */
+    private <T> CompletableFuture<T> submit(final Call<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        T result = call.call();
+                        int httpResult = simpy.getHttpResult();
+                        if (httpResult != HttpStatus.SC_OK) {
+                            future.completeExceptionally(new SimpyException("Simpy request failed with HTTP status " + httpResult, httpResult));
+                        } else if (call instanceof Read && simpy.getReadStatus() == SimpyConstants.READ_STATUS_INCOMPLETE) {
+                            future.completeExceptionally(new SimpyException("Simpy response broke off", httpResult));
+                        } else {
+                            future.complete(result);
+                        }
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Give a list returned by {@link Simpy} the element type of its results
+     *
+     * @param results List returned by {@link Simpy}
+     * @return <code>results</code>
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> typed(List results) {
+        return (List<T>) results;
+    }
+
+    /**
+     * One call to the {@link Simpy} object
+     */
+    private abstract static class Call<T> {
+
+        abstract T call();
+    }
+
+    /**
+     * A call that reads results, whose {@link Simpy#getReadStatus()} is checked
+     */
+    private abstract static class Read<T> extends Call<T> {
+    }
+}
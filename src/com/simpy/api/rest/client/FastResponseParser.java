@@ -0,0 +1,1168 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Filter;
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.Topic;
+import com.simpy.api.rest.client.beans.User;
+import com.simpy.api.rest.client.beans.Watchlist;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Byte level tokenizer for the small, fixed vocabulary of the Simpy responses. It works
+ * directly on the UTF-8 bytes of a buffered response and decodes element text and attribute
+ * values straight into bean fields, without going through a general purpose XML parser.
+ * <p/>
+ * Anything outside of what Simpy sends (internal DTD subsets, processing instructions in the
+ * body, unknown entities, mixed content, encodings other than UTF-8, ...) stops the tokenizer
+ * and the document is handed to {@link SimpyResponseParser} instead. Results already passed
+ * to the handler are not passed again.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+class FastResponseParser {
+
+    private static Log logger = LogFactory.getLog(FastResponseParser.class);
+
+    private static final Charset UTF8_CHARSET = Charset.forName(SimpyConstants.UTF8);
+
+    static final int START_ELEMENT = 1;
+    static final int END_ELEMENT = 2;
+    static final int END_DOCUMENT = 3;
+
+    private static final byte[] LINK = bytes(SimpyConstants.LINK_TAG);
+    private static final byte[] URL = bytes(SimpyConstants.URL_TAG);
+    private static final byte[] MOD_DATE = bytes(SimpyConstants.MOD_DATE_TAG);
+    private static final byte[] ADD_DATE = bytes(SimpyConstants.ADD_DATE_TAG);
+    private static final byte[] TITLE = bytes(SimpyConstants.TITLE_TAG);
+    private static final byte[] NICKNAME = bytes(SimpyConstants.NICKNAME_TAG);
+    private static final byte[] NOTE = bytes(SimpyConstants.NOTE_TAG);
+    private static final byte[] TAGS = bytes(SimpyConstants.TAGS_TAG);
+    private static final byte[] URI = bytes(SimpyConstants.URI_TAG);
+    private static final byte[] DESCRIPTION = bytes(SimpyConstants.DESCRIPTION_TAG);
+    private static final byte[] ID = bytes(SimpyConstants.ID_TAG);
+    private static final byte[] TOPIC = bytes(SimpyConstants.TOPIC_TAG);
+    private static final byte[] WATCHLIST = bytes(SimpyConstants.WATCHLIST_TAG);
+    private static final byte[] USER = bytes(SimpyConstants.USER_TAG);
+    private static final byte[] FILTER = bytes(SimpyConstants.FILTER_TAG);
+
+    private static final byte[] ACCESS_TYPE_ATTRIBUTE = bytes(SimpyConstants.ACCESS_TYPE_ATTRIBUTE);
+    private static final byte[] ID_ATTRIBUTE = bytes(SimpyConstants.ID_ATTRIBUTE);
+    private static final byte[] NAME_ATTRIBUTE = bytes(SimpyConstants.NAME_ATTRIBUTE);
+    private static final byte[] DESCRIPTION_ATTRIBUTE = bytes(SimpyConstants.DESCRIPTION_ATTRIBUTE);
+    private static final byte[] ADD_DATE_ATTRIBUTE = bytes(SimpyConstants.ADD_DATE_ATTRIBUTE);
+    private static final byte[] NEW_LINKS_ATTRIBUTE = bytes(SimpyConstants.NEW_LINKS_ATTRIBUTE);
+    private static final byte[] USERNAME_ATTRIBUTE = bytes(SimpyConstants.USERNAME_ATTRIBUTE);
+    private static final byte[] QUERY_ATTRIBUTE = bytes(SimpyConstants.QUERY_ATTRIBUTE);
+
+    private static final byte[] XML_DECLARATION = bytes("<?xml");
+    private static final byte[] ENCODING = bytes("encoding");
+    private static final byte[] COMMENT_START = bytes("<!--");
+    private static final byte[] COMMENT_END = bytes("-->");
+    private static final byte[] DOCTYPE_START = bytes("<!DOCTYPE");
+    private static final byte[] CDATA_START = bytes("<![CDATA[");
+    private static final byte[] CDATA_END = bytes("]]>");
+    private static final byte[] PI_END = bytes("?>");
+
+    private byte[] buf;
+    private int pos;
+    private int end;
+
+    private int nameStart;
+    private int nameEnd;
+    private boolean emptyElement;
+    private int attributeCount;
+    private int[] attributes = new int[32];
+    private int textStart;
+    private int textEnd;
+    private int delivered;
+    private boolean lazy;
+
+    /**
+     * Create a tokenizer over part of a buffered response
+     *
+     * @param buf    Response bytes
+     * @param offset Offset of the first byte to parse
+     * @param length Number of bytes to parse
+     */
+    FastResponseParser(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.end = offset + length;
+
+        if (length >= 3 && (buf[offset] & 0xFF) == 0xEF && (buf[offset + 1] & 0xFF) == 0xBB && (buf[offset + 2] & 0xFF) == 0xBF) {
+            pos += 3;
+        }
+    }
+
+    /**
+     * Parse a buffered response, passing each result to a handler. If the tokenizer meets
+     * something unexpected the response is parsed again by {@link SimpyResponseParser},
+     * skipping the results that were already delivered.
+     *
+     * @param body        Response bytes
+     * @param elementName Name of the result elements
+     * @param handler     {@link SimpyHandler}
+     * @return <code>false</code> if the handler stopped the parse, <code>true</code> otherwise
+     * @throws XMLStreamException If the fallback parser fails
+     */
+    static boolean parse(byte[] body, String elementName, SimpyHandler handler) throws XMLStreamException {
+        return parse(body, elementName, handler, false);
+    }
+
+    /**
+     * Parse a buffered response, passing each result to a handler. If <code>lazy</code> is
+     * <code>true</code>, links and notes are returned as views whose text fields are decoded
+     * from <code>body</code> when first read. Results delivered by the fallback parser are
+     * always fully decoded.
+     *
+     * @param body        Response bytes
+     * @param elementName Name of the result elements
+     * @param handler     {@link SimpyHandler}
+     * @param lazy        Whether to defer decoding of link and note fields
+     * @return <code>false</code> if the handler stopped the parse, <code>true</code> otherwise
+     * @throws XMLStreamException If the fallback parser fails
+     */
+    static boolean parse(byte[] body, String elementName, SimpyHandler handler, boolean lazy) throws XMLStreamException {
+        FastResponseParser parser = new FastResponseParser(body, 0, body.length);
+        parser.setLazy(lazy);
+        try {
+            return parser.parse(elementName, handler);
+        } catch (UnexpectedContentException e) {
+            logger.debug("Falling back to StAX after " + parser.delivered + " results: " + e.getMessage());
+        }
+
+        return SimpyResponseParser.parse(new ByteArrayInputStream(body), elementName, new SkippingHandler(handler, parser.delivered));
+    }
+
+    /**
+     * Set whether links and notes are indexed rather than decoded
+     *
+     * @param lazy <code>true</code> to return {@link LazyLink} and {@link LazyNote} objects
+     */
+    void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * Parse the response, passing each result to a handler
+     *
+     * @param elementName Name of the result elements
+     * @param handler     {@link SimpyHandler}
+     * @return <code>false</code> if the handler stopped the parse, <code>true</code> otherwise
+     * @throws UnexpectedContentException If the response contains something the tokenizer does not handle
+     */
+    boolean parse(String elementName, SimpyHandler handler) throws UnexpectedContentException {
+        byte[] element = bytes(elementName);
+
+        int token;
+        while ((token = next(false)) != END_DOCUMENT) {
+            if (token == START_ELEMENT && isName(element)) {
+                boolean accepted;
+                if (SimpyConstants.LINK_TAG.equals(elementName)) {
+                    accepted = handler.onLink(lazy ? readLazyLink() : readLink());
+                } else if (SimpyConstants.NOTE_TAG.equals(elementName)) {
+                    Note note = lazy ? readLazyNote() : readNote();
+                    if (note == null) {
+                        continue;
+                    }
+                    accepted = handler.onNote(note);
+                } else if (SimpyConstants.TOPIC_TAG.equals(elementName)) {
+                    accepted = handler.onTopic(readTopic());
+                } else {
+                    accepted = handler.onWatchlist(readWatchlist());
+                }
+
+                delivered++;
+                if (!accepted) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Read a <code>link</code> element, the current start tag
+     *
+     * @return {@link Link}
+     * @throws UnexpectedContentException If the element contains something the tokenizer does not handle
+     */
+    Link readLink() throws UnexpectedContentException {
+        Link link = new Link();
+        link.setAccessType(attribute(ACCESS_TYPE_ATTRIBUTE));
+
+        if (!emptyElement) {
+            while (nextChild()) {
+                if (isName(URL)) {
+                    link.setUrl(readText());
+                } else if (isName(MOD_DATE)) {
+                    link.setModDate(readText());
+                } else if (isName(ADD_DATE)) {
+                    link.setAddDate(readText());
+                } else if (isName(TITLE)) {
+                    link.setTitle(readText());
+                } else if (isName(NICKNAME)) {
+                    link.setNickname(readText());
+                } else if (isName(NOTE)) {
+                    link.setNote(readText());
+                } else if (isName(TAGS)) {
+                    link.setTags(readTags());
+                } else {
+                    skipElement();
+                }
+            }
+        }
+
+        return link;
+    }
+
+    /**
+     * Read a <code>note</code> element, the current start tag
+     *
+     * @return {@link Note} or <code>null</code> if the element is empty
+     * @throws UnexpectedContentException If the element contains something the tokenizer does not handle
+     */
+    Note readNote() throws UnexpectedContentException {
+        Note note = new Note();
+        note.setAccessType(attribute(ACCESS_TYPE_ATTRIBUTE));
+        boolean empty = true;
+
+        if (!emptyElement) {
+            while (nextChild()) {
+                empty = false;
+                if (isName(URI)) {
+                    note.setUri(readText());
+                } else if (isName(MOD_DATE)) {
+                    note.setModDate(readText());
+                } else if (isName(ADD_DATE)) {
+                    note.setAddDate(readText());
+                } else if (isName(TITLE)) {
+                    note.setTitle(readText());
+                } else if (isName(DESCRIPTION)) {
+                    note.setDescription(readText());
+                } else if (isName(TAGS)) {
+                    note.setTags(readTags());
+                } else if (isName(ID)) {
+                    note.setId(readText());
+                } else {
+                    skipElement();
+                }
+            }
+        }
+
+        return empty ? null : note;
+    }
+
+    /**
+     * Index a <code>link</code> element, the current start tag, without decoding its fields
+     *
+     * @return {@link LazyLink}
+     * @throws UnexpectedContentException If the element contains something the tokenizer does not handle
+     */
+    Link readLazyLink() throws UnexpectedContentException {
+        LazyLink link = new LazyLink(buf);
+        link.setAccessType(attribute(ACCESS_TYPE_ATTRIBUTE));
+
+        if (!emptyElement) {
+            while (nextChild()) {
+                int field;
+                if (isName(URL)) {
+                    field = LazyLink.URL;
+                } else if (isName(MOD_DATE)) {
+                    field = LazyLink.MOD_DATE;
+                } else if (isName(ADD_DATE)) {
+                    field = LazyLink.ADD_DATE;
+                } else if (isName(TITLE)) {
+                    field = LazyLink.TITLE;
+                } else if (isName(NICKNAME)) {
+                    field = LazyLink.NICKNAME;
+                } else if (isName(NOTE)) {
+                    field = LazyLink.NOTE;
+                } else if (isName(TAGS)) {
+                    field = LazyLink.TAGS;
+                } else {
+                    skipElement();
+                    continue;
+                }
+
+                if (field == LazyLink.TAGS) {
+                    int start = scanTags();
+                    link.setRange(field, start, pos);
+                } else if (scanCheckedText()) {
+                    link.setRange(field, textStart, textEnd);
+                } else {
+                    link.setRange(field, -1, -1);
+                }
+            }
+        }
+
+        return link;
+    }
+
+    /**
+     * Index a <code>note</code> element, the current start tag, without decoding its fields
+     *
+     * @return {@link LazyNote} or <code>null</code> if the element is empty
+     * @throws UnexpectedContentException If the element contains something the tokenizer does not handle
+     */
+    Note readLazyNote() throws UnexpectedContentException {
+        LazyNote note = new LazyNote(buf);
+        note.setAccessType(attribute(ACCESS_TYPE_ATTRIBUTE));
+        boolean empty = true;
+
+        if (!emptyElement) {
+            while (nextChild()) {
+                empty = false;
+                int field;
+                if (isName(URI)) {
+                    field = LazyNote.URI;
+                } else if (isName(MOD_DATE)) {
+                    field = LazyNote.MOD_DATE;
+                } else if (isName(ADD_DATE)) {
+                    field = LazyNote.ADD_DATE;
+                } else if (isName(TITLE)) {
+                    field = LazyNote.TITLE;
+                } else if (isName(DESCRIPTION)) {
+                    field = LazyNote.DESCRIPTION;
+                } else if (isName(TAGS)) {
+                    field = LazyNote.TAGS;
+                } else if (isName(ID)) {
+                    field = LazyNote.ID;
+                } else {
+                    skipElement();
+                    continue;
+                }
+
+                if (field == LazyNote.TAGS) {
+                    int start = scanTags();
+                    note.setRange(field, start, pos);
+                } else if (scanCheckedText()) {
+                    note.setRange(field, textStart, textEnd);
+                } else {
+                    note.setRange(field, -1, -1);
+                }
+            }
+        }
+
+        return empty ? null : note;
+    }
+
+    /**
+     * Find the raw text of the current start tag as {@link #scanText()} does, and make sure
+     * any entity references in it can be decoded later
+     *
+     * @return <code>true</code> if the element has text, <code>false</code> if it is empty
+     * @throws UnexpectedContentException If the element contains child elements or unknown entities
+     */
+    private boolean scanCheckedText() throws UnexpectedContentException {
+        if (!scanText()) {
+            return false;
+        }
+
+        for (int i = textStart; i < textEnd; i++) {
+            if (buf[i] == '&') {
+                decode(buf, textStart, textEnd, false);
+                break;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Skip a <code>tags</code> element, the current start tag, making sure its children can
+     * be read later by {@link #parseTags(byte[], int, int)}
+     *
+     * @return Offset of the start tag; the element ends at the current position
+     * @throws UnexpectedContentException If the element contains something the tokenizer does not handle
+     */
+    private int scanTags() throws UnexpectedContentException {
+        int start = getTagStart();
+
+        if (!emptyElement) {
+            while (nextChild()) {
+                scanCheckedText();
+            }
+        }
+
+        return start;
+    }
+
+    /**
+     * Read the tags of a <code>tags</code> element previously checked by the tokenizer
+     *
+     * @param buf   Response bytes
+     * @param start Offset of the <code>tags</code> start tag
+     * @param end   Offset just past the <code>tags</code> end tag
+     * @return List of tag names
+     * @throws UnexpectedContentException If the element contains something the tokenizer does not handle
+     */
+    static List parseTags(byte[] buf, int start, int end) throws UnexpectedContentException {
+        FastResponseParser parser = new FastResponseParser(buf, start, end - start);
+        parser.next(false);
+
+        return parser.readTags();
+    }
+
+    /**
+     * Read a <code>topic</code> element, the current start tag
+     *
+     * @return {@link Topic}
+     * @throws UnexpectedContentException If the element contains something the tokenizer does not handle
+     */
+    Topic readTopic() throws UnexpectedContentException {
+        Topic topic = new Topic();
+
+        topic.setId(intAttribute(ID_ATTRIBUTE));
+        topic.setName(attribute(NAME_ATTRIBUTE));
+        topic.setDescription(attribute(DESCRIPTION_ATTRIBUTE));
+        topic.setAddDate(attribute(ADD_DATE_ATTRIBUTE));
+        topic.setNewLinks(intAttribute(NEW_LINKS_ATTRIBUTE));
+
+        List users = new ArrayList();
+        if (!emptyElement) {
+            while (nextChild()) {
+                if (isName(USER)) {
+                    users.add(new User(attribute(USERNAME_ATTRIBUTE)));
+                } else if (isName(FILTER)) {
+                    topic.setFilter(new Filter(attribute(NAME_ATTRIBUTE), attribute(QUERY_ATTRIBUTE)));
+                }
+
+                skipElement();
+            }
+        }
+
+        topic.setUsers(users);
+
+        return topic;
+    }
+
+    /**
+     * Read a <code>watchlist</code> element, the current start tag
+     *
+     * @return {@link Watchlist}
+     * @throws UnexpectedContentException If the element contains something the tokenizer does not handle
+     */
+    Watchlist readWatchlist() throws UnexpectedContentException {
+        Watchlist watchlist = new Watchlist();
+
+        watchlist.setId(intAttribute(ID_ATTRIBUTE));
+        watchlist.setName(attribute(NAME_ATTRIBUTE));
+        watchlist.setDescription(attribute(DESCRIPTION_ATTRIBUTE));
+        watchlist.setAddDate(attribute(ADD_DATE_ATTRIBUTE));
+        watchlist.setNewLinks(intAttribute(NEW_LINKS_ATTRIBUTE));
+
+        List users = null;
+        List filters = null;
+        if (!emptyElement) {
+            while (nextChild()) {
+                if (users == null) {
+                    users = new ArrayList();
+                    filters = new ArrayList();
+                }
+
+                if (isName(FILTER)) {
+                    filters.add(new Filter(attribute(NAME_ATTRIBUTE), attribute(QUERY_ATTRIBUTE)));
+                } else if (isName(USER)) {
+                    users.add(new User(attribute(USERNAME_ATTRIBUTE)));
+                }
+
+                skipElement();
+            }
+        }
+
+        watchlist.setUsers(users);
+        watchlist.setFilters(filters);
+
+        return watchlist;
+    }
+
+    /**
+     * Read the non-empty children of a <code>tags</code> element, the current start tag
+     *
+     * @return List of tag names
+     * @throws UnexpectedContentException If the element contains something the tokenizer does not handle
+     */
+    private List readTags() throws UnexpectedContentException {
+        List tags = new ArrayList();
+
+        if (!emptyElement) {
+            while (nextChild()) {
+                String tag = readText();
+                if (tag != null) {
+                    tags.add(tag);
+                }
+            }
+        }
+
+        return tags;
+    }
+
+    /**
+     * Read the text of the current start tag, leaving the tokenizer after its end tag
+     *
+     * @return Text or <code>null</code> if the element is empty
+     * @throws UnexpectedContentException If the element contains child elements or unknown entities
+     */
+    String readText() throws UnexpectedContentException {
+        if (!scanText()) {
+            return null;
+        }
+
+        return decode(buf, textStart, textEnd, false);
+    }
+
+    /**
+     * Find the raw text of the current start tag, leaving the tokenizer after its end tag.
+     * The text spans {@link #getTextStart()} to {@link #getTextEnd()} and may contain entity
+     * references and CDATA sections.
+     *
+     * @return <code>true</code> if the element has text, <code>false</code> if it is empty
+     * @throws UnexpectedContentException If the element contains child elements
+     */
+    boolean scanText() throws UnexpectedContentException {
+        if (emptyElement) {
+            textStart = textEnd = pos;
+            return false;
+        }
+
+        int start = pos;
+        int i = pos;
+        while (true) {
+            i = indexOf((byte) '<', i);
+            if (i < 0) {
+                throw new UnexpectedContentException("Unterminated element", pos);
+            }
+
+            if (i + 1 < end && buf[i + 1] == '/') {
+                break;
+            } else if (startsWith(CDATA_START, i)) {
+                i = indexOf(CDATA_END, i + CDATA_START.length);
+                if (i < 0) {
+                    throw new UnexpectedContentException("Unterminated CDATA section", pos);
+                }
+                i += CDATA_END.length;
+            } else {
+                throw new UnexpectedContentException("Mixed content", i);
+            }
+        }
+
+        int elementNameStart = nameStart;
+        int elementNameEnd = nameEnd;
+        textStart = start;
+        textEnd = i;
+        pos = i;
+
+        if (next(false) != END_ELEMENT || !sameName(elementNameStart, elementNameEnd)) {
+            throw new UnexpectedContentException("Mismatched end tag", pos);
+        }
+
+        return textEnd > textStart;
+    }
+
+    /**
+     * Skip the current start tag and all of its children
+     *
+     * @throws UnexpectedContentException If the element is malformed
+     */
+    void skipElement() throws UnexpectedContentException {
+        if (emptyElement) {
+            return;
+        }
+
+        int depth = 1;
+        while (depth > 0) {
+            int token = next(true);
+            if (token == START_ELEMENT) {
+                if (!emptyElement) {
+                    depth++;
+                }
+            } else if (token == END_ELEMENT) {
+                depth--;
+            } else {
+                throw new UnexpectedContentException("Unterminated element", pos);
+            }
+        }
+    }
+
+    /**
+     * Advance to the next start tag, end tag or the end of the document, skipping the XML
+     * declaration, comments and the DOCTYPE declaration
+     *
+     * @param allowText Whether non-whitespace text may be skipped
+     * @return {@link #START_ELEMENT}, {@link #END_ELEMENT} or {@link #END_DOCUMENT}
+     * @throws UnexpectedContentException If the document contains something the tokenizer does not handle
+     */
+    int next(boolean allowText) throws UnexpectedContentException {
+        while (true) {
+            int lt = indexOf((byte) '<', pos);
+            int textLimit = (lt < 0) ? end : lt;
+            if (!allowText) {
+                for (int i = pos; i < textLimit; i++) {
+                    if (!isWhitespace(buf[i])) {
+                        throw new UnexpectedContentException("Unexpected text", i);
+                    }
+                }
+            }
+
+            if (lt < 0) {
+                pos = end;
+                return END_DOCUMENT;
+            }
+
+            pos = lt + 1;
+            if (pos >= end) {
+                throw new UnexpectedContentException("Unterminated tag", lt);
+            }
+
+            byte c = buf[pos];
+            if (c == '/') {
+                pos++;
+                readName();
+                skipWhitespace();
+                expect((byte) '>');
+                return END_ELEMENT;
+            } else if (c == '?') {
+                if (startsWith(XML_DECLARATION, lt)) {
+                    checkEncoding(lt);
+                } else {
+                    throw new UnexpectedContentException("Processing instruction", lt);
+                }
+                pos = skipPast(PI_END, lt);
+            } else if (c == '!') {
+                if (startsWith(COMMENT_START, lt)) {
+                    pos = skipPast(COMMENT_END, lt + COMMENT_START.length);
+                } else if (startsWith(DOCTYPE_START, lt)) {
+                    int close = indexOf((byte) '>', lt);
+                    int subset = indexOf((byte) '[', lt);
+                    if (close < 0 || (subset >= 0 && subset < close)) {
+                        throw new UnexpectedContentException("Internal DTD subset", lt);
+                    }
+                    pos = close + 1;
+                } else {
+                    throw new UnexpectedContentException("Unexpected markup", lt);
+                }
+            } else {
+                readStartTag();
+                return START_ELEMENT;
+            }
+        }
+    }
+
+    /**
+     * Advance to the next child of the current element
+     *
+     * @return <code>true</code> if positioned on a child start tag, <code>false</code> if
+     *         positioned on the end tag of the current element
+     * @throws UnexpectedContentException If the document ends before the element does
+     */
+    private boolean nextChild() throws UnexpectedContentException {
+        int token = next(false);
+        if (token == END_DOCUMENT) {
+            throw new UnexpectedContentException("Unterminated element", pos);
+        }
+
+        return token == START_ELEMENT;
+    }
+
+    /**
+     * Read the name and attributes of a start tag. The tokenizer must be positioned on the
+     * first character of the name.
+     *
+     * @throws UnexpectedContentException If the tag is malformed
+     */
+    private void readStartTag() throws UnexpectedContentException {
+        readName();
+        attributeCount = 0;
+
+        while (true) {
+            skipWhitespace();
+            if (pos >= end) {
+                throw new UnexpectedContentException("Unterminated tag", pos);
+            }
+
+            byte c = buf[pos];
+            if (c == '>') {
+                pos++;
+                emptyElement = false;
+                return;
+            } else if (c == '/') {
+                pos++;
+                expect((byte) '>');
+                emptyElement = true;
+                return;
+            }
+
+            int attributeNameStart = pos;
+            while (pos < end && buf[pos] != '=' && !isWhitespace(buf[pos])) {
+                pos++;
+            }
+            int attributeNameEnd = pos;
+            skipWhitespace();
+            expect((byte) '=');
+            skipWhitespace();
+
+            if (pos >= end || (buf[pos] != '"' && buf[pos] != '\'')) {
+                throw new UnexpectedContentException("Unquoted attribute", pos);
+            }
+            byte quote = buf[pos++];
+            int valueStart = pos;
+            int valueEnd = indexOf(quote, pos);
+            if (valueEnd < 0) {
+                throw new UnexpectedContentException("Unterminated attribute", valueStart);
+            }
+            pos = valueEnd + 1;
+
+            if ((attributeCount + 1) * 4 > attributes.length) {
+                int[] expanded = new int[attributes.length * 2];
+                System.arraycopy(attributes, 0, expanded, 0, attributes.length);
+                attributes = expanded;
+            }
+
+            int slot = attributeCount * 4;
+            attributes[slot] = attributeNameStart;
+            attributes[slot + 1] = attributeNameEnd;
+            attributes[slot + 2] = valueStart;
+            attributes[slot + 3] = valueEnd;
+            attributeCount++;
+        }
+    }
+
+    /**
+     * Read an element name, setting {@link #nameStart} and {@link #nameEnd}
+     *
+     * @throws UnexpectedContentException If there is no name
+     */
+    private void readName() throws UnexpectedContentException {
+        nameStart = pos;
+        while (pos < end) {
+            byte c = buf[pos];
+            if (isWhitespace(c) || c == '>' || c == '/' || c == '=') {
+                break;
+            }
+            pos++;
+        }
+        nameEnd = pos;
+
+        if (nameEnd == nameStart) {
+            throw new UnexpectedContentException("Missing name", pos);
+        }
+    }
+
+    /**
+     * Make sure the XML declaration does not name an encoding other than UTF-8
+     *
+     * @param start Offset of the declaration
+     * @throws UnexpectedContentException If another encoding is declared
+     */
+    private void checkEncoding(int start) throws UnexpectedContentException {
+        int close = indexOf(PI_END, start);
+        if (close < 0) {
+            throw new UnexpectedContentException("Unterminated XML declaration", start);
+        }
+
+        int encoding = indexOf(ENCODING, start);
+        if (encoding >= 0 && encoding < close) {
+            int quote = encoding + ENCODING.length;
+            while (quote < close && buf[quote] != '"' && buf[quote] != '\'') {
+                quote++;
+            }
+
+            int valueEnd = (quote < close) ? indexOf(buf[quote], quote + 1) : -1;
+            if (valueEnd < 0 || !SimpyConstants.UTF8.equalsIgnoreCase(new String(buf, quote + 1, valueEnd - quote - 1, UTF8_CHARSET))) {
+                throw new UnexpectedContentException("Unsupported encoding", encoding);
+            }
+        }
+    }
+
+    /**
+     * Return the decoded value of an attribute of the current start tag
+     *
+     * @param name Attribute name
+     * @return Attribute value or <code>null</code> if the tag does not have the attribute
+     * @throws UnexpectedContentException If the value contains unknown entities
+     */
+    String attribute(byte[] name) throws UnexpectedContentException {
+        for (int i = 0; i < attributeCount; i++) {
+            int slot = i * 4;
+            if (regionEquals(attributes[slot], attributes[slot + 1], name)) {
+                return decode(buf, attributes[slot + 2], attributes[slot + 3], true);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the value of a numeric attribute of the current start tag
+     *
+     * @param name Attribute name
+     * @return Attribute value
+     * @throws UnexpectedContentException If the attribute is missing or not a number
+     */
+    private int intAttribute(byte[] name) throws UnexpectedContentException {
+        String value = attribute(name);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new UnexpectedContentException("Invalid number " + value, pos);
+        }
+    }
+
+    /**
+     * Check the name of the current tag
+     *
+     * @param name Element name
+     * @return <code>true</code> if the current tag has the given name
+     */
+    boolean isName(byte[] name) {
+        return regionEquals(nameStart, nameEnd, name);
+    }
+
+    /**
+     * Return the offset of the first byte of the current tag
+     *
+     * @return Offset of the <code>&lt;</code> character
+     */
+    int getTagStart() {
+        return nameStart - 1;
+    }
+
+    /**
+     * Return the current position of the tokenizer
+     *
+     * @return Offset of the next byte to be read
+     */
+    int getPosition() {
+        return pos;
+    }
+
+    /**
+     * Return the start of the raw text found by {@link #scanText()}
+     *
+     * @return Offset of the first byte of text
+     */
+    int getTextStart() {
+        return textStart;
+    }
+
+    /**
+     * Return the end of the raw text found by {@link #scanText()}
+     *
+     * @return Offset just past the last byte of text
+     */
+    int getTextEnd() {
+        return textEnd;
+    }
+
+    /**
+     * Decode raw element text or an attribute value. Entity and character references and
+     * CDATA sections are expanded, and line endings are normalized as an XML parser would.
+     *
+     * @param buf       Response bytes
+     * @param start     Offset of the first byte
+     * @param end       Offset just past the last byte
+     * @param attribute Whether the bytes are an attribute value
+     * @return Decoded text
+     * @throws UnexpectedContentException If the text contains unknown entities
+     */
+    static String decode(byte[] buf, int start, int end, boolean attribute) throws UnexpectedContentException {
+        int i = start;
+        while (i < end) {
+            byte c = buf[i];
+            if (c == '&' || c == '<' || c == '\r' || (attribute && (c == '\n' || c == '\t'))) {
+                break;
+            }
+            i++;
+        }
+
+        if (i == end) {
+            return new String(buf, start, end - start, UTF8_CHARSET);
+        }
+
+        StringBuffer result = new StringBuffer(end - start);
+        int segment = start;
+        while (i < end) {
+            byte c = buf[i];
+            if (c == '&') {
+                result.append(new String(buf, segment, i - segment, UTF8_CHARSET));
+                int semicolon = i + 1;
+                while (semicolon < end && buf[semicolon] != ';') {
+                    semicolon++;
+                }
+                if (semicolon == end) {
+                    throw new UnexpectedContentException("Unterminated entity", i);
+                }
+
+                appendEntity(result, buf, i + 1, semicolon);
+                i = semicolon + 1;
+                segment = i;
+            } else if (c == '<' && !attribute && regionStartsWith(buf, i, end, CDATA_START)) {
+                result.append(new String(buf, segment, i - segment, UTF8_CHARSET));
+                int contentStart = i + CDATA_START.length;
+                int contentEnd = contentStart;
+                while (contentEnd < end && !regionStartsWith(buf, contentEnd, end, CDATA_END)) {
+                    contentEnd++;
+                }
+                result.append(normalizeLineEndings(new String(buf, contentStart, contentEnd - contentStart, UTF8_CHARSET)));
+                i = contentEnd + CDATA_END.length;
+                segment = i;
+            } else if (c == '<') {
+                throw new UnexpectedContentException("Unexpected markup", i);
+            } else if (c == '\r' || (attribute && (c == '\n' || c == '\t'))) {
+                result.append(new String(buf, segment, i - segment, UTF8_CHARSET));
+                result.append(attribute ? ' ' : '\n');
+                if (c == '\r' && i + 1 < end && buf[i + 1] == '\n') {
+                    i++;
+                }
+                i++;
+                segment = i;
+            } else {
+                i++;
+            }
+        }
+
+        result.append(new String(buf, segment, end - segment, UTF8_CHARSET));
+
+        return result.toString();
+    }
+
+    /**
+     * Append the character for an entity or character reference
+     *
+     * @param result Buffer receiving the character
+     * @param buf    Response bytes
+     * @param start  Offset of the first byte of the reference name, after the ampersand
+     * @param end    Offset of the semicolon
+     * @throws UnexpectedContentException If the entity is not one of the predefined XML entities
+     */
+    private static void appendEntity(StringBuffer result, byte[] buf, int start, int end) throws UnexpectedContentException {
+        int length = end - start;
+        if (length > 1 && buf[start] == '#') {
+            int codePoint = 0;
+            boolean hex = buf[start + 1] == 'x';
+            for (int i = start + (hex ? 2 : 1); i < end; i++) {
+                int digit = Character.digit((char) buf[i], hex ? 16 : 10);
+                if (digit < 0 || codePoint > Character.MAX_CODE_POINT) {
+                    throw new UnexpectedContentException("Invalid character reference", start);
+                }
+                codePoint = codePoint * (hex ? 16 : 10) + digit;
+            }
+
+            if (!Character.isValidCodePoint(codePoint)) {
+                throw new UnexpectedContentException("Invalid character reference", start);
+            }
+
+            result.appendCodePoint(codePoint);
+        } else if (length == 3 && buf[start] == 'a' && buf[start + 1] == 'm' && buf[start + 2] == 'p') {
+            result.append('&');
+        } else if (length == 2 && buf[start] == 'l' && buf[start + 1] == 't') {
+            result.append('<');
+        } else if (length == 2 && buf[start] == 'g' && buf[start + 1] == 't') {
+            result.append('>');
+        } else if (length == 4 && buf[start] == 'q' && buf[start + 1] == 'u' && buf[start + 2] == 'o' && buf[start + 3] == 't') {
+            result.append('"');
+        } else if (length == 4 && buf[start] == 'a' && buf[start + 1] == 'p' && buf[start + 2] == 'o' && buf[start + 3] == 's') {
+            result.append('\'');
+        } else {
+            throw new UnexpectedContentException("Unknown entity", start);
+        }
+    }
+
+    private static String normalizeLineEndings(String text) {
+        if (text.indexOf('\r') < 0) {
+            return text;
+        }
+
+        return text.replace("\r\n", "\n").replace('\r', '\n');
+    }
+
+    private boolean sameName(int otherStart, int otherEnd) {
+        if (otherEnd - otherStart != nameEnd - nameStart) {
+            return false;
+        }
+
+        for (int i = 0; i < otherEnd - otherStart; i++) {
+            if (buf[otherStart + i] != buf[nameStart + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean regionEquals(int start, int end, byte[] name) {
+        if (end - start != name.length) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length; i++) {
+            if (buf[start + i] != name[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean startsWith(byte[] prefix, int offset) {
+        return regionStartsWith(buf, offset, end, prefix);
+    }
+
+    private static boolean regionStartsWith(byte[] buf, int offset, int end, byte[] prefix) {
+        if (offset + prefix.length > end) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private int indexOf(byte b, int from) {
+        for (int i = from; i < end; i++) {
+            if (buf[i] == b) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private int indexOf(byte[] sequence, int from) {
+        for (int i = from; i + sequence.length <= end; i++) {
+            if (startsWith(sequence, i)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private int skipPast(byte[] sequence, int from) throws UnexpectedContentException {
+        int i = indexOf(sequence, from);
+        if (i < 0) {
+            throw new UnexpectedContentException("Unterminated markup", from);
+        }
+
+        return i + sequence.length;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && isWhitespace(buf[pos])) {
+            pos++;
+        }
+    }
+
+    private void expect(byte b) throws UnexpectedContentException {
+        if (pos >= end || buf[pos] != b) {
+            throw new UnexpectedContentException("Expected '" + (char) b + "'", pos);
+        }
+        pos++;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(UTF8_CHARSET);
+    }
+
+    /**
+     * Signals content that the tokenizer does not handle
+     */
+    static class UnexpectedContentException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        UnexpectedContentException(String message, int offset) {
+            super(message + " at offset " + offset);
+        }
+    }
+
+    /**
+     * Passes results on to another handler after skipping a number of them
+     */
+    private static class SkippingHandler implements SimpyHandler {
+
+        private SimpyHandler handler;
+        private int skip;
+
+        SkippingHandler(SimpyHandler handler, int skip) {
+            this.handler = handler;
+            this.skip = skip;
+        }
+
+        private boolean skip() {
+            if (skip > 0) {
+                skip--;
+                return true;
+            }
+
+            return false;
+        }
+
+        public boolean onLink(Link link) {
+            return skip() || handler.onLink(link);
+        }
+
+        public boolean onNote(Note note) {
+            return skip() || handler.onNote(note);
+        }
+
+        public boolean onTopic(Topic topic) {
+            return skip() || handler.onTopic(topic);
+        }
+
+        public boolean onWatchlist(Watchlist watchlist) {
+            return skip() || handler.onWatchlist(watchlist);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.TagDictionary;
+
+import java.util.List;
+
+/**
+ * A {@link Note} whose text fields are decoded from the buffered response only when first
+ * read. Until then each field is just a pair of offsets into the response bytes, so results
+ * that are never fully read cost little more than the offsets. Every object holds a
+ * reference to the whole response buffer, which stays in memory while any of them does.
+ * Date millisecond values of pending fields are parsed straight from the bytes.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+class LazyNote extends Note {
+
+    static final int ID = 0;
+    static final int URI = 1;
+    static final int MOD_DATE = 2;
+    static final int ADD_DATE = 3;
+    static final int TITLE = 4;
+    static final int DESCRIPTION = 5;
+    static final int TAGS = 6;
+    static final int FIELDS = 7;
+
+    private byte[] buf;
+    private int[] ranges = new int[FIELDS * 2];
+
+    /**
+     * Create a Note backed by a response buffer
+     *
+     * @param buf Response bytes
+     */
+    LazyNote(byte[] buf) {
+        this.buf = buf;
+        for (int i = 0; i < ranges.length; i += 2) {
+            ranges[i] = -1;
+        }
+    }
+
+    /**
+     * Record where the raw value of a field lies in the response
+     *
+     * @param field Field index
+     * @param start Offset of the first byte
+     * @param end   Offset just past the last byte
+     */
+    synchronized void setRange(int field, int start, int end) {
+        ranges[field * 2] = start;
+        ranges[field * 2 + 1] = end;
+    }
+
+    private boolean isPending(int field) {
+        return ranges[field * 2] >= 0;
+    }
+
+    private void clear(int field) {
+        ranges[field * 2] = -1;
+    }
+
+    private String decode(int field) {
+        int start = ranges[field * 2];
+        clear(field);
+
+        try {
+            return FastResponseParser.decode(buf, start, ranges[field * 2 + 1], false);
+        } catch (FastResponseParser.UnexpectedContentException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    public synchronized String getId() {
+        if (isPending(ID)) {
+            super.setId(decode(ID));
+        }
+
+        return super.getId();
+    }
+
+    public synchronized void setId(String value) {
+        clear(ID);
+        super.setId(value);
+    }
+
+    public synchronized String getUri() {
+        if (isPending(URI)) {
+            super.setUri(decode(URI));
+        }
+
+        return super.getUri();
+    }
+
+    public synchronized void setUri(String value) {
+        clear(URI);
+        super.setUri(value);
+    }
+
+    public synchronized String getModDate() {
+        if (isPending(MOD_DATE)) {
+            super.setModDate(decode(MOD_DATE));
+        }
+
+        return super.getModDate();
+    }
+
+    public synchronized void setModDate(String value) {
+        clear(MOD_DATE);
+        super.setModDate(value);
+    }
+
+    public synchronized String getAddDate() {
+        if (isPending(ADD_DATE)) {
+            super.setAddDate(decode(ADD_DATE));
+        }
+
+        return super.getAddDate();
+    }
+
+    public synchronized void setAddDate(String value) {
+        clear(ADD_DATE);
+        super.setAddDate(value);
+    }
+
+    public synchronized String getTitle() {
+        if (isPending(TITLE)) {
+            super.setTitle(decode(TITLE));
+        }
+
+        return super.getTitle();
+    }
+
+    public synchronized void setTitle(String value) {
+        clear(TITLE);
+        super.setTitle(value);
+    }
+
+    public synchronized String getDescription() {
+        if (isPending(DESCRIPTION)) {
+            super.setDescription(decode(DESCRIPTION));
+        }
+
+        return super.getDescription();
+    }
+
+    public synchronized void setDescription(String value) {
+        clear(DESCRIPTION);
+        super.setDescription(value);
+    }
+
+    public synchronized long getModDateMillis() {
+        if (isPending(MOD_DATE)) {
+            long millis = SimpyUtils.parseDate(buf, ranges[MOD_DATE * 2], ranges[MOD_DATE * 2 + 1]);
+            if (millis != SimpyConstants.UNKNOWN_DATE) {
+                return millis;
+            }
+
+            getModDate();
+        }
+
+        return super.getModDateMillis();
+    }
+
+    public synchronized long getAddDateMillis() {
+        if (isPending(ADD_DATE)) {
+            long millis = SimpyUtils.parseDate(buf, ranges[ADD_DATE * 2], ranges[ADD_DATE * 2 + 1]);
+            if (millis != SimpyConstants.UNKNOWN_DATE) {
+                return millis;
+            }
+
+            getAddDate();
+        }
+
+        return super.getAddDateMillis();
+    }
+
+    public synchronized List getTags() {
+        if (isPending(TAGS)) {
+            int start = ranges[TAGS * 2];
+            clear(TAGS);
+            try {
+                super.setTags(FastResponseParser.parseTags(buf, start, ranges[TAGS * 2 + 1]));
+            } catch (FastResponseParser.UnexpectedContentException e) {
+                throw new IllegalStateException(e.getMessage());
+            }
+        }
+
+        return super.getTags();
+    }
+
+    public synchronized void setTags(List tags) {
+        clear(TAGS);
+        super.setTags(tags);
+    }
+
+    public synchronized void setTagIds(int[] tagIds, TagDictionary tagDictionary) {
+        clear(TAGS);
+        super.setTagIds(tagIds, tagDictionary);
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.Topic;
+import com.simpy.api.rest.client.beans.Watchlist;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.xml.stream.XMLStreamException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses a large buffered response on a {@link ForkJoinPool}. The body is cut into chunks
+ * at result element start tags, each chunk is parsed by its own {@link FastResponseParser}
+ * and the results are passed to the handler in document order once every chunk is done.
+ * <p/>
+ * A start tag found inside a CDATA section or a comment leaves the chunk before it
+ * unterminated, so such a cut always makes that chunk fail. If any chunk fails the whole
+ * body is parsed again sequentially by {@link FastResponseParser#parse(byte[], String, SimpyHandler, boolean)}.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+class ParallelResponseParser {
+
+    private static Log logger = LogFactory.getLog(ParallelResponseParser.class);
+
+    private ParallelResponseParser() {
+    }
+
+    /**
+     * Parse a buffered response, passing each result to a handler. Bodies smaller than
+     * {@link SimpyConstants#PARALLEL_PARSE_THRESHOLD} are parsed sequentially, as are all
+     * bodies if the pool has a single worker.
+     *
+     * @param body        Response bytes
+     * @param elementName Name of the result elements
+     * @param handler     {@link SimpyHandler}
+     * @param lazy        Whether to defer decoding of link and note fields
+     * @param pool        {@link ForkJoinPool} running the chunk parsers
+     * @return <code>false</code> if the handler stopped the parse, <code>true</code> otherwise
+     * @throws XMLStreamException If the fallback parser fails
+     */
+    static boolean parse(byte[] body, String elementName, SimpyHandler handler, boolean lazy, ForkJoinPool pool) throws XMLStreamException {
+        if (body.length >= SimpyConstants.PARALLEL_PARSE_THRESHOLD && pool.getParallelism() > 1) {
+            byte[] tag = new byte[elementName.length() + 1];
+            tag[0] = '<';
+            for (int i = 0; i < elementName.length(); i++) {
+                tag[i + 1] = (byte) elementName.charAt(i);
+            }
+
+            List results = (List) pool.invoke(new ChunkTask(body, tag, elementName, lazy, 0, body.length));
+            if (results != null) {
+                for (int i = 0; i < results.size(); i++) {
+                    if (!deliver(results.get(i), handler)) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+
+            logger.debug("Falling back to sequential parsing of " + body.length + " bytes");
+        }
+
+        return FastResponseParser.parse(body, elementName, handler, lazy);
+    }
+
+    /**
+     * Pass a parsed result to the matching handler callback
+     *
+     * @param result  {@link Link}, {@link Note}, {@link Topic} or {@link Watchlist}
+     * @param handler {@link SimpyHandler}
+     * @return Value returned by the handler
+     */
+    private static boolean deliver(Object result, SimpyHandler handler) {
+        if (result instanceof Link) {
+            return handler.onLink((Link) result);
+        } else if (result instanceof Note) {
+            return handler.onNote((Note) result);
+        } else if (result instanceof Topic) {
+            return handler.onTopic((Topic) result);
+        }
+
+        return handler.onWatchlist((Watchlist) result);
+    }
+
+    /**
+     * Find the first result start tag at or after an offset
+     *
+     * @param body Response bytes
+     * @param tag  <code>&lt;</code> followed by the element name
+     * @param from Offset to search from
+     * @return Offset of the start tag or the length of the body if there is none
+     */
+    static int findBoundary(byte[] body, byte[] tag, int from) {
+        int last = body.length - tag.length;
+        for (int i = from; i < last; i++) {
+            if (body[i] != '<') {
+                continue;
+            }
+
+            int j = 1;
+            while (j < tag.length && body[i + j] == tag[j]) {
+                j++;
+            }
+
+            if (j == tag.length) {
+                byte c = body[i + j];
+                if (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '>' || c == '/') {
+                    return i;
+                }
+            }
+        }
+
+        return body.length;
+    }
+
+    /**
+     * Parses the chunks whose nominal ranges fall within a part of the body, splitting it in
+     * half until parts are no larger than {@link SimpyConstants#PARALLEL_PARSE_CHUNK_SIZE}.
+     * A chunk runs from the first start tag at or after its nominal start to the first start
+     * tag at or after its nominal end; the first chunk also holds the prolog and the last one
+     * the closing tag of the document. Returns <code>null</code> if any chunk fails.
+     */
+    private static class ChunkTask extends RecursiveTask {
+
+        private static final long serialVersionUID = 1L;
+
+        private byte[] body;
+        private byte[] tag;
+        private String elementName;
+        private boolean lazy;
+        private int from;
+        private int to;
+
+        ChunkTask(byte[] body, byte[] tag, String elementName, boolean lazy, int from, int to) {
+            this.body = body;
+            this.tag = tag;
+            this.elementName = elementName;
+            this.lazy = lazy;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected Object compute() {
+            if (to - from > SimpyConstants.PARALLEL_PARSE_CHUNK_SIZE) {
+                int middle = from + (to - from) / 2;
+                ChunkTask second = new ChunkTask(body, tag, elementName, lazy, middle, to);
+                second.fork();
+                List results = (List) new ChunkTask(body, tag, elementName, lazy, from, middle).compute();
+                List secondResults = (List) second.join();
+                if (results == null || secondResults == null) {
+                    return null;
+                }
+
+                results.addAll(secondResults);
+                return results;
+            }
+
+            int start = (from == 0) ? 0 : findBoundary(body, tag, from);
+            int end = (to == body.length) ? to : findBoundary(body, tag, to);
+            List results = new ArrayList();
+            if (start < end) {
+                FastResponseParser parser = new FastResponseParser(body, start, end - start);
+                parser.setLazy(lazy);
+                try {
+                    parser.parse(elementName, SimpyResponseParser.collectInto(results));
+                } catch (FastResponseParser.UnexpectedContentException e) {
+                    logger.debug("Chunk at " + start + " failed: " + e.getMessage());
+                    return null;
+                }
+            }
+
+            return results;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.TagDictionary;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the results of an open Simpy response. Each result element is parsed only
+ * when the iterator is advanced to it, so at most one result is held in memory at a time.
+ * The connection is released when the response is exhausted, when a parsing error occurs
+ * or when the iterator is closed. A response that cannot be read to the end, for example
+ * because it is truncated, makes {@link #hasNext()} throw a {@link SimpyException} after the
+ * connection is released.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+class ResponseIterator<T> implements Iterator<T>, Closeable {
+
+    private Log logger = LogFactory.getLog(ResponseIterator.class);
+
+    private GetMethod get;
+    private XMLStreamReader reader;
+    private String elementName;
+    private TagDictionary tagDictionary;
+    private T next;
+    private boolean closed;
+    private boolean exhausted;
+
+    /**
+     * Create an iterator over an open response
+     *
+     * @param get           {@link GetMethod} that has been executed
+     * @param reader        {@link XMLStreamReader} over the response body
+     * @param elementName   Name of the result elements, {@link SimpyConstants#LINK_TAG} or {@link SimpyConstants#NOTE_TAG}
+     * @param tagDictionary {@link TagDictionary} used to hold tags as ids, or <code>null</code> to keep tag names
+     */
+    ResponseIterator(GetMethod get, XMLStreamReader reader, String elementName, TagDictionary tagDictionary) {
+        this.get = get;
+        this.reader = reader;
+        this.elementName = elementName;
+        this.tagDictionary = tagDictionary;
+    }
+
+    /**
+     * Check whether another result is available, parsing up to the next result element
+     *
+     * @return <code>true</code> if another result is available
+     * @throws SimpyException If the response cannot be read or parsed
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized boolean hasNext() {
+        while (next == null && !closed) {
+            try {
+                if (!reader.hasNext()) {
+                    exhausted = true;
+                    close();
+                } else if (reader.next() == XMLStreamConstants.START_ELEMENT && elementName.equals(reader.getLocalName())) {
+                    if (SimpyConstants.LINK_TAG.equals(elementName)) {
+                        Link link = SimpyResponseParser.readLink(reader);
+                        if (tagDictionary != null) {
+                            tagDictionary.compact(link);
+                        }
+                        next = (T) link;
+                    } else {
+                        Note note = SimpyResponseParser.readNote(reader);
+                        if (note != null && tagDictionary != null) {
+                            tagDictionary.compact(note);
+                        }
+                        next = (T) note;
+                    }
+                }
+            } catch (XMLStreamException e) {
+                close();
+                throw new SimpyException("Error reading the Simpy response", get.getStatusCode(), e);
+            }
+        }
+
+        return next != null;
+    }
+
+    public synchronized T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        T result = next;
+        next = null;
+
+        return result;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Release the connection. If the response has not been read to the end the connection is
+     * aborted rather than drained.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            logger.error(e);
+        }
+
+        if (!exhausted) {
+            get.abort();
+        }
+
+        get.releaseConnection();
+    }
+}
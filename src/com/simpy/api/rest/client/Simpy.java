@@ -32,33 +32,57 @@
 package com.simpy.api.rest.client;
 
 import com.simpy.api.rest.client.beans.*;
+import com.simpy.api.rest.client.cache.CacheEntry;
+import com.simpy.api.rest.client.cache.CacheKey;
+import com.simpy.api.rest.client.cache.LinkRange;
+import com.simpy.api.rest.client.cache.NegativeCache;
+import com.simpy.api.rest.client.cache.SimpyCache;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
 import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpConnectionManager;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.NameValuePair;
+import org.apache.commons.httpclient.SimpleHttpConnectionManager;
 import org.apache.commons.httpclient.cookie.CookiePolicy;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.params.HttpClientParams;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.BufferedReader;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.StringReader;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Simpy is a class for accessing the <a href="http://www.simpy.com/doc/api/rest">Simpy REST API</a>.
+ * <p/>
+ * Instances created with {@link #Simpy(String, String)} use a single connection and
+ * should be confined to one thread. Instances created with a pooled constructor may be
+ * shared by any number of threads; call {@link #shutdown()} when finished with them.
+ * Identical list, Topic and Watchlist reads made by several threads at the same time share
+ * one request and each thread receives its own copy of the result.
  *
  * @author David Czarnecki
  * @version $Id: Simpy.java,v 1.21 2007/04/20 14:41:28 czarneckid Exp $
@@ -69,14 +93,47 @@ public class Simpy {
     private Log logger = LogFactory.getLog(Simpy.class);
 
     private HttpClient httpClient;
-    private DocumentBuilder documentBuilder;
-    private int httpResult;
+    private HttpConnectionManager ownedConnectionManager;
+    private IdleConnectionTimeoutThread idleConnectionTimeoutThread;
+    private ThreadLocal httpResult = new ThreadLocal();
+    private ThreadLocal readStatus = new ThreadLocal();
     private String username;
     private String password;
+    private volatile boolean fastParsing;
+    private volatile boolean lazyResults;
+    private volatile boolean parallelParsing;
+    private volatile boolean compactTags;
+    private TagDictionary tagDictionary = new TagDictionary();
+    private volatile SimpyCache cache;
+    private volatile NegativeCache negativeCache;
+    private volatile long writeGeneration;
+    private SingleFlight singleFlight = new SingleFlight();
+    private List listeners = new CopyOnWriteArrayList();
+    private ThreadPoolExecutor backgroundExecutor;
+    private boolean backgroundShutdown;
+
+    /**
+     * Cached regions dropped when a link is saved or deleted. The responses do not say which
+     * cached queries a change touches, so every entry of these regions is removed. The cached
+     * {@link LinkRange} is trimmed instead, see {@link #trimLinkRange(String, boolean)}.
+     */
+    private static final String[] LINK_MUTATION_REGIONS = {CacheKey.TAGS};
+
+    /**
+     * Cached regions dropped when a Note is saved or deleted. No Note responses are cached;
+     * the call still ends reads of Notes shared with earlier callers.
+     */
+    private static final String[] NOTE_MUTATION_REGIONS = {};
+
+    /**
+     * Cached regions dropped when a tag is removed, renamed, merged or split
+     */
+    private static final String[] TAG_MUTATION_REGIONS = {CacheKey.TAGS, CacheKey.LINKS};
 
 
     /**
-     * Create an object to interact with Simpy
+     * Create an object to interact with Simpy using a single connection. Objects created
+     * with this constructor must not be shared between threads.
      *
      * @param username Username
      * @param password Password
@@ -85,36 +142,441 @@ public class Simpy {
         this.username = username;
         this.password = password;
 
+        initialize(new HttpClient());
+    }
+
+    /**
+     * Create a threadsafe object to interact with Simpy backed by its own connection pool.
+     * Connections are kept alive for reuse between calls and connections idle for longer than
+     * {@link SimpyConstants#IDLE_CONNECTION_TIMEOUT} milliseconds are closed.
+     *
+     * @param username              Username
+     * @param password              Password
+     * @param maxConnectionsPerHost Maximum number of pooled connections to the Simpy host
+     * @param maxTotalConnections   Maximum number of pooled connections overall
+     * @throws IllegalArgumentException If either connection limit is less than 1
+     * @since 1.4
+     */
+    public Simpy(String username, String password, int maxConnectionsPerHost, int maxTotalConnections) {
+        if (maxConnectionsPerHost < 1 || maxTotalConnections < 1) {
+            throw new IllegalArgumentException("Connection limits must be at least 1");
+        }
+
+        this.username = username;
+        this.password = password;
+
+        MultiThreadedHttpConnectionManager connectionManager = new MultiThreadedHttpConnectionManager();
+        HttpConnectionManagerParams connectionManagerParams = connectionManager.getParams();
+        connectionManagerParams.setDefaultMaxConnectionsPerHost(maxConnectionsPerHost);
+        connectionManagerParams.setMaxTotalConnections(maxTotalConnections);
+        connectionManagerParams.setStaleCheckingEnabled(true);
+        ownedConnectionManager = connectionManager;
+
+        idleConnectionTimeoutThread = new IdleConnectionTimeoutThread();
+        idleConnectionTimeoutThread.setName("Simpy idle connection evictor");
+        idleConnectionTimeoutThread.setDaemon(true);
+        idleConnectionTimeoutThread.setConnectionTimeout(SimpyConstants.IDLE_CONNECTION_TIMEOUT);
+        idleConnectionTimeoutThread.setTimeoutInterval(SimpyConstants.IDLE_CONNECTION_CHECK_INTERVAL);
+        idleConnectionTimeoutThread.addConnectionManager(connectionManager);
+        idleConnectionTimeoutThread.start();
+
+        initialize(new HttpClient(connectionManager));
+    }
+
+    /**
+     * Create a threadsafe object to interact with Simpy that uses a connection pool shared with
+     * other objects, for example one pool for several Simpy accounts. The caller owns the
+     * connection manager and is responsible for evicting idle connections and shutting it down.
+     *
+     * @param username          Username
+     * @param password          Password
+     * @param connectionManager Threadsafe connection manager such as {@link MultiThreadedHttpConnectionManager}
+     * @throws IllegalArgumentException If <code>connectionManager</code> is <code>null</code>
+     * @since 1.4
+     */
+    public Simpy(String username, String password, HttpConnectionManager connectionManager) {
+        if (connectionManager == null) {
+            throw new IllegalArgumentException("connectionManager is a required parameter");
+        }
+
+        this.username = username;
+        this.password = password;
+
+        initialize(new HttpClient(connectionManager));
+    }
+
+    /**
+     * Configure the {@link HttpClient} used for all calls
+     *
+     * @param client {@link HttpClient}
+     */
+    private void initialize(HttpClient client) {
         CookiePolicy.registerCookieSpec(CookiePolicy.BROWSER_COMPATIBILITY, CookiePolicy.getCookieSpec(CookiePolicy.BROWSER_COMPATIBILITY).getClass());
 
-        httpClient = new HttpClient();
+        httpClient = client;
         HttpClientParams httpClientParams = new HttpClientParams();
         DefaultHttpMethodRetryHandler defaultHttpMethodRetryHandler = new DefaultHttpMethodRetryHandler(0, false);
         httpClientParams.setParameter(SimpyConstants.USER_AGENT_HEADER, SimpyConstants.USER_AGENT_VALUE);
         httpClientParams.setParameter(HttpClientParams.RETRY_HANDLER, defaultHttpMethodRetryHandler);
         httpClient.setParams(httpClientParams);
+    }
 
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        documentBuilderFactory.setValidating(false);
-        documentBuilderFactory.setIgnoringElementContentWhitespace(true);
-        documentBuilderFactory.setIgnoringComments(true);
-        documentBuilderFactory.setCoalescing(true);
-        documentBuilderFactory.setNamespaceAware(false);
-        try {
-            documentBuilder = documentBuilderFactory.newDocumentBuilder();
-        } catch (ParserConfigurationException e) {
-            logger.error(e);
+    /**
+     * Stop the idle connection evictor and the background threads and close the pooled
+     * connections owned by this object. Connection managers passed in by the caller are left open.
+     *
+     * @since 1.4
+     */
+    public void shutdown() {
+        if (idleConnectionTimeoutThread != null) {
+            idleConnectionTimeoutThread.shutdown();
+        }
+
+        synchronized (this) {
+            backgroundShutdown = true;
+            if (backgroundExecutor != null) {
+                backgroundExecutor.shutdown();
+            }
         }
+
+        if (ownedConnectionManager instanceof MultiThreadedHttpConnectionManager) {
+            ((MultiThreadedHttpConnectionManager) ownedConnectionManager).shutdown();
+        }
+    }
+
+
+    /**
+     * Check whether this object was created with a pooled constructor and may be shared
+     * between threads
+     *
+     * @return <code>false</code> if this object uses a single connection
+     */
+    boolean isThreadsafe() {
+        return !(httpClient.getHttpConnectionManager() instanceof SimpleHttpConnectionManager);
     }
 
+    /**
+     * Return the executor running background work such as cache refreshes, creating it on
+     * first use. It runs at most {@link SimpyConstants#MAX_BACKGROUND_THREADS} daemon threads,
+     * which exit after {@link SimpyConstants#BACKGROUND_THREAD_KEEP_ALIVE} idle milliseconds.
+     *
+     * @return Executor shared by all background work of this object
+     * @throws RejectedExecutionException If this object has been shut down
+     */
+    synchronized ThreadPoolExecutor getBackgroundExecutor() {
+        if (backgroundShutdown) {
+            throw new RejectedExecutionException("Simpy has been shut down");
+        }
+
+        if (backgroundExecutor == null) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            backgroundExecutor = new ThreadPoolExecutor(SimpyConstants.MAX_BACKGROUND_THREADS,
+                    SimpyConstants.MAX_BACKGROUND_THREADS, SimpyConstants.BACKGROUND_THREAD_KEEP_ALIVE,
+                    TimeUnit.MILLISECONDS, new LinkedBlockingQueue(), new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "Simpy background " + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            backgroundExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        return backgroundExecutor;
+    }
 
     /**
-     * Return the HTTP status code of the last operation
+     * Return the HTTP status code of the last operation performed by the calling thread
      *
-     * @return HTTP status code
+     * @return HTTP status code, <code>0</code> if the request failed without a response
      */
     public int getHttpResult() {
-        return httpResult;
+        Integer result = (Integer) httpResult.get();
+
+        return (result == null) ? 0 : result.intValue();
+    }
+
+    /**
+     * Return the status code of the status document Simpy sent instead of results to the last
+     * request of the calling thread for links, Notes, tags, Topics or Watchlists. Simpy
+     * reports some failures, such as {@link SimpyConstants#STATUS_CODE_RETRIEVAL_ERROR}, this
+     * way with an HTTP status of 200, which would otherwise look like an empty result. A
+     * response that breaks off or cannot be parsed, possibly after some results were already
+     * returned, is reported as {@link SimpyConstants#READ_STATUS_INCOMPLETE}.
+     *
+     * @return Status code, {@link SimpyConstants#STATUS_CODE_SUCCESS} if results or an empty
+     *         result list were read completely
+     * @since 1.4
+     */
+    public int getReadStatus() {
+        Integer status = (Integer) readStatus.get();
+
+        return (status == null) ? SimpyConstants.STATUS_CODE_SUCCESS : status.intValue();
+    }
+
+    /**
+     * Check whether link, note, topic and watchlist responses are parsed with the dedicated
+     * byte level tokenizer
+     *
+     * @return <code>true</code> if the tokenizer is used
+     * @since 1.4
+     */
+    public boolean isFastParsing() {
+        return fastParsing;
+    }
+
+    /**
+     * Parse link, note, topic and watchlist responses with a dedicated byte level tokenizer
+     * for the Simpy response format instead of a general XML parser. Each response is
+     * buffered before parsing and anything the tokenizer does not recognize is handed back to
+     * the general parser. Streaming calls always use the general parser.
+     *
+     * @param fastParsing <code>true</code> to use the tokenizer
+     * @since 1.4
+     */
+    public void setFastParsing(boolean fastParsing) {
+        this.fastParsing = fastParsing;
+    }
+
+    /**
+     * Check whether links and notes are returned as views over the buffered response
+     *
+     * @return <code>true</code> if fields are decoded on first access
+     * @since 1.4
+     */
+    public boolean isLazyResults() {
+        return lazyResults;
+    }
+
+    /**
+     * Return {@link Link} and {@link Note} objects whose fields are decoded from the buffered
+     * response only when first read. Responses are parsed with the byte level tokenizer, which
+     * records where each field lies without creating any strings, so callers that read only a
+     * few fields of each result, or only some of the results, skip most of the decoding work.
+     * Each result keeps the whole response buffer in memory for as long as it is reachable.
+     * Streaming calls always decode eagerly.
+     *
+     * @param lazyResults <code>true</code> to decode fields on first access
+     * @since 1.4
+     */
+    public void setLazyResults(boolean lazyResults) {
+        this.lazyResults = lazyResults;
+    }
+
+    /**
+     * Check whether large responses are parsed in parallel
+     *
+     * @return <code>true</code> if large responses are parsed in parallel
+     * @since 1.4
+     */
+    public boolean isParallelParsing() {
+        return parallelParsing;
+    }
+
+    /**
+     * Parse responses larger than {@link SimpyConstants#PARALLEL_PARSE_THRESHOLD} on the
+     * common {@link ForkJoinPool}. The buffered body is cut into chunks at result element
+     * boundaries, the chunks are parsed by the byte level tokenizer in parallel and the
+     * results are passed on in document order. Handlers are still called on the calling
+     * thread, but only after the whole response has been parsed.
+     *
+     * @param parallelParsing <code>true</code> to parse large responses in parallel
+     * @since 1.4
+     */
+    public void setParallelParsing(boolean parallelParsing) {
+        this.parallelParsing = parallelParsing;
+    }
+
+    /**
+     * Return the cache in front of {@link #getTags()}, {@link #getTopics()} and
+     * {@link #getWatchlists()}
+     *
+     * @return {@link SimpyCache} or <code>null</code> if responses are not cached
+     * @since 1.4
+     */
+    public SimpyCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Cache the results of {@link #getTags()}, {@link #getTopics()} and {@link #getWatchlists()}.
+     * Only responses with an HTTP status of 200 are cached, entries are keyed by username so a
+     * cache may be shared between accounts, and every call returns a new list holding copies
+     * of the cached beans. If the cache returns an expired entry within its
+     * stale-while-revalidate window the entry is served and refreshed on one of at most
+     * {@link SimpyConstants#MAX_BACKGROUND_THREADS} background threads, or before returning
+     * when this object uses a single connection.
+     * <p/>
+     * Successful calls to {@link #saveLink(String, String, int, String, String, String)},
+     * {@link #deleteLink(String)}, {@link #saveNote(String, String, String)},
+     * {@link #deleteNote(String)}, {@link #removeTag(String)},
+     * {@link #renameTag(String, String)}, {@link #mergeTags(String, String, String)} and
+     * {@link #splitTag(String, String, String)} invalidate coarsely: link and tag calls remove
+     * every cached tag entry of this account, whichever queries they answer, and tag calls also
+     * remove the cached links. Saving or deleting a link only drops the days of the cached links
+     * from the link's add date on, found by its exact URL, and for a saved link from yesterday
+     * on, since Simpy dates new links by its own clock. Changes made through other clients are
+     * only seen once entries expire.
+     * <p/>
+     * Calls to {@link #getLinks(String, String, String, String, int)} without a query for a
+     * single <code>date</code> or for both an <code>afterDate</code> and a <code>beforeDate</code>
+     * are answered from the links cached over a wider range of days, filtered on their add
+     * date. Calls with a query always go to Simpy. A window that overlaps or adjoins the cached range only fetches the days
+     * missing from it, and the range grows to cover the union. A response is only cached when
+     * it holds fewer links than the limit, so it is known to be complete. Expired ranges are
+     * fetched again rather than revalidated in the background. Like other cached results, the
+     * links returned from the range are copies.
+     *
+     * @param cache {@link SimpyCache} or <code>null</code> to stop caching
+     * @since 1.4
+     */
+    public void setCache(SimpyCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Remove the cached entries of one region of this account and stop calls already in flight
+     * from being shared, so the next read of the region goes to Simpy
+     *
+     * @param region Region such as {@link CacheKey#TAGS}
+     * @since 1.4
+     */
+    public void invalidateCache(String region) {
+        invalidate(SimpyConstants.STATUS_CODE_SUCCESS, new String[]{region});
+    }
+
+    /**
+     * Return the cache of Topic and Watchlist ids found to be missing
+     *
+     * @return {@link NegativeCache} or <code>null</code> if missing ids are not remembered
+     * @since 1.4
+     */
+    public NegativeCache getNegativeCache() {
+        return negativeCache;
+    }
+
+    /**
+     * Remember the ids for which Simpy answered {@link #getTopic(int)} or
+     * {@link #getWatchlist(int)} with {@link SimpyConstants#STATUS_CODE_NON_EXISTENT_ENTITY}
+     * and return <code>null</code> for them without a request until the entry expires, with
+     * the same {@link #getHttpResult()} and {@link #getReadStatus()} as the original answer.
+     * Ids listed by {@link #getTopics()} or {@link #getWatchlists()} are forgotten. Failed
+     * requests and other error statuses are not remembered.
+     *
+     * @param negativeCache {@link NegativeCache} or <code>null</code> to stop remembering
+     *                      missing ids
+     * @since 1.4
+     */
+    public void setNegativeCache(NegativeCache negativeCache) {
+        this.negativeCache = negativeCache;
+    }
+
+    /**
+     * Return the {@link TagDictionary} shared by all results of this object. It is seeded with
+     * every tag name returned by {@link #getTags()}.
+     *
+     * @return {@link TagDictionary}
+     * @since 1.4
+     */
+    public TagDictionary getTagDictionary() {
+        return tagDictionary;
+    }
+
+    /**
+     * Check whether the tags of returned links and Notes are held as ids
+     *
+     * @return <code>true</code> if tags are held as ids
+     * @since 1.4
+     */
+    public boolean isCompactTags() {
+        return compactTags;
+    }
+
+    /**
+     * Hold the tags of returned {@link Link} and {@link Note} objects as ids from
+     * {@link #getTagDictionary()} instead of as lists of names. Each distinct tag name is then
+     * stored once per object rather than once per link, and tags can be compared as integers
+     * with {@link Link#hasTagId(int)}. Call {@link #getTags()} first to seed the dictionary.
+     *
+     * @param compactTags <code>true</code> to hold tags as ids
+     * @since 1.4
+     */
+    public void setCompactTags(boolean compactTags) {
+        this.compactTags = compactTags;
+    }
+
+    /**
+     * Register a {@link SimpyListener} to be notified of successful mutating calls
+     *
+     * @param listener {@link SimpyListener}
+     * @since 1.4
+     */
+    public void addListener(SimpyListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregister a {@link SimpyListener}
+     *
+     * @param listener {@link SimpyListener}
+     * @since 1.4
+     */
+    public void removeListener(SimpyListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Record the HTTP status code of an operation for the calling thread
+     *
+     * @param statusCode HTTP status code
+     */
+    private void setHttpResult(int statusCode) {
+        httpResult.set(Integer.valueOf(statusCode));
+    }
+
+    /**
+     * Record the status code of a status document returned instead of results for the
+     * calling thread
+     *
+     * @param status Status code
+     */
+    private void setReadStatus(int status) {
+        readStatus.set(Integer.valueOf(status));
+    }
+
+    /**
+     * Record the status code of a response that held no results, if it is a status document
+     *
+     * @param body Response body as read by the parser
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    private void checkStatusDocument(CapturingInputStream body) throws XMLStreamException {
+        byte[] captured = body.getCaptured();
+        if (captured != null) {
+            setReadStatus(SimpyResponseParser.parseStatus(new ByteArrayInputStream(captured)));
+        }
+    }
+
+    /**
+     * Execute a request, recording its HTTP status code for the calling thread
+     *
+     * @param get {@link GetMethod}
+     * @return Response body or <code>null</code> if there is none
+     * @throws IOException If there is an error executing the request
+     */
+    private InputStream execute(GetMethod get) throws IOException {
+        int statusCode;
+        try {
+            statusCode = httpClient.executeMethod(get);
+        } catch (IOException e) {
+            setHttpResult(0);
+            throw e;
+        }
+
+        setHttpResult(statusCode);
+        logger.debug("Result: " + statusCode);
+
+        return get.getResponseBodyAsStream();
     }
 
 
@@ -130,46 +592,48 @@ public class Simpy {
 
 
     /**
-     * Return a list of {@link Tag} objects
+     * Return a list of {@link Tag} objects.
+     * If the response breaks off, the tags read so far are returned and
+     * {@link #getReadStatus()} returns {@link SimpyConstants#READ_STATUS_INCOMPLETE}.
      *
      * @return List of {@link Tag} objects
      */
     public List getTags() {
-        List tags = new ArrayList();
-        StringBuffer result = new StringBuffer();
-
-        GetMethod get = new GetMethod(SimpyConstants.API_GET_TAGS);
-        get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
-        get.setDoAuthentication(true);
-        get.setFollowRedirects(true);
-
-        try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
+        return (List) coalesce("GetTags", "", new Callable() {
+            public Object call() {
+                return fetchTags();
+            }
+        });
+    }
 
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE tags SYSTEM \"GetTags.dtd\">", ""));
+    /**
+     * Perform the request for {@link #getTags()}
+     */
+    private List fetchTags() {
+        SimpyCache cache = this.cache;
+        if (cache != null) {
+            return readThrough(cache, new CacheKey(username, CacheKey.TAGS, null));
+        }
 
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList tagItems = document.getElementsByTagName(SimpyConstants.TAG_TAG);
-                if (tagItems != null && tagItems.getLength() > 0) {
-                    for (int i = 0; i < tagItems.getLength(); i++) {
-                        Node tagItem = tagItems.item(i);
-                        String count = tagItem.getAttributes().getNamedItem(SimpyConstants.COUNT_ATTRIBUTE).getNodeValue();
-                        String tag = tagItem.getAttributes().getNamedItem(SimpyConstants.NAME_ATTRIBUTE).getNodeValue();
+        List tags = new ArrayList();
+        GetMethod get = createGetTagsMethod();
+        setReadStatus(SimpyConstants.STATUS_CODE_SUCCESS);
 
-                        tags.add(new Tag(tag, Integer.parseInt(count)));
-                    }
+        try {
+            InputStream response = execute(get);
+            if (response != null) {
+                CapturingInputStream body = new CapturingInputStream(response);
+                SimpyResponseParser.parseTags(body, tags);
+                tagDictionary.seed(tags);
+                if (tags.isEmpty()) {
+                    checkStatusDocument(body);
                 }
             }
         } catch (IOException e) {
+            setReadStatus(SimpyConstants.READ_STATUS_INCOMPLETE);
             logger.error(e);
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
+            setReadStatus(SimpyConstants.READ_STATUS_INCOMPLETE);
             logger.error(e);
         } finally {
             get.releaseConnection();
@@ -182,6 +646,8 @@ public class Simpy {
     /**
      * Depending on your input parameters, this call returns all links that were
      * added on or between given dates, or links matching a given query.
+     * If the response breaks off, the links read so far are returned and
+     * {@link #getReadStatus()} returns {@link SimpyConstants#READ_STATUS_INCOMPLETE}.
      *
      * @param q          A query string that forces the API call to return only
      *                   the matching links.
@@ -202,6 +668,26 @@ public class Simpy {
     }
 
 
+    /**
+     * Same as {@link #getAllLinks(String, String, String, String) getAllLinks()} except that
+     * links are parsed one at a time from the open response as the stream is consumed, so
+     * memory use does not grow with the number of links. The stream must be closed, for
+     * example with try-with-resources, to release the connection; closing it early abandons
+     * the rest of the response. Failures are reported by exceptions rather than by an empty
+     * result: a request that fails or does not return HTTP 200 throws a {@link SimpyException}
+     * from this method, and a response that breaks off while the stream is consumed throws
+     * one from the stream.
+     *
+     * @see #getAllLinks(String, String, String, String)
+     * @return {@link Stream} of {@link Link} objects
+     * @throws SimpyException If the request fails or does not return HTTP 200
+     * @since 1.4
+     */
+    public Stream<Link> streamAllLinks(String q, String date, String afterDate, String beforeDate) {
+        return openStream(createGetLinksMethod(q, date, afterDate, beforeDate, Integer.MAX_VALUE), SimpyConstants.LINK_TAG);
+    }
+
+
     /**
      * Same as {@link #getAllLinks(String, String, String, String) getAllLinks()}
      * except that it returns the ten most relevant links (depending on the given
@@ -219,9 +705,8 @@ public class Simpy {
      * @param tag Specifies the tag to remove.
      * @return Status reponse indicating either success or failure.
      */
-    public int removeTag(String tag) {
+    public int removeTag(final String tag) {
         int operationStatus = 0;
-        StringBuffer result = new StringBuffer();
 
         GetMethod get = new GetMethod(SimpyConstants.API_REMOVE_TAG);
         get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
@@ -238,30 +723,19 @@ public class Simpy {
         }
 
         try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
-
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE status SYSTEM \"Status.dtd\">", ""));
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE error SYSTEM \"Error.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList codeItems = document.getElementsByTagName(SimpyConstants.CODE_TAG);
-                if (codeItems != null && codeItems.getLength() > 0) {
-                    for (int i = 0; i < codeItems.getLength(); i++) {
-                        Node codeItem = codeItems.item(i);
-                        operationStatus = Integer.parseInt(getNodeValue(codeItem));
+            InputStream response = execute(get);
+            if (response != null) {
+                operationStatus = SimpyResponseParser.parseStatus(response);
+                invalidate(operationStatus, TAG_MUTATION_REGIONS);
+                notifyListeners(operationStatus, new ListenerCall() {
+                    void call(SimpyListener listener) {
+                        listener.tagRemoved(tag);
                     }
-                }
+                });
             }
         } catch (IOException e) {
             logger.error(e);
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
             logger.error(e);
         } finally {
             get.releaseConnection();
@@ -278,9 +752,8 @@ public class Simpy {
      * @param toTag   Specifies the new tag name.
      * @return Status reponse indicating either success or failure.
      */
-    public int renameTag(String fromTag, String toTag) {
+    public int renameTag(final String fromTag, final String toTag) {
         int operationStatus = 0;
-        StringBuffer result = new StringBuffer();
 
         GetMethod get = new GetMethod(SimpyConstants.API_RENAME_TAG);
         get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
@@ -298,30 +771,19 @@ public class Simpy {
         }
 
         try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
-
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE status SYSTEM \"Status.dtd\">", ""));
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE error SYSTEM \"Error.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList codeItems = document.getElementsByTagName(SimpyConstants.CODE_TAG);
-                if (codeItems != null && codeItems.getLength() > 0) {
-                    for (int i = 0; i < codeItems.getLength(); i++) {
-                        Node codeItem = codeItems.item(i);
-                        operationStatus = Integer.parseInt(getNodeValue(codeItem));
+            InputStream response = execute(get);
+            if (response != null) {
+                operationStatus = SimpyResponseParser.parseStatus(response);
+                invalidate(operationStatus, TAG_MUTATION_REGIONS);
+                notifyListeners(operationStatus, new ListenerCall() {
+                    void call(SimpyListener listener) {
+                        listener.tagRenamed(fromTag, toTag);
                     }
-                }
+                });
             }
         } catch (IOException e) {
             logger.error(e);
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
             logger.error(e);
         } finally {
             get.releaseConnection();
@@ -339,9 +801,8 @@ public class Simpy {
      * @param toTag    Specifies the tag to merge the two tags into.
      * @return Status reponse indicating either success or failure.
      */
-    public int mergeTags(String fromTag1, String fromTag2, String toTag) {
+    public int mergeTags(final String fromTag1, final String fromTag2, final String toTag) {
         int operationStatus = 0;
-        StringBuffer result = new StringBuffer();
 
         GetMethod get = new GetMethod(SimpyConstants.API_MERGE_TAGS);
         get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
@@ -361,30 +822,19 @@ public class Simpy {
         }
 
         try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
-
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE status SYSTEM \"Status.dtd\">", ""));
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE error SYSTEM \"Error.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList codeItems = document.getElementsByTagName(SimpyConstants.CODE_TAG);
-                if (codeItems != null && codeItems.getLength() > 0) {
-                    for (int i = 0; i < codeItems.getLength(); i++) {
-                        Node codeItem = codeItems.item(i);
-                        operationStatus = Integer.parseInt(getNodeValue(codeItem));
+            InputStream response = execute(get);
+            if (response != null) {
+                operationStatus = SimpyResponseParser.parseStatus(response);
+                invalidate(operationStatus, TAG_MUTATION_REGIONS);
+                notifyListeners(operationStatus, new ListenerCall() {
+                    void call(SimpyListener listener) {
+                        listener.tagsMerged(fromTag1, fromTag2, toTag);
                     }
-                }
+                });
             }
         } catch (IOException e) {
             logger.error(e);
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
             logger.error(e);
         } finally {
             get.releaseConnection();
@@ -402,9 +852,8 @@ public class Simpy {
      * @param toTag2 Specifies the second tag to split into.
      * @return Status reponse indicating either success or failure.
      */
-    public int splitTag(String tag, String toTag1, String toTag2) {
+    public int splitTag(final String tag, final String toTag1, final String toTag2) {
         int operationStatus = 0;
-        StringBuffer result = new StringBuffer();
 
         GetMethod get = new GetMethod(SimpyConstants.API_SPLIT_TAG);
         get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
@@ -423,30 +872,19 @@ public class Simpy {
         }
 
         try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
-
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE status SYSTEM \"Status.dtd\">", ""));
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE error SYSTEM \"Error.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList codeItems = document.getElementsByTagName(SimpyConstants.CODE_TAG);
-                if (codeItems != null && codeItems.getLength() > 0) {
-                    for (int i = 0; i < codeItems.getLength(); i++) {
-                        Node codeItem = codeItems.item(i);
-                        operationStatus = Integer.parseInt(getNodeValue(codeItem));
+            InputStream response = execute(get);
+            if (response != null) {
+                operationStatus = SimpyResponseParser.parseStatus(response);
+                invalidate(operationStatus, TAG_MUTATION_REGIONS);
+                notifyListeners(operationStatus, new ListenerCall() {
+                    void call(SimpyListener listener) {
+                        listener.tagSplit(tag, toTag1, toTag2);
                     }
-                }
+                });
             }
         } catch (IOException e) {
             logger.error(e);
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
             logger.error(e);
         } finally {
             get.releaseConnection();
@@ -460,172 +898,122 @@ public class Simpy {
      * Depending on your input parameters, this methdod returns links
      * added on or between given dates, or links matching a given query. The
      * number of links to be returned can be freely configured.
+     * If the response breaks off, the links read so far are returned and
+     * {@link #getReadStatus()} returns {@link SimpyConstants#READ_STATUS_INCOMPLETE}.
      *
      * @param limit number of links to return
      * @return Returns
      */
-    public List getLinks(String q, String date, String afterDate, String beforeDate, int limit) {
-        List links = new ArrayList();
-        StringBuffer result = new StringBuffer();
-
-        GetMethod get = new GetMethod(SimpyConstants.API_GET_LINKS);
-        get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
-        get.setDoAuthentication(true);
-        get.setFollowRedirects(true);
-
-        List queryParameters = new ArrayList();
-        queryParameters.add(new NameValuePair(SimpyConstants.LIMIT, String.valueOf(limit)));
-
-        if (!SimpyUtils.checkNullOrBlank(q)) {
-            queryParameters.add(new NameValuePair(SimpyConstants.Q, q));
-        }
-
-        if (!SimpyUtils.checkNullOrBlank(date)) {
-            queryParameters.add(new NameValuePair(SimpyConstants.DATE, date));
-        } else {
-            if (!SimpyUtils.checkNullOrBlank(afterDate)) {
-                queryParameters.add(new NameValuePair(SimpyConstants.AFTER_DATE, afterDate));
+    public List getLinks(final String q, final String date, final String afterDate, final String beforeDate, final int limit) {
+        return (List) coalesce("GetLinks", parameters(new String[]{q, date, afterDate, beforeDate, String.valueOf(limit)}), new Callable() {
+            public Object call() {
+                return fetchLinks(q, date, afterDate, beforeDate, limit);
             }
+        });
+    }
 
-            if (!SimpyUtils.checkNullOrBlank(beforeDate)) {
-                queryParameters.add(new NameValuePair(SimpyConstants.BEFORE_DATE, beforeDate));
+    /**
+     * Perform the request for {@link #getLinks(String, String, String, String, int)}
+     */
+    private List fetchLinks(String q, String date, String afterDate, String beforeDate, int limit) {
+        SimpyCache cache = this.cache;
+        if (cache != null && SimpyUtils.checkNullOrBlank(q)) {
+            int[] days = toDayWindow(date, afterDate, beforeDate);
+            if (days != null) {
+                List links = getLinksInRange(cache, days[0], days[1], limit);
+                if (links != null) {
+                    return links;
+                }
             }
         }
 
-        get.setQueryString((NameValuePair[]) queryParameters.toArray(new NameValuePair[0]));
-
-        try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
+        List links = new ArrayList();
+        dispatch(createGetLinksMethod(q, date, afterDate, beforeDate, limit), SimpyConstants.LINK_TAG, SimpyResponseParser.collectInto(links));
 
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE links SYSTEM \"GetLinks.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList linkItems = document.getElementsByTagName(SimpyConstants.LINK_TAG);
-                if (linkItems != null && linkItems.getLength() > 0) {
-                    for (int i = 0; i < linkItems.getLength(); i++) {
-                        Node linkItem = linkItems.item(i);
-                        String accessType = linkItem.getAttributes().getNamedItem(SimpyConstants.ACCESS_TYPE_ATTRIBUTE).getNodeValue();
-                        String url = null;
-                        String modDate = null;
-                        String addDate = null;
-                        String title = null;
-                        String nickname = null;
-                        String note = null;
-                        List tags = null;
-
-                        NodeList children = linkItem.getChildNodes();
-                        if (children != null && children.getLength() > 0) {
-                            for (int j = 0; j < children.getLength(); j++) {
-                                Node child = children.item(j);
-                                if (SimpyConstants.URL_TAG.equals(child.getNodeName())) {
-                                    url = getNodeValue(child);
-                                } else if (SimpyConstants.MOD_DATE_TAG.equals(child.getNodeName())) {
-                                    modDate = getNodeValue(child);
-                                } else if (SimpyConstants.ADD_DATE_TAG.equals(child.getNodeName())) {
-                                    addDate = getNodeValue(child);
-                                } else if (SimpyConstants.TITLE_TAG.equals(child.getNodeName())) {
-                                    title = getNodeValue(child);
-                                } else if (SimpyConstants.NICKNAME_TAG.equals(child.getNodeName())) {
-                                    nickname = getNodeValue(child);
-                                } else if (SimpyConstants.NOTE.equals(child.getNodeName())) {
-                                    note = getNodeValue(child);
-                                } else if (SimpyConstants.TAGS_TAG.equals(child.getNodeName())) {
-                                    tags = getChildrenForNode(child);
-                                }
-                            }
-                        }
+        return links;
+    }
 
-                        links.add(new Link(accessType, url, modDate, addDate, title, nickname, note, tags));
-                    }
-                }
-            }
-        } catch (IOException e) {
-            logger.error(e);
-        } catch (SAXException e) {
-            logger.error(e);
-        } finally {
-            get.releaseConnection();
+    /**
+     * Same as {@link #getLinks(String, String, String, String, int)} except that each
+     * {@link Link} is passed to <code>handler</code> as soon as it is parsed instead of being
+     * collected into a list.
+     *
+     * @param handler {@link SimpyHandler} receiving {@link SimpyHandler#onLink(Link)} calls
+     * @return <code>true</code> if every link was passed to the handler, <code>false</code> if the
+     *         handler stopped the transfer or the response could not be read, see
+     *         {@link #getReadStatus()}
+     * @throws IllegalArgumentException If <code>handler</code> is <code>null</code>
+     * @see #getLinks(String, String, String, String, int)
+     * @since 1.4
+     */
+    public boolean getLinks(String q, String date, String afterDate, String beforeDate, int limit, SimpyHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler is a required parameter");
         }
 
-        return links;
+        return dispatch(createGetLinksMethod(q, date, afterDate, beforeDate, limit), SimpyConstants.LINK_TAG, handler);
     }
 
 
     /**
      * Returns the list of your Topics, their meta-data, including the number of new links added each Topic since your last login.
+     * If the response breaks off, the Topics read so far are returned and
+     * {@link #getReadStatus()} returns {@link SimpyConstants#READ_STATUS_INCOMPLETE}.
      *
      * @return Returns the list of your Topics, their meta-data, including the number of new links added each Topic since your last login.
      */
     public List getTopics() {
-        List topics = new ArrayList();
-        StringBuffer result = new StringBuffer();
-
-        GetMethod get = new GetMethod(SimpyConstants.API_GET_TOPICS);
-        get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
-        get.setDoAuthentication(true);
-        get.setFollowRedirects(true);
+        List topics = (List) coalesce("GetTopics", "", new Callable() {
+            public Object call() {
+                return fetchTopics();
+            }
+        });
 
-        try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
+        NegativeCache negativeCache = this.negativeCache;
+        if (negativeCache != null) {
+            for (int i = 0; i < topics.size(); i++) {
+                negativeCache.markPresent(new CacheKey(username, CacheKey.TOPIC, String.valueOf(((Topic) topics.get(i)).getId())));
+            }
+        }
 
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE topics SYSTEM \"GetTopics.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList topicItems = document.getElementsByTagName(SimpyConstants.TOPIC_TAG);
-                if (topicItems != null && topicItems.getLength() > 0) {
-                    for (int i = 0; i < topicItems.getLength(); i++) {
-                        Node topicItem = topicItems.item(i);
-                        Topic topic = new Topic();
-
-                        topic.setId(Integer.parseInt(topicItem.getAttributes().getNamedItem(SimpyConstants.ID_ATTRIBUTE).getNodeValue()));
-                        topic.setName(topicItem.getAttributes().getNamedItem(SimpyConstants.NAME_ATTRIBUTE).getNodeValue());
-                        topic.setDescription(topicItem.getAttributes().getNamedItem(SimpyConstants.DESCRIPTION_ATTRIBUTE).getNodeValue());
-                        topic.setAddDate(topicItem.getAttributes().getNamedItem(SimpyConstants.ADD_DATE_ATTRIBUTE).getNodeValue());
-                        topic.setNewLinks(Integer.parseInt(topicItem.getAttributes().getNamedItem(SimpyConstants.NEW_LINKS_ATTRIBUTE).getNodeValue()));
-
-                        List users = new ArrayList();
-                        NodeList children = topicItem.getChildNodes();
-                        if (children != null && children.getLength() > 0) {
-                            for (int j = 0; j < children.getLength(); j++) {
-                                Node child = children.item(j);
-                                if (SimpyConstants.USER_TAG.equals(child.getNodeName())) {
-                                    users.add(new User(child.getAttributes().getNamedItem(SimpyConstants.USERNAME_ATTRIBUTE).getNodeValue()));
-                                } else if (SimpyConstants.FILTER_TAG.equals(child.getNodeName())) {
-                                    topic.setFilter(new Filter(child.getAttributes().getNamedItem(SimpyConstants.NAME_ATTRIBUTE).getNodeValue(), child.getAttributes().getNamedItem(SimpyConstants.QUERY_ATTRIBUTE).getNodeValue()));
-                                }
-                            }
-                        }
+        return topics;
+    }
 
-                        topic.setUsers(users);
-                        topics.add(topic);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            logger.error(e);
-        } catch (SAXException e) {
-            logger.error(e);
-        } finally {
-            get.releaseConnection();
+    /**
+     * Perform the request for {@link #getTopics()}
+     */
+    private List fetchTopics() {
+        SimpyCache cache = this.cache;
+        if (cache != null) {
+            return readThrough(cache, new CacheKey(username, CacheKey.TOPICS, null));
         }
 
+        List topics = new ArrayList();
+        dispatch(createGetTopicsMethod(), SimpyConstants.TOPIC_TAG, SimpyResponseParser.collectInto(topics));
+
         return topics;
     }
 
+    /**
+     * Same as {@link #getTopics()} except that each {@link Topic} is passed to
+     * <code>handler</code> as soon as it is parsed instead of being collected into a list.
+     *
+     * @param handler {@link SimpyHandler} receiving {@link SimpyHandler#onTopic(Topic)} calls
+     * @return <code>true</code> if every Topic was passed to the handler, <code>false</code> if the
+     *         handler stopped the transfer or the response could not be read, see
+     *         {@link #getReadStatus()}
+     * @throws IllegalArgumentException If <code>handler</code> is <code>null</code>
+     * @see #getTopics()
+     * @since 1.4
+     */
+    public boolean getTopics(SimpyHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler is a required parameter");
+        }
+
+        return dispatch(createGetTopicsMethod(), SimpyConstants.TOPIC_TAG, handler);
+    }
+
 
     /**
      * Returns the meta-data for a given Topic.
@@ -633,9 +1021,69 @@ public class Simpy {
      * @param topicId The ID of a Topic you want to retrieve. The ID must belong to your Topic.
      * @return Returns the meta-data for a given Topic.
      */
-    public Topic getTopic(int topicId) {
+    public Topic getTopic(final int topicId) {
+        NegativeCache negativeCache = this.negativeCache;
+        if (negativeCache != null && negativeCache.isMissing(new CacheKey(username, CacheKey.TOPIC, String.valueOf(topicId)))) {
+            setHttpResult(HttpStatus.SC_OK);
+            setReadStatus(SimpyConstants.STATUS_CODE_NON_EXISTENT_ENTITY);
+            return null;
+        }
+
+        return (Topic) coalesce("GetTopic", String.valueOf(topicId), new Callable() {
+            public Object call() {
+                return fetchTopic(topicId);
+            }
+        });
+    }
+
+    /**
+     * Return every Topic with its full details, as returned by {@link #getTopic(int)}. The
+     * Topics are listed with {@link #getTopics()} and then retrieved with
+     * {@link SimpyConstants#DEFAULT_DETAIL_CONCURRENCY} requests at a time.
+     *
+     * @return List of {@link Topic} objects
+     * @see #getAllTopicsDetailed(int)
+     * @since 1.4
+     */
+    public List getAllTopicsDetailed() {
+        return getAllTopicsDetailed(SimpyConstants.DEFAULT_DETAIL_CONCURRENCY);
+    }
+
+    /**
+     * Return every Topic with its full details, as returned by {@link #getTopic(int)}. The
+     * Topics are listed with {@link #getTopics()} and then retrieved concurrently. A Topic
+     * whose details cannot be retrieved is returned as listed and {@link #getHttpResult()} or
+     * {@link #getReadStatus()} reports the first failure; a Topic that Simpy reports as
+     * non-existent in the meantime is left out. If the listing fails or breaks off, the Topics
+     * listed so far are returned without details. Requests are made one at a time if this
+     * object uses a single connection.
+     *
+     * @param maxConcurrentRequests Maximum number of {@link #getTopic(int)} requests at a time; the
+     *                              calling thread and at most
+     *                              {@link SimpyConstants#MAX_BACKGROUND_THREADS} background
+     *                              threads make them
+     * @return List of {@link Topic} objects
+     * @since 1.4
+     */
+    public List getAllTopicsDetailed(int maxConcurrentRequests) {
+        List topics = getTopics();
+        if (getHttpResult() != HttpStatus.SC_OK || getReadStatus() != SimpyConstants.STATUS_CODE_SUCCESS) {
+            return topics;
+        }
+
+        return getAllDetailed(topics, maxConcurrentRequests, new DetailCall() {
+            Object call(Object summary) {
+                return getTopic(((Topic) summary).getId());
+            }
+        });
+    }
+
+    /**
+     * Perform the request for {@link #getTopic(int)}
+     */
+    private Topic fetchTopic(int topicId) {
         Topic topic = null;
-        StringBuffer result = new StringBuffer();
+        setReadStatus(SimpyConstants.STATUS_CODE_SUCCESS);
 
         GetMethod get = new GetMethod(SimpyConstants.API_GET_TOPIC);
         get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
@@ -644,35 +1092,23 @@ public class Simpy {
         get.setQueryString(new NameValuePair[]{new NameValuePair(SimpyConstants.TOPIC_ID, Integer.toString(topicId))});
 
         try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
-
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE topic SYSTEM \"GetTopic.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList topicItems = document.getElementsByTagName(SimpyConstants.TOPIC_TAG);
-                if (topicItems != null && topicItems.getLength() > 0) {
-                    for (int i = 0; i < topicItems.getLength(); i++) {
-                        Node topicItem = topicItems.item(i);
-                        topic = new Topic();
-
-                        topic.setId(Integer.parseInt(topicItem.getAttributes().getNamedItem(SimpyConstants.ID_ATTRIBUTE).getNodeValue()));
-                        topic.setName(topicItem.getAttributes().getNamedItem(SimpyConstants.NAME_ATTRIBUTE).getNodeValue());
-                        topic.setDescription(topicItem.getAttributes().getNamedItem(SimpyConstants.DESCRIPTION_ATTRIBUTE).getNodeValue());
-                        topic.setAddDate(topicItem.getAttributes().getNamedItem(SimpyConstants.ADD_DATE_ATTRIBUTE).getNodeValue());
-                        topic.setNewLinks(Integer.parseInt(topicItem.getAttributes().getNamedItem(SimpyConstants.NEW_LINKS_ATTRIBUTE).getNodeValue()));
-                    }
+            InputStream response = execute(get);
+            if (response != null) {
+                byte[] body = SimpyUtils.readFully(response);
+                List topics = new ArrayList();
+                SimpyResponseParser.parseTopics(new ByteArrayInputStream(body), topics);
+                if (topics.size() > 0) {
+                    topic = (Topic) topics.get(topics.size() - 1);
+                } else {
+                    setReadStatus(SimpyResponseParser.parseStatus(new ByteArrayInputStream(body)));
+                    rememberMissing(get, CacheKey.TOPIC, topicId);
                 }
             }
         } catch (IOException e) {
+            setReadStatus(SimpyConstants.READ_STATUS_INCOMPLETE);
             logger.error(e);
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
+            setReadStatus(SimpyConstants.READ_STATUS_INCOMPLETE);
             logger.error(e);
         } finally {
             get.releaseConnection();
@@ -686,6 +1122,8 @@ public class Simpy {
      * Returns all your Notes in the reverse chronological order by add date
      * (i.e. the most recently added Note first) or by relevance, if a
      * search String is specified.
+     * If the response breaks off, the Notes read so far are returned and
+     * {@link #getReadStatus()} returns {@link SimpyConstants#READ_STATUS_INCOMPLETE}.
      *
      * @param q a search String that is used in the API
      * @return a List of Note objects
@@ -695,6 +1133,23 @@ public class Simpy {
     }
 
 
+    /**
+     * Same as {@link #getAllNotes(String) getAllNotes()} except that Notes are parsed one at
+     * a time from the open response as the stream is consumed. The stream must be closed to
+     * release the connection. Failures are reported by a {@link SimpyException} as described
+     * for {@link #streamAllLinks(String, String, String, String)}.
+     *
+     * @param q a search String that is used in the API
+     * @return {@link Stream} of {@link Note} objects
+     * @throws SimpyException If the request fails or does not return HTTP 200
+     * @see #getAllNotes(String)
+     * @since 1.4
+     */
+    public Stream<Note> streamAllNotes(String q) {
+        return openStream(createGetNotesMethod(q, Integer.MAX_VALUE), SimpyConstants.NOTE_TAG);
+    }
+
+
     /**
      * Fetches the ten most recently addded Notes from the simpy, or the ten
      * most relevant Notes, according to the specified search String. The
@@ -716,6 +1171,8 @@ public class Simpy {
      * Returns all your Notes in the reverse chronological order by add date
      * (i.e. the most recently added Note first) or by rank, if you use this
      * in the search mode.
+     * If the response breaks off, the Notes read so far are returned and
+     * {@link #getReadStatus()} returns {@link SimpyConstants#READ_STATUS_INCOMPLETE}.
      *
      * @param q     A query string that forces the API call to return only the matching Notes.
      * @param limit the number of Notes to return.
@@ -723,84 +1180,42 @@ public class Simpy {
      *         add date (i.e. the most recently added Note first) or by rank,
      *         if you use this in the search mode.
      */
-    public List getNotes(String q, int limit) {
-        List notes = new ArrayList();
-        StringBuffer result = new StringBuffer();
-
-        GetMethod get = new GetMethod(SimpyConstants.API_GET_NOTES);
-        get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
-        get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
-        get.setDoAuthentication(true);
-        get.setFollowRedirects(true);
-
-        List queryParameters = new ArrayList();
-        queryParameters.add(new NameValuePair(SimpyConstants.LIMIT, String.valueOf(limit)));
-
-        if (!SimpyUtils.checkNullOrBlank(q)) {
-            queryParameters.add(new NameValuePair(SimpyConstants.Q, q));
-        }
-
-        get.setQueryString((NameValuePair[]) queryParameters.toArray(new NameValuePair[0]));
+    public List getNotes(final String q, final int limit) {
+        return (List) coalesce("GetNotes", parameters(new String[]{q, String.valueOf(limit)}), new Callable() {
+            public Object call() {
+                return fetchNotes(q, limit);
+            }
+        });
+    }
 
-        try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
+    /**
+     * Perform the request for {@link #getNotes(String, int)}
+     */
+    private List fetchNotes(String q, int limit) {
+        List notes = new ArrayList();
+        dispatch(createGetNotesMethod(q, limit), SimpyConstants.NOTE_TAG, SimpyResponseParser.collectInto(notes));
 
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE notes SYSTEM \"GetNotes.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList noteItems = document.getElementsByTagName(SimpyConstants.NOTE_TAG);
-                if (noteItems != null && noteItems.getLength() > 0) {
-                    for (int i = 0; i < noteItems.getLength(); i++) {
-                        Node noteItem = noteItems.item(i);
-
-                        NodeList children = noteItem.getChildNodes();
-                        if (children != null && children.getLength() > 1) {
-                            Note note = new Note();
-
-                            note.setAccessType(noteItem.getAttributes().getNamedItem(SimpyConstants.ACCESS_TYPE_ATTRIBUTE).getNodeValue());
-                            List tags;
-
-                            for (int j = 0; j < children.getLength(); j++) {
-                                Node child = children.item(j);
-                                if (SimpyConstants.URI_TAG.equals(child.getNodeName())) {
-                                    note.setUri(getNodeValue(child));
-                                } else if (SimpyConstants.MOD_DATE_TAG.equals(child.getNodeName())) {
-                                    note.setModDate(getNodeValue(child));
-                                } else if (SimpyConstants.ADD_DATE_TAG.equals(child.getNodeName())) {
-                                    note.setAddDate(getNodeValue(child));
-                                } else if (SimpyConstants.TITLE_TAG.equals(child.getNodeName())) {
-                                    note.setTitle(getNodeValue(child));
-                                } else if (SimpyConstants.DESCRIPTION_TAG.equals(child.getNodeName())) {
-                                    note.setDescription(getNodeValue(child));
-                                } else if (SimpyConstants.TAGS_TAG.equals(child.getNodeName())) {
-                                    tags = getChildrenForNode(child);
-                                    note.setTags(tags);
-                                } else if (SimpyConstants.ID_TAG.equals(child.getNodeName())) {
-                                    note.setId(getNodeValue(child));
-                                }
-                            }
+        return notes;
+    }
 
-                            notes.add(note);
-                        }
-                    }
-                }
-            }
-        } catch (IOException e) {
-            logger.error(e);
-        } catch (SAXException e) {
-            logger.error(e);
-        } finally {
-            get.releaseConnection();
+    /**
+     * Same as {@link #getNotes(String, int)} except that each {@link Note} is passed to
+     * <code>handler</code> as soon as it is parsed instead of being collected into a list.
+     *
+     * @param handler {@link SimpyHandler} receiving {@link SimpyHandler#onNote(Note)} calls
+     * @return <code>true</code> if every Note was passed to the handler, <code>false</code> if the
+     *         handler stopped the transfer or the response could not be read, see
+     *         {@link #getReadStatus()}
+     * @throws IllegalArgumentException If <code>handler</code> is <code>null</code>
+     * @see #getNotes(String, int)
+     * @since 1.4
+     */
+    public boolean getNotes(String q, int limit, SimpyHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler is a required parameter");
         }
 
-        return notes;
+        return dispatch(createGetNotesMethod(q, limit), SimpyConstants.NOTE_TAG, handler);
     }
 
 
@@ -816,7 +1231,7 @@ public class Simpy {
      * @return Status reponse indicating either success or failure.
      * @throws IllegalArgumentException If either <code>title</code> or <code>href</code> is <code>null</code> as they are required parameters
      */
-    public int saveLink(String title, String href, int accessType, String tags, String nickname, String note) {
+    public int saveLink(String title, final String href, int accessType, final String tags, String nickname, String note) {
         if (title == null) {
             throw new IllegalArgumentException(SimpyConstants.TITLE + " is a required parameter");
         }
@@ -826,7 +1241,6 @@ public class Simpy {
         }
 
         int operationStatus = 0;
-        StringBuffer result = new StringBuffer();
 
         GetMethod get = new GetMethod(SimpyConstants.API_SAVE_LINK);
         get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
@@ -857,30 +1271,22 @@ public class Simpy {
         }
 
         try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
+            InputStream response = execute(get);
+            if (response != null) {
+                operationStatus = SimpyResponseParser.parseStatus(response);
+                invalidate(operationStatus, LINK_MUTATION_REGIONS);
+                if (operationStatus == SimpyConstants.STATUS_CODE_SUCCESS) {
+                    trimLinkRange(href, true);
                 }
-
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE status SYSTEM \"Status.dtd\">", ""));
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE error SYSTEM \"Error.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList codeItems = document.getElementsByTagName(SimpyConstants.CODE_TAG);
-                if (codeItems != null && codeItems.getLength() > 0) {
-                    for (int i = 0; i < codeItems.getLength(); i++) {
-                        Node codeItem = codeItems.item(i);
-                        operationStatus = Integer.parseInt(getNodeValue(codeItem));
+                notifyListeners(operationStatus, new ListenerCall() {
+                    void call(SimpyListener listener) {
+                        listener.linkSaved(href, tags);
                     }
-                }
+                });
             }
         } catch (IOException e) {
             logger.error(e);
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
             logger.error(e);
         } finally {
             get.releaseConnection();
@@ -897,15 +1303,14 @@ public class Simpy {
      * @return Status reponse indicating either success or failure.
      * @throws IllegalArgumentException If <code>href</code> is <code>null</code> as they are required parameters
      */
-    public int deleteLink(String href) {
+    public int deleteLink(final String href) {
         if (href == null) {
             throw new IllegalArgumentException(SimpyConstants.HREF + " is a required parameter");
         }
 
         int operationStatus = 0;
-        StringBuffer result = new StringBuffer();
 
-        GetMethod get = new GetMethod(SimpyConstants.API_SAVE_LINK);
+        GetMethod get = new GetMethod(SimpyConstants.API_DELETE_LINK);
         get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
         get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
         get.setDoAuthentication(true);
@@ -920,30 +1325,22 @@ public class Simpy {
         }
 
         try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
+            InputStream response = execute(get);
+            if (response != null) {
+                operationStatus = SimpyResponseParser.parseStatus(response);
+                invalidate(operationStatus, LINK_MUTATION_REGIONS);
+                if (operationStatus == SimpyConstants.STATUS_CODE_SUCCESS) {
+                    trimLinkRange(href, false);
                 }
-
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE status SYSTEM \"Status.dtd\">", ""));
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE error SYSTEM \"Error.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList codeItems = document.getElementsByTagName(SimpyConstants.CODE_TAG);
-                if (codeItems != null && codeItems.getLength() > 0) {
-                    for (int i = 0; i < codeItems.getLength(); i++) {
-                        Node codeItem = codeItems.item(i);
-                        operationStatus = Integer.parseInt(getNodeValue(codeItem));
+                notifyListeners(operationStatus, new ListenerCall() {
+                    void call(SimpyListener listener) {
+                        listener.linkDeleted(href);
                     }
-                }
+                });
             }
         } catch (IOException e) {
             logger.error(e);
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
             logger.error(e);
         } finally {
             get.releaseConnection();
@@ -960,13 +1357,12 @@ public class Simpy {
      * @return Status reponse indicating either success or failure.
      * @throws IllegalArgumentException If <code>title</code> is <code>null</code> as it is a required parameter
      */
-    public int deleteNote(String noteId) {
+    public int deleteNote(final String noteId) {
         if (noteId == null) {
             throw new IllegalArgumentException(SimpyConstants.NOTE_ID + " is a required parameter");
         }
 
         int operationStatus = 0;
-        StringBuffer result = new StringBuffer();
 
         GetMethod get = new GetMethod(SimpyConstants.API_DELETE_NOTE);
         get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
@@ -983,30 +1379,19 @@ public class Simpy {
         }
 
         try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
-
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE status SYSTEM \"Status.dtd\">", ""));
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE error SYSTEM \"Error.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList codeItems = document.getElementsByTagName(SimpyConstants.CODE_TAG);
-                if (codeItems != null && codeItems.getLength() > 0) {
-                    for (int i = 0; i < codeItems.getLength(); i++) {
-                        Node codeItem = codeItems.item(i);
-                        operationStatus = Integer.parseInt(getNodeValue(codeItem));
+            InputStream response = execute(get);
+            if (response != null) {
+                operationStatus = SimpyResponseParser.parseStatus(response);
+                invalidate(operationStatus, NOTE_MUTATION_REGIONS);
+                notifyListeners(operationStatus, new ListenerCall() {
+                    void call(SimpyListener listener) {
+                        listener.noteDeleted(noteId);
                     }
-                }
+                });
             }
         } catch (IOException e) {
             logger.error(e);
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
             logger.error(e);
         } finally {
             get.releaseConnection();
@@ -1025,13 +1410,12 @@ public class Simpy {
      * @return Status reponse indicating either success or failure.
      * @throws IllegalArgumentException If <code>title</code> is <code>null</code> as it is a required parameter
      */
-    public int saveNote(String title, String tags, String description) {
+    public int saveNote(final String title, final String tags, String description) {
         if (title == null) {
             throw new IllegalArgumentException(SimpyConstants.TITLE + " is a required parameter");
         }
 
         int operationStatus = 0;
-        StringBuffer result = new StringBuffer();
 
         GetMethod get = new GetMethod(SimpyConstants.API_SAVE_NOTE);
         get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
@@ -1056,30 +1440,19 @@ public class Simpy {
         }
 
         try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
-
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE status SYSTEM \"Status.dtd\">", ""));
-                result = new StringBuffer(result.toString().replaceAll("<!DOCTYPE error SYSTEM \"Error.dtd\">", ""));
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList codeItems = document.getElementsByTagName(SimpyConstants.CODE_TAG);
-                if (codeItems != null && codeItems.getLength() > 0) {
-                    for (int i = 0; i < codeItems.getLength(); i++) {
-                        Node codeItem = codeItems.item(i);
-                        operationStatus = Integer.parseInt(getNodeValue(codeItem));
+            InputStream response = execute(get);
+            if (response != null) {
+                operationStatus = SimpyResponseParser.parseStatus(response);
+                invalidate(operationStatus, NOTE_MUTATION_REGIONS);
+                notifyListeners(operationStatus, new ListenerCall() {
+                    void call(SimpyListener listener) {
+                        listener.noteSaved(title, tags);
                     }
-                }
+                });
             }
         } catch (IOException e) {
             logger.error(e);
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
             logger.error(e);
         } finally {
             get.releaseConnection();
@@ -1091,85 +1464,63 @@ public class Simpy {
 
     /**
      * This API call returns the list of your Watchlists, their meta-data, including the number of new links added to each Watchlist since your last login.
+     * If the response breaks off, the Watchlists read so far are returned and
+     * {@link #getReadStatus()} returns {@link SimpyConstants#READ_STATUS_INCOMPLETE}.
      *
      * @return List of {@link Watchlist} items
      */
     public List getWatchlists() {
-        List watchlists = new ArrayList();
-        StringBuffer result = new StringBuffer();
-
-        GetMethod get = new GetMethod(SimpyConstants.API_GET_WATCHLISTS);
-        get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
-        get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
-        get.setDoAuthentication(true);
-        get.setFollowRedirects(true);
+        List watchlists = (List) coalesce("GetWatchlists", "", new Callable() {
+            public Object call() {
+                return fetchWatchlists();
+            }
+        });
 
-        try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
+        NegativeCache negativeCache = this.negativeCache;
+        if (negativeCache != null) {
+            for (int i = 0; i < watchlists.size(); i++) {
+                negativeCache.markPresent(new CacheKey(username, CacheKey.WATCHLIST, String.valueOf(((Watchlist) watchlists.get(i)).getId())));
+            }
+        }
 
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList watchlistItems = document.getElementsByTagName(SimpyConstants.WATCHLIST_TAG);
-                if (watchlistItems != null && watchlistItems.getLength() > 0) {
-                    for (int i = 0; i < watchlistItems.getLength(); i++) {
-                        Watchlist watchlist = null;
-                        Node watchlistItem = watchlistItems.item(i);
-
-                        if (watchlistItem != null) {
-                            watchlist = new Watchlist();
-
-                            watchlist.setId(Integer.parseInt(watchlistItem.getAttributes().getNamedItem(SimpyConstants.ID_ATTRIBUTE).getNodeValue()));
-                            watchlist.setName(watchlistItem.getAttributes().getNamedItem(SimpyConstants.NAME_ATTRIBUTE).getNodeValue());
-                            watchlist.setDescription(watchlistItem.getAttributes().getNamedItem(SimpyConstants.DESCRIPTION_ATTRIBUTE).getNodeValue());
-                            watchlist.setAddDate(watchlistItem.getAttributes().getNamedItem(SimpyConstants.ADD_DATE_ATTRIBUTE).getNodeValue());
-                            watchlist.setNewLinks(Integer.parseInt(watchlistItem.getAttributes().getNamedItem(SimpyConstants.NEW_LINKS_ATTRIBUTE).getNodeValue()));
-
-                            NodeList watchlistChildren = watchlistItem.getChildNodes();
-                            if (watchlistChildren != null && watchlistChildren.getLength() > 1) {
-                                List users = new ArrayList();
-                                List filters = new ArrayList();
-
-                                for (int j = 0; j < watchlistChildren.getLength(); j++) {
-                                    Node child = watchlistChildren.item(j);
-
-                                    if (SimpyConstants.FILTER_TAG.equals(child.getNodeName())) {
-                                        Filter filter = new Filter();
-                                        filter.setName(child.getAttributes().getNamedItem(SimpyConstants.NAME_ATTRIBUTE).getNodeValue());
-                                        filter.setQuery(child.getAttributes().getNamedItem(SimpyConstants.QUERY_ATTRIBUTE).getNodeValue());
-                                        filters.add(filter);
-                                    } else if (SimpyConstants.USER_TAG.equals(child.getNodeName())) {
-                                        User user = new User();
-                                        user.setUsername(child.getAttributes().getNamedItem(SimpyConstants.USERNAME_ATTRIBUTE).getNodeValue());
-                                        users.add(user);
-                                    }
-                                }
-
-                                watchlist.setUsers(users);
-                                watchlist.setFilters(filters);
-                            }
+        return watchlists;
+    }
 
-                            watchlists.add(watchlist);
-                        }
-                    }
-                }
-            }
-        } catch (IOException e) {
-            logger.error(e);
-        } catch (SAXException e) {
-            logger.error(e);
-        } finally {
-            get.releaseConnection();
+    /**
+     * Perform the request for {@link #getWatchlists()}
+     */
+    private List fetchWatchlists() {
+        SimpyCache cache = this.cache;
+        if (cache != null) {
+            return readThrough(cache, new CacheKey(username, CacheKey.WATCHLISTS, null));
         }
 
+        List watchlists = new ArrayList();
+        dispatch(createGetWatchlistsMethod(), SimpyConstants.WATCHLIST_TAG, SimpyResponseParser.collectInto(watchlists));
+
         return watchlists;
     }
 
+    /**
+     * Same as {@link #getWatchlists()} except that each {@link Watchlist} is passed to
+     * <code>handler</code> as soon as it is parsed instead of being collected into a list.
+     *
+     * @param handler {@link SimpyHandler} receiving {@link SimpyHandler#onWatchlist(Watchlist)} calls
+     * @return <code>true</code> if every Watchlist was passed to the handler, <code>false</code> if
+     *         the handler stopped the transfer or the response could not be read, see
+     *         {@link #getReadStatus()}
+     * @throws IllegalArgumentException If <code>handler</code> is <code>null</code>
+     * @see #getWatchlists()
+     * @since 1.4
+     */
+    public boolean getWatchlists(SimpyHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler is a required parameter");
+        }
+
+        return dispatch(createGetWatchlistsMethod(), SimpyConstants.WATCHLIST_TAG, handler);
+    }
+
     /**
      * Retrieve a {@link Watchlist} for the given watchlist id
      *
@@ -1177,9 +1528,69 @@ public class Simpy {
      * @return {@link Watchlist} for the given watchlist id or <code>null</code> if the watchlist could not be loaded
      * @since 1.2
      */
-    public Watchlist getWatchlist(int watchlistId) {
+    public Watchlist getWatchlist(final int watchlistId) {
+        NegativeCache negativeCache = this.negativeCache;
+        if (negativeCache != null && negativeCache.isMissing(new CacheKey(username, CacheKey.WATCHLIST, String.valueOf(watchlistId)))) {
+            setHttpResult(HttpStatus.SC_OK);
+            setReadStatus(SimpyConstants.STATUS_CODE_NON_EXISTENT_ENTITY);
+            return null;
+        }
+
+        return (Watchlist) coalesce("GetWatchlist", String.valueOf(watchlistId), new Callable() {
+            public Object call() {
+                return fetchWatchlist(watchlistId);
+            }
+        });
+    }
+
+    /**
+     * Return every Watchlist with its full details, as returned by {@link #getWatchlist(int)}.
+     * The Watchlists are listed with {@link #getWatchlists()} and then retrieved with
+     * {@link SimpyConstants#DEFAULT_DETAIL_CONCURRENCY} requests at a time.
+     *
+     * @return List of {@link Watchlist} objects
+     * @see #getAllWatchlistsDetailed(int)
+     * @since 1.4
+     */
+    public List getAllWatchlistsDetailed() {
+        return getAllWatchlistsDetailed(SimpyConstants.DEFAULT_DETAIL_CONCURRENCY);
+    }
+
+    /**
+     * Return every Watchlist with its full details, as returned by {@link #getWatchlist(int)}.
+     * The Watchlists are listed with {@link #getWatchlists()} and then retrieved concurrently.
+     * A Watchlist whose details cannot be retrieved is returned as listed and
+     * {@link #getHttpResult()} or {@link #getReadStatus()} reports the first failure; a
+     * Watchlist that Simpy reports as non-existent in the meantime is left out. If the listing
+     * fails or breaks off, the Watchlists listed so far are returned without details. Requests
+     * are made one at a time if this object uses a single connection.
+     *
+     * @param maxConcurrentRequests Maximum number of {@link #getWatchlist(int)} requests at a time; the
+     *                              calling thread and at most
+     *                              {@link SimpyConstants#MAX_BACKGROUND_THREADS} background
+     *                              threads make them
+     * @return List of {@link Watchlist} objects
+     * @since 1.4
+     */
+    public List getAllWatchlistsDetailed(int maxConcurrentRequests) {
+        List watchlists = getWatchlists();
+        if (getHttpResult() != HttpStatus.SC_OK || getReadStatus() != SimpyConstants.STATUS_CODE_SUCCESS) {
+            return watchlists;
+        }
+
+        return getAllDetailed(watchlists, maxConcurrentRequests, new DetailCall() {
+            Object call(Object summary) {
+                return getWatchlist(((Watchlist) summary).getId());
+            }
+        });
+    }
+
+    /**
+     * Perform the request for {@link #getWatchlist(int)}
+     */
+    private Watchlist fetchWatchlist(int watchlistId) {
         Watchlist watchlist = null;
-        StringBuffer result = new StringBuffer();
+        setReadStatus(SimpyConstants.STATUS_CODE_SUCCESS);
 
         GetMethod get = new GetMethod(SimpyConstants.API_GET_WATCHLIST);
         get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
@@ -1193,61 +1604,23 @@ public class Simpy {
         get.setQueryString((NameValuePair[]) queryParameters.toArray(new NameValuePair[0]));
 
         try {
-            httpResult = httpClient.executeMethod(get);
-            logger.debug("Result: " + httpResult);
-            if (get.getResponseBodyAsStream() != null) {
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(get.getResponseBodyAsStream(), SimpyConstants.UTF8));
-                String input;
-                while ((input = bufferedReader.readLine()) != null) {
-                    result.append(input).append(SimpyConstants.LINE_SEPARATOR);
-                }
-
-                Document document = documentBuilder.parse(new InputSource(new StringReader(result.toString())));
-                NodeList watchlistItems = document.getElementsByTagName(SimpyConstants.WATCHLIST_TAG);
-                if (watchlistItems != null && watchlistItems.getLength() > 0) {
-                    for (int i = 0; i < watchlistItems.getLength(); i++) {
-                        Node watchlistItem = watchlistItems.item(i);
-
-                        if (watchlistItem != null) {
-                            watchlist = new Watchlist();
-
-                            watchlist.setId(Integer.parseInt(watchlistItem.getAttributes().getNamedItem(SimpyConstants.ID_ATTRIBUTE).getNodeValue()));
-                            watchlist.setName(watchlistItem.getAttributes().getNamedItem(SimpyConstants.NAME_ATTRIBUTE).getNodeValue());
-                            watchlist.setDescription(watchlistItem.getAttributes().getNamedItem(SimpyConstants.DESCRIPTION_ATTRIBUTE).getNodeValue());
-                            watchlist.setAddDate(watchlistItem.getAttributes().getNamedItem(SimpyConstants.ADD_DATE_ATTRIBUTE).getNodeValue());
-                            watchlist.setNewLinks(Integer.parseInt(watchlistItem.getAttributes().getNamedItem(SimpyConstants.NEW_LINKS_ATTRIBUTE).getNodeValue()));
-
-                            NodeList watchlistChildren = watchlistItem.getChildNodes();
-                            if (watchlistChildren != null && watchlistChildren.getLength() > 1) {
-                                List users = new ArrayList();
-                                List filters = new ArrayList();
-
-                                for (int j = 0; j < watchlistChildren.getLength(); j++) {
-                                    Node child = watchlistChildren.item(j);
-
-                                    if (SimpyConstants.FILTER_TAG.equals(child.getNodeName())) {
-                                        Filter filter = new Filter();
-                                        filter.setName(child.getAttributes().getNamedItem(SimpyConstants.NAME_ATTRIBUTE).getNodeValue());
-                                        filter.setQuery(child.getAttributes().getNamedItem(SimpyConstants.QUERY_ATTRIBUTE).getNodeValue());
-                                        filters.add(filter);
-                                    } else if (SimpyConstants.USER_TAG.equals(child.getNodeName())) {
-                                        User user = new User();
-                                        user.setUsername(child.getAttributes().getNamedItem(SimpyConstants.USERNAME_ATTRIBUTE).getNodeValue());
-                                        users.add(user);
-                                    }
-                                }
-
-                                watchlist.setUsers(users);
-                                watchlist.setFilters(filters);
-                            }
-                        }
-
-                    }
+            InputStream response = execute(get);
+            if (response != null) {
+                byte[] body = SimpyUtils.readFully(response);
+                List watchlists = new ArrayList();
+                SimpyResponseParser.parseWatchlists(new ByteArrayInputStream(body), watchlists);
+                if (watchlists.size() > 0) {
+                    watchlist = (Watchlist) watchlists.get(watchlists.size() - 1);
+                } else {
+                    setReadStatus(SimpyResponseParser.parseStatus(new ByteArrayInputStream(body)));
+                    rememberMissing(get, CacheKey.WATCHLIST, watchlistId);
                 }
             }
         } catch (IOException e) {
+            setReadStatus(SimpyConstants.READ_STATUS_INCOMPLETE);
             logger.error(e);
-        } catch (SAXException e) {
+        } catch (XMLStreamException e) {
+            setReadStatus(SimpyConstants.READ_STATUS_INCOMPLETE);
             logger.error(e);
         } finally {
             get.releaseConnection();
@@ -1259,41 +1632,940 @@ public class Simpy {
     // ============ private Helper methods ============
 
     /**
-     * Retrieve the text for a node
+     * Create the request for {@link #getTags()}
      *
-     * @param node Node
-     * @return Text for a node or <code>null</code> if none available
+     * @return {@link GetMethod}
      */
-    private String getNodeValue(Node node) {
-        String result = null;
-        NodeList children = node.getChildNodes();
-        if (children != null && children.getLength() > 0) {
-            result = children.item(0).getNodeValue();
-        }
+    private GetMethod createGetTagsMethod() {
+        GetMethod get = new GetMethod(SimpyConstants.API_GET_TAGS);
+        get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
+        get.setDoAuthentication(true);
+        get.setFollowRedirects(true);
 
-        return result;
+        return get;
     }
 
-
     /**
-     * Retrieve the text for the child nodes of a given node
+     * Create the request for a <code>GetLinks</code> call
      *
-     * @param node Node
-     * @return List with text for the child nodes
+     * @see #getLinks(String, String, String, String, int)
      */
-    private List getChildrenForNode(Node node) {
-        List result = new ArrayList();
+    private GetMethod createGetLinksMethod(String q, String date, String afterDate, String beforeDate, int limit) {
+        GetMethod get = new GetMethod(SimpyConstants.API_GET_LINKS);
+        get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
+        get.setDoAuthentication(true);
+        get.setFollowRedirects(true);
 
-        NodeList children = node.getChildNodes();
-        if (children != null && children.getLength() > 0) {
-            for (int i = 0; i < children.getLength(); i++) {
-                if (children.item(i).getChildNodes() != null && children.item(i).getChildNodes().getLength() > 0) {
-                    result.add(getNodeValue(children.item(i)));
-                }
+        List queryParameters = new ArrayList();
+        queryParameters.add(new NameValuePair(SimpyConstants.LIMIT, String.valueOf(limit)));
+
+        if (!SimpyUtils.checkNullOrBlank(q)) {
+            queryParameters.add(new NameValuePair(SimpyConstants.Q, q));
+        }
+
+        if (!SimpyUtils.checkNullOrBlank(date)) {
+            queryParameters.add(new NameValuePair(SimpyConstants.DATE, date));
+        } else {
+            if (!SimpyUtils.checkNullOrBlank(afterDate)) {
+                queryParameters.add(new NameValuePair(SimpyConstants.AFTER_DATE, afterDate));
+            }
+
+            if (!SimpyUtils.checkNullOrBlank(beforeDate)) {
+                queryParameters.add(new NameValuePair(SimpyConstants.BEFORE_DATE, beforeDate));
             }
         }
 
-        return result;
+        get.setQueryString((NameValuePair[]) queryParameters.toArray(new NameValuePair[0]));
+
+        return get;
+    }
+
+
+    /**
+     * Create the request for a <code>GetTopics</code> call
+     *
+     * @see #getTopics()
+     */
+    private GetMethod createGetTopicsMethod() {
+        GetMethod get = new GetMethod(SimpyConstants.API_GET_TOPICS);
+        get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
+        get.setDoAuthentication(true);
+        get.setFollowRedirects(true);
+
+        return get;
+    }
+
+
+    /**
+     * Create the request for a <code>GetWatchlists</code> call
+     *
+     * @see #getWatchlists()
+     */
+    private GetMethod createGetWatchlistsMethod() {
+        GetMethod get = new GetMethod(SimpyConstants.API_GET_WATCHLISTS);
+        get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
+        get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
+        get.setDoAuthentication(true);
+        get.setFollowRedirects(true);
+
+        return get;
     }
 
-}
+
+    /**
+     * Create the request for a <code>GetNotes</code> call
+     *
+     * @see #getNotes(String, int)
+     */
+    private GetMethod createGetNotesMethod(String q, int limit) {
+        GetMethod get = new GetMethod(SimpyConstants.API_GET_NOTES);
+        get.addRequestHeader("Content-Type", "application/x-www-form-urlencoded; charset=utf-8");
+        get.addRequestHeader(SimpyConstants.AUTHORIZATION_HEADER, encodeForAuthorization());
+        get.setDoAuthentication(true);
+        get.setFollowRedirects(true);
+
+        List queryParameters = new ArrayList();
+        queryParameters.add(new NameValuePair(SimpyConstants.LIMIT, String.valueOf(limit)));
+
+        if (!SimpyUtils.checkNullOrBlank(q)) {
+            queryParameters.add(new NameValuePair(SimpyConstants.Q, q));
+        }
+
+        get.setQueryString((NameValuePair[]) queryParameters.toArray(new NameValuePair[0]));
+
+        return get;
+    }
+
+
+    /**
+     * Execute a request and pass each result to a handler. If the handler stops the transfer
+     * the connection is aborted rather than drained.
+     *
+     * @param get         {@link GetMethod}
+     * @param elementName Name of the result elements
+     * @param handler     {@link SimpyHandler}
+     * @return <code>true</code> if every result was passed to the handler, <code>false</code> otherwise
+     */
+    private boolean dispatch(GetMethod get, String elementName, SimpyHandler handler) {
+        boolean completed = false;
+        setReadStatus(SimpyConstants.STATUS_CODE_SUCCESS);
+
+        try {
+            InputStream response = execute(get);
+            if (response != null) {
+                CapturingInputStream body = new CapturingInputStream(response);
+                CountingHandler counter = new CountingHandler(handler);
+                completed = parse(body, elementName, counter);
+
+                if (!completed) {
+                    get.abort();
+                } else if (counter.count == 0) {
+                    checkStatusDocument(body);
+                }
+            }
+        } catch (IOException e) {
+            setReadStatus(SimpyConstants.READ_STATUS_INCOMPLETE);
+            logger.error(e);
+        } catch (XMLStreamException e) {
+            setReadStatus(SimpyConstants.READ_STATUS_INCOMPLETE);
+            logger.error(e);
+        } finally {
+            get.releaseConnection();
+        }
+
+        return completed;
+    }
+
+
+    /**
+     * Parse a response with the parser selected for this object, passing each result to a
+     * handler
+     *
+     * @param response    Response body
+     * @param elementName Name of the result elements
+     * @param handler     {@link SimpyHandler}
+     * @return <code>false</code> if the handler stopped the parse, <code>true</code> otherwise
+     * @throws IOException        If there is an error reading the response
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    private boolean parse(InputStream response, String elementName, SimpyHandler handler) throws IOException, XMLStreamException {
+        if (compactTags) {
+            handler = new CompactingHandler(handler, tagDictionary);
+        }
+
+        if (parallelParsing) {
+            return ParallelResponseParser.parse(SimpyUtils.readFully(response), elementName, handler, lazyResults, ForkJoinPool.commonPool());
+        } else if (fastParsing || lazyResults) {
+            return FastResponseParser.parse(SimpyUtils.readFully(response), elementName, handler, lazyResults);
+        }
+
+        return SimpyResponseParser.parse(response, elementName, handler);
+    }
+
+
+    /**
+     * Record a successful mutating call, so that reads started earlier are neither cached nor
+     * shared with later reads, and remove every cached entry of the given regions of this account
+     *
+     * @param operationStatus Status code returned by Simpy
+     * @param regions         Affected regions
+     */
+    private void invalidate(int operationStatus, String[] regions) {
+        if (operationStatus != SimpyConstants.STATUS_CODE_SUCCESS) {
+            return;
+        }
+
+        synchronized (this) {
+            writeGeneration++;
+        }
+
+        SimpyCache cache = this.cache;
+        if (cache != null) {
+            for (int i = 0; i < regions.length; i++) {
+                cache.invalidateRegion(username, regions[i]);
+            }
+        }
+    }
+
+    /**
+     * Drop the days of the cached {@link LinkRange} that a saved or deleted link may have
+     * changed: the days from the link's add date on and, for a saved link, the days from
+     * yesterday on, since Simpy dates a new link by its own clock. The days before are kept.
+     *
+     * @param href  URL of the link
+     * @param saved <code>true</code> if the link was saved, <code>false</code> if it was deleted
+     */
+    private void trimLinkRange(String href, boolean saved) {
+        SimpyCache cache = this.cache;
+        if (cache == null) {
+            return;
+        }
+
+        CacheKey key = new CacheKey(username, CacheKey.LINKS, "");
+        synchronized (this) {
+            CacheEntry entry = cache.get(key);
+            if (entry == null) {
+                return;
+            } else if (entry.isExpired(System.currentTimeMillis()) || !(entry.getValue() instanceof LinkRange)) {
+                cache.invalidate(key);
+                return;
+            }
+
+            LinkRange range = (LinkRange) entry.getValue();
+            int day = range.dayOf(href);
+            if (saved) {
+                day = Math.min(day, LinkRange.toDay(System.currentTimeMillis()) - 1);
+            }
+
+            LinkRange trimmed = range.before(day);
+            if (trimmed == null) {
+                cache.invalidate(key);
+            } else if (trimmed != range) {
+                cache.put(key, trimmed, entry.getSize() * trimmed.getLinks().size() / Math.max(1, range.getLinks().size()));
+            }
+        }
+    }
+
+    /**
+     * Notify the registered {@link SimpyListener}s of a mutating call if it succeeded
+     *
+     * @param operationStatus Status returned by the call
+     * @param call            Notification to deliver
+     */
+    private void notifyListeners(int operationStatus, ListenerCall call) {
+        if (operationStatus != SimpyConstants.STATUS_CODE_SUCCESS) {
+            return;
+        }
+
+        for (Iterator iterator = listeners.iterator(); iterator.hasNext();) {
+            try {
+                call.call((SimpyListener) iterator.next());
+            } catch (RuntimeException e) {
+                logger.error(e);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the details of each listed Topic or Watchlist, running up to
+     * <code>maxConcurrentRequests</code> calls at a time. The calling thread takes part and
+     * the other calls run on the {@link #getBackgroundExecutor() background executor}.
+     *
+     * @param summaries             Listed Topics or Watchlists
+     * @param maxConcurrentRequests Maximum number of calls at a time
+     * @param call                  Call returning the details of one summary
+     * @return Detailed objects in the order listed, or the summaries of those that could not be retrieved
+     */
+    private List getAllDetailed(final List summaries, int maxConcurrentRequests, final DetailCall call) {
+        final Object[] detailed = new Object[summaries.size()];
+        final int[] httpResults = new int[summaries.size()];
+        final int[] readStatuses = new int[summaries.size()];
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger finished = new AtomicInteger();
+
+        Runnable worker = new Runnable() {
+            public void run() {
+                int index;
+                while ((index = next.getAndIncrement()) < detailed.length) {
+                    try {
+                        detailed[index] = call.call(summaries.get(index));
+                        httpResults[index] = getHttpResult();
+                        readStatuses[index] = getReadStatus();
+                    } catch (RuntimeException e) {
+                        logger.error(e);
+                    } finally {
+                        synchronized (finished) {
+                            if (finished.incrementAndGet() == detailed.length) {
+                                finished.notifyAll();
+                            }
+                        }
+                    }
+                }
+            }
+        };
+
+        int helpers = Math.min(Math.max(maxConcurrentRequests, 1), detailed.length) - 1;
+        if (!isThreadsafe()) {
+            helpers = 0;
+        }
+
+        try {
+            for (int i = 0; i < helpers; i++) {
+                getBackgroundExecutor().execute(worker);
+            }
+        } catch (RejectedExecutionException e) {
+            logger.debug("Retrieving details on the calling thread only: " + e.getMessage());
+        }
+
+        worker.run();
+
+        // Helpers still queued once every summary is claimed find nothing left and are not awaited
+        boolean interrupted = false;
+        synchronized (finished) {
+            while (finished.get() < detailed.length) {
+                try {
+                    finished.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        List results = new ArrayList(detailed.length);
+        int httpResult = HttpStatus.SC_OK;
+        int readStatus = SimpyConstants.STATUS_CODE_SUCCESS;
+        for (int i = 0; i < detailed.length; i++) {
+            if (httpResults[i] != HttpStatus.SC_OK) {
+                results.add(summaries.get(i));
+                if (httpResult == HttpStatus.SC_OK) {
+                    httpResult = httpResults[i];
+                }
+            } else if (detailed[i] != null) {
+                results.add(detailed[i]);
+            } else if (readStatuses[i] != SimpyConstants.STATUS_CODE_NON_EXISTENT_ENTITY) {
+                results.add(summaries.get(i));
+                if (readStatus == SimpyConstants.STATUS_CODE_SUCCESS) {
+                    readStatus = readStatuses[i];
+                }
+            }
+        }
+
+        setHttpResult(httpResult);
+        setReadStatus(readStatus);
+        return results;
+    }
+
+    /**
+     * Retrieves the details of one listed Topic or Watchlist
+     */
+    private abstract static class DetailCall {
+
+        abstract Object call(Object summary);
+    }
+
+    /**
+     * Delivers one notification to a {@link SimpyListener}
+     */
+    private abstract static class ListenerCall {
+
+        abstract void call(SimpyListener listener);
+    }
+
+
+    /**
+     * Run a read, or share the result of an identical read already running on another thread.
+     * Reads are only shared if no mutating call succeeded between their starts.
+     *
+     * @param operation  Name of the call
+     * @param parameters Parameters of the call, see {@link #parameters(String[])}
+     * @param loader     Read to run
+     * @return Result of the read; lists are copied for each caller
+     */
+    private Object coalesce(String operation, String parameters, final Callable loader) {
+        String key = writeGeneration + ":" + operation + ":" + parameters;
+        Object[] outcome = (Object[]) singleFlight.execute(key, new Callable() {
+            public Object call() throws Exception {
+                Object result = loader.call();
+                return new Object[]{result, Integer.valueOf(getHttpResult()), Integer.valueOf(getReadStatus())};
+            }
+        });
+
+        setHttpResult(((Integer) outcome[1]).intValue());
+        setReadStatus(((Integer) outcome[2]).intValue());
+        if (outcome[0] instanceof List) {
+            return new ArrayList((List) outcome[0]);
+        }
+
+        return outcome[0];
+    }
+
+    /**
+     * Join call parameters into a key, treating <code>null</code> and blank values alike
+     *
+     * @param values Parameter values
+     * @return Values separated by NUL characters
+     */
+    private static String parameters(String[] values) {
+        StringBuffer result = new StringBuffer();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                result.append('\u0000');
+            }
+            if (!SimpyUtils.checkNullOrBlank(values[i])) {
+                result.append(values[i]);
+            }
+        }
+
+        return result.toString();
+    }
+
+
+    /**
+     * Remember an id as missing if Simpy answered the request that found nothing with
+     * {@link SimpyConstants#STATUS_CODE_NON_EXISTENT_ENTITY}
+     *
+     * @param get    Completed {@link GetMethod}
+     * @param region {@link CacheKey#TOPIC} or {@link CacheKey#WATCHLIST}
+     * @param id     Topic or Watchlist id
+     */
+    private void rememberMissing(GetMethod get, String region, int id) {
+        NegativeCache negativeCache = this.negativeCache;
+        if (negativeCache != null && get.getStatusCode() == HttpStatus.SC_OK
+                && getReadStatus() == SimpyConstants.STATUS_CODE_NON_EXISTENT_ENTITY) {
+            negativeCache.markMissing(new CacheKey(username, region, String.valueOf(id)));
+        }
+    }
+
+
+    /**
+     * Convert the date parameters of a links request to a window of days
+     *
+     * @param date       Single day, yyyy-MM-dd
+     * @param afterDate  Day before the window, yyyy-MM-dd
+     * @param beforeDate Day after the window, yyyy-MM-dd
+     * @return First and last day of the window in days since the epoch, or <code>null</code>
+     *         if the parameters do not describe a closed window
+     */
+    private static int[] toDayWindow(String date, String afterDate, String beforeDate) {
+        if (!SimpyUtils.checkNullOrBlank(date)) {
+            long millis = SimpyUtils.parseDate(date);
+            if (millis == SimpyConstants.UNKNOWN_DATE) {
+                return null;
+            }
+
+            int day = LinkRange.toDay(millis);
+            return new int[]{day, day};
+        }
+
+        long after = SimpyUtils.parseDate(afterDate);
+        long before = SimpyUtils.parseDate(beforeDate);
+        if (after == SimpyConstants.UNKNOWN_DATE || before == SimpyConstants.UNKNOWN_DATE) {
+            return null;
+        }
+
+        int first = LinkRange.toDay(after) + 1;
+        int last = LinkRange.toDay(before) - 1;
+
+        return (first <= last) ? new int[]{first, last} : null;
+    }
+
+    /**
+     * Return the links for a window of days from the cached {@link LinkRange} of all links,
+     * fetching and caching the days it does not cover. Ranges are only kept for requests
+     * without a query, since a query may match on the date window itself.
+     *
+     * @param cache {@link SimpyCache}
+     * @param first First day of the window
+     * @param last  Last day of the window
+     * @param limit Maximum number of links
+     * @return Links or <code>null</code> if the window could not be fetched completely, in which
+     *         case the caller requests it directly so a failure is reported by {@link #getHttpResult()}
+     */
+    private List getLinksInRange(SimpyCache cache, int first, int last, int limit) {
+        CacheKey key = new CacheKey(username, CacheKey.LINKS, "");
+        long generation = writeGeneration;
+
+        CacheEntry entry = cache.get(key);
+        LinkRange range = null;
+        if (entry != null && !entry.isExpired(System.currentTimeMillis()) && entry.getValue() instanceof LinkRange) {
+            range = (LinkRange) entry.getValue();
+        }
+
+        if (range != null && range.covers(first, last)) {
+            setHttpResult(HttpStatus.SC_OK);
+            setReadStatus(SimpyConstants.STATUS_CODE_SUCCESS);
+            return copyLinks(range.select(first, last, limit));
+        }
+
+        long[] size = new long[1];
+        if (range != null && range.touches(first, last)) {
+            size[0] = entry.getSize();
+
+            List newer = new ArrayList();
+            if (last > range.getLastDay()) {
+                newer = fetchLinkDays(range.getLastDay() + 1, last, limit, size);
+            }
+
+            List older = new ArrayList();
+            if (newer != null && first < range.getFirstDay()) {
+                older = fetchLinkDays(first, range.getFirstDay() - 1, limit, size);
+            }
+
+            if (newer == null || older == null || newer.size() >= limit || older.size() >= limit) {
+                return null;
+            }
+
+            range = range.extend(newer, last, older, first);
+        } else {
+            List links = fetchLinkDays(first, last, limit, size);
+            if (links == null) {
+                return null;
+            } else if (links.size() >= limit) {
+                return links;
+            }
+
+            range = new LinkRange(first, last, links);
+        }
+
+        cache.put(key, range, size[0]);
+        if (generation != writeGeneration) {
+            cache.invalidate(key);
+        }
+
+        return copyLinks(range.select(first, last, limit));
+    }
+
+    /**
+     * Copy links selected from a cached {@link LinkRange} so callers cannot change the
+     * {@link Link} objects held by the cache
+     *
+     * @param links Links held by the range
+     * @return New list holding copies of the links
+     */
+    private List copyLinks(List links) {
+        List copies = new ArrayList(links.size());
+        for (int i = 0; i < links.size(); i++) {
+            Link link = (Link) links.get(i);
+            int[] tagIds = link.getTagIds();
+
+            Link copy = new Link(link.getAccessType(), link.getUrl(), link.getModDate(), link.getAddDate(),
+                    link.getTitle(), link.getNickname(), link.getNote(),
+                    (tagIds == null && link.getTags() != null) ? new ArrayList(link.getTags()) : null);
+            if (tagIds != null) {
+                copy.setTagIds((int[]) tagIds.clone(), tagDictionary);
+            }
+
+            copies.add(copy);
+        }
+
+        return copies;
+    }
+
+    /**
+     * Fetch the links added within a window of days
+     *
+     * @param first First day of the window
+     * @param last  Last day of the window
+     * @param limit Maximum number of links
+     * @param size  Element 0 is increased by the size of the response
+     * @return Links or <code>null</code> if the request failed
+     */
+    private List fetchLinkDays(int first, int last, int limit, long[] size) {
+        List links = new ArrayList();
+        String afterDate = SimpyUtils.formatDate((first - 1) * LinkRange.MILLIS_PER_DAY);
+        String beforeDate = SimpyUtils.formatDate((last + 1) * LinkRange.MILLIS_PER_DAY);
+        GetMethod get = createGetLinksMethod(null, null, afterDate, beforeDate, limit);
+
+        try {
+            InputStream response = execute(get);
+            if (response != null && get.getStatusCode() == HttpStatus.SC_OK) {
+                byte[] body = SimpyUtils.readFully(response);
+                parse(new ByteArrayInputStream(body), SimpyConstants.LINK_TAG, SimpyResponseParser.collectInto(links));
+                if (links.isEmpty() && SimpyResponseParser.parseStatus(new ByteArrayInputStream(body)) != SimpyConstants.STATUS_CODE_SUCCESS) {
+                    return null;
+                }
+                size[0] += body.length;
+                return links;
+            }
+        } catch (IOException e) {
+            logger.error(e);
+        } catch (XMLStreamException e) {
+            logger.error(e);
+        } finally {
+            get.releaseConnection();
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Return a cached list, loading it on a miss and refreshing it if it has expired
+     *
+     * @param cache {@link SimpyCache}
+     * @param key   {@link CacheKey} for {@link CacheKey#TAGS}, {@link CacheKey#TOPICS} or {@link CacheKey#WATCHLISTS}
+     * @return New list holding copies of the cached results
+     */
+    private List readThrough(final SimpyCache cache, final CacheKey key) {
+        final CacheEntry entry = cache.get(key);
+        if (entry == null) {
+            return copyResults(load(cache, key));
+        }
+
+        if (entry.isExpired(System.currentTimeMillis()) && entry.startRefresh()) {
+            if (!isThreadsafe()) {
+                try {
+                    List results = load(cache, key);
+                    if (results != null) {
+                        return copyResults(results);
+                    }
+                } finally {
+                    entry.endRefresh();
+                }
+            } else {
+                try {
+                    getBackgroundExecutor().execute(new Runnable() {
+                        public void run() {
+                            try {
+                                load(cache, key);
+                            } finally {
+                                entry.endRefresh();
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    entry.endRefresh();
+                }
+            }
+        }
+
+        setHttpResult(HttpStatus.SC_OK);
+        setReadStatus(SimpyConstants.STATUS_CODE_SUCCESS);
+        return copyResults((List) entry.getValue());
+    }
+
+    /**
+     * Copy cached results so callers cannot change the {@link Tag}, {@link Topic} and
+     * {@link Watchlist} objects held by the cache
+     *
+     * @param results Cached results, may be <code>null</code>
+     * @return New list holding copies of the results
+     */
+    private static List copyResults(List results) {
+        List copies = new ArrayList();
+        if (results == null) {
+            return copies;
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            Object result = results.get(i);
+            if (result instanceof Tag) {
+                Tag tag = (Tag) result;
+                copies.add(new Tag(tag.getTag(), tag.getCount()));
+            } else if (result instanceof Topic) {
+                Topic topic = (Topic) result;
+                Filter filter = topic.getFilter();
+                copies.add(new Topic(topic.getId(), topic.getName(), topic.getDescription(), topic.getAddDate(),
+                        topic.getNewLinks(), copyBeans(topic.getUsers()),
+                        (filter == null) ? null : new Filter(filter.getName(), filter.getQuery())));
+            } else if (result instanceof Watchlist) {
+                Watchlist watchlist = (Watchlist) result;
+                copies.add(new Watchlist(watchlist.getId(), watchlist.getName(), watchlist.getDescription(),
+                        watchlist.getAddDate(), watchlist.getNewLinks(), copyBeans(watchlist.getUsers()),
+                        copyBeans(watchlist.getFilters())));
+            } else {
+                copies.add(result);
+            }
+        }
+
+        return copies;
+    }
+
+    /**
+     * Copy a list of {@link User} or {@link Filter} objects
+     *
+     * @param beans Users or Filters, may be <code>null</code>
+     * @return New list holding copies of the beans or <code>null</code>
+     */
+    private static List copyBeans(List beans) {
+        if (beans == null) {
+            return null;
+        }
+
+        List copies = new ArrayList(beans.size());
+        for (int i = 0; i < beans.size(); i++) {
+            Object bean = beans.get(i);
+            if (bean instanceof User) {
+                copies.add(new User(((User) bean).getUsername()));
+            } else if (bean instanceof Filter) {
+                Filter filter = (Filter) bean;
+                copies.add(new Filter(filter.getName(), filter.getQuery()));
+            } else {
+                copies.add(bean);
+            }
+        }
+
+        return copies;
+    }
+
+    /**
+     * Fetch the results for a cache key and store them if the request succeeded and no
+     * mutating call invalidated the cache while it ran
+     *
+     * @param cache {@link SimpyCache}
+     * @param key   {@link CacheKey} for {@link CacheKey#TAGS}, {@link CacheKey#TOPICS} or {@link CacheKey#WATCHLISTS}
+     * @return Results or <code>null</code> if the request failed
+     */
+    private List load(SimpyCache cache, CacheKey key) {
+        List results = new ArrayList();
+        boolean loaded = false;
+        long generation = writeGeneration;
+        String region = key.getRegion();
+        setReadStatus(SimpyConstants.STATUS_CODE_SUCCESS);
+
+        GetMethod get;
+        if (CacheKey.TAGS.equals(region)) {
+            get = createGetTagsMethod();
+        } else if (CacheKey.TOPICS.equals(region)) {
+            get = createGetTopicsMethod();
+        } else {
+            get = createGetWatchlistsMethod();
+        }
+
+        try {
+            InputStream response = execute(get);
+            if (response != null) {
+                byte[] body = SimpyUtils.readFully(response);
+                if (CacheKey.TAGS.equals(region)) {
+                    SimpyResponseParser.parseTags(new ByteArrayInputStream(body), results);
+                    tagDictionary.seed(results);
+                } else if (CacheKey.TOPICS.equals(region)) {
+                    parse(new ByteArrayInputStream(body), SimpyConstants.TOPIC_TAG, SimpyResponseParser.collectInto(results));
+                } else {
+                    parse(new ByteArrayInputStream(body), SimpyConstants.WATCHLIST_TAG, SimpyResponseParser.collectInto(results));
+                }
+
+                int status = results.isEmpty() ? SimpyResponseParser.parseStatus(new ByteArrayInputStream(body)) : SimpyConstants.STATUS_CODE_SUCCESS;
+                setReadStatus(status);
+                if (get.getStatusCode() == HttpStatus.SC_OK && status == SimpyConstants.STATUS_CODE_SUCCESS) {
+                    cache.put(key, results, body.length);
+                    if (generation != writeGeneration) {
+                        cache.invalidate(key);
+                    }
+                    loaded = true;
+                }
+            }
+        } catch (IOException e) {
+            setReadStatus(SimpyConstants.READ_STATUS_INCOMPLETE);
+            logger.error(e);
+        } catch (XMLStreamException e) {
+            setReadStatus(SimpyConstants.READ_STATUS_INCOMPLETE);
+            logger.error(e);
+        } finally {
+            get.releaseConnection();
+        }
+
+        return loaded ? results : null;
+    }
+
+
+    /**
+     * Open a request whose results are read incrementally by a {@link ResponseIterator}
+     *
+     * @param get         {@link GetMethod}
+     * @param elementName Name of the result elements
+     * @return Sequential, ordered {@link Stream} that releases the connection when closed
+     * @throws SimpyException If the request fails or does not return HTTP 200
+     */
+    private <T> Stream<T> openStream(GetMethod get, String elementName) {
+        ResponseIterator<T> iterator = null;
+
+        try {
+            InputStream response = execute(get);
+            if (get.getStatusCode() != HttpStatus.SC_OK) {
+                throw new SimpyException("Simpy request failed with HTTP status " + get.getStatusCode(), get.getStatusCode());
+            }
+
+            if (response != null) {
+                iterator = new ResponseIterator<T>(get, SimpyResponseParser.createReader(response), elementName, compactTags ? tagDictionary : null);
+            }
+        } catch (IOException e) {
+            throw new SimpyException("Simpy request failed", getHttpResult(), e);
+        } catch (XMLStreamException e) {
+            throw new SimpyException("Error reading the Simpy response", getHttpResult(), e);
+        } finally {
+            if (iterator == null) {
+                get.releaseConnection();
+            }
+        }
+
+        if (iterator == null) {
+            return Stream.empty();
+        }
+
+        final ResponseIterator<T> results = iterator;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(new Runnable() {
+            public void run() {
+                results.close();
+            }
+        });
+    }
+
+    /**
+     * Keeps a copy of the first {@link SimpyConstants#STATUS_DOCUMENT_LIMIT} bytes read from a
+     * response, so a response without results can be checked for a status document after the
+     * parser has consumed it
+     */
+    private static class CapturingInputStream extends FilterInputStream {
+
+        private byte[] captured = new byte[SimpyConstants.STATUS_DOCUMENT_LIMIT];
+        private int length;
+        private boolean overflowed;
+
+        CapturingInputStream(InputStream in) {
+            super(in);
+        }
+
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                capture(new byte[]{(byte) value}, 0, 1);
+            }
+
+            return value;
+        }
+
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int read = super.read(buffer, offset, count);
+            if (read > 0) {
+                capture(buffer, offset, read);
+            }
+
+            return read;
+        }
+
+        public long skip(long count) throws IOException {
+            overflowed = true;
+
+            return super.skip(count);
+        }
+
+        public boolean markSupported() {
+            return false;
+        }
+
+        /**
+         * Return the bytes read
+         *
+         * @return Bytes read or <code>null</code> if more than the limit was read
+         */
+        byte[] getCaptured() {
+            if (overflowed) {
+                return null;
+            }
+
+            byte[] result = new byte[length];
+            System.arraycopy(captured, 0, result, 0, length);
+
+            return result;
+        }
+
+        private void capture(byte[] buffer, int offset, int count) {
+            if (overflowed || length + count > captured.length) {
+                overflowed = true;
+                return;
+            }
+
+            System.arraycopy(buffer, offset, captured, length, count);
+            length += count;
+        }
+    }
+
+    /**
+     * Passes results on to another handler, counting them
+     */
+    private static class CountingHandler implements SimpyHandler {
+
+        private SimpyHandler handler;
+        int count;
+
+        CountingHandler(SimpyHandler handler) {
+            this.handler = handler;
+        }
+
+        public boolean onLink(Link link) {
+            count++;
+            return handler.onLink(link);
+        }
+
+        public boolean onNote(Note note) {
+            count++;
+            return handler.onNote(note);
+        }
+
+        public boolean onTopic(Topic topic) {
+            count++;
+            return handler.onTopic(topic);
+        }
+
+        public boolean onWatchlist(Watchlist watchlist) {
+            count++;
+            return handler.onWatchlist(watchlist);
+        }
+    }
+
+    /**
+     * Replaces the tag names of links and Notes with ids before passing them on
+     */
+    private static class CompactingHandler implements SimpyHandler {
+
+        private SimpyHandler handler;
+        private TagDictionary tagDictionary;
+
+        CompactingHandler(SimpyHandler handler, TagDictionary tagDictionary) {
+            this.handler = handler;
+            this.tagDictionary = tagDictionary;
+        }
+
+        public boolean onLink(Link link) {
+            tagDictionary.compact(link);
+            return handler.onLink(link);
+        }
+
+        public boolean onNote(Note note) {
+            tagDictionary.compact(note);
+            return handler.onNote(note);
+        }
+
+        public boolean onTopic(Topic topic) {
+            return handler.onTopic(topic);
+        }
+
+        public boolean onWatchlist(Watchlist watchlist) {
+            return handler.onWatchlist(watchlist);
+        }
+    }
+}
\ No newline at end of file
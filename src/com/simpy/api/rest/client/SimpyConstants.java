@@ -48,11 +48,33 @@ public class SimpyConstants {
     public static final String LINE_SEPARATOR = System.getProperty("line.separator");
     public static final String UTC_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
     public static final String SIMPY_DATE_FORMAT = "yyyy-MM-dd";
+    public static final long UNKNOWN_DATE = Long.MIN_VALUE;
+
+    // Connection pooling
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 20;
+    public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 100;
+    public static final long IDLE_CONNECTION_TIMEOUT = 30000;
+    public static final long IDLE_CONNECTION_CHECK_INTERVAL = 10000;
+
+    // Parallel parsing
+    public static final int PARALLEL_PARSE_THRESHOLD = 1024 * 1024;
+    public static final int PARALLEL_PARSE_CHUNK_SIZE = 256 * 1024;
+
+    // Detailed Topic and Watchlist retrieval
+    public static final int DEFAULT_DETAIL_CONCURRENCY = 8;
+
+    // Largest response checked for a status document when a request returns no results
+    public static final int STATUS_DOCUMENT_LIMIT = 8192;
+
+    // Background work of threadsafe Simpy objects
+    public static final int MAX_BACKGROUND_THREADS = 8;
+    public static final long BACKGROUND_THREAD_KEEP_ALIVE = 60000;
 
     // API service endpoints
     public static final String API_GET_TAGS = "http://www.simpy.com/simpy/api/rest/GetTags.do";
     public static final String API_GET_LINKS = "http://www.simpy.com/simpy/api/rest/GetLinks.do";
     public static final String API_SAVE_LINK = "http://www.simpy.com/simpy/api/rest/SaveLink.do";
+    public static final String API_DELETE_LINK = "http://www.simpy.com/simpy/api/rest/DeleteLink.do";
     public static final String API_GET_TOPICS = "http://www.simpy.com/simpy/api/rest/GetTopics.do";
     public static final String API_GET_TOPIC = "http://www.simpy.com/simpy/api/rest/GetTopic.do";
     public static final String API_GET_NOTES = "http://www.simpy.com/simpy/api/rest/GetNotes.do";
@@ -96,6 +118,9 @@ public class SimpyConstants {
     public static final int STATUS_CODE_STORAGE_ERROR = 301;
     public static final int STATUS_CODE_QUOTA_REACHED = 500;
 
+    // Read status of a response that could not be read to the end
+    public static final int READ_STATUS_INCOMPLETE = -1;
+
     // Tags
     public static final String TAG_TAG = "tag";
     public static final String CODE_TAG = "code";
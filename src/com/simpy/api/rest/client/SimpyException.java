@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+/**
+ * Unchecked exception reporting a Simpy call that failed where no status code or empty
+ * result can be returned instead, such as an asynchronous call or a stream of results
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SimpyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private int httpResult;
+
+    /**
+     * Create an exception for a request that returned an unexpected HTTP status
+     *
+     * @param message    Detail message
+     * @param httpResult HTTP status code, <code>0</code> if the request failed without a response
+     */
+    public SimpyException(String message, int httpResult) {
+        super(message);
+        this.httpResult = httpResult;
+    }
+
+    /**
+     * Create an exception for a request that failed while its response was read
+     *
+     * @param message    Detail message
+     * @param httpResult HTTP status code of the response
+     * @param cause      Cause of the failure
+     */
+    public SimpyException(String message, int httpResult, Throwable cause) {
+        super(message, cause);
+        this.httpResult = httpResult;
+    }
+
+    /**
+     * Return the HTTP status code of the failed request
+     *
+     * @return HTTP status code, <code>0</code> if the request failed without a response
+     */
+    public int getHttpResult() {
+        return httpResult;
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.Topic;
+import com.simpy.api.rest.client.beans.Watchlist;
+
+/**
+ * Receives results from {@link Simpy} one at a time, as soon as each has been parsed from
+ * the response. Returning <code>false</code> from any method stops the transfer and closes
+ * the connection without reading the rest of the response.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @see SimpyHandlerAdapter
+ * @since 1.4
+ */
+public interface SimpyHandler {
+
+    /**
+     * Receive a {@link Link}
+     *
+     * @param link {@link Link}
+     * @return <code>true</code> to continue, <code>false</code> to stop the transfer
+     */
+    boolean onLink(Link link);
+
+    /**
+     * Receive a {@link Note}
+     *
+     * @param note {@link Note}
+     * @return <code>true</code> to continue, <code>false</code> to stop the transfer
+     */
+    boolean onNote(Note note);
+
+    /**
+     * Receive a {@link Topic}
+     *
+     * @param topic {@link Topic}
+     * @return <code>true</code> to continue, <code>false</code> to stop the transfer
+     */
+    boolean onTopic(Topic topic);
+
+    /**
+     * Receive a {@link Watchlist}
+     *
+     * @param watchlist {@link Watchlist}
+     * @return <code>true</code> to continue, <code>false</code> to stop the transfer
+     */
+    boolean onWatchlist(Watchlist watchlist);
+}
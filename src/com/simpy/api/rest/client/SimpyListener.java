@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+/**
+ * Notified by {@link Simpy} after each mutating call that the server reported as
+ * successful, on the thread that made the call. Listeners should return quickly; exceptions
+ * they throw are logged and otherwise ignored.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @see SimpyListenerAdapter
+ * @see Simpy#addListener(SimpyListener)
+ * @since 1.4
+ */
+public interface SimpyListener {
+
+    /**
+     * A link was saved
+     *
+     * @param href URL of the link
+     * @param tags Comma separated tags of the link, may be <code>null</code>
+     */
+    void linkSaved(String href, String tags);
+
+    /**
+     * A link was deleted
+     *
+     * @param href URL of the link
+     */
+    void linkDeleted(String href);
+
+    /**
+     * A Note was saved
+     *
+     * @param title Title of the Note
+     * @param tags  Comma separated tags of the Note, may be <code>null</code>
+     */
+    void noteSaved(String title, String tags);
+
+    /**
+     * A Note was deleted
+     *
+     * @param noteId ID of the Note
+     */
+    void noteDeleted(String noteId);
+
+    /**
+     * A tag was removed
+     *
+     * @param tag Tag
+     */
+    void tagRemoved(String tag);
+
+    /**
+     * A tag was renamed
+     *
+     * @param fromTag Old name
+     * @param toTag   New name
+     */
+    void tagRenamed(String fromTag, String toTag);
+
+    /**
+     * Two tags were merged into a third
+     *
+     * @param fromTag1 First merged tag
+     * @param fromTag2 Second merged tag
+     * @param toTag    Tag the two were merged into
+     */
+    void tagsMerged(String fromTag1, String fromTag2, String toTag);
+
+    /**
+     * A tag was split into two
+     *
+     * @param tag    Split tag
+     * @param toTag1 First tag it was split into
+     * @param toTag2 Second tag it was split into
+     */
+    void tagSplit(String tag, String toTag1, String toTag2);
+}
@@ -0,0 +1,524 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Filter;
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.Tag;
+import com.simpy.api.rest.client.beans.Topic;
+import com.simpy.api.rest.client.beans.User;
+import com.simpy.api.rest.client.beans.Watchlist;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser for the XML documents returned by the Simpy REST API. Documents are
+ * pulled directly from the response stream with StAX and each {@link Link}, {@link Note},
+ * {@link Tag}, {@link Topic} or {@link Watchlist} is built as soon as its element closes.
+ * <p/>
+ * The DTDs referenced by the responses (<code>GetLinks.dtd</code>, <code>Status.dtd</code>, ...)
+ * are resolved to an empty entity rather than fetched.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+class SimpyResponseParser {
+
+    private static final byte[] EMPTY_ENTITY = new byte[0];
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, Boolean.TRUE);
+        XML_INPUT_FACTORY.setXMLResolver(new XMLResolver() {
+            public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) {
+                return new ByteArrayInputStream(EMPTY_ENTITY);
+            }
+        });
+    }
+
+    private SimpyResponseParser() {
+    }
+
+    /**
+     * Create a reader over a response body
+     *
+     * @param response Response body
+     * @return {@link XMLStreamReader}
+     * @throws XMLStreamException If there is an error creating the reader
+     */
+    static XMLStreamReader createReader(InputStream response) throws XMLStreamException {
+        return XML_INPUT_FACTORY.createXMLStreamReader(response, SimpyConstants.UTF8);
+    }
+
+    /**
+     * Parse a <code>GetTags</code> response
+     *
+     * @param response Response body
+     * @param tags     List to which {@link Tag} objects are added
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static void parseTags(InputStream response, List tags) throws XMLStreamException {
+        XMLStreamReader reader = createReader(response);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && SimpyConstants.TAG_TAG.equals(reader.getLocalName())) {
+                    String tag = reader.getAttributeValue(null, SimpyConstants.NAME_ATTRIBUTE);
+                    String count = reader.getAttributeValue(null, SimpyConstants.COUNT_ATTRIBUTE);
+
+                    tags.add(new Tag(tag, Integer.parseInt(count)));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Parse a response, passing each result to a handler
+     *
+     * @param response    Response body
+     * @param elementName Name of the result elements
+     * @param handler     {@link SimpyHandler}
+     * @return <code>false</code> if the handler stopped the parse, <code>true</code> otherwise
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static boolean parse(InputStream response, String elementName, SimpyHandler handler) throws XMLStreamException {
+        if (SimpyConstants.LINK_TAG.equals(elementName)) {
+            return parseLinks(response, handler);
+        } else if (SimpyConstants.NOTE_TAG.equals(elementName)) {
+            return parseNotes(response, handler);
+        } else if (SimpyConstants.TOPIC_TAG.equals(elementName)) {
+            return parseTopics(response, handler);
+        }
+
+        return parseWatchlists(response, handler);
+    }
+
+    /**
+     * Parse a <code>GetLinks</code> response, passing each {@link Link} to a handler
+     *
+     * @param response Response body
+     * @param handler  {@link SimpyHandler}
+     * @return <code>false</code> if the handler stopped the parse, <code>true</code> otherwise
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static boolean parseLinks(InputStream response, SimpyHandler handler) throws XMLStreamException {
+        XMLStreamReader reader = createReader(response);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && SimpyConstants.LINK_TAG.equals(reader.getLocalName())) {
+                    if (!handler.onLink(readLink(reader))) {
+                        return false;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * Parse a <code>GetNotes</code> response, passing each {@link Note} to a handler
+     *
+     * @param response Response body
+     * @param handler  {@link SimpyHandler}
+     * @return <code>false</code> if the handler stopped the parse, <code>true</code> otherwise
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static boolean parseNotes(InputStream response, SimpyHandler handler) throws XMLStreamException {
+        XMLStreamReader reader = createReader(response);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && SimpyConstants.NOTE_TAG.equals(reader.getLocalName())) {
+                    Note note = readNote(reader);
+                    if (note != null && !handler.onNote(note)) {
+                        return false;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * Parse a <code>GetTopics</code> or <code>GetTopic</code> response
+     *
+     * @param response Response body
+     * @param topics   List to which {@link Topic} objects are added
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static void parseTopics(InputStream response, List topics) throws XMLStreamException {
+        parseTopics(response, collectInto(topics));
+    }
+
+    /**
+     * Parse a <code>GetTopics</code> or <code>GetTopic</code> response, passing each
+     * {@link Topic} to a handler
+     *
+     * @param response Response body
+     * @param handler  {@link SimpyHandler}
+     * @return <code>false</code> if the handler stopped the parse, <code>true</code> otherwise
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static boolean parseTopics(InputStream response, SimpyHandler handler) throws XMLStreamException {
+        XMLStreamReader reader = createReader(response);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && SimpyConstants.TOPIC_TAG.equals(reader.getLocalName())) {
+                    if (!handler.onTopic(readTopic(reader))) {
+                        return false;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * Parse a <code>GetWatchlists</code> or <code>GetWatchlist</code> response
+     *
+     * @param response   Response body
+     * @param watchlists List to which {@link Watchlist} objects are added
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static void parseWatchlists(InputStream response, List watchlists) throws XMLStreamException {
+        parseWatchlists(response, collectInto(watchlists));
+    }
+
+    /**
+     * Parse a <code>GetWatchlists</code> or <code>GetWatchlist</code> response, passing each
+     * {@link Watchlist} to a handler
+     *
+     * @param response Response body
+     * @param handler  {@link SimpyHandler}
+     * @return <code>false</code> if the handler stopped the parse, <code>true</code> otherwise
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static boolean parseWatchlists(InputStream response, SimpyHandler handler) throws XMLStreamException {
+        XMLStreamReader reader = createReader(response);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && SimpyConstants.WATCHLIST_TAG.equals(reader.getLocalName())) {
+                    if (!handler.onWatchlist(readWatchlist(reader))) {
+                        return false;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * Parse a status or error response
+     *
+     * @param response Response body
+     * @return Value of the last <code>code</code> element, or <code>0</code> if there is none
+     *         or it is empty or not a number
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static int parseStatus(InputStream response) throws XMLStreamException {
+        int operationStatus = 0;
+
+        XMLStreamReader reader = createReader(response);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && SimpyConstants.CODE_TAG.equals(reader.getLocalName())) {
+                    String code = readText(reader);
+                    try {
+                        operationStatus = (code == null) ? 0 : Integer.parseInt(code.trim());
+                    } catch (NumberFormatException e) {
+                        operationStatus = 0;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return operationStatus;
+    }
+
+    /**
+     * Create a handler that adds every result to a list
+     *
+     * @param results List to which results are added
+     * @return {@link SimpyHandler}
+     */
+    static SimpyHandler collectInto(final List results) {
+        return new SimpyHandler() {
+            public boolean onLink(Link link) {
+                results.add(link);
+                return true;
+            }
+
+            public boolean onNote(Note note) {
+                results.add(note);
+                return true;
+            }
+
+            public boolean onTopic(Topic topic) {
+                results.add(topic);
+                return true;
+            }
+
+            public boolean onWatchlist(Watchlist watchlist) {
+                results.add(watchlist);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Read a <code>link</code> element. The reader must be positioned on its start tag and is
+     * left on its end tag.
+     *
+     * @param reader {@link XMLStreamReader}
+     * @return {@link Link}
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static Link readLink(XMLStreamReader reader) throws XMLStreamException {
+        Link link = new Link();
+        link.setAccessType(reader.getAttributeValue(null, SimpyConstants.ACCESS_TYPE_ATTRIBUTE));
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if (SimpyConstants.URL_TAG.equals(name)) {
+                link.setUrl(readText(reader));
+            } else if (SimpyConstants.MOD_DATE_TAG.equals(name)) {
+                link.setModDate(readText(reader));
+            } else if (SimpyConstants.ADD_DATE_TAG.equals(name)) {
+                link.setAddDate(readText(reader));
+            } else if (SimpyConstants.TITLE_TAG.equals(name)) {
+                link.setTitle(readText(reader));
+            } else if (SimpyConstants.NICKNAME_TAG.equals(name)) {
+                link.setNickname(readText(reader));
+            } else if (SimpyConstants.NOTE_TAG.equals(name)) {
+                link.setNote(readText(reader));
+            } else if (SimpyConstants.TAGS_TAG.equals(name)) {
+                link.setTags(readTags(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        return link;
+    }
+
+    /**
+     * Read a <code>note</code> element. The reader must be positioned on its start tag and is
+     * left on its end tag.
+     *
+     * @param reader {@link XMLStreamReader}
+     * @return {@link Note} or <code>null</code> if the element is empty
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static Note readNote(XMLStreamReader reader) throws XMLStreamException {
+        Note note = new Note();
+        note.setAccessType(reader.getAttributeValue(null, SimpyConstants.ACCESS_TYPE_ATTRIBUTE));
+        boolean empty = true;
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            empty = false;
+            if (SimpyConstants.URI_TAG.equals(name)) {
+                note.setUri(readText(reader));
+            } else if (SimpyConstants.MOD_DATE_TAG.equals(name)) {
+                note.setModDate(readText(reader));
+            } else if (SimpyConstants.ADD_DATE_TAG.equals(name)) {
+                note.setAddDate(readText(reader));
+            } else if (SimpyConstants.TITLE_TAG.equals(name)) {
+                note.setTitle(readText(reader));
+            } else if (SimpyConstants.DESCRIPTION_TAG.equals(name)) {
+                note.setDescription(readText(reader));
+            } else if (SimpyConstants.TAGS_TAG.equals(name)) {
+                note.setTags(readTags(reader));
+            } else if (SimpyConstants.ID_TAG.equals(name)) {
+                note.setId(readText(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        return empty ? null : note;
+    }
+
+    /**
+     * Read a <code>topic</code> element. The reader must be positioned on its start tag and is
+     * left on its end tag.
+     *
+     * @param reader {@link XMLStreamReader}
+     * @return {@link Topic}
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static Topic readTopic(XMLStreamReader reader) throws XMLStreamException {
+        Topic topic = new Topic();
+
+        topic.setId(Integer.parseInt(reader.getAttributeValue(null, SimpyConstants.ID_ATTRIBUTE)));
+        topic.setName(reader.getAttributeValue(null, SimpyConstants.NAME_ATTRIBUTE));
+        topic.setDescription(reader.getAttributeValue(null, SimpyConstants.DESCRIPTION_ATTRIBUTE));
+        topic.setAddDate(reader.getAttributeValue(null, SimpyConstants.ADD_DATE_ATTRIBUTE));
+        topic.setNewLinks(Integer.parseInt(reader.getAttributeValue(null, SimpyConstants.NEW_LINKS_ATTRIBUTE)));
+
+        List users = new ArrayList();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if (SimpyConstants.USER_TAG.equals(name)) {
+                users.add(new User(reader.getAttributeValue(null, SimpyConstants.USERNAME_ATTRIBUTE)));
+            } else if (SimpyConstants.FILTER_TAG.equals(name)) {
+                topic.setFilter(new Filter(reader.getAttributeValue(null, SimpyConstants.NAME_ATTRIBUTE), reader.getAttributeValue(null, SimpyConstants.QUERY_ATTRIBUTE)));
+            }
+
+            skipElement(reader);
+        }
+
+        topic.setUsers(users);
+
+        return topic;
+    }
+
+    /**
+     * Read a <code>watchlist</code> element. The reader must be positioned on its start tag and
+     * is left on its end tag.
+     *
+     * @param reader {@link XMLStreamReader}
+     * @return {@link Watchlist}
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    static Watchlist readWatchlist(XMLStreamReader reader) throws XMLStreamException {
+        Watchlist watchlist = new Watchlist();
+
+        watchlist.setId(Integer.parseInt(reader.getAttributeValue(null, SimpyConstants.ID_ATTRIBUTE)));
+        watchlist.setName(reader.getAttributeValue(null, SimpyConstants.NAME_ATTRIBUTE));
+        watchlist.setDescription(reader.getAttributeValue(null, SimpyConstants.DESCRIPTION_ATTRIBUTE));
+        watchlist.setAddDate(reader.getAttributeValue(null, SimpyConstants.ADD_DATE_ATTRIBUTE));
+        watchlist.setNewLinks(Integer.parseInt(reader.getAttributeValue(null, SimpyConstants.NEW_LINKS_ATTRIBUTE)));
+
+        List users = null;
+        List filters = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (users == null) {
+                users = new ArrayList();
+                filters = new ArrayList();
+            }
+
+            String name = reader.getLocalName();
+            if (SimpyConstants.FILTER_TAG.equals(name)) {
+                filters.add(new Filter(reader.getAttributeValue(null, SimpyConstants.NAME_ATTRIBUTE), reader.getAttributeValue(null, SimpyConstants.QUERY_ATTRIBUTE)));
+            } else if (SimpyConstants.USER_TAG.equals(name)) {
+                users.add(new User(reader.getAttributeValue(null, SimpyConstants.USERNAME_ATTRIBUTE)));
+            }
+
+            skipElement(reader);
+        }
+
+        watchlist.setUsers(users);
+        watchlist.setFilters(filters);
+
+        return watchlist;
+    }
+
+    /**
+     * Read the non-empty <code>tag</code> children of a <code>tags</code> element
+     *
+     * @param reader {@link XMLStreamReader} positioned on the <code>tags</code> start tag
+     * @return List of tag names
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    private static List readTags(XMLStreamReader reader) throws XMLStreamException {
+        List tags = new ArrayList();
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String tag = readText(reader);
+            if (tag != null) {
+                tags.add(tag);
+            }
+        }
+
+        return tags;
+    }
+
+    /**
+     * Read the text of a simple element, leaving the reader on its end tag
+     *
+     * @param reader {@link XMLStreamReader} positioned on a start tag
+     * @return Text of the element or <code>null</code> if the element is empty
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        String text = reader.getElementText();
+
+        return (text.length() == 0) ? null : text;
+    }
+
+    /**
+     * Skip the current element and all of its children, leaving the reader on its end tag
+     *
+     * @param reader {@link XMLStreamReader} positioned on a start tag
+     * @throws XMLStreamException If there is an error parsing the response
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -37,6 +37,9 @@ import java.util.Date;
 import java.util.Calendar;
 import java.util.TimeZone;
 import java.net.URLEncoder;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 
 /**
@@ -100,6 +103,13 @@ public class SimpyUtils {
      *         parsing
      */
     public static Date getDateFromUTCString(String time) {
+        if (time != null && time.length() == 20) {
+            long millis = parseDate(time);
+            if (millis != SimpyConstants.UNKNOWN_DATE) {
+                return new Date(millis);
+            }
+        }
+
         Date result = null;
 
         try {
@@ -111,6 +121,174 @@ public class SimpyUtils {
         return result;
     }
 
+    /**
+     * Parse a date of the form yyyy-MM-ddTHH:mm:ssZ or yyyy-MM-dd without allocating. Both
+     * forms are read as UTC, so a yyyy-MM-dd date is midnight UTC of that day.
+     *
+     * @param text Date text
+     * @return Milliseconds since the epoch or {@link SimpyConstants#UNKNOWN_DATE} if
+     *         <code>text</code> is <code>null</code> or not in either form
+     * @since 1.4
+     */
+    public static long parseDate(CharSequence text) {
+        if (text == null) {
+            return SimpyConstants.UNKNOWN_DATE;
+        }
+
+        int length = text.length();
+        if (length != 10 && length != 20) {
+            return SimpyConstants.UNKNOWN_DATE;
+        }
+
+        if (text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return SimpyConstants.UNKNOWN_DATE;
+        }
+
+        int year = digits(text.charAt(0), text.charAt(1), text.charAt(2), text.charAt(3));
+        int month = digits('0', '0', text.charAt(5), text.charAt(6));
+        int day = digits('0', '0', text.charAt(8), text.charAt(9));
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+
+        if (length == 20) {
+            if (text.charAt(10) != 'T' || text.charAt(13) != ':' || text.charAt(16) != ':' || text.charAt(19) != 'Z') {
+                return SimpyConstants.UNKNOWN_DATE;
+            }
+
+            hour = digits('0', '0', text.charAt(11), text.charAt(12));
+            minute = digits('0', '0', text.charAt(14), text.charAt(15));
+            second = digits('0', '0', text.charAt(17), text.charAt(18));
+        }
+
+        return toMillis(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * Parse a UTF-8 encoded date of the form yyyy-MM-ddTHH:mm:ssZ or yyyy-MM-dd without
+     * allocating
+     *
+     * @param buf   Bytes holding the date
+     * @param start Offset of the first byte
+     * @param end   Offset just past the last byte
+     * @return Milliseconds since the epoch or {@link SimpyConstants#UNKNOWN_DATE} if the
+     *         bytes are not in either form
+     * @see #parseDate(CharSequence)
+     * @since 1.4
+     */
+    public static long parseDate(byte[] buf, int start, int end) {
+        int length = end - start;
+        if (length != 10 && length != 20) {
+            return SimpyConstants.UNKNOWN_DATE;
+        }
+
+        if (buf[start + 4] != '-' || buf[start + 7] != '-') {
+            return SimpyConstants.UNKNOWN_DATE;
+        }
+
+        int year = digits((char) buf[start], (char) buf[start + 1], (char) buf[start + 2], (char) buf[start + 3]);
+        int month = digits('0', '0', (char) buf[start + 5], (char) buf[start + 6]);
+        int day = digits('0', '0', (char) buf[start + 8], (char) buf[start + 9]);
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+
+        if (length == 20) {
+            if (buf[start + 10] != 'T' || buf[start + 13] != ':' || buf[start + 16] != ':' || buf[start + 19] != 'Z') {
+                return SimpyConstants.UNKNOWN_DATE;
+            }
+
+            hour = digits('0', '0', (char) buf[start + 11], (char) buf[start + 12]);
+            minute = digits('0', '0', (char) buf[start + 14], (char) buf[start + 15]);
+            second = digits('0', '0', (char) buf[start + 17], (char) buf[start + 18]);
+        }
+
+        return toMillis(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * Format the UTC day of a time as yyyy-MM-dd, the inverse of {@link #parseDate(CharSequence)}
+     * for dates without a time
+     *
+     * @param millis Milliseconds since the epoch
+     * @return Date formatted as yyyy-MM-dd
+     * @since 1.4
+     */
+    public static String formatDate(long millis) {
+        long days = millis / 86400000L;
+        if (millis < 0 && days * 86400000L != millis) {
+            days--;
+        }
+
+        // Inverse of the conversion in toMillis
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        StringBuffer result = new StringBuffer(10);
+        if (year < 1000) {
+            result.append(year < 10 ? "000" : (year < 100 ? "00" : "0"));
+        }
+        result.append(year).append('-');
+        if (month < 10) {
+            result.append('0');
+        }
+        result.append(month).append('-');
+        if (day < 10) {
+            result.append('0');
+        }
+        result.append(day);
+
+        return result.toString();
+    }
+
+    /**
+     * Combine four characters into a number
+     *
+     * @return Value of the digits or -1 if any character is not a digit
+     */
+    private static int digits(char a, char b, char c, char d) {
+        if (a < '0' || a > '9' || b < '0' || b > '9' || c < '0' || c > '9' || d < '0' || d > '9') {
+            return -1;
+        }
+
+        return (a - '0') * 1000 + (b - '0') * 100 + (c - '0') * 10 + (d - '0');
+    }
+
+    /**
+     * Convert UTC date fields to milliseconds since the epoch
+     *
+     * @return Milliseconds since the epoch or {@link SimpyConstants#UNKNOWN_DATE} if a field
+     *         is out of range
+     */
+    private static long toMillis(int year, int month, int day, int hour, int minute, int second) {
+        if (year < 1 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return SimpyConstants.UNKNOWN_DATE;
+        }
+
+        boolean leapYear = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+        int daysInMonth = (month == 2) ? (leapYear ? 29 : 28) : ((month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31);
+        if (day > daysInMonth) {
+            return SimpyConstants.UNKNOWN_DATE;
+        }
+
+        // Days from 1970-01-01 in the proleptic Gregorian calendar, with years starting in March
+        int y = (month <= 2) ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = (long) era * 146097 + dayOfEra - 719468;
+
+        return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L;
+    }
+
     /**
      * Check to see if the input is <code>null</code> or blank
      *
@@ -157,4 +335,23 @@ public class SimpyUtils {
 
         return encodedInput;
     }
+
+    /**
+     * Read a stream to the end
+     *
+     * @param input Input stream
+     * @return Bytes read from the stream
+     * @throws IOException If there is an error reading the stream
+     * @since 1.4
+     */
+    public static byte[] readFully(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+
+        return output.toByteArray();
+    }
 }
\ No newline at end of file
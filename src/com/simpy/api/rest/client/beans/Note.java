@@ -31,6 +31,9 @@
  */
 package com.simpy.api.rest.client.beans;
 
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.SimpyUtils;
+
 import java.util.List;
 
 /**
@@ -46,9 +49,13 @@ public class Note {
     private String accessType;
     private String uri;
     private String modDate;
+    private long modDateMillis = SimpyConstants.UNKNOWN_DATE;
     private String addDate;
+    private long addDateMillis = SimpyConstants.UNKNOWN_DATE;
     private String title;
     private List tags;
+    private int[] tagIds;
+    private TagDictionary tagDictionary;
     private String description;
 
     public Note() {
@@ -59,7 +66,9 @@ public class Note {
         this.accessType = accessType;
         this.uri = uri;
         this.modDate = modDate;
+        this.modDateMillis = SimpyUtils.parseDate(modDate);
         this.addDate = addDate;
+        this.addDateMillis = SimpyUtils.parseDate(addDate);
         this.title = title;
         this.tags = tags;
         this.description = description;
@@ -95,6 +104,19 @@ public class Note {
 
     public void setModDate(String modDate) {
         this.modDate = modDate;
+        this.modDateMillis = SimpyUtils.parseDate(modDate);
+    }
+
+    /**
+     * Return the modification date parsed when it was set
+     *
+     * @return Milliseconds since the epoch or {@link SimpyConstants#UNKNOWN_DATE} if the
+     *         modification date is missing or malformed
+     * @see SimpyUtils#parseDate(CharSequence)
+     * @since 1.4
+     */
+    public long getModDateMillis() {
+        return modDateMillis;
     }
 
     public String getAddDate() {
@@ -103,6 +125,19 @@ public class Note {
 
     public void setAddDate(String addDate) {
         this.addDate = addDate;
+        this.addDateMillis = SimpyUtils.parseDate(addDate);
+    }
+
+    /**
+     * Return the add date parsed when it was set
+     *
+     * @return Milliseconds since the epoch or {@link SimpyConstants#UNKNOWN_DATE} if the
+     *         add date is missing or malformed
+     * @see SimpyUtils#parseDate(CharSequence)
+     * @since 1.4
+     */
+    public long getAddDateMillis() {
+        return addDateMillis;
     }
 
     public String getTitle() {
@@ -113,12 +148,71 @@ public class Note {
         this.title = title;
     }
 
+    /**
+     * Return the tags. If the tags are held as ids a new list is resolved through the
+     * {@link TagDictionary} on every call.
+     *
+     * @return List of tag names
+     */
     public List getTags() {
+        if (tags == null && tagIds != null) {
+            return tagDictionary.toNames(tagIds);
+        }
+
         return tags;
     }
 
     public void setTags(List tags) {
         this.tags = tags;
+        this.tagIds = null;
+        this.tagDictionary = null;
+    }
+
+    /**
+     * Return the tags as ids from the {@link TagDictionary} given to
+     * {@link #setTagIds(int[], TagDictionary)}
+     *
+     * @return Tag ids or <code>null</code> if the tags are held as names
+     * @since 1.4
+     */
+    public int[] getTagIds() {
+        return tagIds;
+    }
+
+    /**
+     * Hold the tags as ids instead of names
+     *
+     * @param tagIds        Tag ids
+     * @param tagDictionary {@link TagDictionary} that assigned the ids
+     * @since 1.4
+     */
+    public void setTagIds(int[] tagIds, TagDictionary tagDictionary) {
+        if (tagIds != null && tagDictionary == null) {
+            throw new IllegalArgumentException("tagDictionary is a required parameter");
+        }
+
+        this.tagIds = tagIds;
+        this.tagDictionary = tagDictionary;
+        this.tags = null;
+    }
+
+    /**
+     * Check for a tag by id
+     *
+     * @param tagId Tag id
+     * @return <code>true</code> if the tags are held as ids and include <code>tagId</code>
+     * @since 1.4
+     */
+    public boolean hasTagId(int tagId) {
+        if (tagIds != null) {
+            for (int i = 0; i < tagIds.length; i++) {
+                if (tagIds[i] == tagId) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
     }
 
     public String getDescription() {
@@ -131,7 +225,8 @@ public class Note {
 
     public String toString() {
         StringBuffer result = new StringBuffer();
-        result.append(id).append(":").append(accessType).append(":").append(uri).append(":").append(modDate).append(":").append(addDate).append(":").append(title).append(":").append(description).append(":");
+        result.append(getId()).append(":").append(getAccessType()).append(":").append(getUri()).append(":").append(getModDate()).append(":").append(getAddDate()).append(":").append(getTitle()).append(":").append(getDescription()).append(":");
+        List tags = getTags();
         if (tags != null) {
             for (int i = 0; i < tags.size(); i++) {
                 result.append(tags.get(i));
@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TagDictionary interns tag names and assigns each distinct name a small integer id, so that
+ * {@link Link} and {@link Note} objects can share one copy of every tag name and hold their
+ * tags as an <code>int[]</code>. Ids are assigned in the order names are first seen and are
+ * never reused. Instances are threadsafe.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class TagDictionary {
+
+    private Map ids = new ConcurrentHashMap();
+    private volatile String[] names = new String[64];
+    private volatile int size;
+
+    public TagDictionary() {
+    }
+
+    /**
+     * Add the names of a list of {@link Tag} objects, for example the result of
+     * {@link com.simpy.api.rest.client.Simpy#getTags()}
+     *
+     * @param tags List of {@link Tag} objects
+     */
+    public void seed(List tags) {
+        if (tags == null) {
+            return;
+        }
+
+        for (int i = 0; i < tags.size(); i++) {
+            intern(((Tag) tags.get(i)).getTag());
+        }
+    }
+
+    /**
+     * Return the id for a tag name, assigning a new id if the name has not been seen before
+     *
+     * @param tag Tag name
+     * @return Tag id
+     * @throws IllegalArgumentException If <code>tag</code> is <code>null</code>
+     */
+    public int intern(String tag) {
+        if (tag == null) {
+            throw new IllegalArgumentException("tag is a required parameter");
+        }
+
+        Integer id = (Integer) ids.get(tag);
+        if (id != null) {
+            return id.intValue();
+        }
+
+        synchronized (this) {
+            id = (Integer) ids.get(tag);
+            if (id != null) {
+                return id.intValue();
+            }
+
+            int next = size;
+            String[] current = names;
+            if (next == current.length) {
+                String[] expanded = new String[current.length * 2];
+                System.arraycopy(current, 0, expanded, 0, current.length);
+                current = expanded;
+            }
+
+            current[next] = tag;
+            names = current;
+            ids.put(tag, Integer.valueOf(next));
+            size = next + 1;
+
+            return next;
+        }
+    }
+
+    /**
+     * Return the shared instance of a tag name
+     *
+     * @param tag Tag name
+     * @return Interned tag name
+     */
+    public String internName(String tag) {
+        return getTag(intern(tag));
+    }
+
+    /**
+     * Return the id for a tag name without assigning one
+     *
+     * @param tag Tag name
+     * @return Tag id or <code>-1</code> if the name has not been seen
+     */
+    public int getId(String tag) {
+        Integer id = (tag == null) ? null : (Integer) ids.get(tag);
+
+        return (id == null) ? -1 : id.intValue();
+    }
+
+    /**
+     * Return the tag name for an id
+     *
+     * @param id Tag id
+     * @return Tag name
+     * @throws IndexOutOfBoundsException If the id has not been assigned
+     */
+    public String getTag(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown tag id " + id);
+        }
+
+        return names[id];
+    }
+
+    /**
+     * Convert a list of tag names to ids, assigning new ids as needed
+     *
+     * @param tags List of tag names
+     * @return Tag ids in the same order
+     */
+    public int[] toIds(List tags) {
+        int[] result = new int[tags.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = intern((String) tags.get(i));
+        }
+
+        return result;
+    }
+
+    /**
+     * Convert tag ids back to a list of names
+     *
+     * @param tagIds Tag ids
+     * @return List of tag names in the same order
+     */
+    public List toNames(int[] tagIds) {
+        List result = new ArrayList(tagIds.length);
+        for (int i = 0; i < tagIds.length; i++) {
+            result.add(getTag(tagIds[i]));
+        }
+
+        return result;
+    }
+
+    /**
+     * Replace the tag names of a {@link Link} with ids from this dictionary
+     *
+     * @param link {@link Link}
+     */
+    public void compact(Link link) {
+        if (link.getTagIds() == null && link.getTags() != null) {
+            link.setTagIds(toIds(link.getTags()), this);
+        }
+    }
+
+    /**
+     * Replace the tag names of a {@link Note} with ids from this dictionary
+     *
+     * @param note {@link Note}
+     */
+    public void compact(Note note) {
+        if (note.getTagIds() == null && note.getTags() != null) {
+            note.setTagIds(toIds(note.getTags()), this);
+        }
+    }
+
+    /**
+     * Return the number of distinct tag names
+     *
+     * @return Number of tag names
+     */
+    public int size() {
+        return size;
+    }
+}
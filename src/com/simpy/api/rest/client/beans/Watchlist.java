@@ -31,6 +31,9 @@
  */
 package com.simpy.api.rest.client.beans;
 
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.SimpyUtils;
+
 import java.util.List;
 
 /**
@@ -49,6 +52,7 @@ public class Watchlist {
     private String name;
     private String description;
     private String addDate;
+    private long addDateMillis = SimpyConstants.UNKNOWN_DATE;
     private int newLinks;
 
     public Watchlist() {
@@ -61,6 +65,7 @@ public class Watchlist {
         this.name = name;
         this.description = description;
         this.addDate = addDate;
+        this.addDateMillis = SimpyUtils.parseDate(addDate);
         this.newLinks = newLinks;
     }
 
@@ -110,6 +115,19 @@ public class Watchlist {
 
     public void setAddDate(String addDate) {
         this.addDate = addDate;
+        this.addDateMillis = SimpyUtils.parseDate(addDate);
+    }
+
+    /**
+     * Return the add date parsed when it was set
+     *
+     * @return Milliseconds since the epoch or {@link SimpyConstants#UNKNOWN_DATE} if the
+     *         add date is missing or malformed
+     * @see SimpyUtils#parseDate(CharSequence)
+     * @since 1.4
+     */
+    public long getAddDateMillis() {
+        return addDateMillis;
     }
 
     public int getNewLinks() {
@@ -0,0 +1,382 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deletes links or Notes with {@link Simpy#deleteLink(String)} and
+ * {@link Simpy#deleteNote(String)} calls running concurrently, at most one per worker
+ * thread. The targets are either the results of a query or the URLs, Note IDs,
+ * {@link Link} or {@link Note} objects supplied by a {@link BulkSource}. A target that no
+ * longer exists counts as deleted.
+ * <p/>
+ * In dry run mode no delete is sent; every target is reported to the {@link BulkListener}
+ * and logged as if it had been deleted. With a checkpoint file, every completed delete is
+ * recorded as it happens, and for queries the full list of targets is recorded before the
+ * first delete. Running the same operation again with the same file skips completed targets
+ * and, for queries, reuses the recorded list instead of fetching it again. The targets of a
+ * {@link BulkSource} are not recorded, so its run is identified by a run id chosen by the
+ * caller, and resuming requires the same id; without one no checkpoint is written and an
+ * existing file is refused. The file is removed once every target has been deleted.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class BulkDeleter extends BulkOperation {
+
+    private static Log logger = LogFactory.getLog(BulkDeleter.class);
+
+    private volatile boolean dryRun;
+    private File checkpointFile;
+    private volatile Checkpoint checkpoint;
+    private volatile boolean deletingNotes;
+
+    /**
+     * Create a deleter
+     *
+     * @param simpy                {@link Simpy} object with a pooled connection manager
+     * @param maxConcurrentDeletes Maximum number of deletes in flight
+     * @param queueCapacity        Maximum number of targets read ahead of the workers
+     */
+    public BulkDeleter(Simpy simpy, int maxConcurrentDeletes, int queueCapacity) {
+        super(simpy, maxConcurrentDeletes, queueCapacity);
+    }
+
+    /**
+     * Check whether deletes are only reported and not sent
+     *
+     * @return <code>true</code> in dry run mode
+     */
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * Report the targets without deleting them. No checkpoint is written in dry run mode.
+     *
+     * @param dryRun <code>true</code> for dry run mode
+     */
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * Set the file recording the progress of each operation
+     *
+     * @param checkpointFile Checkpoint file, <code>null</code> for none
+     */
+    public void setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Delete the links matching a query, see {@link Simpy#getAllLinks(String, String, String, String)}
+     *
+     * @param q          Query, may be <code>null</code>
+     * @param date       Date the links were added, may be <code>null</code>
+     * @param afterDate  Links added after this date, may be <code>null</code>
+     * @param beforeDate Links added before this date, may be <code>null</code>
+     * @return {@link BulkProgress} of the finished operation
+     * @throws IOException          If the links cannot be retrieved completely or the
+     *                              checkpoint cannot be used
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public BulkProgress deleteLinks(String q, String date, String afterDate, String beforeDate) throws IOException, InterruptedException {
+        Checkpoint checkpoint = openCheckpoint("DeleteLinks q=" + q + " date=" + date + " afterDate=" + afterDate + " beforeDate=" + beforeDate);
+        List targets = (checkpoint == null) ? null : checkpoint.getTargets();
+
+        try {
+            if (targets == null) {
+                List links = simpy.getAllLinks(q, date, afterDate, beforeDate);
+                checkResult("GetLinks");
+
+                targets = new ArrayList(links.size());
+                for (int i = 0; i < links.size(); i++) {
+                    targets.add(((Link) links.get(i)).getUrl());
+                }
+                if (checkpoint != null) {
+                    checkpoint.setTargets(targets);
+                }
+            }
+        } catch (IOException e) {
+            closeCheckpoint(checkpoint);
+            throw e;
+        }
+
+        return delete(false, targets, null, checkpoint);
+    }
+
+    /**
+     * Delete links
+     *
+     * @param links {@link BulkSource} of URLs or {@link Link} objects
+     * @return {@link BulkProgress} of the finished operation
+     * @throws IOException          If the source cannot be read or the checkpoint cannot be
+     *                              used
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public BulkProgress deleteLinks(BulkSource links) throws IOException, InterruptedException {
+        return deleteLinks(links, null);
+    }
+
+    /**
+     * Delete links, recording the run in the checkpoint file under an id so it can be resumed
+     *
+     * @param links {@link BulkSource} of URLs or {@link Link} objects
+     * @param runId Id identifying the run; an existing checkpoint is only resumed if it was
+     *              written for the same id. <code>null</code> runs without a checkpoint and
+     *              refuses an existing one.
+     * @return {@link BulkProgress} of the finished operation
+     * @throws IOException          If the source cannot be read or the checkpoint cannot be
+     *                              used
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public BulkProgress deleteLinks(BulkSource links, String runId) throws IOException, InterruptedException {
+        return delete(false, null, links, openSourceCheckpoint("DeleteLinks", runId));
+    }
+
+    /**
+     * Delete the Notes matching a query, see {@link Simpy#getAllNotes(String)}
+     *
+     * @param q Query, may be <code>null</code>
+     * @return {@link BulkProgress} of the finished operation
+     * @throws IOException          If the Notes cannot be retrieved completely or the
+     *                              checkpoint cannot be used
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public BulkProgress deleteNotes(String q) throws IOException, InterruptedException {
+        Checkpoint checkpoint = openCheckpoint("DeleteNotes q=" + q);
+        List targets = (checkpoint == null) ? null : checkpoint.getTargets();
+
+        try {
+            if (targets == null) {
+                List notes = simpy.getAllNotes(q);
+                checkResult("GetNotes");
+
+                targets = new ArrayList(notes.size());
+                for (int i = 0; i < notes.size(); i++) {
+                    targets.add(((Note) notes.get(i)).getId());
+                }
+                if (checkpoint != null) {
+                    checkpoint.setTargets(targets);
+                }
+            }
+        } catch (IOException e) {
+            closeCheckpoint(checkpoint);
+            throw e;
+        }
+
+        return delete(true, targets, null, checkpoint);
+    }
+
+    /**
+     * Delete Notes
+     *
+     * @param notes {@link BulkSource} of Note IDs or {@link Note} objects
+     * @return {@link BulkProgress} of the finished operation
+     * @throws IOException          If the source cannot be read or the checkpoint cannot be
+     *                              used
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public BulkProgress deleteNotes(BulkSource notes) throws IOException, InterruptedException {
+        return deleteNotes(notes, null);
+    }
+
+    /**
+     * Delete Notes, recording the run in the checkpoint file under an id so it can be resumed
+     *
+     * @param notes {@link BulkSource} of Note IDs or {@link Note} objects
+     * @param runId Id identifying the run; an existing checkpoint is only resumed if it was
+     *              written for the same id. <code>null</code> runs without a checkpoint and
+     *              refuses an existing one.
+     * @return {@link BulkProgress} of the finished operation
+     * @throws IOException          If the source cannot be read or the checkpoint cannot be
+     *                              used
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public BulkProgress deleteNotes(BulkSource notes, String runId) throws IOException, InterruptedException {
+        return delete(true, null, notes, openSourceCheckpoint("DeleteNotes", runId));
+    }
+
+    protected int perform(Object item) {
+        String key = key(item);
+        if (dryRun) {
+            logger.info("Dry run, not deleting " + key);
+            return SimpyConstants.STATUS_CODE_SUCCESS;
+        }
+
+        int status = deletingNotes ? simpy.deleteNote(key) : simpy.deleteLink(key);
+        if (simpy.getHttpResult() != HttpStatus.SC_OK) {
+            return status;
+        }
+
+        if (status == SimpyConstants.STATUS_CODE_NON_EXISTENT_ENTITY) {
+            status = SimpyConstants.STATUS_CODE_SUCCESS;
+        }
+
+        Checkpoint checkpoint = this.checkpoint;
+        if (status == SimpyConstants.STATUS_CODE_SUCCESS && checkpoint != null) {
+            try {
+                checkpoint.markDone(key);
+            } catch (IOException e) {
+                logger.error("Unable to record " + key + " in checkpoint", e);
+            }
+        }
+
+        return status;
+    }
+
+    protected int getHttpResult() {
+        return dryRun ? HttpStatus.SC_OK : super.getHttpResult();
+    }
+
+    /**
+     * Run the deletes of a list of keys or of a source, skipping targets already completed
+     */
+    private BulkProgress delete(boolean notes, List targets, BulkSource source, final Checkpoint checkpoint) throws IOException, InterruptedException {
+        if (targets != null) {
+            source = new IteratorSource(targets.iterator());
+            setExpectedTotal(targets.size() - ((checkpoint == null) ? 0 : checkpoint.getDoneCount()));
+        }
+
+        final BulkSource items = source;
+        BulkSource remaining = (checkpoint == null) ? items : new BulkSource() {
+            public Object next() throws IOException {
+                Object item;
+                do {
+                    item = items.next();
+                } while (item != null && checkpoint.isDone(key(item)));
+
+                return item;
+            }
+        };
+
+        deletingNotes = notes;
+        this.checkpoint = checkpoint;
+
+        BulkProgress progress;
+        try {
+            progress = run(remaining);
+        } catch (IOException e) {
+            closeCheckpoint(checkpoint);
+            throw e;
+        } catch (InterruptedException e) {
+            closeCheckpoint(checkpoint);
+            throw e;
+        } finally {
+            this.checkpoint = null;
+        }
+
+        if (checkpoint != null) {
+            if (progress.getFailed() == 0 && progress.getCompleted() == progress.getSubmitted()) {
+                checkpoint.delete();
+            } else {
+                checkpoint.close();
+            }
+        }
+
+        return progress;
+    }
+
+    private Checkpoint openCheckpoint(String operation) throws IOException {
+        if (checkpointFile == null || dryRun) {
+            return null;
+        }
+
+        return new Checkpoint(checkpointFile, operation);
+    }
+
+    /**
+     * Open the checkpoint of a delete from a {@link BulkSource}, whose targets are not recorded
+     */
+    private Checkpoint openSourceCheckpoint(String operation, String runId) throws IOException {
+        if (runId != null) {
+            return openCheckpoint(operation + " run=" + runId);
+        }
+
+        if (checkpointFile != null && !dryRun && checkpointFile.exists()) {
+            throw new IOException("Checkpoint " + checkpointFile + " exists and " + operation + " was not given a run id to resume");
+        }
+
+        return null;
+    }
+
+    private static void closeCheckpoint(Checkpoint checkpoint) {
+        if (checkpoint != null) {
+            try {
+                checkpoint.close();
+            } catch (IOException e) {
+                logger.error(e);
+            }
+        }
+    }
+
+    /**
+     * Check that the targets were read completely before they are deleted or recorded, so an
+     * error reported in a status document or a response that broke off does not pass for the
+     * full list
+     */
+    private void checkResult(String call) throws IOException {
+        int result = simpy.getHttpResult();
+        if (result != HttpStatus.SC_OK) {
+            throw new IOException(call + " returned HTTP status " + result);
+        }
+
+        int status = simpy.getReadStatus();
+        if (status != SimpyConstants.STATUS_CODE_SUCCESS) {
+            throw new IOException(call + " returned status " + status);
+        }
+    }
+
+    private static String key(Object item) {
+        if (item instanceof Link) {
+            return ((Link) item).getUrl();
+        } else if (item instanceof Note) {
+            return ((Note) item).getId();
+        }
+
+        return item.toString();
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.beans.Link;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Saves large numbers of links with {@link Simpy#saveLink} calls running concurrently on
+ * a fixed number of worker threads. Links are streamed from a {@link BulkSource}, such as a
+ * {@link CsvLinkSource}, a {@link NetscapeLinkSource} or an {@link IteratorSource} of
+ * {@link Link} objects, through a bounded queue, so the source is read only as fast as the
+ * links are saved. The title of a link without one defaults to its URL, and its access type
+ * to public.
+ * <p/>
+ * <pre>
+ * Simpy simpy = new Simpy(username, password, 8, 8);
+ * BulkLinkImporter importer = new BulkLinkImporter(simpy, 8, 1000);
+ * BulkProgress progress = importer.importLinks(new NetscapeLinkSource(new FileReader("bookmarks.html")));
+ * </pre>
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class BulkLinkImporter extends BulkOperation {
+
+    /**
+     * Create an importer
+     *
+     * @param simpy         {@link Simpy} object with a pooled connection manager
+     * @param threads       Number of concurrent <code>saveLink</code> calls
+     * @param queueCapacity Maximum number of links read ahead of the workers
+     */
+    public BulkLinkImporter(Simpy simpy, int threads, int queueCapacity) {
+        super(simpy, threads, queueCapacity);
+    }
+
+    /**
+     * Save every link of a source
+     *
+     * @param source {@link BulkSource} of {@link Link} objects
+     * @return {@link BulkProgress} of the finished import
+     * @throws IOException          If the source cannot be read
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public BulkProgress importLinks(BulkSource source) throws IOException, InterruptedException {
+        return run(source);
+    }
+
+    /**
+     * Save every link of an {@link Iterator}
+     *
+     * @param links {@link Iterator} of {@link Link} objects
+     * @return {@link BulkProgress} of the finished import
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public BulkProgress importLinks(Iterator links) throws InterruptedException {
+        try {
+            return run(new IteratorSource(links));
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    protected int perform(Object item) {
+        Link link = (Link) item;
+        String title = (link.getTitle() == null) ? link.getUrl() : link.getTitle();
+
+        return simpy.saveLink(title, link.getUrl(), accessType(link.getAccessType()), joinTags(link.getTags()),
+                link.getNickname(), link.getNote());
+    }
+
+    /**
+     * Map an access type given as a number or as <code>public</code> or <code>private</code>
+     */
+    private static int accessType(String accessType) {
+        if (accessType == null) {
+            return SimpyConstants.PUBLIC_ACCESS_TYPE;
+        }
+
+        String value = accessType.trim();
+        if ("private".equalsIgnoreCase(value) || Integer.toString(SimpyConstants.PRIVATE_ACCESS_TYPE).equals(value)) {
+            return SimpyConstants.PRIVATE_ACCESS_TYPE;
+        }
+
+        return SimpyConstants.PUBLIC_ACCESS_TYPE;
+    }
+
+    private static String joinTags(List tags) {
+        if (tags == null || tags.isEmpty()) {
+            return null;
+        }
+
+        StringBuffer result = new StringBuffer();
+        for (int i = 0; i < tags.size(); i++) {
+            if (i > 0) {
+                result.append(",");
+            }
+            result.append(tags.get(i));
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Split comma separated tags into a list of trimmed, non-empty names
+     */
+    static List splitTags(String tags) {
+        List result = new ArrayList();
+        if (tags != null) {
+            String[] names = tags.split(",");
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i].trim();
+                if (name.length() > 0) {
+                    result.add(name);
+                }
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,341 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Runs one {@link Simpy} call per item of a {@link BulkSource} on a fixed number of worker
+ * threads. The calling thread reads the source into a bounded queue and blocks while the
+ * queue is full, so the source is never read further ahead of the workers than the queue
+ * capacity. Attempts that fail without a response, with an HTTP 5xx server error or with
+ * {@link SimpyConstants#STATUS_CODE_STORAGE_ERROR} are retried with exponential backoff;
+ * client errors such as a rejected login are not.
+ * <p/>
+ * The {@link Simpy} object is shared by all workers, so it must be created with a pooled
+ * connection manager, for example with
+ * {@link Simpy#Simpy(String, String, int, int)}, allowing at least as many connections
+ * to the host as there are threads. An operation object runs one operation at a time.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public abstract class BulkOperation {
+
+    private static Log logger = LogFactory.getLog(BulkOperation.class);
+
+    private static final Object END = new Object();
+
+    protected Simpy simpy;
+    private int threads;
+    private int queueCapacity;
+    private int maxRetries = 3;
+    private long retryDelay = 1000;
+    private long reportInterval = 10000;
+    private long expectedTotal = -1;
+    private BulkListener listener;
+    private volatile BulkProgress progress = new BulkProgress();
+    private volatile boolean cancelled;
+    private long lastReport;
+
+    /**
+     * Create a bulk operation
+     *
+     * @param simpy         {@link Simpy} object shared by the workers
+     * @param threads       Number of worker threads
+     * @param queueCapacity Maximum number of items read ahead of the workers
+     */
+    protected BulkOperation(Simpy simpy, int threads, int queueCapacity) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("threads and queueCapacity must be at least 1");
+        }
+
+        this.simpy = simpy;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Set the number of times a retryable failure is retried
+     *
+     * @param maxRetries Number of retries, default 3
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Set the delay before the first retry of an item; each further retry waits twice as long
+     *
+     * @param retryDelay Milliseconds, default 1000
+     */
+    public void setRetryDelay(long retryDelay) {
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Set how often progress is logged while the operation runs
+     *
+     * @param reportInterval Milliseconds, default 10000, <code>0</code> to disable
+     */
+    public void setReportInterval(long reportInterval) {
+        this.reportInterval = reportInterval;
+    }
+
+    /**
+     * Set the number of items the source is expected to supply, used for the estimated time
+     * remaining
+     *
+     * @param expectedTotal Number of items, <code>-1</code> if unknown
+     */
+    public void setExpectedTotal(long expectedTotal) {
+        this.expectedTotal = expectedTotal;
+    }
+
+    /**
+     * Set the {@link BulkListener} notified of the outcome of every item
+     *
+     * @param listener {@link BulkListener}, may be <code>null</code>
+     */
+    public void setListener(BulkListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Return the progress of the current or last operation
+     *
+     * @return {@link BulkProgress}
+     */
+    public BulkProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * Stop the current operation. No further items are read from the source and queued items
+     * are discarded; calls already in flight complete.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Check whether the current operation has been cancelled
+     *
+     * @return <code>true</code> if {@link #cancel()} was called since the operation started
+     */
+    protected boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Perform the call for one item
+     *
+     * @param item Item read from the source
+     * @return Status returned by Simpy
+     */
+    protected abstract int perform(Object item);
+
+    /**
+     * Return the HTTP status code of the call just made by {@link #perform(Object)} on the
+     * calling thread
+     *
+     * @return HTTP status code
+     */
+    protected int getHttpResult() {
+        return simpy.getHttpResult();
+    }
+
+    /**
+     * Process every item of a source and wait for the workers to finish
+     *
+     * @param source {@link BulkSource}
+     * @return {@link BulkProgress} of the finished operation
+     * @throws IOException          If the source cannot be read; items already queued are
+     *                              still processed
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    protected BulkProgress run(BulkSource source) throws IOException, InterruptedException {
+        final BlockingQueue queue = new ArrayBlockingQueue(queueCapacity);
+        final BulkProgress progress = new BulkProgress();
+        progress.setTotal(expectedTotal);
+        this.progress = progress;
+        cancelled = false;
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Runnable() {
+                public void run() {
+                    work(queue, progress);
+                }
+            }, "Simpy bulk worker " + (i + 1));
+            workers[i].setDaemon(true);
+        }
+
+        progress.start();
+        for (int i = 0; i < threads; i++) {
+            workers[i].start();
+        }
+
+        try {
+            Object item;
+            while (!cancelled && (item = source.next()) != null) {
+                queue.put(item);
+                progress.submitted();
+            }
+        } finally {
+            try {
+                for (int i = 0; i < threads; i++) {
+                    queue.put(END);
+                }
+                for (int i = 0; i < threads; i++) {
+                    workers[i].join();
+                }
+            } catch (InterruptedException e) {
+                cancelled = true;
+                for (int i = 0; i < threads; i++) {
+                    workers[i].interrupt();
+                }
+                throw e;
+            } finally {
+                progress.finish();
+                logger.info("Finished: " + progress);
+            }
+        }
+
+        return progress;
+    }
+
+    /**
+     * Worker loop: process queued items until the end marker
+     */
+    private void work(BlockingQueue queue, BulkProgress progress) {
+        try {
+            while (true) {
+                Object item = queue.take();
+                if (item == END) {
+                    return;
+                }
+
+                if (!cancelled) {
+                    process(item, progress);
+                    report(progress);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run the call for one item, retrying retryable failures
+     */
+    private void process(Object item, BulkProgress progress) throws InterruptedException {
+        int status = -1;
+        int httpResult = 0;
+        int attempts = 0;
+
+        while (true) {
+            attempts++;
+            try {
+                status = perform(item);
+                httpResult = getHttpResult();
+            } catch (RuntimeException e) {
+                logger.error("Unable to process " + item, e);
+                status = -1;
+                httpResult = 0;
+                break;
+            }
+
+            boolean retryable = httpResult == 0 || httpResult >= HttpStatus.SC_INTERNAL_SERVER_ERROR
+                    || (httpResult == HttpStatus.SC_OK && status == SimpyConstants.STATUS_CODE_STORAGE_ERROR);
+            if (!retryable || attempts > maxRetries || cancelled) {
+                break;
+            }
+
+            progress.retried();
+            Thread.sleep(retryDelay << Math.min(attempts - 1, 16));
+        }
+
+        boolean success = httpResult == HttpStatus.SC_OK && status == SimpyConstants.STATUS_CODE_SUCCESS;
+        progress.completed(success);
+        if (!success) {
+            logger.debug("Failed " + item + " with status " + status + ", HTTP result " + httpResult + " after " + attempts + " attempts");
+        }
+
+        itemCompleted(item, status, httpResult, attempts);
+    }
+
+    /**
+     * Called on the worker thread once an item has been processed; notifies the
+     * {@link BulkListener}
+     *
+     * @param item       Item
+     * @param status     Status returned by Simpy for the last attempt
+     * @param httpResult HTTP status code of the last attempt
+     * @param attempts   Number of attempts made
+     */
+    protected void itemCompleted(Object item, int status, int httpResult, int attempts) {
+        BulkListener listener = this.listener;
+        if (listener != null) {
+            try {
+                listener.itemCompleted(item, status, httpResult, attempts);
+            } catch (RuntimeException e) {
+                logger.error(e);
+            }
+        }
+    }
+
+    private void report(BulkProgress progress) {
+        if (reportInterval <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (now - lastReport < reportInterval) {
+                return;
+            }
+            lastReport = now;
+        }
+
+        logger.info(progress);
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+/**
+ * Counters and throughput of a bulk operation. The object is updated while the operation
+ * runs and may be read from any thread.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class BulkProgress {
+
+    private long total = -1;
+    private long startTime;
+    private long endTime;
+    private long submitted;
+    private long succeeded;
+    private long failed;
+    private long retries;
+
+    /**
+     * Return the expected number of items
+     *
+     * @return Expected number of items, <code>-1</code> if unknown
+     */
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    /**
+     * Return the number of items read from the source
+     *
+     * @return Number of items read
+     */
+    public synchronized long getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * Return the number of items processed successfully
+     *
+     * @return Number of successful items
+     */
+    public synchronized long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * Return the number of items that failed after all attempts
+     *
+     * @return Number of failed items
+     */
+    public synchronized long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Return the number of items processed, successfully or not
+     *
+     * @return Number of processed items
+     */
+    public synchronized long getCompleted() {
+        return succeeded + failed;
+    }
+
+    /**
+     * Return the number of retried attempts
+     *
+     * @return Number of retries
+     */
+    public synchronized long getRetries() {
+        return retries;
+    }
+
+    /**
+     * Return the time the operation has been running, or ran for if it has finished
+     *
+     * @return Milliseconds
+     */
+    public synchronized long getElapsedMillis() {
+        if (startTime == 0) {
+            return 0;
+        }
+
+        return ((endTime == 0) ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
+    /**
+     * Check whether the operation has finished
+     *
+     * @return <code>true</code> if the operation has finished
+     */
+    public synchronized boolean isFinished() {
+        return endTime != 0;
+    }
+
+    /**
+     * Return the throughput so far
+     *
+     * @return Items processed per second
+     */
+    public synchronized double getRate() {
+        long elapsed = getElapsedMillis();
+
+        return (elapsed == 0) ? 0 : getCompleted() * 1000.0 / elapsed;
+    }
+
+    /**
+     * Return the estimated time until all expected items are processed
+     *
+     * @return Milliseconds, <code>-1</code> if the total or the rate is unknown
+     */
+    public synchronized long getEstimatedRemainingMillis() {
+        double rate = getRate();
+        if (total < 0 || rate == 0) {
+            return -1;
+        }
+
+        return (long) (Math.max(total - getCompleted(), 0) * 1000 / rate);
+    }
+
+    synchronized void setTotal(long total) {
+        this.total = total;
+    }
+
+    synchronized void start() {
+        startTime = System.currentTimeMillis();
+    }
+
+    synchronized void finish() {
+        endTime = System.currentTimeMillis();
+    }
+
+    synchronized void submitted() {
+        submitted++;
+    }
+
+    synchronized void completed(boolean success) {
+        if (success) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+    }
+
+    synchronized void retried() {
+        retries++;
+    }
+
+    public synchronized String toString() {
+        StringBuffer result = new StringBuffer();
+        result.append(getCompleted()).append("/").append((total < 0) ? "?" : Long.toString(total));
+        result.append(" (").append(succeeded).append(" succeeded, ").append(failed).append(" failed, ");
+        result.append(retries).append(" retries), ");
+        result.append(Math.round(getRate() * 10) / 10.0).append("/s");
+
+        long remaining = getEstimatedRemainingMillis();
+        if (remaining >= 0 && endTime == 0) {
+            long seconds = remaining / 1000;
+            result.append(", ETA ").append(seconds / 3600).append(":");
+            result.append(twoDigits(seconds / 60 % 60)).append(":").append(twoDigits(seconds % 60));
+        }
+
+        return result.toString();
+    }
+
+    private static String twoDigits(long value) {
+        return (value < 10) ? "0" + value : Long.toString(value);
+    }
+}
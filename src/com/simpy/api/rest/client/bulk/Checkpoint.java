@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Append-only record of a bulk operation, holding the operation it belongs to, optionally
+ * the full list of targets, and every target completed so far. Each line is flushed as it
+ * is written, so a run that is interrupted can resume where it stopped.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+class Checkpoint {
+
+    private static final String OPERATION = "operation ";
+    private static final String TARGET = "target ";
+    private static final String TARGETS_END = "targets-end";
+    private static final String DONE = "done ";
+
+    private File file;
+    private List targets;
+    private Set done = new HashSet();
+    private Writer writer;
+
+    /**
+     * Open a checkpoint, reading it if it exists
+     *
+     * @param file      Checkpoint file
+     * @param operation Description of the operation; an existing checkpoint must have been
+     *                  written for the same operation
+     * @throws IOException If the file cannot be read or written or belongs to another operation
+     */
+    Checkpoint(File file, String operation) throws IOException {
+        this.file = file;
+        boolean exists = file.exists();
+
+        if (exists) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line = reader.readLine();
+                if (line == null || !line.equals(OPERATION + operation)) {
+                    throw new IOException("Checkpoint " + file + " was not written for " + operation);
+                }
+
+                List pending = new ArrayList();
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(TARGET)) {
+                        pending.add(line.substring(TARGET.length()));
+                    } else if (line.equals(TARGETS_END)) {
+                        targets = pending;
+                    } else if (line.startsWith(DONE)) {
+                        done.add(line.substring(DONE.length()));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+        if (!exists) {
+            write(OPERATION + operation);
+        }
+    }
+
+    /**
+     * Return the targets recorded by {@link #setTargets(List)}
+     *
+     * @return List of keys or <code>null</code> if none were recorded completely
+     */
+    synchronized List getTargets() {
+        return targets;
+    }
+
+    /**
+     * Record the full list of targets
+     *
+     * @param targets List of keys
+     * @throws IOException If the checkpoint cannot be written
+     */
+    synchronized void setTargets(List targets) throws IOException {
+        for (int i = 0; i < targets.size(); i++) {
+            writer.write(TARGET + targets.get(i));
+            writer.write('\n');
+        }
+        write(TARGETS_END);
+
+        this.targets = new ArrayList(targets);
+    }
+
+    synchronized boolean isDone(String key) {
+        return done.contains(key);
+    }
+
+    synchronized int getDoneCount() {
+        return done.size();
+    }
+
+    /**
+     * Record a completed target
+     *
+     * @param key Key of the target
+     * @throws IOException If the checkpoint cannot be written
+     */
+    synchronized void markDone(String key) throws IOException {
+        if (done.add(key)) {
+            write(DONE + key);
+        }
+    }
+
+    synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Close and remove the checkpoint once the operation is complete
+     */
+    synchronized void delete() throws IOException {
+        writer.close();
+        if (!file.delete()) {
+            throw new IOException("Unable to delete checkpoint " + file);
+        }
+    }
+
+    private void write(String line) throws IOException {
+        writer.write(line);
+        writer.write('\n');
+        writer.flush();
+    }
+}
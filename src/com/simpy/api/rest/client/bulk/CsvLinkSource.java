@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.beans.Link;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link BulkSource} of {@link Link} objects read from comma separated values. The first
+ * record names the columns; the columns <code>title</code>, <code>url</code> (or
+ * <code>href</code>), <code>accessType</code>, <code>tags</code>, <code>nickname</code> and
+ * <code>note</code> are recognized in any order and case, and other columns are ignored.
+ * Fields may be quoted with double quotes, which allows commas, doubled quotes and line
+ * breaks inside them. Tags are separated by commas within their field.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class CsvLinkSource implements BulkSource {
+
+    private BufferedReader reader;
+    private int title = -1;
+    private int url = -1;
+    private int accessType = -1;
+    private int tags = -1;
+    private int nickname = -1;
+    private int note = -1;
+
+    /**
+     * Create a source and read the header record
+     *
+     * @param reader {@link Reader} of the CSV data
+     * @throws IOException If the header cannot be read or has no <code>url</code> column
+     */
+    public CsvLinkSource(Reader reader) throws IOException {
+        this.reader = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+
+        List header = readRecord();
+        if (header == null) {
+            throw new IOException("CSV data has no header record");
+        }
+
+        for (int i = 0; i < header.size(); i++) {
+            String column = ((String) header.get(i)).trim();
+            if ("title".equalsIgnoreCase(column)) {
+                title = i;
+            } else if ("url".equalsIgnoreCase(column) || "href".equalsIgnoreCase(column)) {
+                url = i;
+            } else if ("accessType".equalsIgnoreCase(column)) {
+                accessType = i;
+            } else if ("tags".equalsIgnoreCase(column)) {
+                tags = i;
+            } else if ("nickname".equalsIgnoreCase(column)) {
+                nickname = i;
+            } else if ("note".equalsIgnoreCase(column)) {
+                note = i;
+            }
+        }
+
+        if (url < 0) {
+            throw new IOException("CSV header has no url column: " + header);
+        }
+    }
+
+    public synchronized Object next() throws IOException {
+        List record;
+        do {
+            record = readRecord();
+            if (record == null) {
+                return null;
+            }
+        } while (record.size() == 1 && ((String) record.get(0)).trim().length() == 0);
+
+        Link link = new Link();
+        link.setUrl(field(record, url));
+        link.setTitle(field(record, title));
+        link.setAccessType(field(record, accessType));
+        link.setNickname(field(record, nickname));
+        link.setNote(field(record, note));
+        link.setTags(BulkLinkImporter.splitTags(field(record, tags)));
+
+        return link;
+    }
+
+    private static String field(List record, int column) {
+        if (column < 0 || column >= record.size()) {
+            return null;
+        }
+
+        String value = ((String) record.get(column)).trim();
+
+        return (value.length() == 0) ? null : value;
+    }
+
+    /**
+     * Read one record, which may span several lines if a quoted field contains line breaks
+     *
+     * @return Fields or <code>null</code> at the end of the data
+     */
+    private List readRecord() throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+
+        List fields = new ArrayList();
+        StringBuffer field = new StringBuffer();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (quoted) {
+                    line = reader.readLine();
+                    if (line == null) {
+                        throw new IOException("Unterminated quoted field in CSV data");
+                    }
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+
+                fields.add(field.toString());
+                return fields;
+            }
+
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.beans.Link;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link BulkSource} of {@link Link} objects read from a bookmark file in the Netscape
+ * format exported by browsers and other bookmarking services. Each <code>&lt;A&gt;</code>
+ * element becomes a link, using its <code>HREF</code>, <code>TAGS</code> and
+ * <code>PRIVATE</code> attributes, with the text of a following <code>&lt;DD&gt;</code> as
+ * its note. Folders are ignored.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class NetscapeLinkSource implements BulkSource {
+
+    private static final Pattern ANCHOR = Pattern.compile("<a\\s([^>]*)>(.*?)</a>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ATTRIBUTE = Pattern.compile("([\\w-]+)\\s*=\\s*\"([^\"]*)\"");
+    private static final Pattern DESCRIPTION = Pattern.compile("^\\s*<dd>(.*)$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ENTITY = Pattern.compile("&(#x[0-9a-fA-F]+|#[0-9]+|amp|lt|gt|quot|apos);");
+
+    private BufferedReader reader;
+    private String pending;
+
+    /**
+     * Create a source
+     *
+     * @param reader {@link Reader} of the bookmark file
+     */
+    public NetscapeLinkSource(Reader reader) {
+        this.reader = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    public synchronized Object next() throws IOException {
+        while (true) {
+            String line = (pending != null) ? pending : reader.readLine();
+            pending = null;
+            if (line == null) {
+                return null;
+            }
+
+            Matcher anchor = ANCHOR.matcher(line);
+            if (!anchor.find()) {
+                continue;
+            }
+
+            Map attributes = new HashMap();
+            Matcher attribute = ATTRIBUTE.matcher(anchor.group(1));
+            while (attribute.find()) {
+                attributes.put(attribute.group(1).toUpperCase(), decode(attribute.group(2)));
+            }
+
+            String href = (String) attributes.get("HREF");
+            if (href == null || href.length() == 0) {
+                continue;
+            }
+
+            Link link = new Link();
+            link.setUrl(href);
+            link.setTitle(decode(anchor.group(2).replaceAll("<[^>]*>", "").trim()));
+            link.setTags(BulkLinkImporter.splitTags((String) attributes.get("TAGS")));
+            link.setAccessType("1".equals(attributes.get("PRIVATE"))
+                    ? Integer.toString(SimpyConstants.PRIVATE_ACCESS_TYPE)
+                    : Integer.toString(SimpyConstants.PUBLIC_ACCESS_TYPE));
+
+            pending = reader.readLine();
+            if (pending != null) {
+                Matcher description = DESCRIPTION.matcher(pending);
+                if (description.find()) {
+                    String note = decode(description.group(1).trim());
+                    link.setNote((note.length() == 0) ? null : note);
+                    pending = null;
+                }
+            }
+
+            return link;
+        }
+    }
+
+    /**
+     * Replace the character references and predefined entities of HTML text
+     */
+    private static String decode(String text) {
+        if (text.indexOf('&') < 0) {
+            return text;
+        }
+
+        StringBuffer result = new StringBuffer(text.length());
+        Matcher entity = ENTITY.matcher(text);
+        while (entity.find()) {
+            String name = entity.group(1);
+            String replacement;
+            if (name.startsWith("#")) {
+                try {
+                    int codePoint = name.startsWith("#x") ? Integer.parseInt(name.substring(2), 16) : Integer.parseInt(name.substring(1));
+                    replacement = String.valueOf(Character.toChars(codePoint));
+                } catch (IllegalArgumentException e) {
+                    replacement = entity.group();
+                }
+            } else if ("amp".equals(name)) {
+                replacement = "&";
+            } else if ("lt".equals(name)) {
+                replacement = "<";
+            } else if ("gt".equals(name)) {
+                replacement = ">";
+            } else if ("quot".equals(name)) {
+                replacement = "\"";
+            } else {
+                replacement = "'";
+            }
+            entity.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        entity.appendTail(result);
+
+        return result.toString();
+    }
+}
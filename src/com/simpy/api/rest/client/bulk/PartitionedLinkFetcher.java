@@ -0,0 +1,361 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.SimpyUtils;
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.cache.LinkRange;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Retrieves every link of an account, optionally matching a query, by splitting the
+ * account's history into date windows that are fetched concurrently with the
+ * <code>afterDate</code> and <code>beforeDate</code> parameters of
+ * {@link Simpy#getLinks(String, String, String, String, int)}.
+ * <p/>
+ * The newest links are fetched first with a single request, which is enough for small
+ * accounts and otherwise only gives the first estimate of how many links are added per day.
+ * Windows are then handed out from newest to oldest, starting with the days covered by that
+ * request, each sized to hold about {@link #setTargetWindowSize(int) the target number} of
+ * links at the density observed in the windows completed so far, until the earliest date is
+ * reached. A window that fails, with an HTTP error, with a status document such as
+ * {@link SimpyConstants#STATUS_CODE_RETRIEVAL_ERROR} in place of its links or with a response
+ * that breaks off ({@link SimpyConstants#READ_STATUS_INCOMPLETE}), is retried on its own. The
+ * windows are merged newest first and a link returned by more than one request is kept once.
+ * <p/>
+ * The {@link Simpy} object is shared by all threads, so it must be created with a pooled
+ * connection manager, for example with {@link Simpy#Simpy(String, String, int, int)}.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class PartitionedLinkFetcher {
+
+    private static Log logger = LogFactory.getLog(PartitionedLinkFetcher.class);
+
+    /**
+     * Default date of the oldest window, before any link could have been added to Simpy
+     */
+    public static final String EARLIEST_DATE = "2004-01-01";
+
+    private Simpy simpy;
+    private int threads;
+    private int targetWindowSize = 500;
+    private int maxRetries = 3;
+    private long retryDelay = 1000;
+    private int earliestDay = LinkRange.toDay(SimpyUtils.parseDate(EARLIEST_DATE));
+
+    // State of the fetch in progress, guarded by this
+    private String q;
+    private Window newestWindow;
+    private int nextLastDay;
+    private double density;
+    private List windows;
+    private IOException failure;
+    private int activeWorkers;
+
+    /**
+     * Create a fetcher
+     *
+     * @param simpy   {@link Simpy} object with a pooled connection manager
+     * @param threads Maximum number of windows fetched at the same time
+     */
+    public PartitionedLinkFetcher(Simpy simpy, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+
+        this.simpy = simpy;
+        this.threads = threads;
+    }
+
+    /**
+     * Set the number of links each window should hold. This is also the size of the first
+     * request for the newest links.
+     *
+     * @param targetWindowSize Number of links, default 500
+     */
+    public void setTargetWindowSize(int targetWindowSize) {
+        this.targetWindowSize = Math.max(targetWindowSize, 1);
+    }
+
+    /**
+     * Set the number of times a failed window is retried
+     *
+     * @param maxRetries Number of retries, default 3
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Set the delay before the first retry of a window; each further retry waits twice as long
+     *
+     * @param retryDelay Milliseconds, default 1000
+     */
+    public void setRetryDelay(long retryDelay) {
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Set the date of the oldest window
+     *
+     * @param earliestDate Date as <code>yyyy-MM-dd</code>, default {@link #EARLIEST_DATE}
+     */
+    public void setEarliestDate(String earliestDate) {
+        long millis = SimpyUtils.parseDate(earliestDate);
+        if (millis == SimpyConstants.UNKNOWN_DATE) {
+            throw new IllegalArgumentException("Invalid date: " + earliestDate);
+        }
+
+        earliestDay = LinkRange.toDay(millis);
+    }
+
+    /**
+     * Return every link matching a query, newest first
+     *
+     * @param q Query, <code>null</code> for all links
+     * @return List of {@link Link} objects
+     * @throws IOException          If a window still fails after all retries
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public synchronized List getAllLinks(String q) throws IOException, InterruptedException {
+        this.q = q;
+        windows = new ArrayList();
+        failure = null;
+
+        List newest = fetch(null, null, targetWindowSize);
+        if (newest.size() < targetWindowSize) {
+            return newest;
+        }
+
+        // The first request only estimates the density; a query may return its links by relevance
+        int today = LinkRange.toDay(System.currentTimeMillis());
+        int oldestDay = today;
+        int newestDay = earliestDay;
+        for (int i = 0; i < newest.size(); i++) {
+            long added = ((Link) newest.get(i)).getAddDateMillis();
+            if (added != SimpyConstants.UNKNOWN_DATE) {
+                oldestDay = Math.min(oldestDay, LinkRange.toDay(added));
+                newestDay = Math.max(newestDay, LinkRange.toDay(added));
+            }
+        }
+
+        if (newestDay < oldestDay) {
+            logger.debug("No dates in the newest links, fetching all links with one request");
+            return fetch(null, null, Integer.MAX_VALUE);
+        }
+
+        newestWindow = new Window(oldestDay + 1, Math.max(today, newestDay) + 1, null);
+        nextLastDay = oldestDay;
+        density = (double) newest.size() / Math.max(newestDay - oldestDay + 1, 1);
+
+        Thread[] workers = new Thread[threads];
+        activeWorkers = threads;
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Runnable() {
+                public void run() {
+                    work();
+                }
+            }, "Simpy partitioned fetch " + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        try {
+            while (activeWorkers > 0) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            failure = new IOException("Interrupted");
+            for (int i = 0; i < threads; i++) {
+                workers[i].interrupt();
+            }
+            throw e;
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        return merge(windows);
+    }
+
+    /**
+     * Worker loop: fetch windows until the earliest date is reached or a window fails
+     */
+    private void work() {
+        try {
+            Window window;
+            while ((window = nextWindow()) != null) {
+                String afterDate = SimpyUtils.formatDate((window.firstDay - 1) * LinkRange.MILLIS_PER_DAY);
+                String beforeDate = SimpyUtils.formatDate((window.lastDay + 1) * LinkRange.MILLIS_PER_DAY);
+                window.links = fetch(afterDate, beforeDate, Integer.MAX_VALUE);
+                completed(window);
+            }
+        } catch (IOException e) {
+            failed(e);
+        } catch (InterruptedException e) {
+            failed(new IOException("Interrupted"));
+        } finally {
+            synchronized (this) {
+                activeWorkers--;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Fetch links, retrying requests that fail, return a status document instead of links or
+     * are not read to the end
+     */
+    private List fetch(String afterDate, String beforeDate, int limit) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            List links = simpy.getLinks(q, null, afterDate, beforeDate, limit);
+            int result = simpy.getHttpResult();
+            int status = simpy.getReadStatus();
+            if (result == HttpStatus.SC_OK && status == SimpyConstants.STATUS_CODE_SUCCESS) {
+                return links;
+            }
+
+            if (attempt >= maxRetries) {
+                throw new IOException("GetLinks after " + afterDate + " before " + beforeDate + " returned HTTP status " + result + ", status " + status);
+            }
+
+            logger.debug("Retrying GetLinks after " + afterDate + " before " + beforeDate + ", HTTP status " + result + ", status " + status);
+            Thread.sleep(retryDelay << Math.min(attempt, 16));
+        }
+    }
+
+    /**
+     * Hand out the next window, sized from the density observed so far
+     */
+    private synchronized Window nextWindow() {
+        if (failure != null) {
+            return null;
+        }
+
+        if (newestWindow != null) {
+            Window window = newestWindow;
+            newestWindow = null;
+            return window;
+        }
+
+        if (nextLastDay < earliestDay) {
+            return null;
+        }
+
+        long days = (density <= 0) ? Integer.MAX_VALUE : Math.round(targetWindowSize / density);
+        int firstDay = (int) Math.max(earliestDay, nextLastDay - Math.max(days, 1) + 1);
+        Window window = new Window(firstDay, nextLastDay, null);
+        nextLastDay = firstDay - 1;
+
+        return window;
+    }
+
+    /**
+     * Record a fetched window and blend its density into the estimate
+     */
+    private synchronized void completed(Window window) {
+        windows.add(window);
+
+        double observed = (double) window.links.size() / (window.lastDay - window.firstDay + 1);
+        density = (density + observed) / 2;
+        logger.debug("Fetched " + window.links.size() + " links from " + SimpyUtils.formatDate(window.firstDay * LinkRange.MILLIS_PER_DAY)
+                + " to " + SimpyUtils.formatDate(window.lastDay * LinkRange.MILLIS_PER_DAY));
+    }
+
+    private synchronized void failed(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Concatenate the windows newest first, keeping each URL once
+     */
+    private static List merge(List windows) {
+        Collections.sort(windows, new Comparator() {
+            public int compare(Object first, Object second) {
+                return ((Window) second).firstDay - ((Window) first).firstDay;
+            }
+        });
+
+        int total = 0;
+        for (int i = 0; i < windows.size(); i++) {
+            total += ((Window) windows.get(i)).links.size();
+        }
+
+        List result = new ArrayList(total);
+        Set urls = new HashSet(total * 2);
+        for (int i = 0; i < windows.size(); i++) {
+            List links = ((Window) windows.get(i)).links;
+            for (int j = 0; j < links.size(); j++) {
+                Link link = (Link) links.get(j);
+                if (urls.add(link.getUrl())) {
+                    result.add(link);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Range of days, inclusive, and the links fetched for it
+     */
+    private static class Window {
+
+        int firstDay;
+        int lastDay;
+        List links;
+
+        Window(int firstDay, int lastDay, List links) {
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+            this.links = links;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.Simpy;
+
+/**
+ * One tag transformation of a {@link TagRefactoringPlan}: a rename, merge, split or
+ * removal. After the plan has been executed the operation holds its outcome.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class TagOperation {
+
+    public static final int RENAME = 0;
+    public static final int MERGE = 1;
+    public static final int SPLIT = 2;
+    public static final int REMOVE = 3;
+
+    /**
+     * Status of an operation that has not been executed
+     */
+    public static final int STATUS_NOT_RUN = -1;
+
+    /**
+     * Status of an operation that was not executed because an operation it depends on failed
+     */
+    public static final int STATUS_SKIPPED = -2;
+
+    private int type;
+    private String[] inputs;
+    private String[] outputs;
+    private int layer = -1;
+    private int linkCount = -1;
+    private volatile int status = STATUS_NOT_RUN;
+    private volatile int httpResult;
+
+    private TagOperation(int type, String[] inputs, String[] outputs) {
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i] == null) {
+                throw new IllegalArgumentException("Tags must not be null");
+            }
+        }
+        for (int i = 0; i < outputs.length; i++) {
+            if (outputs[i] == null) {
+                throw new IllegalArgumentException("Tags must not be null");
+            }
+        }
+
+        this.type = type;
+        this.inputs = inputs;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Create an operation for {@link Simpy#renameTag(String, String)}
+     *
+     * @param fromTag Tag to rename
+     * @param toTag   New name
+     * @return {@link TagOperation}
+     */
+    public static TagOperation rename(String fromTag, String toTag) {
+        return new TagOperation(RENAME, new String[]{fromTag}, new String[]{toTag});
+    }
+
+    /**
+     * Create an operation for {@link Simpy#mergeTags(String, String, String)}
+     *
+     * @param fromTag1 First tag to merge
+     * @param fromTag2 Second tag to merge
+     * @param toTag    Tag to merge the two tags into
+     * @return {@link TagOperation}
+     */
+    public static TagOperation merge(String fromTag1, String fromTag2, String toTag) {
+        return new TagOperation(MERGE, new String[]{fromTag1, fromTag2}, new String[]{toTag});
+    }
+
+    /**
+     * Create an operation for {@link Simpy#splitTag(String, String, String)}
+     *
+     * @param tag    Tag to split
+     * @param toTag1 First tag to split into
+     * @param toTag2 Second tag to split into
+     * @return {@link TagOperation}
+     */
+    public static TagOperation split(String tag, String toTag1, String toTag2) {
+        return new TagOperation(SPLIT, new String[]{tag}, new String[]{toTag1, toTag2});
+    }
+
+    /**
+     * Create an operation for {@link Simpy#removeTag(String)}
+     *
+     * @param tag Tag to remove
+     * @return {@link TagOperation}
+     */
+    public static TagOperation remove(String tag) {
+        return new TagOperation(REMOVE, new String[]{tag}, new String[0]);
+    }
+
+    /**
+     * Return the kind of operation
+     *
+     * @return {@link #RENAME}, {@link #MERGE}, {@link #SPLIT} or {@link #REMOVE}
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * Return the tags the operation reads and removes
+     *
+     * @return Tags
+     */
+    public String[] getInputs() {
+        return inputs.clone();
+    }
+
+    /**
+     * Return the tags the operation adds links to
+     *
+     * @return Tags
+     */
+    public String[] getOutputs() {
+        return outputs.clone();
+    }
+
+    /**
+     * Return the layer of the plan the operation runs in
+     *
+     * @return Layer, starting at <code>0</code>, or <code>-1</code> if the operation is not
+     *         part of a plan
+     */
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * Return the estimated number of links the operation changes, based on the tag counts
+     * given to the plan
+     *
+     * @return Number of links or <code>-1</code> if unknown
+     */
+    public int getLinkCount() {
+        return linkCount;
+    }
+
+    /**
+     * Return the status returned by Simpy for the operation
+     *
+     * @return Status, {@link #STATUS_NOT_RUN} or {@link #STATUS_SKIPPED}
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Return the HTTP status code of the last attempt of the operation
+     *
+     * @return HTTP status code, <code>0</code> if there was no response
+     */
+    public int getHttpResult() {
+        return httpResult;
+    }
+
+    void setLayer(int layer) {
+        this.layer = layer;
+    }
+
+    void setLinkCount(int linkCount) {
+        this.linkCount = linkCount;
+    }
+
+    void setResult(int status, int httpResult) {
+        this.status = status;
+        this.httpResult = httpResult;
+    }
+
+    boolean reads(String tag) {
+        return indexOf(inputs, tag) >= 0;
+    }
+
+    boolean writes(String tag) {
+        return indexOf(outputs, tag) >= 0;
+    }
+
+    /**
+     * Run the operation
+     *
+     * @param simpy {@link Simpy} object
+     * @return Status returned by Simpy
+     */
+    int perform(Simpy simpy) {
+        switch (type) {
+            case RENAME:
+                return simpy.renameTag(inputs[0], outputs[0]);
+            case MERGE:
+                return simpy.mergeTags(inputs[0], inputs[1], outputs[0]);
+            case SPLIT:
+                return simpy.splitTag(inputs[0], outputs[0], outputs[1]);
+            default:
+                return simpy.removeTag(inputs[0]);
+        }
+    }
+
+    private static int indexOf(String[] tags, String tag) {
+        for (int i = 0; i < tags.length; i++) {
+            if (tags[i].equals(tag)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public String toString() {
+        StringBuffer result = new StringBuffer();
+        switch (type) {
+            case RENAME:
+                result.append("rename ").append(inputs[0]).append(" -> ").append(outputs[0]);
+                break;
+            case MERGE:
+                result.append("merge ").append(inputs[0]).append(" + ").append(inputs[1]).append(" -> ").append(outputs[0]);
+                break;
+            case SPLIT:
+                result.append("split ").append(inputs[0]).append(" -> ").append(outputs[0]).append(" + ").append(outputs[1]);
+                break;
+            default:
+                result.append("remove ").append(inputs[0]);
+        }
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import org.apache.commons.httpclient.HttpStatus;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Executes a {@link TagRefactoringPlan} one layer at a time, running the operations of each
+ * layer concurrently on a fixed number of worker threads. The next layer starts once every
+ * operation of the current layer has completed. An operation whose prerequisites did not
+ * all succeed is not run and gets the status {@link TagOperation#STATUS_SKIPPED}. The
+ * outcome of every operation is recorded on the {@link TagOperation} and reported to the
+ * {@link BulkListener}, including skipped operations, which are reported with no attempts.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class TagRefactorer extends BulkOperation {
+
+    private int pending;
+
+    /**
+     * Create a refactorer
+     *
+     * @param simpy   {@link Simpy} object with a pooled connection manager
+     * @param threads Maximum number of operations in flight
+     */
+    public TagRefactorer(Simpy simpy, int threads) {
+        super(simpy, threads, threads);
+    }
+
+    /**
+     * Execute a plan
+     *
+     * @param plan {@link TagRefactoringPlan}
+     * @return {@link BulkProgress} of the finished execution
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    public BulkProgress execute(final TagRefactoringPlan plan) throws InterruptedException {
+        List operations = plan.getOperations();
+        for (int i = 0; i < operations.size(); i++) {
+            ((TagOperation) operations.get(i)).setResult(TagOperation.STATUS_NOT_RUN, 0);
+        }
+        setExpectedTotal(operations.size());
+
+        synchronized (this) {
+            pending = 0;
+        }
+
+        try {
+            return run(new BulkSource() {
+                private int layer;
+                private int position;
+
+                public Object next() throws IOException {
+                    List layers = plan.getLayers();
+                    while (layer < layers.size()) {
+                        List operations = (List) layers.get(layer);
+                        if (position == operations.size()) {
+                            try {
+                                awaitLayer();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new IOException("Interrupted waiting for layer " + layer);
+                            }
+                            layer++;
+                            position = 0;
+                            continue;
+                        }
+
+                        TagOperation operation = (TagOperation) operations.get(position++);
+                        if (isCancelled()) {
+                            return null;
+                        }
+                        if (!prerequisitesSucceeded(plan, operation)) {
+                            skip(operation);
+                            continue;
+                        }
+
+                        synchronized (TagRefactorer.this) {
+                            pending++;
+                        }
+                        return operation;
+                    }
+
+                    return null;
+                }
+            });
+        } catch (IOException e) {
+            throw new InterruptedException(e.getMessage());
+        }
+    }
+
+    public void cancel() {
+        super.cancel();
+
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    protected int perform(Object item) {
+        return ((TagOperation) item).perform(simpy);
+    }
+
+    protected void itemCompleted(Object item, int status, int httpResult, int attempts) {
+        ((TagOperation) item).setResult(status, httpResult);
+
+        synchronized (this) {
+            pending--;
+            notifyAll();
+        }
+
+        super.itemCompleted(item, status, httpResult, attempts);
+    }
+
+    /**
+     * Wait until every operation handed to the workers has completed
+     */
+    private synchronized void awaitLayer() throws InterruptedException {
+        while (pending > 0 && !isCancelled()) {
+            wait();
+        }
+    }
+
+    private void skip(TagOperation operation) {
+        operation.setResult(TagOperation.STATUS_SKIPPED, 0);
+
+        BulkProgress progress = getProgress();
+        progress.submitted();
+        progress.completed(false);
+        super.itemCompleted(operation, TagOperation.STATUS_SKIPPED, 0, 0);
+    }
+
+    private static boolean prerequisitesSucceeded(TagRefactoringPlan plan, TagOperation operation) {
+        List prerequisites = plan.getPrerequisites(operation);
+        for (int i = 0; i < prerequisites.size(); i++) {
+            TagOperation prerequisite = (TagOperation) prerequisites.get(i);
+            if (prerequisite.getStatus() != SimpyConstants.STATUS_CODE_SUCCESS || prerequisite.getHttpResult() != HttpStatus.SC_OK) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.beans.Tag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Orders a batch of {@link TagOperation}s into layers that can each be executed in parallel
+ * with the same result as running them one after the other in the order given. Operations
+ * that touch a common tag keep their order, so renaming <code>b</code> to <code>c</code>
+ * before renaming <code>a</code> to <code>b</code> moves only the original links of
+ * <code>b</code> to <code>c</code>, and removing <code>b</code> before renaming
+ * <code>a</code> to <code>b</code> keeps the renamed links. Each operation is placed in the
+ * layer after the last earlier operation sharing a tag with it, so operations in the same
+ * layer never share a tag.
+ * <p/>
+ * Batches that cannot mean what they say are rejected: an operation that reads a tag an
+ * earlier operation emptied, and an operation that moves links back into a tag they came
+ * from under another name, as when two tags are swapped by renaming each to the other. Swap
+ * tags through a temporary tag instead.
+ * <p/>
+ * Given the counts from {@link com.simpy.api.rest.client.Simpy#getTags()}, the plan also
+ * estimates the number of links each operation changes and starts the largest operations
+ * of a layer first. Use {@link TagRefactorer} to execute the plan.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class TagRefactoringPlan {
+
+    private List operations;
+    private List layers = new ArrayList();
+    private Map prerequisites = new HashMap();
+
+    /**
+     * Plan a batch of operations
+     *
+     * @param operations List of {@link TagOperation} objects
+     * @throws IllegalArgumentException If an operation reads a tag emptied by an earlier one or
+     *                                  moves links back into a tag they came from, for example
+     *                                  when two tags are swapped by renaming each to the other
+     */
+    public TagRefactoringPlan(List operations) {
+        this(operations, null);
+    }
+
+    /**
+     * Plan a batch of operations, estimating their size from the current tag counts
+     *
+     * @param operations List of {@link TagOperation} objects
+     * @param tags       List of {@link Tag} objects, may be <code>null</code>
+     * @throws IllegalArgumentException If an operation reads a tag emptied by an earlier one or
+     *                                  moves links back into a tag they came from, for example
+     *                                  when two tags are swapped by renaming each to the other
+     */
+    public TagRefactoringPlan(List operations, List tags) {
+        this.operations = Collections.unmodifiableList(new ArrayList(operations));
+        checkConflicts(this.operations);
+
+        // Each operation follows the last earlier operation touching any of its tags
+        Map lastTouching = new HashMap();
+        for (int i = 0; i < this.operations.size(); i++) {
+            TagOperation operation = (TagOperation) this.operations.get(i);
+            String[] touched = touchedTags(operation);
+
+            List before = new ArrayList();
+            int layer = 0;
+            for (int j = 0; j < touched.length; j++) {
+                TagOperation previous = (TagOperation) lastTouching.get(touched[j]);
+                if (previous != null && !before.contains(previous)) {
+                    before.add(previous);
+                    layer = Math.max(layer, previous.getLayer() + 1);
+                }
+            }
+            for (int j = 0; j < touched.length; j++) {
+                lastTouching.put(touched[j], operation);
+            }
+
+            operation.setLayer(layer);
+            prerequisites.put(operation, before);
+            while (layers.size() <= layer) {
+                layers.add(new ArrayList());
+            }
+            ((List) layers.get(layer)).add(operation);
+        }
+
+        if (tags != null) {
+            estimate(tags);
+        }
+
+        for (int i = 0; i < layers.size(); i++) {
+            layers.set(i, Collections.unmodifiableList((List) layers.get(i)));
+        }
+        layers = Collections.unmodifiableList(layers);
+    }
+
+    /**
+     * Return the operations in the order given
+     *
+     * @return List of {@link TagOperation} objects
+     */
+    public List getOperations() {
+        return operations;
+    }
+
+    /**
+     * Return the layers of the plan. All operations of a layer may run at the same time once
+     * the previous layers have completed.
+     *
+     * @return List of lists of {@link TagOperation} objects
+     */
+    public List getLayers() {
+        return layers;
+    }
+
+    /**
+     * Return the operations that must complete before an operation can run
+     *
+     * @param operation {@link TagOperation} of this plan
+     * @return List of {@link TagOperation} objects
+     */
+    public List getPrerequisites(TagOperation operation) {
+        List result = (List) prerequisites.get(operation);
+
+        return (result == null) ? Collections.EMPTY_LIST : Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Apply the operations to the tag counts layer by layer to estimate their size, then
+     * order each layer largest first
+     */
+    private void estimate(List tags) {
+        Map counts = new HashMap();
+        for (int i = 0; i < tags.size(); i++) {
+            Tag tag = (Tag) tags.get(i);
+            counts.put(tag.getTag(), Integer.valueOf(tag.getCount()));
+        }
+
+        for (int i = 0; i < layers.size(); i++) {
+            List layer = (List) layers.get(i);
+            for (int j = 0; j < layer.size(); j++) {
+                TagOperation operation = (TagOperation) layer.get(j);
+                String[] inputs = operation.getInputs();
+                int links = 0;
+                for (int k = 0; k < inputs.length; k++) {
+                    Integer count = (Integer) counts.remove(inputs[k]);
+                    links += (count == null) ? 0 : count.intValue();
+                }
+                operation.setLinkCount(links);
+
+                String[] outputs = operation.getOutputs();
+                for (int k = 0; k < outputs.length; k++) {
+                    Integer count = (Integer) counts.get(outputs[k]);
+                    counts.put(outputs[k], Integer.valueOf(links + ((count == null) ? 0 : count.intValue())));
+                }
+            }
+
+            Collections.sort(layer, new Comparator() {
+                public int compare(Object first, Object second) {
+                    return ((TagOperation) second).getLinkCount() - ((TagOperation) first).getLinkCount();
+                }
+            });
+        }
+    }
+
+    /**
+     * Follow the original links of every tag through the operations in the order given and
+     * reject operations whose result depends on running them out of that order
+     *
+     * @param operations List of {@link TagOperation} objects
+     * @throws IllegalArgumentException If an operation reads a tag emptied by an earlier one or
+     *                                  moves links back into a tag they came from
+     */
+    private static void checkConflicts(List operations) {
+        // Tag -> set of the tags whose original links it holds; absent while untouched
+        Map origins = new HashMap();
+        for (int i = 0; i < operations.size(); i++) {
+            TagOperation operation = (TagOperation) operations.get(i);
+            String[] inputs = operation.getInputs();
+
+            Set moved = new HashSet();
+            for (int j = 0; j < inputs.length; j++) {
+                Set held = (Set) origins.get(inputs[j]);
+                if (held == null) {
+                    moved.add(inputs[j]);
+                } else if (held.isEmpty()) {
+                    throw new IllegalArgumentException(operation + " reads tag " + inputs[j] + ", which an earlier operation emptied");
+                } else {
+                    moved.addAll(held);
+                }
+            }
+            for (int j = 0; j < inputs.length; j++) {
+                origins.put(inputs[j], new HashSet());
+            }
+
+            List inputList = Arrays.asList(inputs);
+            String[] outputs = operation.getOutputs();
+            for (int j = 0; j < outputs.length; j++) {
+                if (moved.contains(outputs[j]) && !inputList.contains(outputs[j])) {
+                    throw new IllegalArgumentException(operation + " moves links of tag " + outputs[j] + " back into it; swap tags through a temporary tag");
+                }
+
+                Set held = (Set) origins.get(outputs[j]);
+                if (held == null) {
+                    held = new HashSet();
+                    held.add(outputs[j]);
+                    origins.put(outputs[j], held);
+                }
+                held.addAll(moved);
+            }
+        }
+    }
+
+    /**
+     * Return the tags an operation reads or writes
+     */
+    private static String[] touchedTags(TagOperation operation) {
+        String[] inputs = operation.getInputs();
+        String[] outputs = operation.getOutputs();
+        String[] touched = new String[inputs.length + outputs.length];
+        System.arraycopy(inputs, 0, touched, 0, inputs.length);
+        System.arraycopy(outputs, 0, touched, inputs.length, outputs.length);
+
+        return touched;
+    }
+}
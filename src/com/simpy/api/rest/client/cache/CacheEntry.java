@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.cache;
+
+/**
+ * A cached value with the times at which it expires and after which it may no longer be
+ * served while it is revalidated
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class CacheEntry {
+
+    private Object value;
+    private long size;
+    private long expiresAt;
+    private long staleUntil;
+    private boolean refreshing;
+
+    /**
+     * Create an entry
+     *
+     * @param value      Cached value
+     * @param size       Approximate size of the value in bytes
+     * @param expiresAt  Time in milliseconds after which the value must be revalidated
+     * @param staleUntil Time in milliseconds after which the value may not be served at all
+     */
+    public CacheEntry(Object value, long size, long expiresAt, long staleUntil) {
+        this.value = value;
+        this.size = size;
+        this.expiresAt = expiresAt;
+        this.staleUntil = Math.max(expiresAt, staleUntil);
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public long getStaleUntil() {
+        return staleUntil;
+    }
+
+    /**
+     * Check whether the value must be revalidated
+     *
+     * @param now Current time in milliseconds
+     * @return <code>true</code> if the entry has expired
+     */
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    /**
+     * Check whether the value may still be served
+     *
+     * @param now Current time in milliseconds
+     * @return <code>true</code> if the entry has not passed its stale limit
+     */
+    public boolean isUsable(long now) {
+        return now < staleUntil;
+    }
+
+    /**
+     * Claim the revalidation of this entry, so that only one caller refreshes it
+     *
+     * @return <code>true</code> if the caller should refresh the entry, <code>false</code> if a
+     *         refresh is already running
+     */
+    public synchronized boolean startRefresh() {
+        if (refreshing) {
+            return false;
+        }
+
+        refreshing = true;
+        return true;
+    }
+
+    /**
+     * Release the claim taken by {@link #startRefresh()} after a refresh that did not
+     * replace the entry
+     */
+    public synchronized void endRefresh() {
+        refreshing = false;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.cache;
+
+/**
+ * Identifies a cached response by the account it belongs to, the kind of data it holds and
+ * the request parameters
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class CacheKey {
+
+    public static final String TAGS = "tags";
+    public static final String LINKS = "links";
+    public static final String TOPICS = "topics";
+    public static final String WATCHLISTS = "watchlists";
+    public static final String TOPIC = "topic";
+    public static final String WATCHLIST = "watchlist";
+
+    private String account;
+    private String region;
+    private String parameters;
+    private int hashCode;
+
+    /**
+     * Create a key
+     *
+     * @param account    Simpy username
+     * @param region     Kind of data, such as {@link #TAGS}
+     * @param parameters Normalized request parameters or <code>null</code> if there are none
+     */
+    public CacheKey(String account, String region, String parameters) {
+        if (account == null || region == null) {
+            throw new IllegalArgumentException("account and region are required parameters");
+        }
+
+        this.account = account;
+        this.region = region;
+        this.parameters = parameters;
+
+        hashCode = account.hashCode() * 31 + region.hashCode();
+        if (parameters != null) {
+            hashCode = hashCode * 31 + parameters.hashCode();
+        }
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public String getParameters() {
+        return parameters;
+    }
+
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof CacheKey)) {
+            return false;
+        }
+
+        CacheKey key = (CacheKey) other;
+        return account.equals(key.account) && region.equals(key.region)
+                && (parameters == null ? key.parameters == null : parameters.equals(key.parameters));
+    }
+
+    public int hashCode() {
+        return hashCode;
+    }
+
+    public String toString() {
+        return account + ":" + region + ":" + parameters;
+    }
+}
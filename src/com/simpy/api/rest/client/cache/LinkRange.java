@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.cache;
+
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.beans.Link;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The complete set of links for one query added within a contiguous range of days, in
+ * reverse chronological order by add date. Narrower date windows are answered from it by
+ * filtering on {@link Link#getAddDateMillis()}. Instances are immutable; widening a range
+ * creates a new one.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class LinkRange {
+
+    public static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private int firstDay;
+    private int lastDay;
+    private List links;
+
+    /**
+     * Create a range
+     *
+     * @param firstDay First day covered, in days since the epoch
+     * @param lastDay  Last day covered, in days since the epoch
+     * @param links    Every link added from <code>firstDay</code> to <code>lastDay</code> inclusive
+     */
+    public LinkRange(int firstDay, int lastDay, List links) {
+        if (firstDay > lastDay) {
+            throw new IllegalArgumentException("firstDay must not be after lastDay");
+        }
+
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+        this.links = Collections.unmodifiableList(new ArrayList(links));
+    }
+
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    public int getLastDay() {
+        return lastDay;
+    }
+
+    public List getLinks() {
+        return links;
+    }
+
+    /**
+     * Check whether a window lies entirely within this range
+     *
+     * @param first First day of the window
+     * @param last  Last day of the window
+     * @return <code>true</code> if the window is covered
+     */
+    public boolean covers(int first, int last) {
+        return first >= firstDay && last <= lastDay;
+    }
+
+    /**
+     * Check whether a window overlaps or is adjacent to this range, so that fetching the
+     * days outside of this range yields one contiguous range
+     *
+     * @param first First day of the window
+     * @param last  Last day of the window
+     * @return <code>true</code> if the window overlaps or touches this range
+     */
+    public boolean touches(int first, int last) {
+        return first <= lastDay + 1 && last >= firstDay - 1;
+    }
+
+    /**
+     * Return the links of a window
+     *
+     * @param first First day of the window
+     * @param last  Last day of the window
+     * @param limit Maximum number of links to return
+     * @return New list of links added from <code>first</code> to <code>last</code> inclusive. The
+     *         {@link Link} objects are the ones held by this range and must not be modified.
+     */
+    public List select(int first, int last, int limit) {
+        List result = new ArrayList();
+        for (int i = 0; i < links.size() && result.size() < limit; i++) {
+            Link link = (Link) links.get(i);
+            long addDate = link.getAddDateMillis();
+            if (addDate != SimpyConstants.UNKNOWN_DATE) {
+                int day = toDay(addDate);
+                if (day >= first && day <= last) {
+                    result.add(link);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the day a link of this range was added
+     *
+     * @param url URL of the link
+     * @return Day of the link's add date, or <code>Integer.MAX_VALUE</code> if no link of this
+     *         range with a known add date has exactly this URL
+     */
+    public int dayOf(String url) {
+        for (int i = 0; i < links.size(); i++) {
+            Link link = (Link) links.get(i);
+            long addDate = link.getAddDateMillis();
+            if (addDate != SimpyConstants.UNKNOWN_DATE && url.equals(link.getUrl())) {
+                return toDay(addDate);
+            }
+        }
+
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Create a narrower range from the days of this one before a given day
+     *
+     * @param day First day to drop
+     * @return This range if it ends before <code>day</code>, a new {@link LinkRange} ending on the
+     *         day before <code>day</code>, or <code>null</code> if no day of this range is left
+     */
+    public LinkRange before(int day) {
+        if (day > lastDay) {
+            return this;
+        } else if (day <= firstDay) {
+            return null;
+        }
+
+        List kept = new ArrayList();
+        for (int i = 0; i < links.size(); i++) {
+            Link link = (Link) links.get(i);
+            long addDate = link.getAddDateMillis();
+            if (addDate != SimpyConstants.UNKNOWN_DATE && toDay(addDate) < day) {
+                kept.add(link);
+            }
+        }
+
+        return new LinkRange(firstDay, day - 1, kept);
+    }
+
+    /**
+     * Create a wider range from this one and the links of the days on either side of it
+     *
+     * @param newer Links added from the day after {@link #getLastDay()} to <code>last</code>
+     * @param last  New last day, no earlier than {@link #getLastDay()}
+     * @param older Links added from <code>first</code> to the day before {@link #getFirstDay()}
+     * @param first New first day, no later than {@link #getFirstDay()}
+     * @return {@link LinkRange} from <code>first</code> to <code>last</code>
+     */
+    public LinkRange extend(List newer, int last, List older, int first) {
+        List merged = new ArrayList(newer.size() + links.size() + older.size());
+        merged.addAll(newer);
+        merged.addAll(links);
+        merged.addAll(older);
+
+        return new LinkRange(Math.min(first, firstDay), Math.max(last, lastDay), merged);
+    }
+
+    /**
+     * Convert a time to days since the epoch
+     *
+     * @param millis Milliseconds since the epoch
+     * @return Day of <code>millis</code> in UTC
+     */
+    public static int toDay(long millis) {
+        long day = millis / MILLIS_PER_DAY;
+        if (millis < 0 && day * MILLIS_PER_DAY != millis) {
+            day--;
+        }
+
+        return (int) day;
+    }
+}
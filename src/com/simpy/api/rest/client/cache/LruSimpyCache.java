@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory {@link SimpyCache} with a time to live, least recently used eviction bounded by
+ * entry count and/or total size, and an optional stale-while-revalidate window during which
+ * an expired value is still returned while the client refreshes it in the background.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class LruSimpyCache implements SimpyCache {
+
+    private int maxEntries;
+    private long maxBytes;
+    private long timeToLive;
+    private long staleWhileRevalidate;
+
+    private LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * Create a cache bounded by entry count, without a stale window
+     *
+     * @param maxEntries Maximum number of entries
+     * @param timeToLive Milliseconds before an entry expires
+     */
+    public LruSimpyCache(int maxEntries, long timeToLive) {
+        this(maxEntries, 0, timeToLive, 0);
+    }
+
+    /**
+     * Create a cache
+     *
+     * @param maxEntries           Maximum number of entries, or 0 for no limit
+     * @param maxBytes             Maximum total size of the entries in bytes, or 0 for no limit
+     * @param timeToLive           Milliseconds before an entry expires
+     * @param staleWhileRevalidate Milliseconds after expiry during which an entry is still
+     *                             returned while it is refreshed, or 0 to refresh synchronously
+     */
+    public LruSimpyCache(int maxEntries, long maxBytes, long timeToLive, long staleWhileRevalidate) {
+        if (maxEntries < 0 || maxBytes < 0 || timeToLive <= 0 || staleWhileRevalidate < 0) {
+            throw new IllegalArgumentException("Limits must not be negative and timeToLive must be positive");
+        }
+
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.timeToLive = timeToLive;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    public synchronized CacheEntry get(CacheKey key) {
+        CacheEntry entry = (CacheEntry) entries.get(key);
+        if (entry != null && !entry.isUsable(System.currentTimeMillis())) {
+            remove(key);
+            return null;
+        }
+
+        return entry;
+    }
+
+    public synchronized void put(CacheKey key, Object value, long size) {
+        if (maxBytes > 0 && size > maxBytes) {
+            remove(key);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        CacheEntry previous = (CacheEntry) entries.put(key, new CacheEntry(value, size, now + timeToLive, now + timeToLive + staleWhileRevalidate));
+        if (previous != null) {
+            totalBytes -= previous.getSize();
+        }
+        totalBytes += size;
+
+        Iterator iterator = entries.entrySet().iterator();
+        while (iterator.hasNext() && ((maxEntries > 0 && entries.size() > maxEntries) || (maxBytes > 0 && totalBytes > maxBytes))) {
+            Map.Entry eldest = (Map.Entry) iterator.next();
+            totalBytes -= ((CacheEntry) eldest.getValue()).getSize();
+            iterator.remove();
+        }
+    }
+
+    public synchronized void invalidate(CacheKey key) {
+        remove(key);
+    }
+
+    public synchronized void invalidateRegion(String account, String region) {
+        Iterator iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry mapEntry = (Map.Entry) iterator.next();
+            CacheKey key = (CacheKey) mapEntry.getKey();
+            if (key.getAccount().equals(account) && key.getRegion().equals(region)) {
+                totalBytes -= ((CacheEntry) mapEntry.getValue()).getSize();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Return the number of entries, including expired entries not yet removed
+     *
+     * @return Number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Return the total size of the entries
+     *
+     * @return Total size in bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void remove(CacheKey key) {
+        CacheEntry entry = (CacheEntry) entries.remove(key);
+        if (entry != null) {
+            totalBytes -= entry.getSize();
+        }
+    }
+}
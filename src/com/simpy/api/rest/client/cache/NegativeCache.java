@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, short lived record of lookups that found nothing, so that repeated lookups of
+ * the same missing item can be answered without a request. The least recently used
+ * entries are dropped once the cache is full.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class NegativeCache {
+
+    private final int maxEntries;
+    private long timeToLive;
+    private LinkedHashMap entries;
+
+    /**
+     * Create a negative cache
+     *
+     * @param maxEntries Maximum number of missing items remembered
+     * @param timeToLive Milliseconds for which an item is remembered as missing
+     */
+    public NegativeCache(int maxEntries, long timeToLive) {
+        if (maxEntries < 1 || timeToLive <= 0) {
+            throw new IllegalArgumentException("maxEntries and timeToLive must be positive");
+        }
+
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        entries = new LinkedHashMap(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                return size() > NegativeCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Check whether an item was recently found to be missing
+     *
+     * @param key {@link CacheKey} of the item
+     * @return <code>true</code> if the item is remembered as missing
+     */
+    public synchronized boolean isMissing(CacheKey key) {
+        Long expiresAt = (Long) entries.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+
+        if (System.currentTimeMillis() >= expiresAt.longValue()) {
+            entries.remove(key);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Remember that an item is missing
+     *
+     * @param key {@link CacheKey} of the item
+     */
+    public synchronized void markMissing(CacheKey key) {
+        entries.put(key, Long.valueOf(System.currentTimeMillis() + timeToLive));
+    }
+
+    /**
+     * Forget that an item is missing, for example because it was seen in a listing
+     *
+     * @param key {@link CacheKey} of the item
+     */
+    public synchronized void markPresent(CacheKey key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Forget all missing items
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Return the number of items remembered as missing, including expired entries not yet removed
+     *
+     * @return Number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.cache;
+
+/**
+ * Cache of parsed Simpy responses. Implementations must be threadsafe, as one cache may be
+ * shared by several {@link com.simpy.api.rest.client.Simpy} objects and their threads.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public interface SimpyCache {
+
+    /**
+     * Return the entry for a key
+     *
+     * @param key {@link CacheKey}
+     * @return {@link CacheEntry}, which may be expired but still usable while it is revalidated,
+     *         or <code>null</code> if there is no usable entry
+     */
+    CacheEntry get(CacheKey key);
+
+    /**
+     * Store a value
+     *
+     * @param key   {@link CacheKey}
+     * @param value Parsed response, which must not be modified once stored
+     * @param size  Approximate size of the value in bytes
+     */
+    void put(CacheKey key, Object value, long size);
+
+    /**
+     * Remove the entry for a key
+     *
+     * @param key {@link CacheKey}
+     */
+    void invalidate(CacheKey key);
+
+    /**
+     * Remove all entries of one region of an account
+     *
+     * @param account Simpy username
+     * @param region  Region, such as {@link CacheKey#TAGS}
+     */
+    void invalidateRegion(String account, String region);
+
+    /**
+     * Remove all entries
+     */
+    void clear();
+}
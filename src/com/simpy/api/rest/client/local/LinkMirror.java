@@ -0,0 +1,404 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.local;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.SimpyUtils;
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.cache.LinkRange;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disk-backed mirror of the links and Notes of one account, so that reads can be served
+ * without calling Simpy.
+ * <p/>
+ * The first {@link #sync()} fetches everything. Later syncs fetch the links added since the
+ * day of the newest known link and the most recent Notes, adding new items and replacing
+ * those whose modification date changed. Changes to older items and deletions are only seen
+ * by a reconciliation, a full fetch that {@link #sync()} runs once the reconciliation interval
+ * has passed and that can also be started with {@link #reconcile()}. The mirror is saved to
+ * its file as a snapshot (see {@link SnapshotWriter}) after every sync and loaded from it
+ * when created.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class LinkMirror {
+
+    private static Log logger = LogFactory.getLog(LinkMirror.class);
+
+    private static final String LAST_RECONCILE = "lastReconcile";
+    private static final String LAST_SYNC = "lastSync";
+    private static final int NOTE_BATCH_SIZE = 50;
+
+    private static final Comparator NEWEST_FIRST = new Comparator() {
+        public int compare(Object first, Object second) {
+            long firstDate = (first instanceof Link) ? ((Link) first).getAddDateMillis() : ((Note) first).getAddDateMillis();
+            long secondDate = (second instanceof Link) ? ((Link) second).getAddDateMillis() : ((Note) second).getAddDateMillis();
+
+            return (firstDate < secondDate) ? 1 : ((firstDate == secondDate) ? 0 : -1);
+        }
+    };
+
+    private Simpy simpy;
+    private File file;
+    private long reconcileInterval;
+
+    private Map links = new HashMap();
+    private Map notes = new HashMap();
+    private List linkView;
+    private List noteView;
+    private long lastReconcile;
+    private long lastSync;
+
+    /**
+     * Create a mirror, loading its contents from <code>file</code> if it exists
+     *
+     * @param simpy             {@link Simpy} object for the account
+     * @param file              File holding the mirror
+     * @param reconcileInterval Milliseconds between full reconciliations
+     * @throws IOException If <code>file</code> exists but cannot be read
+     */
+    public LinkMirror(Simpy simpy, File file, long reconcileInterval) throws IOException {
+        if (simpy == null || file == null) {
+            throw new IllegalArgumentException("simpy and file are required parameters");
+        }
+
+        this.simpy = simpy;
+        this.file = file;
+        this.reconcileInterval = reconcileInterval;
+
+        if (file.exists()) {
+            load();
+        }
+    }
+
+    /**
+     * Bring the mirror up to date, reconciling it if it has never been synced or the
+     * reconciliation interval has passed
+     *
+     * @return Number of links and Notes added, changed or removed
+     * @throws IOException If a request fails or is not read completely, in which case the
+     *                     mirror is left unchanged, or if the mirror cannot be saved
+     */
+    public synchronized int sync() throws IOException {
+        if (lastReconcile == 0 || System.currentTimeMillis() - lastReconcile >= reconcileInterval) {
+            return reconcile();
+        }
+
+        long newest = SimpyConstants.UNKNOWN_DATE;
+        for (Iterator iterator = links.values().iterator(); iterator.hasNext();) {
+            newest = Math.max(newest, ((Link) iterator.next()).getAddDateMillis());
+        }
+
+        long now = System.currentTimeMillis();
+        String afterDate = SimpyUtils.formatDate((newest == SimpyConstants.UNKNOWN_DATE ? now : newest) - LinkRange.MILLIS_PER_DAY);
+        String beforeDate = SimpyUtils.formatDate(now + 2 * LinkRange.MILLIS_PER_DAY);
+        List fetchedLinks = simpy.getLinks(null, null, afterDate, beforeDate, Integer.MAX_VALUE);
+        checkResult("GetLinks");
+
+        // Nothing is applied until every request has been read completely
+        Map changedNotes = new HashMap();
+        int limit = NOTE_BATCH_SIZE;
+        while (true) {
+            List fetchedNotes = simpy.getNotes(null, limit);
+            checkResult("GetNotes");
+
+            boolean overlap = false;
+            for (int i = 0; i < fetchedNotes.size(); i++) {
+                Note note = (Note) fetchedNotes.get(i);
+                Note known = (Note) notes.get(note.getId());
+                if (known != null && equal(known.getModDate(), note.getModDate())) {
+                    overlap = true;
+                } else {
+                    changedNotes.put(note.getId(), note);
+                }
+            }
+
+            if (overlap || fetchedNotes.size() < limit) {
+                break;
+            }
+            limit *= 2;
+        }
+
+        int changes = changedNotes.size();
+        notes.putAll(changedNotes);
+        for (int i = 0; i < fetchedLinks.size(); i++) {
+            Link link = (Link) fetchedLinks.get(i);
+            Link known = (Link) links.get(link.getUrl());
+            if (known == null || !equal(known.getModDate(), link.getModDate())) {
+                links.put(link.getUrl(), link);
+                changes++;
+            }
+        }
+
+        lastSync = now;
+        changed(changes);
+        save();
+
+        return changes;
+    }
+
+    /**
+     * Fetch every link and Note, replacing the contents of the mirror and dropping items
+     * deleted from the account
+     *
+     * @return Number of links and Notes added, changed or removed
+     * @throws IOException If a request fails or is not read completely, in which case the
+     *                     mirror is left unchanged, or if the mirror cannot be saved
+     */
+    public synchronized int reconcile() throws IOException {
+        List fetchedLinks = simpy.getAllLinks(null, null, null, null);
+        checkResult("GetLinks");
+        List fetchedNotes = simpy.getAllNotes(null);
+        checkResult("GetNotes");
+
+        Map newLinks = new HashMap();
+        int changes = 0;
+        for (int i = 0; i < fetchedLinks.size(); i++) {
+            Link link = (Link) fetchedLinks.get(i);
+            Link known = (Link) links.get(link.getUrl());
+            if (known == null || !equal(known.getModDate(), link.getModDate())) {
+                changes++;
+            }
+            newLinks.put(link.getUrl(), link);
+        }
+        for (Iterator iterator = links.keySet().iterator(); iterator.hasNext();) {
+            if (!newLinks.containsKey(iterator.next())) {
+                changes++;
+            }
+        }
+
+        Map newNotes = new HashMap();
+        for (int i = 0; i < fetchedNotes.size(); i++) {
+            Note note = (Note) fetchedNotes.get(i);
+            Note known = (Note) notes.get(note.getId());
+            if (known == null || !equal(known.getModDate(), note.getModDate())) {
+                changes++;
+            }
+            newNotes.put(note.getId(), note);
+        }
+        for (Iterator iterator = notes.keySet().iterator(); iterator.hasNext();) {
+            if (!newNotes.containsKey(iterator.next())) {
+                changes++;
+            }
+        }
+
+        links = newLinks;
+        notes = newNotes;
+        lastReconcile = lastSync = System.currentTimeMillis();
+        linkView = null;
+        noteView = null;
+        save();
+
+        logger.debug("Reconciled " + links.size() + " links and " + notes.size() + " Notes, " + changes + " changes");
+
+        return changes;
+    }
+
+    /**
+     * Return the mirrored links, newest first
+     *
+     * @return Unmodifiable list of {@link Link} objects
+     */
+    public synchronized List getLinks() {
+        if (linkView == null) {
+            List sorted = new ArrayList(links.values());
+            Collections.sort(sorted, NEWEST_FIRST);
+            linkView = Collections.unmodifiableList(sorted);
+        }
+
+        return linkView;
+    }
+
+    /**
+     * Return a mirrored link
+     *
+     * @param url URL of the link
+     * @return {@link Link} or <code>null</code> if the URL is not in the mirror
+     */
+    public synchronized Link getLink(String url) {
+        return (Link) links.get(url);
+    }
+
+    /**
+     * Return the mirrored Notes, newest first
+     *
+     * @return Unmodifiable list of {@link Note} objects
+     */
+    public synchronized List getNotes() {
+        if (noteView == null) {
+            List sorted = new ArrayList(notes.values());
+            Collections.sort(sorted, NEWEST_FIRST);
+            noteView = Collections.unmodifiableList(sorted);
+        }
+
+        return noteView;
+    }
+
+    /**
+     * Return a mirrored Note
+     *
+     * @param id Note id
+     * @return {@link Note} or <code>null</code> if the id is not in the mirror
+     */
+    public synchronized Note getNote(String id) {
+        return (Note) notes.get(id);
+    }
+
+    /**
+     * Return the time of the last sync or reconciliation
+     *
+     * @return Milliseconds since the epoch or 0 if the mirror has never been synced
+     */
+    public synchronized long getLastSync() {
+        return lastSync;
+    }
+
+    /**
+     * Return the time of the last reconciliation
+     *
+     * @return Milliseconds since the epoch or 0 if the mirror has never been reconciled
+     */
+    public synchronized long getLastReconcile() {
+        return lastReconcile;
+    }
+
+    /**
+     * Return the file holding the mirror
+     *
+     * @return File
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Write the mirror to a temporary snapshot and move it over the mirror file
+     *
+     * @throws IOException If the file cannot be written
+     */
+    private void save() throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        SnapshotWriter writer = new SnapshotWriter(temporary);
+        try {
+            writer.setProperty(LAST_RECONCILE, Long.toString(lastReconcile));
+            writer.setProperty(LAST_SYNC, Long.toString(lastSync));
+
+            for (Iterator iterator = links.values().iterator(); iterator.hasNext();) {
+                writer.addLink((Link) iterator.next());
+            }
+
+            for (Iterator iterator = notes.values().iterator(); iterator.hasNext();) {
+                writer.addNote((Note) iterator.next());
+            }
+        } finally {
+            writer.close();
+        }
+
+        if (!temporary.renameTo(file)) {
+            file.delete();
+            if (!temporary.renameTo(file)) {
+                throw new IOException("Unable to replace " + file);
+            }
+        }
+    }
+
+    /**
+     * Read the mirror from its snapshot
+     *
+     * @throws IOException If the file cannot be read or is not a snapshot
+     */
+    private void load() throws IOException {
+        SnapshotReader reader = new SnapshotReader(file);
+        try {
+            String value = reader.getProperty(LAST_RECONCILE);
+            lastReconcile = (value == null) ? 0 : Long.parseLong(value);
+            value = reader.getProperty(LAST_SYNC);
+            lastSync = (value == null) ? 0 : Long.parseLong(value);
+
+            for (int i = 0; i < reader.getLinkCount(); i++) {
+                Link link = reader.getLink(i);
+                links.put(link.getUrl(), link);
+            }
+
+            for (int i = 0; i < reader.getNoteCount(); i++) {
+                Note note = reader.getNote(i);
+                notes.put(note.getId(), note);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void changed(int changes) {
+        if (changes > 0) {
+            linkView = null;
+            noteView = null;
+        }
+    }
+
+    /**
+     * Check that the last request returned all of its results, so that an error reported in a
+     * status document or a response that broke off is not taken for the contents of the account
+     */
+    private void checkResult(String call) throws IOException {
+        int result = simpy.getHttpResult();
+        if (result != HttpStatus.SC_OK) {
+            throw new IOException(call + " returned HTTP status " + result);
+        }
+
+        int status = simpy.getReadStatus();
+        if (status != SimpyConstants.STATUS_CODE_SUCCESS) {
+            throw new IOException(call + " returned status " + status);
+        }
+    }
+
+    private static boolean equal(String first, String second) {
+        return (first == null) ? second == null : first.equals(second);
+    }
+}
@@ -0,0 +1,404 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.local;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process inverted index over the title, nickname, note, URL and tags of links and the
+ * title, description, URI and tags of Notes, for example those of a {@link LinkMirror}.
+ * Each term maps to a sorted array of positions in the indexed list, so results keep the
+ * order of the list.
+ * <p/>
+ * Queries are a subset of the syntax accepted by Simpy: words, <code>tags:name</code>
+ * (or <code>tag:name</code>) for an exact tag, <code>AND</code>, which is implied between
+ * words, and <code>OR</code>, which binds more loosely than <code>AND</code>. Words are
+ * matched case insensitively against the letters and digits of the fields. Queries using
+ * anything else, such as quotes, parentheses, negation or other field prefixes, cannot be
+ * evaluated locally; the search methods return <code>null</code> for them and
+ * {@link #getLinks(Simpy, String, int)} and {@link #getNotes(Simpy, String, int)} ask Simpy
+ * instead. The index is not updated when the lists change and is threadsafe once built.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class LocalSearchIndex {
+
+    private static final String TAG_PREFIX = "tag:";
+    private static final String TAGS_PREFIX = "tags:";
+    private static final int[] NONE = new int[0];
+
+    private List links;
+    private List notes;
+    private Map linkTerms;
+    private Map linkTags;
+    private Map noteTerms;
+    private Map noteTags;
+
+    /**
+     * Index lists of links and Notes
+     *
+     * @param links List of {@link Link} objects, may be <code>null</code>
+     * @param notes List of {@link Note} objects, may be <code>null</code>
+     */
+    public LocalSearchIndex(List links, List notes) {
+        this.links = (links == null) ? new ArrayList() : new ArrayList(links);
+        this.notes = (notes == null) ? new ArrayList() : new ArrayList(notes);
+
+        Map terms = new HashMap();
+        Map tags = new HashMap();
+        for (int i = 0; i < this.links.size(); i++) {
+            Link link = (Link) this.links.get(i);
+            addTerms(terms, i, link.getTitle());
+            addTerms(terms, i, link.getNickname());
+            addTerms(terms, i, link.getNote());
+            addTerms(terms, i, link.getUrl());
+            addTags(terms, tags, i, link.getTags());
+        }
+        linkTerms = toPostings(terms);
+        linkTags = toPostings(tags);
+
+        terms = new HashMap();
+        tags = new HashMap();
+        for (int i = 0; i < this.notes.size(); i++) {
+            Note note = (Note) this.notes.get(i);
+            addTerms(terms, i, note.getTitle());
+            addTerms(terms, i, note.getDescription());
+            addTerms(terms, i, note.getUri());
+            addTags(terms, tags, i, note.getTags());
+        }
+        noteTerms = toPostings(terms);
+        noteTags = toPostings(tags);
+    }
+
+    /**
+     * Search the indexed links
+     *
+     * @param q Query
+     * @return Matching links in list order, or <code>null</code> if the query cannot be
+     *         evaluated locally
+     */
+    public List searchLinks(String q) {
+        return select(links, evaluate(q, linkTerms, linkTags), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Search the indexed Notes
+     *
+     * @param q Query
+     * @return Matching Notes in list order, or <code>null</code> if the query cannot be
+     *         evaluated locally
+     */
+    public List searchNotes(String q) {
+        return select(notes, evaluate(q, noteTerms, noteTags), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Return the links matching a query, from the index if possible and from Simpy otherwise
+     *
+     * @param simpy {@link Simpy} object to ask if the query cannot be evaluated locally
+     * @param q     Query
+     * @param limit Maximum number of links
+     * @return List of {@link Link} objects
+     */
+    public List getLinks(Simpy simpy, String q, int limit) {
+        List result = select(links, evaluate(q, linkTerms, linkTags), limit);
+
+        return (result != null) ? result : simpy.getLinks(q, null, null, null, limit);
+    }
+
+    /**
+     * Return the Notes matching a query, from the index if possible and from Simpy otherwise
+     *
+     * @param simpy {@link Simpy} object to ask if the query cannot be evaluated locally
+     * @param q     Query
+     * @param limit Maximum number of Notes
+     * @return List of {@link Note} objects
+     */
+    public List getNotes(Simpy simpy, String q, int limit) {
+        List result = select(notes, evaluate(q, noteTerms, noteTags), limit);
+
+        return (result != null) ? result : simpy.getNotes(q, limit);
+    }
+
+    /**
+     * Evaluate a query against one set of postings
+     *
+     * @return Sorted positions or <code>null</code> if the query is not supported
+     */
+    private static int[] evaluate(String q, Map terms, Map tags) {
+        if (q == null) {
+            return null;
+        }
+
+        String[] words = q.trim().split("\\s+");
+        int[] result = null;
+        int[] group = null;
+        boolean expectOperand = true;
+
+        for (int i = 0; i < words.length; i++) {
+            String word = words[i];
+            if (word.length() == 0) {
+                continue;
+            }
+
+            if ("OR".equals(word) || "AND".equals(word)) {
+                if (expectOperand) {
+                    return null;
+                }
+                if ("OR".equals(word)) {
+                    result = (result == null) ? group : union(result, group);
+                    group = null;
+                }
+                expectOperand = true;
+                continue;
+            }
+
+            int[] matches = match(word, terms, tags);
+            if (matches == null) {
+                return null;
+            }
+
+            group = (group == null) ? matches : intersect(group, matches);
+            expectOperand = false;
+        }
+
+        if (expectOperand) {
+            return null;
+        }
+
+        return (result == null) ? group : union(result, group);
+    }
+
+    /**
+     * Return the postings of one query word
+     *
+     * @return Sorted positions or <code>null</code> if the word is not supported
+     */
+    private static int[] match(String word, Map terms, Map tags) {
+        String lower = word.toLowerCase();
+        if (lower.startsWith(TAGS_PREFIX) || lower.startsWith(TAG_PREFIX)) {
+            String tag = lower.substring(lower.indexOf(':') + 1);
+            if (tag.length() == 0 || !isPlain(tag)) {
+                return null;
+            }
+
+            int[] postings = (int[]) tags.get(tag);
+            return (postings == null) ? NONE : postings;
+        }
+
+        if (!isPlain(lower) || lower.indexOf(':') >= 0) {
+            return null;
+        }
+
+        List tokens = tokenize(lower);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+
+        int[] result = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            int[] postings = (int[]) terms.get(tokens.get(i));
+            if (postings == null) {
+                return NONE;
+            }
+            result = (result == null) ? postings : intersect(result, postings);
+        }
+
+        return result;
+    }
+
+    /**
+     * Check that a word holds no syntax the index does not understand
+     */
+    private static boolean isPlain(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c == '"' || c == '(' || c == ')' || c == '*' || c == '?' || c == '~' || c == '^' || c == '\\' || (i == 0 && (c == '-' || c == '+' || c == '!'))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static List select(List items, int[] positions, int limit) {
+        if (positions == null) {
+            return null;
+        }
+
+        List result = new ArrayList(Math.min(positions.length, limit));
+        for (int i = 0; i < positions.length && result.size() < limit; i++) {
+            result.add(items.get(positions[i]));
+        }
+
+        return result;
+    }
+
+    private static void addTerms(Map terms, int position, String text) {
+        if (text != null) {
+            List tokens = tokenize(text.toLowerCase());
+            for (int i = 0; i < tokens.size(); i++) {
+                addPosting(terms, (String) tokens.get(i), position);
+            }
+        }
+    }
+
+    private static void addTags(Map terms, Map tags, int position, List tagNames) {
+        if (tagNames != null) {
+            for (int i = 0; i < tagNames.size(); i++) {
+                String tag = ((String) tagNames.get(i)).toLowerCase();
+                addPosting(tags, tag, position);
+                addTerms(terms, position, tag);
+            }
+        }
+    }
+
+    /**
+     * Split text into runs of letters and digits
+     */
+    private static List tokenize(String text) {
+        List tokens = new ArrayList();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordCharacter && start < 0) {
+                start = i;
+            } else if (!wordCharacter && start >= 0) {
+                tokens.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+
+        return tokens;
+    }
+
+    private static void addPosting(Map postings, String term, int position) {
+        int[] list = (int[]) postings.get(term);
+        if (list == null) {
+            list = new int[]{1, position};
+            postings.put(term, list);
+            return;
+        }
+
+        int size = list[0];
+        if (list[size] == position) {
+            return;
+        }
+
+        if (size + 1 == list.length) {
+            int[] grown = new int[list.length * 2];
+            System.arraycopy(list, 0, grown, 0, list.length);
+            list = grown;
+            postings.put(term, list);
+        }
+
+        list[size + 1] = position;
+        list[0] = size + 1;
+    }
+
+    /**
+     * Trim the growable posting arrays, which hold their size in element 0
+     */
+    private static Map toPostings(Map growable) {
+        Map postings = new HashMap(growable.size() * 2);
+        for (Iterator iterator = growable.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry entry = (Map.Entry) iterator.next();
+            int[] list = (int[]) entry.getValue();
+            int[] trimmed = new int[list[0]];
+            System.arraycopy(list, 1, trimmed, 0, trimmed.length);
+            postings.put(entry.getKey(), trimmed);
+        }
+
+        return postings;
+    }
+
+    private static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+
+        return trim(result, size);
+    }
+
+    private static int[] union(int[] first, int[] second) {
+        int[] result = new int[first.length + second.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length || j < second.length) {
+            if (j == second.length || (i < first.length && first[i] < second[j])) {
+                result[size++] = first[i++];
+            } else if (i == first.length || second[j] < first[i]) {
+                result[size++] = second[j++];
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+
+        return trim(result, size);
+    }
+
+    private static int[] trim(int[] values, int size) {
+        if (size == values.length) {
+            return values;
+        }
+
+        int[] trimmed = new int[size];
+        System.arraycopy(values, 0, trimmed, 0, size);
+
+        return trimmed;
+    }
+}
@@ -0,0 +1,424 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.local;
+
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.SimpyUtils;
+import com.simpy.api.rest.client.beans.Filter;
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.Tag;
+import com.simpy.api.rest.client.beans.Topic;
+import com.simpy.api.rest.client.beans.User;
+import com.simpy.api.rest.client.beans.Watchlist;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a snapshot written by {@link SnapshotWriter}. The file is mapped into memory with
+ * {@link FileChannel#map(FileChannel.MapMode, long, long)} when the reader is opened, which
+ * only reads the header, the properties and the tag dictionary; each record is decoded when
+ * it is requested and its pages are read in by the operating system on first access.
+ * <p/>
+ * Readers are threadsafe. The lists returned by the <code>get...s()</code> methods are
+ * unmodifiable views that decode a new object on every <code>get</code>.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SnapshotReader {
+
+    private static final Charset UTF8_CHARSET = Charset.forName(SimpyConstants.UTF8);
+
+    private RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private int[] counts = new int[SnapshotWriter.SECTIONS];
+    private int[] tableOffsets = new int[SnapshotWriter.SECTIONS];
+    private String[] dictionary;
+    private Map properties = new HashMap();
+
+    /**
+     * Open a snapshot
+     *
+     * @param snapshot Snapshot file
+     * @throws IOException If the file cannot be mapped or is not a snapshot
+     */
+    public SnapshotReader(File snapshot) throws IOException {
+        file = new RandomAccessFile(snapshot, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < SnapshotWriter.HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(snapshot + " is not a snapshot");
+            }
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != SnapshotWriter.MAGIC || buffer.getInt(4) != SnapshotWriter.VERSION) {
+                throw new IOException(snapshot + " is not a snapshot");
+            }
+
+            for (int section = 0; section < SnapshotWriter.SECTIONS; section++) {
+                counts[section] = buffer.getInt(8 + section * 8);
+                tableOffsets[section] = buffer.getInt(12 + section * 8);
+            }
+
+            Cursor cursor = new Cursor(tableOffsets[SnapshotWriter.PROPERTIES]);
+            for (int i = 0; i < counts[SnapshotWriter.PROPERTIES]; i++) {
+                properties.put(cursor.readString(), cursor.readString());
+            }
+
+            cursor = new Cursor(tableOffsets[SnapshotWriter.DICTIONARY]);
+            dictionary = new String[counts[SnapshotWriter.DICTIONARY]];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = cursor.readString();
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        } catch (RuntimeException e) {
+            file.close();
+            throw new IOException(snapshot + " is not a snapshot: " + e);
+        }
+    }
+
+    /**
+     * Return a property stored with {@link SnapshotWriter#setProperty(String, String)}
+     *
+     * @param name Property name
+     * @return Property value or <code>null</code> if it was not stored
+     */
+    public String getProperty(String name) {
+        return (String) properties.get(name);
+    }
+
+    /**
+     * Return the tag names used by the links and Notes of the snapshot
+     *
+     * @return Tag names, indexed by the ids used in the file
+     */
+    public String[] getTagNames() {
+        return dictionary.clone();
+    }
+
+    public int getTagCount() {
+        return counts[SnapshotWriter.TAGS];
+    }
+
+    public int getLinkCount() {
+        return counts[SnapshotWriter.LINKS];
+    }
+
+    public int getNoteCount() {
+        return counts[SnapshotWriter.NOTES];
+    }
+
+    public int getTopicCount() {
+        return counts[SnapshotWriter.TOPICS];
+    }
+
+    public int getWatchlistCount() {
+        return counts[SnapshotWriter.WATCHLISTS];
+    }
+
+    /**
+     * Decode a {@link Tag} record
+     *
+     * @param index Record index
+     * @return {@link Tag}
+     */
+    public Tag getTag(int index) {
+        Cursor cursor = record(SnapshotWriter.TAGS, index);
+
+        return new Tag(dictionary[cursor.readInt()], cursor.readInt());
+    }
+
+    /**
+     * Decode a {@link Link} record
+     *
+     * @param index Record index
+     * @return {@link Link}
+     */
+    public Link getLink(int index) {
+        Cursor cursor = record(SnapshotWriter.LINKS, index);
+
+        Link link = new Link();
+        link.setAccessType(cursor.readString());
+        link.setUrl(cursor.readString());
+        link.setModDate(cursor.readDate());
+        link.setAddDate(cursor.readDate());
+        link.setTitle(cursor.readString());
+        link.setNickname(cursor.readString());
+        link.setNote(cursor.readString());
+        link.setTags(cursor.readTags());
+
+        return link;
+    }
+
+    /**
+     * Decode a {@link Note} record
+     *
+     * @param index Record index
+     * @return {@link Note}
+     */
+    public Note getNote(int index) {
+        Cursor cursor = record(SnapshotWriter.NOTES, index);
+
+        Note note = new Note();
+        note.setId(cursor.readString());
+        note.setAccessType(cursor.readString());
+        note.setUri(cursor.readString());
+        note.setModDate(cursor.readDate());
+        note.setAddDate(cursor.readDate());
+        note.setTitle(cursor.readString());
+        note.setDescription(cursor.readString());
+        note.setTags(cursor.readTags());
+
+        return note;
+    }
+
+    /**
+     * Decode a {@link Topic} record
+     *
+     * @param index Record index
+     * @return {@link Topic}
+     */
+    public Topic getTopic(int index) {
+        Cursor cursor = record(SnapshotWriter.TOPICS, index);
+
+        Topic topic = new Topic();
+        topic.setId(cursor.readInt());
+        topic.setName(cursor.readString());
+        topic.setDescription(cursor.readString());
+        topic.setAddDate(cursor.readDate());
+        topic.setNewLinks(cursor.readInt());
+        topic.setUsers(cursor.readUsers());
+        if (cursor.readBoolean()) {
+            topic.setFilter(new Filter(cursor.readString(), cursor.readString()));
+        }
+
+        return topic;
+    }
+
+    /**
+     * Decode a {@link Watchlist} record
+     *
+     * @param index Record index
+     * @return {@link Watchlist}
+     */
+    public Watchlist getWatchlist(int index) {
+        Cursor cursor = record(SnapshotWriter.WATCHLISTS, index);
+
+        Watchlist watchlist = new Watchlist();
+        watchlist.setId(cursor.readInt());
+        watchlist.setName(cursor.readString());
+        watchlist.setDescription(cursor.readString());
+        watchlist.setAddDate(cursor.readDate());
+        watchlist.setNewLinks(cursor.readInt());
+        watchlist.setUsers(cursor.readUsers());
+
+        int filterCount = cursor.readInt();
+        if (filterCount >= 0) {
+            List filters = new ArrayList(filterCount);
+            for (int i = 0; i < filterCount; i++) {
+                filters.add(new Filter(cursor.readString(), cursor.readString()));
+            }
+            watchlist.setFilters(filters);
+        }
+
+        return watchlist;
+    }
+
+    public List getTags() {
+        return new RecordList(SnapshotWriter.TAGS);
+    }
+
+    public List getLinks() {
+        return new RecordList(SnapshotWriter.LINKS);
+    }
+
+    public List getNotes() {
+        return new RecordList(SnapshotWriter.NOTES);
+    }
+
+    public List getTopics() {
+        return new RecordList(SnapshotWriter.TOPICS);
+    }
+
+    public List getWatchlists() {
+        return new RecordList(SnapshotWriter.WATCHLISTS);
+    }
+
+    /**
+     * Close the file. The mapping itself is released when it is garbage collected, and no
+     * records may be read after closing.
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private Cursor record(int section, int index) {
+        if (index < 0 || index >= counts[section]) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + counts[section]);
+        }
+
+        return new Cursor(buffer.getInt(tableOffsets[section] + index * 4));
+    }
+
+    /**
+     * Position within the mapped file. Reads use absolute offsets so that cursors on several
+     * threads can share the buffer.
+     */
+    private class Cursor {
+
+        private int position;
+
+        Cursor(int position) {
+            this.position = position;
+        }
+
+        int readInt() {
+            int value = buffer.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        long readLong() {
+            long value = buffer.getLong(position);
+            position += 8;
+            return value;
+        }
+
+        boolean readBoolean() {
+            return buffer.get(position++) != 0;
+        }
+
+        String readString() {
+            int length = readInt();
+            if (length < 0) {
+                return null;
+            }
+
+            byte[] bytes = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position);
+            view.get(bytes);
+            position += length;
+
+            return new String(bytes, UTF8_CHARSET);
+        }
+
+        String readDate() {
+            byte kind = buffer.get(position++);
+            if (kind == SnapshotWriter.DATE_DAY) {
+                return SimpyUtils.formatDate(readLong());
+            } else if (kind == SnapshotWriter.DATE_TIME) {
+                return SnapshotWriter.formatDateTime(readLong());
+            } else if (kind == SnapshotWriter.DATE_TEXT) {
+                return readString();
+            }
+
+            return null;
+        }
+
+        List readTags() {
+            int count = readInt();
+            if (count < 0) {
+                return null;
+            }
+
+            List tags = new ArrayList(count);
+            for (int i = 0; i < count; i++) {
+                tags.add(dictionary[readInt()]);
+            }
+
+            return tags;
+        }
+
+        List readUsers() {
+            int count = readInt();
+            if (count < 0) {
+                return null;
+            }
+
+            List users = new ArrayList(count);
+            for (int i = 0; i < count; i++) {
+                users.add(new User(readString()));
+            }
+
+            return users;
+        }
+    }
+
+    /**
+     * Unmodifiable list decoding the records of one section on demand
+     */
+    private class RecordList extends AbstractList {
+
+        private int section;
+
+        RecordList(int section) {
+            this.section = section;
+        }
+
+        public Object get(int index) {
+            switch (section) {
+                case SnapshotWriter.TAGS:
+                    return getTag(index);
+                case SnapshotWriter.LINKS:
+                    return getLink(index);
+                case SnapshotWriter.NOTES:
+                    return getNote(index);
+                case SnapshotWriter.TOPICS:
+                    return getTopic(index);
+                default:
+                    return getWatchlist(index);
+            }
+        }
+
+        public int size() {
+            return counts[section];
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.local;
+
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.SimpyUtils;
+import com.simpy.api.rest.client.beans.Filter;
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.Tag;
+import com.simpy.api.rest.client.beans.Topic;
+import com.simpy.api.rest.client.beans.User;
+import com.simpy.api.rest.client.beans.Watchlist;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes {@link Link}, {@link Note}, {@link Tag}, {@link Topic} and {@link Watchlist}
+ * objects to a binary snapshot file that {@link SnapshotReader} maps into memory.
+ * <p/>
+ * Strings are written as a length followed by their UTF-8 bytes, tag names are replaced by
+ * ids into a dictionary written once per file, and dates are written as a kind byte followed
+ * by milliseconds since the epoch. Every section ends with a table of record offsets, so any
+ * record can be read without reading the ones before it. Records of different kinds may be
+ * added in any order. Files are limited to 2GB.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SnapshotWriter {
+
+    static final int MAGIC = 0x53534E50;
+    static final int VERSION = 1;
+
+    static final int PROPERTIES = 0;
+    static final int DICTIONARY = 1;
+    static final int TAGS = 2;
+    static final int LINKS = 3;
+    static final int NOTES = 4;
+    static final int TOPICS = 5;
+    static final int WATCHLISTS = 6;
+    static final int SECTIONS = 7;
+    static final int HEADER_SIZE = 8 + SECTIONS * 8;
+
+    static final byte DATE_NONE = 0;
+    static final byte DATE_DAY = 1;
+    static final byte DATE_TIME = 2;
+    static final byte DATE_TEXT = 3;
+
+    private File file;
+    private DataOutputStream output;
+    private int[][] offsets = new int[SECTIONS][];
+    private int[] counts = new int[SECTIONS];
+    private Map dictionary = new HashMap();
+    private List dictionaryNames = new ArrayList();
+    private Map properties = new HashMap();
+
+    /**
+     * Create a snapshot file, replacing any existing file
+     *
+     * @param file Snapshot file
+     * @throws IOException If the file cannot be created
+     */
+    public SnapshotWriter(File file) throws IOException {
+        this.file = file;
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+        output.write(new byte[HEADER_SIZE]);
+        for (int i = 0; i < SECTIONS; i++) {
+            offsets[i] = new int[16];
+        }
+    }
+
+    /**
+     * Store a property of the snapshot, such as the time it was taken
+     *
+     * @param name  Property name
+     * @param value Property value
+     */
+    public void setProperty(String name, String value) {
+        properties.put(name, value);
+    }
+
+    /**
+     * Add a {@link Tag} record
+     *
+     * @param tag {@link Tag}
+     * @throws IOException If the record cannot be written
+     */
+    public void addTag(Tag tag) throws IOException {
+        startRecord(TAGS);
+        output.writeInt(tagId(tag.getTag()));
+        output.writeInt(tag.getCount());
+    }
+
+    /**
+     * Add a {@link Link} record
+     *
+     * @param link {@link Link}
+     * @throws IOException If the record cannot be written
+     */
+    public void addLink(Link link) throws IOException {
+        startRecord(LINKS);
+        writeString(link.getAccessType());
+        writeString(link.getUrl());
+        writeDate(link.getModDate(), link.getModDateMillis());
+        writeDate(link.getAddDate(), link.getAddDateMillis());
+        writeString(link.getTitle());
+        writeString(link.getNickname());
+        writeString(link.getNote());
+        writeTags(link.getTags());
+    }
+
+    /**
+     * Add a {@link Note} record
+     *
+     * @param note {@link Note}
+     * @throws IOException If the record cannot be written
+     */
+    public void addNote(Note note) throws IOException {
+        startRecord(NOTES);
+        writeString(note.getId());
+        writeString(note.getAccessType());
+        writeString(note.getUri());
+        writeDate(note.getModDate(), note.getModDateMillis());
+        writeDate(note.getAddDate(), note.getAddDateMillis());
+        writeString(note.getTitle());
+        writeString(note.getDescription());
+        writeTags(note.getTags());
+    }
+
+    /**
+     * Add a {@link Topic} record
+     *
+     * @param topic {@link Topic}
+     * @throws IOException If the record cannot be written
+     */
+    public void addTopic(Topic topic) throws IOException {
+        startRecord(TOPICS);
+        output.writeInt(topic.getId());
+        writeString(topic.getName());
+        writeString(topic.getDescription());
+        writeDate(topic.getAddDate(), topic.getAddDateMillis());
+        output.writeInt(topic.getNewLinks());
+        writeUsers(topic.getUsers());
+        Filter filter = topic.getFilter();
+        output.writeBoolean(filter != null);
+        if (filter != null) {
+            writeString(filter.getName());
+            writeString(filter.getQuery());
+        }
+    }
+
+    /**
+     * Add a {@link Watchlist} record
+     *
+     * @param watchlist {@link Watchlist}
+     * @throws IOException If the record cannot be written
+     */
+    public void addWatchlist(Watchlist watchlist) throws IOException {
+        startRecord(WATCHLISTS);
+        output.writeInt(watchlist.getId());
+        writeString(watchlist.getName());
+        writeString(watchlist.getDescription());
+        writeDate(watchlist.getAddDate(), watchlist.getAddDateMillis());
+        output.writeInt(watchlist.getNewLinks());
+        writeUsers(watchlist.getUsers());
+        List filters = watchlist.getFilters();
+        output.writeInt(filters == null ? -1 : filters.size());
+        if (filters != null) {
+            for (int i = 0; i < filters.size(); i++) {
+                Filter filter = (Filter) filters.get(i);
+                writeString(filter.getName());
+                writeString(filter.getQuery());
+            }
+        }
+    }
+
+    /**
+     * Write the properties, the tag dictionary, the offset tables and the header, and close
+     * the file
+     *
+     * @throws IOException If the file cannot be written
+     */
+    public void close() throws IOException {
+        int[] tableOffsets = new int[SECTIONS];
+        try {
+            tableOffsets[PROPERTIES] = output.size();
+            counts[PROPERTIES] = properties.size();
+            for (Iterator iterator = properties.entrySet().iterator(); iterator.hasNext();) {
+                Map.Entry property = (Map.Entry) iterator.next();
+                writeString((String) property.getKey());
+                writeString((String) property.getValue());
+            }
+
+            tableOffsets[DICTIONARY] = output.size();
+            counts[DICTIONARY] = dictionaryNames.size();
+            for (int i = 0; i < dictionaryNames.size(); i++) {
+                writeString((String) dictionaryNames.get(i));
+            }
+
+            for (int section = TAGS; section < SECTIONS; section++) {
+                tableOffsets[section] = output.size();
+                for (int i = 0; i < counts[section]; i++) {
+                    output.writeInt(offsets[section][i]);
+                }
+            }
+
+            checkSize();
+        } finally {
+            output.close();
+        }
+
+        RandomAccessFile header = new RandomAccessFile(file, "rw");
+        try {
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            for (int section = 0; section < SECTIONS; section++) {
+                header.writeInt(counts[section]);
+                header.writeInt(tableOffsets[section]);
+            }
+        } finally {
+            header.close();
+        }
+    }
+
+    private void startRecord(int section) throws IOException {
+        checkSize();
+        if (counts[section] == offsets[section].length) {
+            int[] grown = new int[offsets[section].length * 2];
+            System.arraycopy(offsets[section], 0, grown, 0, counts[section]);
+            offsets[section] = grown;
+        }
+
+        offsets[section][counts[section]++] = output.size();
+    }
+
+    private void checkSize() throws IOException {
+        if (output.size() < 0 || output.size() == Integer.MAX_VALUE) {
+            throw new IOException("Snapshot larger than 2GB");
+        }
+    }
+
+    private int tagId(String name) {
+        Integer id = (Integer) dictionary.get(name);
+        if (id == null) {
+            id = Integer.valueOf(dictionaryNames.size());
+            dictionary.put(name, id);
+            dictionaryNames.add(name);
+        }
+
+        return id.intValue();
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(SimpyConstants.UTF8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private void writeDate(String text, long millis) throws IOException {
+        if (text == null) {
+            output.writeByte(DATE_NONE);
+        } else if (millis != SimpyConstants.UNKNOWN_DATE && text.length() == 10 && text.equals(SimpyUtils.formatDate(millis))) {
+            output.writeByte(DATE_DAY);
+            output.writeLong(millis);
+        } else if (millis != SimpyConstants.UNKNOWN_DATE && text.length() == 20 && text.equals(formatDateTime(millis))) {
+            output.writeByte(DATE_TIME);
+            output.writeLong(millis);
+        } else {
+            output.writeByte(DATE_TEXT);
+            writeString(text);
+        }
+    }
+
+    private void writeTags(List tags) throws IOException {
+        if (tags == null) {
+            output.writeInt(-1);
+        } else {
+            output.writeInt(tags.size());
+            for (int i = 0; i < tags.size(); i++) {
+                output.writeInt(tagId((String) tags.get(i)));
+            }
+        }
+    }
+
+    private void writeUsers(List users) throws IOException {
+        output.writeInt(users == null ? -1 : users.size());
+        if (users != null) {
+            for (int i = 0; i < users.size(); i++) {
+                writeString(((User) users.get(i)).getUsername());
+            }
+        }
+    }
+
+    /**
+     * Format a time as yyyy-MM-ddTHH:mm:ssZ in UTC
+     *
+     * @param millis Milliseconds since the epoch
+     * @return Formatted time
+     */
+    static String formatDateTime(long millis) {
+        long secondOfDay = ((millis % 86400000L) + 86400000L) % 86400000L / 1000;
+        int hour = (int) (secondOfDay / 3600);
+        int minute = (int) (secondOfDay / 60 % 60);
+        int second = (int) (secondOfDay % 60);
+
+        StringBuffer result = new StringBuffer(20);
+        result.append(SimpyUtils.formatDate(millis)).append('T');
+        result.append((char) ('0' + hour / 10)).append((char) ('0' + hour % 10)).append(':');
+        result.append((char) ('0' + minute / 10)).append((char) ('0' + minute % 10)).append(':');
+        result.append((char) ('0' + second / 10)).append((char) ('0' + second % 10)).append('Z');
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,351 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.local;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.SimpyListenerAdapter;
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Tag;
+import com.simpy.api.rest.client.cache.CacheKey;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tag counts of an account kept up to date locally. The table is seeded from
+ * {@link Simpy#getTags()} and then applies every successful link and tag mutation made
+ * through the same {@link Simpy} object as a delta, so the tag cloud can be shown after a
+ * write without another round trip. For example {@link Simpy#mergeTags(String, String, String)}
+ * folds the counts of both tags into the target tag and {@link Simpy#saveLink} adds one to
+ * each of its tags.
+ * <p/>
+ * Deltas are estimates: a link carrying both tags of a merge is counted twice. The table
+ * remembers the tags of every link saved or deleted through the {@link Simpy} object, so a
+ * link saved again replaces its earlier tags; for links it has not seen change, the tags are
+ * looked up in the {@link LinkMirror} if one is supplied. The mirror is not updated by these
+ * calls, so the remembered tags take precedence over it. Deleting a link the table cannot
+ * look up marks it for a resync. The table is reloaded from the server, bypassing any
+ * {@link Simpy#setCache cache}, whenever the resync interval has passed, which corrects any
+ * drift, including changes made by other clients. A complete resync also forgets the
+ * remembered tags, so they are only kept for the links written within one interval.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class TagCountTable extends SimpyListenerAdapter {
+
+    private static Log logger = LogFactory.getLog(TagCountTable.class);
+
+    private Simpy simpy;
+    private LinkMirror mirror;
+    private long resyncInterval;
+    private Map counts = new LinkedHashMap();
+    private Map linkTags = new HashMap();
+    private long lastResync;
+    private long mutations;
+
+    /**
+     * Create a table and register it with <code>simpy</code>. The table is seeded on first
+     * use.
+     *
+     * @param simpy          {@link Simpy} object whose mutations are tracked
+     * @param mirror         {@link LinkMirror} used to look up the tags of saved and deleted
+     *                       links, may be <code>null</code>
+     * @param resyncInterval Milliseconds after which the table is reloaded from the server
+     */
+    public TagCountTable(Simpy simpy, LinkMirror mirror, long resyncInterval) {
+        this.simpy = simpy;
+        this.mirror = mirror;
+        this.resyncInterval = resyncInterval;
+
+        simpy.addListener(this);
+    }
+
+    /**
+     * Stop tracking mutations
+     */
+    public void close() {
+        simpy.removeListener(this);
+    }
+
+    /**
+     * Return the tag counts, reloading them from the server first if the resync interval has
+     * passed
+     *
+     * @return List of {@link Tag} objects
+     */
+    public List getTags() {
+        resyncIfDue();
+
+        synchronized (this) {
+            List tags = new ArrayList(counts.size());
+            for (Iterator iterator = counts.entrySet().iterator(); iterator.hasNext();) {
+                Map.Entry entry = (Map.Entry) iterator.next();
+                tags.add(new Tag((String) entry.getKey(), ((int[]) entry.getValue())[0]));
+            }
+
+            return tags;
+        }
+    }
+
+    /**
+     * Return the count of a tag, reloading the table from the server first if the resync
+     * interval has passed
+     *
+     * @param tag Tag
+     * @return Number of links with the tag, <code>0</code> if it is unknown
+     */
+    public int getCount(String tag) {
+        resyncIfDue();
+
+        synchronized (this) {
+            int[] count = (int[]) counts.get(tag);
+
+            return (count == null) ? 0 : count[0];
+        }
+    }
+
+    /**
+     * Reload the table from the server, bypassing the cache of the {@link Simpy} object
+     *
+     * @return <code>true</code> if the table was reloaded, <code>false</code> if the request
+     *         failed or was not read completely and the current counts were kept
+     */
+    public boolean resync() {
+        long mutationsBefore;
+        synchronized (this) {
+            mutationsBefore = mutations;
+        }
+
+        simpy.invalidateCache(CacheKey.TAGS);
+        List tags = simpy.getTags();
+        if (simpy.getHttpResult() != HttpStatus.SC_OK || simpy.getReadStatus() != SimpyConstants.STATUS_CODE_SUCCESS) {
+            logger.error("Unable to resync tag counts, HTTP result: " + simpy.getHttpResult() + ", status: " + simpy.getReadStatus());
+            return false;
+        }
+
+        synchronized (this) {
+            counts.clear();
+            for (int i = 0; i < tags.size(); i++) {
+                Tag tag = (Tag) tags.get(i);
+                counts.put(tag.getTag(), new int[]{tag.getCount()});
+            }
+
+            // A mutation applied during the request may or may not be included, so check again soon
+            if (mutations == mutationsBefore) {
+                lastResync = System.currentTimeMillis();
+                linkTags.clear();
+            } else {
+                lastResync = 0;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Return the time of the last complete resync
+     *
+     * @return Milliseconds since the epoch, <code>0</code> if a resync is due
+     */
+    public synchronized long getLastResync() {
+        return lastResync;
+    }
+
+    private void resyncIfDue() {
+        boolean due;
+        synchronized (this) {
+            due = lastResync == 0 || System.currentTimeMillis() - lastResync >= resyncInterval;
+        }
+
+        if (due) {
+            resync();
+        }
+    }
+
+    public void linkSaved(String href, String tags) {
+        Link mirrored = (mirror == null) ? null : mirror.getLink(href);
+
+        synchronized (this) {
+            mutations++;
+            addAll(previousTags(href, mirrored), -1);
+
+            List current = split(tags);
+            addAll(current, 1);
+            linkTags.put(href, current);
+        }
+    }
+
+    public void linkDeleted(String href) {
+        Link mirrored = (mirror == null) ? null : mirror.getLink(href);
+
+        synchronized (this) {
+            mutations++;
+            if (linkTags.containsKey(href) || mirrored != null) {
+                addAll(previousTags(href, mirrored), -1);
+            } else {
+                lastResync = 0;
+            }
+            linkTags.put(href, null);
+        }
+    }
+
+    public synchronized void tagRemoved(String tag) {
+        mutations++;
+        counts.remove(tag);
+        replaceInLinks(new String[]{tag}, new String[0]);
+    }
+
+    public synchronized void tagRenamed(String fromTag, String toTag) {
+        mutations++;
+        add(toTag, remove(fromTag));
+        replaceInLinks(new String[]{fromTag}, new String[]{toTag});
+    }
+
+    public synchronized void tagsMerged(String fromTag1, String fromTag2, String toTag) {
+        mutations++;
+        int count = remove(fromTag1) + remove(fromTag2);
+        add(toTag, count);
+        replaceInLinks(new String[]{fromTag1, fromTag2}, new String[]{toTag});
+    }
+
+    public synchronized void tagSplit(String tag, String toTag1, String toTag2) {
+        mutations++;
+        int count = remove(tag);
+        add(toTag1, count);
+        add(toTag2, count);
+        replaceInLinks(new String[]{tag}, new String[]{toTag1, toTag2});
+    }
+
+    /**
+     * Return the tags a link had before a save or delete
+     *
+     * @param href     Link URL
+     * @param mirrored The link as held by the mirror, may be <code>null</code>
+     * @return Tags or <code>null</code> if the link is not known to exist
+     */
+    private List previousTags(String href, Link mirrored) {
+        if (linkTags.containsKey(href)) {
+            return (List) linkTags.get(href);
+        }
+
+        return (mirrored == null) ? null : mirrored.getTags();
+    }
+
+    /**
+     * Apply a tag mutation to the remembered tags of saved links
+     *
+     * @param fromTags Tags that are replaced
+     * @param toTags   Tags that replace them
+     */
+    private void replaceInLinks(String[] fromTags, String[] toTags) {
+        for (Iterator iterator = linkTags.values().iterator(); iterator.hasNext();) {
+            List tags = (List) iterator.next();
+            if (tags == null) {
+                continue;
+            }
+
+            boolean replaced = false;
+            for (int i = 0; i < fromTags.length; i++) {
+                replaced |= tags.remove(fromTags[i]);
+            }
+
+            if (replaced) {
+                for (int i = 0; i < toTags.length; i++) {
+                    if (!tags.contains(toTags[i])) {
+                        tags.add(toTags[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Split the comma separated tags passed to {@link Simpy#saveLink}
+     */
+    private static List split(String tags) {
+        List result = new ArrayList();
+        if (tags != null) {
+            String[] names = tags.split(",");
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i].trim();
+                if (name.length() > 0 && !result.contains(name)) {
+                    result.add(name);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private void addAll(List tags, int delta) {
+        if (tags != null) {
+            for (int i = 0; i < tags.size(); i++) {
+                add((String) tags.get(i), delta);
+            }
+        }
+    }
+
+    private void add(String tag, int delta) {
+        if (delta == 0) {
+            return;
+        }
+
+        int[] count = (int[]) counts.get(tag);
+        if (count == null) {
+            if (delta > 0) {
+                counts.put(tag, new int[]{delta});
+            }
+            return;
+        }
+
+        count[0] += delta;
+        if (count[0] <= 0) {
+            counts.remove(tag);
+        }
+    }
+
+    private int remove(String tag) {
+        int[] count = (int[]) counts.remove(tag);
+
+        return (count == null) ? 0 : count[0];
+    }
+}
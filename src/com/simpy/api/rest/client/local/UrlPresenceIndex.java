@@ -0,0 +1,306 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.local;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.SimpyListenerAdapter;
+import com.simpy.api.rest.client.beans.Link;
+import org.apache.commons.httpclient.HttpStatus;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set of the URLs saved in an account, used to skip {@link Simpy#saveLink} calls for links
+ * that already exist. Lookups go through a Bloom filter sized for a configurable false
+ * positive rate, so most unknown URLs are rejected without touching the exact set, which
+ * then confirms every positive answer. URLs are compared in canonical form, see
+ * {@link #canonicalize(String)}.
+ * <p/>
+ * Register the index with {@link Simpy#addListener} to keep it current as links are saved
+ * and deleted. The filter keeps the bits of deleted URLs and its false positive rate rises
+ * once more URLs than expected have been added, but answers stay exact because of the set.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class UrlPresenceIndex extends SimpyListenerAdapter {
+
+    /**
+     * Returned by {@link #saveLinkIfAbsent} when the link was not saved because its URL is
+     * already present
+     */
+    public static final int STATUS_ALREADY_PRESENT = -1;
+
+    private static final double LN2 = Math.log(2);
+
+    private long[] bits;
+    private int bitCount;
+    private int hashCount;
+    private Set urls = new HashSet();
+
+    /**
+     * Create an empty index
+     *
+     * @param expectedUrls      Number of URLs the filter is sized for
+     * @param falsePositiveRate Fraction of unknown URLs that pass the filter, between 0 and 1
+     *                          exclusive
+     */
+    public UrlPresenceIndex(int expectedUrls, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+
+        int expected = Math.max(expectedUrls, 1);
+        long size = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (LN2 * LN2));
+        bitCount = (int) Math.min(Math.max(size, 64), Integer.MAX_VALUE - 63);
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * LN2));
+        bits = new long[(bitCount + 63) >>> 6];
+    }
+
+    /**
+     * Create an index of the URLs of a list of links, for example {@link LinkMirror#getLinks()}
+     *
+     * @param links             List of {@link Link} objects
+     * @param falsePositiveRate Fraction of unknown URLs that pass the filter
+     */
+    public UrlPresenceIndex(List links, double falsePositiveRate) {
+        this(links.size(), falsePositiveRate);
+
+        for (int i = 0; i < links.size(); i++) {
+            add(((Link) links.get(i)).getUrl());
+        }
+    }
+
+    /**
+     * Create an index of every link in an account using {@link Simpy#getAllLinks}
+     *
+     * @param simpy             {@link Simpy} object
+     * @param falsePositiveRate Fraction of unknown URLs that pass the filter
+     * @return {@link UrlPresenceIndex}
+     * @throws IOException If the links cannot be retrieved completely
+     */
+    public static UrlPresenceIndex load(Simpy simpy, double falsePositiveRate) throws IOException {
+        List links = simpy.getAllLinks(null, null, null, null);
+        if (simpy.getHttpResult() != HttpStatus.SC_OK) {
+            throw new IOException("GetLinks returned HTTP status " + simpy.getHttpResult());
+        }
+
+        if (simpy.getReadStatus() != SimpyConstants.STATUS_CODE_SUCCESS) {
+            throw new IOException("GetLinks returned status " + simpy.getReadStatus());
+        }
+
+        return new UrlPresenceIndex(links, falsePositiveRate);
+    }
+
+    /**
+     * Add a URL
+     *
+     * @param url URL
+     */
+    public synchronized void add(String url) {
+        String canonical = canonicalize(url);
+        if (canonical == null || !urls.add(canonical)) {
+            return;
+        }
+
+        long hash = hash(canonical);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = ((first + i * second) & Integer.MAX_VALUE) % bitCount;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Remove a URL from the exact set
+     *
+     * @param url URL
+     */
+    public synchronized void remove(String url) {
+        String canonical = canonicalize(url);
+        if (canonical != null) {
+            urls.remove(canonical);
+        }
+    }
+
+    /**
+     * Check whether a URL may be present using only the Bloom filter
+     *
+     * @param url URL
+     * @return <code>false</code> if the URL is certainly absent
+     */
+    public synchronized boolean mightContain(String url) {
+        String canonical = canonicalize(url);
+
+        return canonical != null && test(canonical);
+    }
+
+    /**
+     * Check whether a URL is present
+     *
+     * @param url URL
+     * @return <code>true</code> if the URL is present
+     */
+    public synchronized boolean contains(String url) {
+        String canonical = canonicalize(url);
+
+        return canonical != null && test(canonical) && urls.contains(canonical);
+    }
+
+    /**
+     * Return the number of URLs in the exact set
+     *
+     * @return Number of URLs
+     */
+    public synchronized int size() {
+        return urls.size();
+    }
+
+    /**
+     * Save a link unless its URL is already present
+     *
+     * @param simpy      {@link Simpy} object
+     * @param title      The title of the page to save.
+     * @param href       The URL of the page to save.
+     * @param accessType 0 for private, 1 for public.
+     * @param tags       Comma-separated list of tags.
+     * @param nickname   An alternative, custom title.
+     * @param note       A free-text note to go with the link.
+     * @return {@link #STATUS_ALREADY_PRESENT} without a request if the URL is present,
+     *         otherwise the status returned by {@link Simpy#saveLink}
+     */
+    public int saveLinkIfAbsent(Simpy simpy, String title, String href, int accessType, String tags, String nickname, String note) {
+        if (contains(href)) {
+            return STATUS_ALREADY_PRESENT;
+        }
+
+        int status = simpy.saveLink(title, href, accessType, tags, nickname, note);
+        if (status == SimpyConstants.STATUS_CODE_SUCCESS && simpy.getHttpResult() == HttpStatus.SC_OK) {
+            add(href);
+        }
+
+        return status;
+    }
+
+    public void linkSaved(String href, String tags) {
+        add(href);
+    }
+
+    public void linkDeleted(String href) {
+        remove(href);
+    }
+
+    /**
+     * Return the canonical form of a URL: surrounding whitespace is removed, the scheme and
+     * host are lower cased, the default port is dropped and an empty path becomes
+     * <code>/</code>. The fragment is kept, since Simpy saves URLs that differ only in their
+     * fragment as separate links.
+     *
+     * @param url URL
+     * @return Canonical URL or <code>null</code> if <code>url</code> is blank
+     */
+    public static String canonicalize(String url) {
+        if (url == null) {
+            return null;
+        }
+
+        String result = url.trim();
+        if (result.length() == 0) {
+            return null;
+        }
+
+        int schemeEnd = result.indexOf("://");
+        if (schemeEnd <= 0) {
+            return result;
+        }
+
+        String scheme = result.substring(0, schemeEnd).toLowerCase();
+        int authorityStart = schemeEnd + 3;
+        int authorityEnd = authorityStart;
+        while (authorityEnd < result.length() && "/?#".indexOf(result.charAt(authorityEnd)) < 0) {
+            authorityEnd++;
+        }
+
+        String authority = result.substring(authorityStart, authorityEnd);
+        int userInfoEnd = authority.lastIndexOf('@');
+        String userInfo = authority.substring(0, userInfoEnd + 1);
+        String host = authority.substring(userInfoEnd + 1).toLowerCase();
+        if (("http".equals(scheme) && host.endsWith(":80")) || ("https".equals(scheme) && host.endsWith(":443"))) {
+            host = host.substring(0, host.lastIndexOf(':'));
+        }
+
+        String rest = result.substring(authorityEnd);
+        if (rest.length() == 0 || rest.charAt(0) == '?' || rest.charAt(0) == '#') {
+            rest = "/" + rest;
+        }
+
+        return scheme + "://" + userInfo + host + rest;
+    }
+
+    private boolean test(String canonical) {
+        long hash = hash(canonical);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = ((first + i * second) & Integer.MAX_VALUE) % bitCount;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the characters of a string, with a final mix so both halves can be
+     * used as independent hashes
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
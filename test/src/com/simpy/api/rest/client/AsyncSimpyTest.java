@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Tag;
+import junit.framework.TestCase;
+import org.apache.commons.httpclient.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests for {@link AsyncSimpy}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class AsyncSimpyTest extends TestCase {
+
+    private static final String LINK = "<link accessType=\"1\"><url>http://example.com/</url>"
+            + "<modDate>2007-05-01T10:00:00Z</modDate><addDate>2007-05-01</addDate>"
+            + "<title>Example</title><nickname/><note/><tags><tag>java</tag></tags></link>";
+
+    private static final String LINKS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>" + LINK + "</links>";
+
+    private static final String TAGS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<tags><tag name=\"java\" count=\"3\"/></tags>";
+
+    private StubServer server;
+    private Simpy simpy;
+    private ExecutorService executor;
+    private AsyncSimpy async;
+
+    protected void setUp() throws Exception {
+        server = new StubServer();
+        simpy = server.createSimpy();
+        executor = Executors.newFixedThreadPool(2);
+        async = new AsyncSimpy(simpy, executor);
+    }
+
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+        simpy.shutdown();
+        server.stop();
+    }
+
+    private static Throwable failure(CompletableFuture future) throws InterruptedException {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected the future to fail");
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (TimeoutException e) {
+            fail("Future did not complete");
+        }
+
+        return null;
+    }
+
+    public void testRequiresThreadsafeSimpy() {
+        try {
+            new AsyncSimpy(new Simpy("username", "password"), executor);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            new AsyncSimpy(simpy, null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testResults() throws Exception {
+        server.respond("GetTags.do", TAGS);
+        server.respond("GetLinks.do", LINKS);
+
+        List tags = (List) async.getTags().get(10, TimeUnit.SECONDS);
+        assertEquals("java", ((Tag) tags.get(0)).getTag());
+
+        List links = (List) async.getLinks(null, null, null, null).get(10, TimeUnit.SECONDS);
+        assertEquals("http://example.com/", ((Link) links.get(0)).getUrl());
+    }
+
+    public void testCallsInFlightTogether() throws Exception {
+        server.respond("GetLinks.do", LINKS);
+
+        List futures = new ArrayList();
+        for (int i = 0; i < 6; i++) {
+            futures.add(async.getLinks("query" + i, null, null, null));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(1, ((List) ((CompletableFuture) futures.get(i)).get(10, TimeUnit.SECONDS)).size());
+        }
+        assertEquals(6, server.countRequests("GetLinks.do"));
+    }
+
+    public void testHttpFailure() throws Exception {
+        server.respond("GetTags.do", HttpStatus.SC_SERVICE_UNAVAILABLE);
+
+        Throwable cause = failure(async.getTags());
+        assertTrue(cause instanceof SimpyException);
+        assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, ((SimpyException) cause).getHttpResult());
+    }
+
+    public void testResponseThatBrokeOff() throws Exception {
+        server.respond("GetLinks.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>" + LINK + "<link accessType=\"1\"><url>http://exa");
+
+        Throwable cause = failure(async.getLinks(null, null, null, null));
+        assertTrue(cause instanceof SimpyException);
+        assertEquals(HttpStatus.SC_OK, ((SimpyException) cause).getHttpResult());
+    }
+
+    public void testMutationStatusIsTheResult() throws Exception {
+        server.respond("GetLinks.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links><link");
+        server.respond("SaveLink.do", StubServer.STATUS_STORAGE_ERROR);
+
+        // A read that broke off on the same executor thread does not fail a later mutation
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            AsyncSimpy serial = new AsyncSimpy(simpy, single);
+            failure(serial.getLinks(null, null, null, null));
+
+            Integer status = (Integer) serial.saveLink("Example", "http://example.com/", 1, null, null, null).get(10, TimeUnit.SECONDS);
+            assertEquals(SimpyConstants.STATUS_CODE_STORAGE_ERROR, status.intValue());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    public void testRejectedAfterShutdown() throws Exception {
+        AsyncSimpy owning = new AsyncSimpy(simpy);
+        owning.shutdown();
+
+        assertTrue(failure(owning.getTags()) instanceof RejectedExecutionException);
+    }
+}
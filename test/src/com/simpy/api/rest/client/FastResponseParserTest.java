@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.Topic;
+import com.simpy.api.rest.client.beans.Watchlist;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link FastResponseParser}, checked against {@link SimpyResponseParser}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class FastResponseParserTest extends TestCase {
+
+    /**
+     * Describe the fields of parsed results so that results of different parsers can be compared
+     */
+    static List describe(List results) {
+        List descriptions = new ArrayList();
+        for (int i = 0; i < results.size(); i++) {
+            Object result = results.get(i);
+            if (result instanceof Link) {
+                Link link = (Link) result;
+                descriptions.add(link.getAccessType() + "|" + link.getUrl() + "|" + link.getModDate() + "|" + link.getAddDate() + "|"
+                        + link.getTitle() + "|" + link.getNickname() + "|" + link.getNote() + "|" + link.getTags() + "|" + link.getAddDateMillis());
+            } else if (result instanceof Note) {
+                Note note = (Note) result;
+                descriptions.add(note.getId() + "|" + note.getAccessType() + "|" + note.getUri() + "|" + note.getModDate() + "|"
+                        + note.getAddDate() + "|" + note.getTitle() + "|" + note.getTags() + "|" + note.getDescription());
+            } else if (result instanceof Topic) {
+                Topic topic = (Topic) result;
+                descriptions.add(topic.getId() + "|" + topic.getName() + "|" + topic.getDescription() + "|" + topic.getAddDate() + "|"
+                        + topic.getNewLinks() + "|" + topic.getUsers() + "|" + topic.getFilter());
+            } else {
+                Watchlist watchlist = (Watchlist) result;
+                descriptions.add(watchlist.getId() + "|" + watchlist.getName() + "|" + watchlist.getDescription() + "|"
+                        + watchlist.getAddDate() + "|" + watchlist.getNewLinks() + "|" + watchlist.getUsers() + "|" + watchlist.getFilters());
+            }
+        }
+
+        return descriptions;
+    }
+
+    private static List parseFast(String xml, String elementName, boolean lazy) throws Exception {
+        List results = new ArrayList();
+        assertTrue(FastResponseParser.parse(xml.getBytes(SimpyConstants.UTF8), elementName, SimpyResponseParser.collectInto(results), lazy));
+
+        return results;
+    }
+
+    private static List parseGeneral(String xml, String elementName) throws Exception {
+        List results = new ArrayList();
+        SimpyResponseParser.parse(SimpyResponseParserTest.stream(xml), elementName, SimpyResponseParser.collectInto(results));
+
+        return results;
+    }
+
+    private static void assertSameResults(String xml, String elementName) throws Exception {
+        List expected = describe(parseGeneral(xml, elementName));
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, describe(parseFast(xml, elementName, false)));
+        assertEquals(expected, describe(parseFast(xml, elementName, true)));
+    }
+
+    public void testLinksMatchGeneralParser() throws Exception {
+        assertSameResults(SimpyResponseParserTest.LINKS, SimpyConstants.LINK_TAG);
+    }
+
+    public void testNotesMatchGeneralParser() throws Exception {
+        assertSameResults(SimpyResponseParserTest.NOTES, SimpyConstants.NOTE_TAG);
+    }
+
+    public void testTopicsMatchGeneralParser() throws Exception {
+        assertSameResults(SimpyResponseParserTest.TOPICS, SimpyConstants.TOPIC_TAG);
+    }
+
+    public void testWatchlistsMatchGeneralParser() throws Exception {
+        assertSameResults(SimpyResponseParserTest.WATCHLISTS, SimpyConstants.WATCHLIST_TAG);
+    }
+
+    public void testEntitiesCommentsAndLineEndings() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n<links>\r\n<!-- <link> -->\r\n"
+                + "<link accessType=\"1\"><url>http://a/?x=1&amp;y=&#x41;&#66;</url><title>line1\r\nline2&apos;&quot;&gt;</title>"
+                + "<tags><tag>a</tag><tag/><tag>b&amp;c</tag></tags></link>\r\n"
+                + "<link accessType=\"0\"><title><![CDATA[<x> & y]]> tail</title></link></links>";
+
+        assertSameResults(xml, SimpyConstants.LINK_TAG);
+
+        Link link = (Link) parseFast(xml, SimpyConstants.LINK_TAG, false).get(0);
+        assertEquals("http://a/?x=1&y=AB", link.getUrl());
+        assertEquals("line1\nline2'\">", link.getTitle());
+    }
+
+    public void testUnknownEntityFallsBackToGeneralParser() throws Exception {
+        String xml = "<?xml version=\"1.0\"?><!DOCTYPE links [ <!ENTITY foo \"bar\"> ]>"
+                + "<links><link accessType=\"1\"><url>u1</url></link><link accessType=\"1\"><url>&foo;</url></link></links>";
+
+        List links = parseFast(xml, SimpyConstants.LINK_TAG, false);
+        assertEquals(2, links.size());
+        assertEquals("u1", ((Link) links.get(0)).getUrl());
+        assertEquals("bar", ((Link) links.get(1)).getUrl());
+    }
+
+    public void testLazyLinkDecodesOnFirstRead() throws Exception {
+        List links = parseFast(SimpyResponseParserTest.LINKS, SimpyConstants.LINK_TAG, true);
+        Link link = (Link) links.get(0);
+        assertTrue(link instanceof LazyLink);
+        assertEquals("blojsom <blog> \u3053\u308c\u306f", link.getTitle());
+
+        link.setTitle("changed");
+        assertEquals("changed", link.getTitle());
+    }
+
+    public void testHandlerStopsParse() throws Exception {
+        final List links = new ArrayList();
+        boolean completed = FastResponseParser.parse(SimpyResponseParserTest.LINKS.getBytes(SimpyConstants.UTF8), SimpyConstants.LINK_TAG, new SimpyHandlerAdapter() {
+            public boolean onLink(Link link) {
+                links.add(link);
+                return false;
+            }
+        });
+
+        assertFalse(completed);
+        assertEquals(1, links.size());
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.TagDictionary;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link LazyLink} and {@link LazyNote}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class LazyResultsTest extends TestCase {
+
+    private static List parseLazy(String xml, String elementName) throws Exception {
+        List results = new ArrayList();
+        assertTrue(FastResponseParser.parse(xml.getBytes(SimpyConstants.UTF8), elementName, SimpyResponseParser.collectInto(results), true));
+
+        return results;
+    }
+
+    private static Link lazyLink() throws Exception {
+        Link link = (Link) parseLazy(SimpyResponseParserTest.LINKS, SimpyConstants.LINK_TAG).get(0);
+        assertTrue(link instanceof LazyLink);
+
+        return link;
+    }
+
+    public void testLinkFields() throws Exception {
+        Link link = lazyLink();
+
+        assertEquals("1", link.getAccessType());
+        assertEquals("http://blojsom.sf.net/?a=1&b=2", link.getUrl());
+        assertEquals("2006-08-09T10:11:12Z", link.getModDate());
+        assertEquals("2006-08-09", link.getAddDate());
+        assertNull(link.getNickname());
+        assertEquals("A note", link.getNote());
+        assertEquals(Arrays.asList(new String[]{"java", "blog"}), link.getTags());
+    }
+
+    public void testDateMillisBeforeDecoding() throws Exception {
+        Link link = lazyLink();
+
+        assertEquals(SimpyUtils.parseDate("2006-08-09"), link.getAddDateMillis());
+        assertEquals(SimpyUtils.parseDate("2006-08-09T10:11:12Z"), link.getModDateMillis());
+        assertEquals("2006-08-09", link.getAddDate());
+        assertEquals(SimpyUtils.parseDate("2006-08-09"), link.getAddDateMillis());
+    }
+
+    public void testSettersReplacePendingFields() throws Exception {
+        Link link = lazyLink();
+
+        link.setUrl("http://example.com/");
+        link.setNote(null);
+        link.setAddDate("2007-01-02");
+        link.setTags(Collections.singletonList("changed"));
+
+        assertEquals("http://example.com/", link.getUrl());
+        assertNull(link.getNote());
+        assertEquals(SimpyUtils.parseDate("2007-01-02"), link.getAddDateMillis());
+        assertEquals(Collections.singletonList("changed"), link.getTags());
+        assertEquals("blojsom <blog> \u3053\u308c\u306f", link.getTitle());
+    }
+
+    public void testTagIdsReplacePendingTags() throws Exception {
+        Link link = lazyLink();
+        TagDictionary dictionary = new TagDictionary();
+
+        link.setTagIds(new int[]{dictionary.intern("ids")}, dictionary);
+        assertEquals(Collections.singletonList("ids"), link.getTags());
+    }
+
+    public void testConcurrentFirstReads() throws Exception {
+        final Link link = lazyLink();
+        final List titles = Collections.synchronizedList(new ArrayList());
+
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    titles.add(link.getTitle());
+                    titles.add(link.getTags().get(0));
+                }
+            };
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+
+        assertEquals(threads.length * 2, titles.size());
+        for (int i = 0; i < titles.size(); i += 2) {
+            assertEquals("blojsom <blog> \u3053\u308c\u306f", titles.get(i));
+            assertEquals("java", titles.get(i + 1));
+        }
+    }
+
+    public void testNoteFields() throws Exception {
+        List notes = parseLazy(SimpyResponseParserTest.NOTES, SimpyConstants.NOTE_TAG);
+        Note note = (Note) notes.get(0);
+        assertTrue(note instanceof LazyNote);
+
+        assertEquals(SimpyUtils.parseDate("2007-05-16"), note.getAddDateMillis());
+        assertEquals("42", note.getId());
+        assertEquals("http://www.simpy.com/simpy/NoteDetails.do?noteId=42", note.getUri());
+        assertEquals("Title", note.getTitle());
+        assertEquals(Arrays.asList(new String[]{"one", "two"}), note.getTags());
+        assertEquals("I\u00f1t\u00ebrn\u00e2ti\u00f4n\u00e0liz\u00e6ti\u00f8n", note.getDescription());
+
+        note.setDescription("changed");
+        assertEquals("changed", note.getDescription());
+    }
+
+    public void testSetLazyResults() throws Exception {
+        StubServer server = new StubServer();
+        Simpy simpy = server.createSimpy();
+        try {
+            server.respond("GetLinks.do", SimpyResponseParserTest.LINKS);
+
+            assertFalse(simpy.getLinks(null, null, null, null).get(0) instanceof LazyLink);
+
+            simpy.setLazyResults(true);
+            assertTrue(simpy.isLazyResults());
+            Link link = (Link) simpy.getLinks("lazy", null, null, null).get(0);
+            assertTrue(link instanceof LazyLink);
+            assertEquals("A note", link.getNote());
+        } finally {
+            simpy.shutdown();
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests for {@link ParallelResponseParser}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class ParallelResponseParserTest extends TestCase {
+
+    private ForkJoinPool pool;
+
+    protected void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    protected void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Build a links response larger than {@link SimpyConstants#PARALLEL_PARSE_THRESHOLD}
+     */
+    private static byte[] largeResponse(String titleSuffix) throws Exception {
+        StringBuffer xml = new StringBuffer("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>\n");
+        int i = 0;
+        while (xml.length() < SimpyConstants.PARALLEL_PARSE_THRESHOLD + SimpyConstants.PARALLEL_PARSE_CHUNK_SIZE) {
+            xml.append("  <link accessType=\"1\"><url>http://example.com/").append(i).append("</url>")
+                    .append("<addDate>2007-01-01</addDate><title>Link ").append(i).append(titleSuffix).append("</title>")
+                    .append("<tags><tag>t").append(i % 10).append("</tag></tags></link>\n");
+            i++;
+        }
+        xml.append("</links>\n");
+
+        return xml.toString().getBytes(SimpyConstants.UTF8);
+    }
+
+    public void testParallelMatchesSequential() throws Exception {
+        byte[] body = largeResponse("");
+
+        List parallel = new ArrayList();
+        assertTrue(ParallelResponseParser.parse(body, SimpyConstants.LINK_TAG, SimpyResponseParser.collectInto(parallel), false, pool));
+
+        List sequential = new ArrayList();
+        FastResponseParser.parse(body, SimpyConstants.LINK_TAG, SimpyResponseParser.collectInto(sequential), false);
+
+        assertTrue(sequential.size() > 1000);
+        assertEquals(FastResponseParserTest.describe(sequential), FastResponseParserTest.describe(parallel));
+    }
+
+    public void testStartTagInsideCdataFallsBack() throws Exception {
+        byte[] body = largeResponse("<![CDATA[ <link accessType=\"1\"> ]]>");
+
+        List parallel = new ArrayList();
+        assertTrue(ParallelResponseParser.parse(body, SimpyConstants.LINK_TAG, SimpyResponseParser.collectInto(parallel), false, pool));
+
+        List sequential = new ArrayList();
+        FastResponseParser.parse(body, SimpyConstants.LINK_TAG, SimpyResponseParser.collectInto(sequential), false);
+
+        assertEquals(FastResponseParserTest.describe(sequential), FastResponseParserTest.describe(parallel));
+    }
+
+    public void testFindBoundary() throws Exception {
+        byte[] body = "<links><linkage/><link accessType=\"1\"/><link>".getBytes(SimpyConstants.UTF8);
+        byte[] tag = "<link".getBytes(SimpyConstants.UTF8);
+
+        int first = ParallelResponseParser.findBoundary(body, tag, 0);
+        assertEquals(17, first);
+        assertEquals(39, ParallelResponseParser.findBoundary(body, tag, first + 1));
+        assertEquals(body.length, ParallelResponseParser.findBoundary(body, tag, 40));
+    }
+}
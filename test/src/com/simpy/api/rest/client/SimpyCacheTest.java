@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.cache.LruSimpyCache;
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests for the {@link Simpy} response cache
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SimpyCacheTest extends TestCase {
+
+    private static final String LINKS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>"
+            + "<link accessType=\"1\"><url>http://example.com/</url>"
+            + "<modDate>2007-05-02T10:00:00Z</modDate><addDate>2007-05-02</addDate>"
+            + "<title>Example</title><nickname/><note/><tags><tag>java</tag></tags></link>"
+            + "<link accessType=\"1\"><url>http://example.org/</url>"
+            + "<modDate>2007-05-01T10:00:00Z</modDate><addDate>2007-05-01</addDate>"
+            + "<title>Other</title><nickname/><note/><tags><tag>xml</tag></tags></link>"
+            + "</links>";
+
+    private StubServer server;
+    private Simpy simpy;
+
+    protected void setUp() throws Exception {
+        server = new StubServer();
+        simpy = server.createSimpy();
+        simpy.setCache(new LruSimpyCache(100, 60000));
+        server.respond("GetLinks.do", LINKS);
+    }
+
+    protected void tearDown() throws Exception {
+        simpy.shutdown();
+        server.stop();
+    }
+
+    private List getLinks() {
+        return simpy.getLinks(null, null, "2007-04-30", "2007-05-03", 100);
+    }
+
+    public void testLinkRangeAnswersRepeatedWindows() {
+        assertEquals(2, getLinks().size());
+        assertEquals(1, simpy.getLinks(null, "2007-05-02", null, null, 100).size());
+        assertEquals(1, server.countRequests("GetLinks.do"));
+    }
+
+    public void testCachedLinksAreCopies() {
+        Link link = (Link) getLinks().get(0);
+        link.setTitle("Changed");
+        link.getTags().add("changed");
+
+        Link cached = (Link) getLinks().get(0);
+        assertEquals("Example", cached.getTitle());
+        assertEquals(1, cached.getTags().size());
+        assertEquals(1, server.countRequests("GetLinks.do"));
+    }
+
+    public void testCachedCompactLinksKeepTheirTagIds() {
+        simpy.setCompactTags(true);
+
+        Link link = (Link) getLinks().get(1);
+        assertNotNull(link.getTagIds());
+        link.getTagIds()[0] = -1;
+
+        Link cached = (Link) getLinks().get(1);
+        assertEquals("xml", cached.getTags().get(0));
+        assertEquals(1, server.countRequests("GetLinks.do"));
+    }
+
+    public void testDeletedLinkTrimsRangeFromItsDay() {
+        server.respond("DeleteLink.do", StubServer.STATUS_SUCCESS);
+        getLinks();
+
+        assertEquals(SimpyConstants.STATUS_CODE_SUCCESS, simpy.deleteLink("http://example.com/"));
+        assertEquals(1, simpy.getLinks(null, "2007-05-01", null, null, 100).size());
+        assertEquals(1, server.countRequests("GetLinks.do"));
+
+        // The dropped day is fetched again
+        getLinks();
+        assertEquals(2, server.countRequests("GetLinks.do"));
+        assertTrue(server.getRequests().contains("GetLinks.do?limit=100&afterDate=2007-05-01&beforeDate=2007-05-03"));
+    }
+
+    public void testDeletedLinkOnFirstDayDropsRange() {
+        server.respond("DeleteLink.do", StubServer.STATUS_SUCCESS);
+        getLinks();
+
+        simpy.deleteLink("http://example.org/");
+        getLinks();
+        assertEquals(2, server.countRequests("GetLinks.do"));
+    }
+
+    public void testLinksOutsideRangeKeepRange() {
+        server.respond("SaveLink.do", StubServer.STATUS_SUCCESS);
+        server.respond("DeleteLink.do", StubServer.STATUS_SUCCESS);
+        getLinks();
+
+        simpy.saveLink("New", "http://example.net/", 1, "java", null, null);
+        simpy.deleteLink("http://example.net/old");
+        assertEquals(2, getLinks().size());
+        assertEquals(1, server.countRequests("GetLinks.do"));
+    }
+
+    public void testFailedDeleteKeepsRange() {
+        server.respond("DeleteLink.do", StubServer.STATUS_STORAGE_ERROR);
+        getLinks();
+
+        simpy.deleteLink("http://example.org/");
+        getLinks();
+        assertEquals(1, server.countRequests("GetLinks.do"));
+    }
+
+    public void testTagCallDropsRange() {
+        server.respond("RemoveTag.do", StubServer.STATUS_SUCCESS);
+        getLinks();
+
+        simpy.removeTag("java");
+        getLinks();
+        assertEquals(2, server.countRequests("GetLinks.do"));
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.TagDictionary;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link Simpy#setCompactTags(boolean)}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SimpyCompactTagsTest extends TestCase {
+
+    private static final String TAGS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<tags>"
+            + "<tag name=\"xml\" count=\"1\"/><tag name=\"java\" count=\"3\"/></tags>";
+
+    private static final String LINKS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>"
+            + "<link accessType=\"1\"><url>http://example.com/</url>"
+            + "<modDate>2007-05-01T10:00:00Z</modDate><addDate>2007-05-01</addDate>"
+            + "<title>Example</title><nickname/><note/><tags><tag>java</tag><tag>rss</tag></tags></link>"
+            + "</links>";
+
+    private static final String NOTES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<notes>"
+            + "<note accessType=\"1\"><id>42</id><uri>http://www.simpy.com/simpy/NoteDetails.do?noteId=42</uri>"
+            + "<modDate>2007-05-16T01:02:03Z</modDate><addDate>2007-05-16</addDate><title>Title</title>"
+            + "<tags><tag>xml</tag></tags><description>Description</description></note>"
+            + "</notes>";
+
+    private StubServer server;
+    private Simpy simpy;
+
+    protected void setUp() throws Exception {
+        server = new StubServer();
+        simpy = server.createSimpy();
+        server.respond("GetTags.do", TAGS);
+        server.respond("GetLinks.do", LINKS);
+        server.respond("GetNotes.do", NOTES);
+    }
+
+    protected void tearDown() throws Exception {
+        simpy.shutdown();
+        server.stop();
+    }
+
+    private void assertCompact(Link link) {
+        TagDictionary dictionary = simpy.getTagDictionary();
+        assertTrue(Arrays.equals(new int[]{dictionary.getId("java"), dictionary.getId("rss")}, link.getTagIds()));
+        assertEquals(Arrays.asList(new String[]{"java", "rss"}), link.getTags());
+    }
+
+    public void testTagNamesByDefault() {
+        assertFalse(simpy.isCompactTags());
+
+        Link link = (Link) simpy.getLinks(null, null, null, null).get(0);
+        assertNull(link.getTagIds());
+        assertEquals(Arrays.asList(new String[]{"java", "rss"}), link.getTags());
+    }
+
+    public void testGetTagsSeedsDictionary() {
+        simpy.getTags();
+
+        TagDictionary dictionary = simpy.getTagDictionary();
+        assertEquals(0, dictionary.getId("xml"));
+        assertEquals(1, dictionary.getId("java"));
+    }
+
+    public void testCompactLinksAndNotes() {
+        simpy.setCompactTags(true);
+        assertCompact((Link) simpy.getLinks(null, null, null, null).get(0));
+
+        Note note = (Note) simpy.getNotes(null).get(0);
+        assertTrue(Arrays.equals(new int[]{simpy.getTagDictionary().getId("xml")}, note.getTagIds()));
+    }
+
+    public void testCompactLinksFromHandlerAndBufferedParsers() {
+        simpy.setCompactTags(true);
+
+        final List links = new ArrayList();
+        simpy.getLinks(null, null, null, null, 10, new SimpyHandlerAdapter() {
+            public boolean onLink(Link link) {
+                links.add(link);
+                return true;
+            }
+        });
+        assertCompact((Link) links.get(0));
+
+        simpy.setFastParsing(true);
+        assertCompact((Link) simpy.getLinks("fast", null, null, null).get(0));
+
+        simpy.setLazyResults(true);
+        assertCompact((Link) simpy.getLinks("lazy", null, null, null).get(0));
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Topic;
+import com.simpy.api.rest.client.beans.Watchlist;
+import junit.framework.TestCase;
+import org.apache.commons.httpclient.HttpStatus;
+
+import java.util.List;
+
+/**
+ * Tests for {@link Simpy#getAllTopicsDetailed(int)} and {@link Simpy#getAllWatchlistsDetailed(int)}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SimpyDetailedTest extends TestCase {
+
+    private static final int TOPICS = 6;
+
+    private StubServer server;
+    private Simpy simpy;
+
+    protected void setUp() throws Exception {
+        server = new StubServer();
+        simpy = server.createSimpy();
+
+        StringBuffer topics = new StringBuffer("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<topics>");
+        for (int i = 1; i <= TOPICS; i++) {
+            topics.append("<topic id=\"").append(i).append("\" newLinks=\"0\" name=\"Topic ").append(i).append("\"/>");
+            server.respond("GetTopic.do?topicId=" + i, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<topic id=\"" + i
+                    + "\" newLinks=\"0\" name=\"Topic " + i + "\" description=\"Details " + i + "\"><user username=\"bob\"/></topic>");
+        }
+        server.respond("GetTopics.do", topics.append("</topics>").toString());
+
+        server.respond("GetWatchlists.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<watchlists>"
+                + "<watchlist id=\"5\" newLinks=\"0\" name=\"W\"/><watchlist id=\"6\" newLinks=\"0\" name=\"W2\"/></watchlists>");
+        server.respond("GetWatchlist.do?watchlistId=5", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<watchlist id=\"5\" newLinks=\"0\" name=\"W\" description=\"Details\"><filter name=\"f\" query=\"q\"/></watchlist>");
+        server.respond("GetWatchlist.do?watchlistId=6", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<watchlist id=\"6\" newLinks=\"0\" name=\"W2\" description=\"Details 2\"/>");
+    }
+
+    protected void tearDown() throws Exception {
+        simpy.shutdown();
+        server.stop();
+    }
+
+    private static String description(List results, int index) {
+        return ((Topic) results.get(index)).getDescription();
+    }
+
+    public void testTopicsInListedOrder() {
+        List topics = simpy.getAllTopicsDetailed(3);
+
+        assertEquals(TOPICS, topics.size());
+        for (int i = 0; i < TOPICS; i++) {
+            assertEquals(i + 1, ((Topic) topics.get(i)).getId());
+            assertEquals("Details " + (i + 1), description(topics, i));
+            assertEquals(1, ((Topic) topics.get(i)).getUsers().size());
+        }
+        assertEquals(HttpStatus.SC_OK, simpy.getHttpResult());
+        assertEquals(SimpyConstants.STATUS_CODE_SUCCESS, simpy.getReadStatus());
+        assertEquals(1, server.countRequests("GetTopics.do"));
+        assertEquals(TOPICS, server.countRequests("GetTopic.do"));
+    }
+
+    public void testWatchlists() {
+        List watchlists = simpy.getAllWatchlistsDetailed();
+
+        assertEquals(2, watchlists.size());
+        assertEquals("Details", ((Watchlist) watchlists.get(0)).getDescription());
+        assertEquals(1, ((Watchlist) watchlists.get(0)).getFilters().size());
+        assertEquals("Details 2", ((Watchlist) watchlists.get(1)).getDescription());
+    }
+
+    public void testSingleConnection() throws Exception {
+        Simpy single = new Simpy("username", "password", server.createConnectionManager()) {
+            public boolean isThreadsafe() {
+                return false;
+            }
+        };
+        try {
+            assertEquals(TOPICS, single.getAllTopicsDetailed(4).size());
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    public void testFailedDetailsKeepSummary() {
+        server.respond("GetTopic.do?topicId=2", HttpStatus.SC_SERVICE_UNAVAILABLE);
+        server.respond("GetTopic.do?topicId=4", StubServer.status(SimpyConstants.STATUS_CODE_RETRIEVAL_ERROR, "Retrieval error"));
+
+        List topics = simpy.getAllTopicsDetailed(2);
+        assertEquals(TOPICS, topics.size());
+        assertNull(description(topics, 1));
+        assertNull(description(topics, 3));
+        assertEquals("Details 3", description(topics, 2));
+        assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, simpy.getHttpResult());
+        assertEquals(SimpyConstants.STATUS_CODE_RETRIEVAL_ERROR, simpy.getReadStatus());
+    }
+
+    public void testDetailsThatBrokeOffKeepSummary() {
+        server.respond("GetTopic.do?topicId=5", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<topic id=\"5\" na");
+
+        List topics = simpy.getAllTopicsDetailed(2);
+        assertEquals(TOPICS, topics.size());
+        assertEquals("Topic 5", ((Topic) topics.get(4)).getName());
+        assertNull(description(topics, 4));
+        assertEquals(HttpStatus.SC_OK, simpy.getHttpResult());
+        assertEquals(SimpyConstants.READ_STATUS_INCOMPLETE, simpy.getReadStatus());
+    }
+
+    public void testNonExistentTopicIsLeftOut() {
+        server.respond("GetTopic.do?topicId=3", StubServer.STATUS_NON_EXISTENT);
+
+        List topics = simpy.getAllTopicsDetailed(2);
+        assertEquals(TOPICS - 1, topics.size());
+        assertEquals(4, ((Topic) topics.get(2)).getId());
+        assertEquals(HttpStatus.SC_OK, simpy.getHttpResult());
+        assertEquals(SimpyConstants.STATUS_CODE_SUCCESS, simpy.getReadStatus());
+    }
+
+    public void testFailedListing() {
+        server.respond("GetTopics.do", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+
+        assertEquals(0, simpy.getAllTopicsDetailed().size());
+        assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, simpy.getHttpResult());
+        assertEquals(0, server.countRequests("GetTopic.do"));
+    }
+
+    public void testListingThatBrokeOffIsReturnedWithoutDetails() {
+        server.respond("GetTopics.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<topics><topic id=\"1\" newLinks=\"0\" name=\"Topic 1\"/><topic id=\"2\" na");
+
+        List topics = simpy.getAllTopicsDetailed();
+        assertEquals(1, topics.size());
+        assertNull(description(topics, 0));
+        assertEquals(SimpyConstants.READ_STATUS_INCOMPLETE, simpy.getReadStatus());
+        assertEquals(0, server.countRequests("GetTopic.do"));
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import junit.framework.TestCase;
+import org.apache.commons.httpclient.HttpConnectionManager;
+import org.apache.commons.httpclient.HttpStatus;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the threadsafe, connection pooled {@link Simpy} constructors
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SimpyPoolingTest extends TestCase {
+
+    private static final String LINKS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<links><link accessType=\"1\"><url>http://example.com/</url>"
+            + "<modDate>2007-05-01T10:00:00Z</modDate><addDate>2007-05-01</addDate>"
+            + "<title>Example</title><nickname/><note/><tags><tag>java</tag></tags></link></links>";
+
+    private StubServer server;
+
+    protected void setUp() throws Exception {
+        server = new StubServer();
+    }
+
+    protected void tearDown() throws Exception {
+        server.stop();
+    }
+
+    public void testConnectionLimitsMustBePositive() {
+        try {
+            new Simpy("username", "password", 0, 4);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        try {
+            new Simpy("username", "password", 2, 0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    public void testSharedConnectionManagerIsRequired() {
+        try {
+            new Simpy("username", "password", (HttpConnectionManager) null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    public void testOwnedPoolShutsDown() {
+        Simpy simpy = new Simpy("username", "password", 2, 4);
+        simpy.shutdown();
+        simpy.shutdown();
+    }
+
+    public void testHttpResultIsRecordedPerThread() throws Exception {
+        server.respond("GetLinks.do", LINKS);
+        server.respond("GetNotes.do", HttpStatus.SC_SERVICE_UNAVAILABLE);
+
+        final Simpy simpy = server.createSimpy();
+        final CountDownLatch bothCalled = new CountDownLatch(2);
+        final int[] results = new int[2];
+        final List[] lists = new List[2];
+
+        Thread linksThread = new Thread(new Runnable() {
+            public void run() {
+                lists[0] = simpy.getLinks(null, null, null, null);
+                bothCalled.countDown();
+                await(bothCalled);
+                results[0] = simpy.getHttpResult();
+            }
+        });
+        Thread notesThread = new Thread(new Runnable() {
+            public void run() {
+                lists[1] = simpy.getNotes(null);
+                bothCalled.countDown();
+                await(bothCalled);
+                results[1] = simpy.getHttpResult();
+            }
+        });
+
+        linksThread.start();
+        notesThread.start();
+        linksThread.join(10000);
+        notesThread.join(10000);
+
+        assertEquals(HttpStatus.SC_OK, results[0]);
+        assertEquals(1, lists[0].size());
+        assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, results[1]);
+        assertEquals(0, lists[1].size());
+
+        // Nothing was called on this thread
+        assertEquals(0, simpy.getHttpResult());
+    }
+
+    public void testConcurrentCallsShareThePool() throws Exception {
+        server.respond("GetLinks.do", LINKS);
+
+        final Simpy simpy = server.createSimpy();
+        final int[] sizes = new int[8];
+        final int[] results = new int[sizes.length];
+        Thread[] threads = new Thread[sizes.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    // Distinct queries so that no calls are coalesced
+                    sizes[index] = simpy.getLinks("query" + index, null, null, null).size();
+                    results[index] = simpy.getHttpResult();
+                }
+            });
+            threads[i].start();
+        }
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join(10000);
+            assertEquals(1, sizes[i]);
+            assertEquals(HttpStatus.SC_OK, results[i]);
+        }
+        assertEquals(sizes.length, server.countRequests("GetLinks.do"));
+    }
+
+    public void testShutdownLeavesSharedPoolOpen() {
+        server.respond("GetLinks.do", LINKS);
+
+        HttpConnectionManager connectionManager = server.createConnectionManager();
+        Simpy first = new Simpy("username", "password", connectionManager);
+        Simpy second = new Simpy("username", "password", connectionManager);
+
+        assertEquals(1, first.getLinks(null, null, null, null).size());
+        first.shutdown();
+
+        assertEquals(1, second.getLinks(null, null, null, null).size());
+        assertEquals(HttpStatus.SC_OK, second.getHttpResult());
+    }
+
+    /**
+     * Wait for a latch, giving up after a few seconds
+     *
+     * @param latch {@link CountDownLatch}
+     */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import junit.framework.TestCase;
+import org.apache.commons.httpclient.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link Simpy#getReadStatus()}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SimpyReadStatusTest extends TestCase {
+
+    private static final String LINK = "<link accessType=\"1\"><url>http://example.com/</url>"
+            + "<modDate>2007-05-01T10:00:00Z</modDate><addDate>2007-05-01</addDate>"
+            + "<title>Example</title><nickname/><note/><tags><tag>java</tag></tags></link>";
+
+    private static final String LINKS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>" + LINK + "</links>";
+
+    private static final String TRUNCATED_LINKS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>" + LINK
+            + "<link accessType=\"1\"><url>http://example.org/</url><modDate>2007-";
+
+    private StubServer server;
+    private Simpy simpy;
+
+    protected void setUp() throws Exception {
+        server = new StubServer();
+        simpy = server.createSimpy();
+    }
+
+    protected void tearDown() throws Exception {
+        simpy.shutdown();
+        server.stop();
+    }
+
+    public void testCompleteResponse() {
+        server.respond("GetLinks.do", LINKS);
+
+        assertEquals(1, simpy.getLinks(null, null, null, null).size());
+        assertEquals(HttpStatus.SC_OK, simpy.getHttpResult());
+        assertEquals(SimpyConstants.STATUS_CODE_SUCCESS, simpy.getReadStatus());
+    }
+
+    public void testStatusDocumentInsteadOfResults() {
+        server.respond("GetLinks.do", StubServer.status(SimpyConstants.STATUS_CODE_RETRIEVAL_ERROR, "Retrieval error"));
+
+        assertEquals(0, simpy.getLinks(null, null, null, null).size());
+        assertEquals(HttpStatus.SC_OK, simpy.getHttpResult());
+        assertEquals(SimpyConstants.STATUS_CODE_RETRIEVAL_ERROR, simpy.getReadStatus());
+    }
+
+    public void testTruncatedResponseKeepsLinksReadSoFar() {
+        server.respond("GetLinks.do", TRUNCATED_LINKS);
+
+        List links = simpy.getLinks(null, null, null, null);
+        assertEquals(1, links.size());
+        assertEquals("http://example.com/", ((Link) links.get(0)).getUrl());
+        assertEquals(HttpStatus.SC_OK, simpy.getHttpResult());
+        assertEquals(SimpyConstants.READ_STATUS_INCOMPLETE, simpy.getReadStatus());
+
+        // The next complete read clears the failure
+        server.respond("GetLinks.do", LINKS);
+        simpy.getLinks(null, null, null, null);
+        assertEquals(SimpyConstants.STATUS_CODE_SUCCESS, simpy.getReadStatus());
+    }
+
+    public void testTruncatedResponseWithBufferedParsers() {
+        server.respond("GetLinks.do", TRUNCATED_LINKS);
+        simpy.setFastParsing(true);
+        simpy.setLazyResults(true);
+        simpy.setParallelParsing(true);
+
+        simpy.getLinks(null, null, null, null);
+        assertEquals(HttpStatus.SC_OK, simpy.getHttpResult());
+        assertEquals(SimpyConstants.READ_STATUS_INCOMPLETE, simpy.getReadStatus());
+    }
+
+    public void testTruncatedResponseStopsHandler() {
+        server.respond("GetLinks.do", TRUNCATED_LINKS);
+
+        final List links = new ArrayList();
+        boolean completed = simpy.getLinks(null, null, null, null, 10, new SimpyHandlerAdapter() {
+            public boolean onLink(Link link) {
+                links.add(link);
+                return true;
+            }
+        });
+
+        assertFalse(completed);
+        assertEquals(1, links.size());
+        assertEquals(SimpyConstants.READ_STATUS_INCOMPLETE, simpy.getReadStatus());
+    }
+
+    public void testTruncatedTags() {
+        server.respond("GetTags.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<tags><tag name=\"java\" count=\"3\"/><tag name=\"bl");
+
+        simpy.getTags();
+        assertEquals(HttpStatus.SC_OK, simpy.getHttpResult());
+        assertEquals(SimpyConstants.READ_STATUS_INCOMPLETE, simpy.getReadStatus());
+    }
+
+    public void testMissingTopic() {
+        server.respond("GetTopic.do", StubServer.STATUS_NON_EXISTENT);
+
+        assertNull(simpy.getTopic(42));
+        assertEquals(HttpStatus.SC_OK, simpy.getHttpResult());
+        assertEquals(SimpyConstants.STATUS_CODE_NON_EXISTENT_ENTITY, simpy.getReadStatus());
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.Tag;
+import com.simpy.api.rest.client.beans.Topic;
+import com.simpy.api.rest.client.beans.User;
+import com.simpy.api.rest.client.beans.Watchlist;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link SimpyResponseParser}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SimpyResponseParserTest extends TestCase {
+
+    static final String LINKS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!DOCTYPE links SYSTEM \"GetLinks.dtd\">\n"
+            + "<links>\n"
+            + "  <link accessType=\"1\">\n"
+            + "    <url>http://blojsom.sf.net/?a=1&amp;b=2</url>\n"
+            + "    <modDate>2006-08-09T10:11:12Z</modDate>\n"
+            + "    <addDate>2006-08-09</addDate>\n"
+            + "    <title>blojsom &lt;blog&gt; \u3053\u308c\u306f</title>\n"
+            + "    <nickname></nickname>\n"
+            + "    <note>A note</note>\n"
+            + "    <extra><deep>ignored</deep></extra>\n"
+            + "    <tags><tag>java</tag><tag>blog</tag><tag></tag></tags>\n"
+            + "  </link>\n"
+            + "  <link accessType=\"0\">\n"
+            + "    <url>http://example.com/</url>\n"
+            + "    <addDate>2005-01-02</addDate>\n"
+            + "    <title><![CDATA[Example & co]]></title>\n"
+            + "    <nickname>ex</nickname>\n"
+            + "    <note/>\n"
+            + "    <tags/>\n"
+            + "  </link>\n"
+            + "</links>\n";
+
+    static final String NOTES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<notes>\n"
+            + "  <note accessType=\"1\">\n"
+            + "    <id>42</id>\n"
+            + "    <uri>http://www.simpy.com/simpy/NoteDetails.do?noteId=42</uri>\n"
+            + "    <modDate>2007-05-16T01:02:03Z</modDate>\n"
+            + "    <addDate>2007-05-16</addDate>\n"
+            + "    <title>Title</title>\n"
+            + "    <tags><tag>one</tag><tag>two</tag></tags>\n"
+            + "    <description>I\u00f1t\u00ebrn\u00e2ti\u00f4n\u00e0liz\u00e6ti\u00f8n</description>\n"
+            + "  </note>\n"
+            + "  <note accessType=\"0\"/>\n"
+            + "</notes>\n";
+
+    static final String TOPICS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<topics>\n"
+            + "  <topic id=\"7\" name=\"Java\" description=\"All java\" addDate=\"2006-01-01\" newLinks=\"3\">\n"
+            + "    <user username=\"bob\"/>\n"
+            + "    <user username=\"alice\"/>\n"
+            + "    <filter name=\"f\" query=\"java AND blog\"/>\n"
+            + "  </topic>\n"
+            + "</topics>\n";
+
+    static final String WATCHLISTS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<watchlists>\n"
+            + "  <watchlist id=\"5\" name=\"W\" description=\"d\" addDate=\"2006-02-02\" newLinks=\"1\">\n"
+            + "    <user username=\"bob\"/>\n"
+            + "    <filter name=\"f\" query=\"q\"/>\n"
+            + "  </watchlist>\n"
+            + "  <watchlist id=\"6\" name=\"W2\" description=\"d2\" addDate=\"2006-02-03\" newLinks=\"0\">\n"
+            + "  </watchlist>\n"
+            + "</watchlists>\n";
+
+    static InputStream stream(String xml) throws UnsupportedEncodingException {
+        return new ByteArrayInputStream(xml.getBytes(SimpyConstants.UTF8));
+    }
+
+    public void testParseLinks() throws Exception {
+        List links = new ArrayList();
+        assertTrue(SimpyResponseParser.parse(stream(LINKS), SimpyConstants.LINK_TAG, SimpyResponseParser.collectInto(links)));
+        assertEquals(2, links.size());
+
+        Link first = (Link) links.get(0);
+        assertEquals("1", first.getAccessType());
+        assertEquals("http://blojsom.sf.net/?a=1&b=2", first.getUrl());
+        assertEquals("2006-08-09T10:11:12Z", first.getModDate());
+        assertEquals("2006-08-09", first.getAddDate());
+        assertEquals("blojsom <blog> \u3053\u308c\u306f", first.getTitle());
+        assertEquals("A note", first.getNote());
+        assertEquals(2, first.getTags().size());
+        assertEquals("java", first.getTags().get(0));
+        assertEquals("blog", first.getTags().get(1));
+
+        Link second = (Link) links.get(1);
+        assertEquals("0", second.getAccessType());
+        assertEquals("Example & co", second.getTitle());
+        assertEquals("ex", second.getNickname());
+        assertEquals(0, second.getTags().size());
+    }
+
+    public void testHandlerStopsParse() throws Exception {
+        final List links = new ArrayList();
+        boolean completed = SimpyResponseParser.parse(stream(LINKS), SimpyConstants.LINK_TAG, new SimpyHandlerAdapter() {
+            public boolean onLink(Link link) {
+                links.add(link);
+                return false;
+            }
+        });
+
+        assertFalse(completed);
+        assertEquals(1, links.size());
+    }
+
+    public void testParseNotesSkipsEmptyNotes() throws Exception {
+        List notes = new ArrayList();
+        SimpyResponseParser.parse(stream(NOTES), SimpyConstants.NOTE_TAG, SimpyResponseParser.collectInto(notes));
+        assertEquals(1, notes.size());
+
+        Note note = (Note) notes.get(0);
+        assertEquals("42", note.getId());
+        assertEquals("Title", note.getTitle());
+        assertEquals("I\u00f1t\u00ebrn\u00e2ti\u00f4n\u00e0liz\u00e6ti\u00f8n", note.getDescription());
+        assertEquals(2, note.getTags().size());
+    }
+
+    public void testParseTags() throws Exception {
+        List tags = new ArrayList();
+        SimpyResponseParser.parseTags(stream("<tags><tag name=\"java\" count=\"12\"/><tag name=\"blog\" count=\"3\"/></tags>"), tags);
+        assertEquals(2, tags.size());
+        assertEquals("java", ((Tag) tags.get(0)).getTag());
+        assertEquals(12, ((Tag) tags.get(0)).getCount());
+        assertEquals(3, ((Tag) tags.get(1)).getCount());
+    }
+
+    public void testParseTopics() throws Exception {
+        List topics = new ArrayList();
+        SimpyResponseParser.parseTopics(stream(TOPICS), topics);
+        assertEquals(1, topics.size());
+
+        Topic topic = (Topic) topics.get(0);
+        assertEquals(7, topic.getId());
+        assertEquals("Java", topic.getName());
+        assertEquals(3, topic.getNewLinks());
+        assertEquals(2, topic.getUsers().size());
+        assertEquals("alice", ((User) topic.getUsers().get(1)).getUsername());
+        assertEquals("java AND blog", topic.getFilter().getQuery());
+    }
+
+    public void testParseWatchlists() throws Exception {
+        List watchlists = new ArrayList();
+        SimpyResponseParser.parseWatchlists(stream(WATCHLISTS), watchlists);
+        assertEquals(2, watchlists.size());
+
+        Watchlist watchlist = (Watchlist) watchlists.get(0);
+        assertEquals(5, watchlist.getId());
+        assertEquals(1, watchlist.getUsers().size());
+        assertEquals(1, watchlist.getFilters().size());
+        assertEquals(6, ((Watchlist) watchlists.get(1)).getId());
+    }
+
+    public void testParseStatus() throws Exception {
+        assertEquals(0, SimpyResponseParser.parseStatus(stream("<status><code>0</code><message>Link saved.</message></status>")));
+        assertEquals(SimpyConstants.STATUS_CODE_NON_EXISTENT_ENTITY, SimpyResponseParser.parseStatus(stream("<error><code> 200 </code><message>Entity does not exist.</message></error>")));
+    }
+
+    public void testParseStatusToleratesMissingCode() throws Exception {
+        assertEquals(0, SimpyResponseParser.parseStatus(stream("<status><message>No code</message></status>")));
+        assertEquals(0, SimpyResponseParser.parseStatus(stream("<status><code/></status>")));
+        assertEquals(0, SimpyResponseParser.parseStatus(stream("<status><code>  </code></status>")));
+        assertEquals(0, SimpyResponseParser.parseStatus(stream("<status><code>n/a</code></status>")));
+    }
+}
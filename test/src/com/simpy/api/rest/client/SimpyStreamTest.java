@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import junit.framework.TestCase;
+import org.apache.commons.httpclient.HttpStatus;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests for {@link Simpy#streamAllLinks(String, String, String, String)},
+ * {@link Simpy#streamAllNotes(String)} and {@link ResponseIterator}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SimpyStreamTest extends TestCase {
+
+    private static String link(String url) {
+        return "<link accessType=\"1\"><url>" + url + "</url>"
+                + "<modDate>2007-05-01T10:00:00Z</modDate><addDate>2007-05-01</addDate>"
+                + "<title>Example</title><nickname/><note/><tags><tag>java</tag></tags></link>";
+    }
+
+    private static final String LINKS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>"
+            + link("http://example.com/a") + link("http://example.com/b") + link("http://example.com/c") + "</links>";
+
+    private static final String NOTES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<notes>"
+            + "<note accessType=\"1\"><id>42</id><uri>http://www.simpy.com/simpy/NoteDetails.do?noteId=42</uri>"
+            + "<modDate>2007-05-16T01:02:03Z</modDate><addDate>2007-05-16</addDate><title>Title</title>"
+            + "<tags><tag>one</tag></tags><description>Description</description></note>"
+            + "</notes>";
+
+    private StubServer server;
+    private Simpy simpy;
+
+    protected void setUp() throws Exception {
+        server = new StubServer();
+        simpy = server.createSimpy();
+    }
+
+    protected void tearDown() throws Exception {
+        simpy.shutdown();
+        server.stop();
+    }
+
+    private static List urls(Stream links) {
+        return (List) links.map(new Function() {
+            public Object apply(Object link) {
+                return ((Link) link).getUrl();
+            }
+        }).collect(Collectors.toList());
+    }
+
+    public void testStreamAllLinks() {
+        server.respond("GetLinks.do", LINKS);
+
+        Stream<Link> links = simpy.streamAllLinks(null, null, null, null);
+        try {
+            assertEquals(3, urls(links).size());
+        } finally {
+            links.close();
+        }
+        assertEquals(1, server.countRequests("GetLinks.do"));
+    }
+
+    public void testStreamAllNotes() {
+        server.respond("GetNotes.do", NOTES);
+
+        Stream<Note> notes = simpy.streamAllNotes(null);
+        try {
+            Iterator iterator = notes.iterator();
+            Note note = (Note) iterator.next();
+            assertEquals("42", note.getId());
+            assertEquals("one", note.getTags().get(0));
+            assertFalse(iterator.hasNext());
+        } finally {
+            notes.close();
+        }
+    }
+
+    public void testHttpFailureThrowsWhenOpened() {
+        server.respond("GetLinks.do", HttpStatus.SC_INTERNAL_SERVER_ERROR);
+
+        try {
+            simpy.streamAllLinks(null, null, null, null);
+            fail("Expected SimpyException");
+        } catch (SimpyException e) {
+            assertEquals(HttpStatus.SC_INTERNAL_SERVER_ERROR, e.getHttpResult());
+        }
+    }
+
+    public void testResponseThatBreaksOffThrowsWhileConsumed() {
+        server.respond("GetLinks.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>"
+                + link("http://example.com/a") + "<link accessType=\"1\"><url>http://exa");
+
+        Stream<Link> links = simpy.streamAllLinks(null, null, null, null);
+        Iterator iterator = links.iterator();
+        try {
+            assertEquals("http://example.com/a", ((Link) iterator.next()).getUrl());
+            iterator.hasNext();
+            fail("Expected SimpyException");
+        } catch (SimpyException e) {
+            assertEquals(HttpStatus.SC_OK, e.getHttpResult());
+        } finally {
+            links.close();
+        }
+    }
+
+    public void testClosingEarlyReleasesTheConnection() {
+        server.respond("GetLinks.do", LINKS);
+
+        for (int i = 0; i < 5; i++) {
+            Stream<Link> links = simpy.streamAllLinks(null, null, null, null);
+            try {
+                assertEquals("http://example.com/a", ((Link) links.iterator().next()).getUrl());
+            } finally {
+                links.close();
+            }
+        }
+        assertEquals(5, server.countRequests("GetLinks.do"));
+    }
+
+    public void testCompactTags() {
+        server.respond("GetLinks.do", LINKS);
+        simpy.setCompactTags(true);
+
+        Stream<Link> links = simpy.streamAllLinks(null, null, null, null);
+        try {
+            Link link = (Link) links.iterator().next();
+            assertNotNull(link.getTagIds());
+            assertEquals("java", link.getTags().get(0));
+        } finally {
+            links.close();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import junit.framework.TestCase;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Tests for the date codec in {@link SimpyUtils}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SimpyUtilsTest extends TestCase {
+
+    private static long utc(int year, int month, int day, int hour, int minute, int second) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+
+        return calendar.getTimeInMillis();
+    }
+
+    private static long parseBytes(String text) throws Exception {
+        byte[] buf = ("xx" + text + "yy").getBytes(SimpyConstants.UTF8);
+
+        return SimpyUtils.parseDate(buf, 2, buf.length - 2);
+    }
+
+    public void testParseDay() throws Exception {
+        assertEquals(0L, SimpyUtils.parseDate("1970-01-01"));
+        assertEquals(utc(2006, 8, 9, 0, 0, 0), SimpyUtils.parseDate("2006-08-09"));
+        assertEquals(utc(2006, 8, 9, 0, 0, 0), parseBytes("2006-08-09"));
+    }
+
+    public void testParseTimestamp() throws Exception {
+        assertEquals(utc(2006, 8, 9, 10, 11, 12), SimpyUtils.parseDate("2006-08-09T10:11:12Z"));
+        assertEquals(utc(2006, 8, 9, 10, 11, 12), parseBytes("2006-08-09T10:11:12Z"));
+        assertEquals(utc(1969, 12, 31, 23, 59, 59), SimpyUtils.parseDate("1969-12-31T23:59:59Z"));
+    }
+
+    public void testLeapDays() throws Exception {
+        assertEquals(utc(2004, 2, 29, 0, 0, 0), SimpyUtils.parseDate("2004-02-29"));
+        assertEquals(utc(2000, 2, 29, 0, 0, 0), SimpyUtils.parseDate("2000-02-29"));
+        assertEquals(SimpyConstants.UNKNOWN_DATE, SimpyUtils.parseDate("1900-02-29"));
+        assertEquals(SimpyConstants.UNKNOWN_DATE, SimpyUtils.parseDate("2007-02-29"));
+    }
+
+    public void testInvalidDates() throws Exception {
+        assertEquals(SimpyConstants.UNKNOWN_DATE, SimpyUtils.parseDate((CharSequence) null));
+        assertEquals(SimpyConstants.UNKNOWN_DATE, SimpyUtils.parseDate(""));
+        assertEquals(SimpyConstants.UNKNOWN_DATE, SimpyUtils.parseDate("2006-8-9"));
+        assertEquals(SimpyConstants.UNKNOWN_DATE, SimpyUtils.parseDate("2006/08/09"));
+        assertEquals(SimpyConstants.UNKNOWN_DATE, SimpyUtils.parseDate("2006-13-01"));
+        assertEquals(SimpyConstants.UNKNOWN_DATE, SimpyUtils.parseDate("2006-04-31"));
+        assertEquals(SimpyConstants.UNKNOWN_DATE, SimpyUtils.parseDate("2006-08-09T24:00:00Z"));
+        assertEquals(SimpyConstants.UNKNOWN_DATE, SimpyUtils.parseDate("2006-08-09 10:11:12Z"));
+        assertEquals(SimpyConstants.UNKNOWN_DATE, SimpyUtils.parseDate("2006-08-09T10:11:12+"));
+        assertEquals(SimpyConstants.UNKNOWN_DATE, parseBytes("20a6-08-09"));
+    }
+
+    public void testFormatDate() {
+        assertEquals("1970-01-01", SimpyUtils.formatDate(0));
+        assertEquals("2006-08-09", SimpyUtils.formatDate(utc(2006, 8, 9, 23, 59, 59)));
+        assertEquals("1969-12-31", SimpyUtils.formatDate(-1));
+        assertEquals("2000-02-29", SimpyUtils.formatDate(utc(2000, 2, 29, 12, 0, 0)));
+        assertEquals("0099-03-01", SimpyUtils.formatDate(SimpyUtils.parseDate("0099-03-01")));
+    }
+
+    public void testFormatIsInverseOfParse() {
+        long day = 24L * 60 * 60 * 1000;
+        for (long millis = utc(1999, 1, 1, 0, 0, 0); millis < utc(2009, 1, 1, 0, 0, 0); millis += day) {
+            assertEquals(millis, SimpyUtils.parseDate(SimpyUtils.formatDate(millis)));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link SingleFlight}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SingleFlightTest extends TestCase {
+
+    public void testConcurrentCallersShareOneCall() throws Exception {
+        final SingleFlight singleFlight = new SingleFlight();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Object[] results = new Object[4];
+
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    results[index] = singleFlight.execute("key", new Callable() {
+                        public Object call() throws Exception {
+                            calls.incrementAndGet();
+                            started.countDown();
+                            release.await();
+                            return "result";
+                        }
+                    });
+                }
+            });
+        }
+
+        threads[0].start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < threads.length; i++) {
+            threads[i].start();
+        }
+
+        // Wait until the other callers are blocked on the running call
+        long deadline = System.currentTimeMillis() + 5000;
+        for (int i = 1; i < threads.length; i++) {
+            while (threads[i].getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+
+        release.countDown();
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join(5000);
+            assertEquals("result", results[i]);
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(0, singleFlight.size());
+    }
+
+    public void testSequentialCallsRunAgain() {
+        SingleFlight singleFlight = new SingleFlight();
+        final AtomicInteger calls = new AtomicInteger();
+        Callable loader = new Callable() {
+            public Object call() {
+                return Integer.valueOf(calls.incrementAndGet());
+            }
+        };
+
+        assertEquals(Integer.valueOf(1), singleFlight.execute("key", loader));
+        assertEquals(Integer.valueOf(2), singleFlight.execute("key", loader));
+    }
+
+    public void testUncheckedExceptionIsRethrown() {
+        SingleFlight singleFlight = new SingleFlight();
+        try {
+            singleFlight.execute("key", new Callable() {
+                public Object call() {
+                    throw new IllegalStateException("failed");
+                }
+            });
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+
+        assertEquals(0, singleFlight.size());
+    }
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.HttpConnectionManager;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP server standing in for the Simpy API in tests. Requests are answered by call
+ * name, for example <code>GetLinks.do</code>, or by call name and query string. Clients
+ * created with {@link #createSimpy()} send every request to this server through a proxy
+ * setting on their connection pool.
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class StubServer {
+
+    public static final String STATUS_SUCCESS = status(SimpyConstants.STATUS_CODE_SUCCESS, "Success");
+    public static final String STATUS_NON_EXISTENT = status(SimpyConstants.STATUS_CODE_NON_EXISTENT_ENTITY, "Not found");
+    public static final String STATUS_STORAGE_ERROR = status(SimpyConstants.STATUS_CODE_STORAGE_ERROR, "Storage error");
+
+    private HttpServer server;
+    private Map responses = new HashMap();
+    private List requests = Collections.synchronizedList(new ArrayList());
+    private List connectionManagers = new ArrayList();
+
+    /**
+     * Start a server on a free local port
+     *
+     * @throws IOException If the server cannot be started
+     */
+    public StubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                answer(exchange);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    /**
+     * Build a status document
+     *
+     * @param code    Simpy status code
+     * @param message Status message
+     * @return Status document
+     */
+    public static String status(int code, String message) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<status><code>" + code + "</code><message>" + message + "</message></status>";
+    }
+
+    /**
+     * Answer a call with the given body until another response is set
+     *
+     * @param call Call name, optionally followed by <code>?</code> and the exact query string
+     * @param body Response body
+     */
+    public void respond(String call, String body) {
+        synchronized (responses) {
+            responses.remove(call);
+        }
+        enqueue(call, body);
+    }
+
+    /**
+     * Answer a call with the given HTTP status and no body until another response is set
+     *
+     * @param call       Call name, optionally followed by <code>?</code> and the exact query string
+     * @param httpStatus HTTP status code
+     */
+    public void respond(String call, int httpStatus) {
+        synchronized (responses) {
+            responses.remove(call);
+        }
+        enqueue(call, Integer.valueOf(httpStatus));
+    }
+
+    /**
+     * Queue a response to a call. Queued responses are used in order and the last one is
+     * repeated.
+     *
+     * @param call     Call name, optionally followed by <code>?</code> and the exact query string
+     * @param response Response body or {@link Integer} HTTP status code
+     */
+    public void enqueue(String call, Object response) {
+        synchronized (responses) {
+            LinkedList queue = (LinkedList) responses.get(call);
+            if (queue == null) {
+                queue = new LinkedList();
+                responses.put(call, queue);
+            }
+            queue.add(response);
+        }
+    }
+
+    /**
+     * Return the requests received so far as call name and query string
+     *
+     * @return List of requests
+     */
+    public List getRequests() {
+        synchronized (requests) {
+            return new ArrayList(requests);
+        }
+    }
+
+    /**
+     * Count the requests received so far for a call
+     *
+     * @param call Call name
+     * @return Number of requests
+     */
+    public int countRequests(String call) {
+        int count = 0;
+        List received = getRequests();
+        for (int i = 0; i < received.size(); i++) {
+            String request = (String) received.get(i);
+            if (request.equals(call) || request.startsWith(call + "?")) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Create a connection pool that sends every request to this server
+     *
+     * @return {@link HttpConnectionManager}
+     */
+    public HttpConnectionManager createConnectionManager() {
+        final int port = server.getAddress().getPort();
+        HttpConnectionManager connectionManager = new MultiThreadedHttpConnectionManager() {
+            public HttpConnection getConnectionWithTimeout(HostConfiguration hostConfiguration, long timeout) throws ConnectionPoolTimeoutException {
+                HostConfiguration stubConfiguration = new HostConfiguration(hostConfiguration);
+                stubConfiguration.setProxy("127.0.0.1", port);
+
+                return super.getConnectionWithTimeout(stubConfiguration, timeout);
+            }
+        };
+        synchronized (connectionManagers) {
+            connectionManagers.add(connectionManager);
+        }
+
+        return connectionManager;
+    }
+
+    /**
+     * Create a threadsafe client talking to this server
+     *
+     * @return {@link Simpy}
+     */
+    public Simpy createSimpy() {
+        return new Simpy("username", "password", createConnectionManager());
+    }
+
+    /**
+     * Stop the server and close the connection pools it created
+     */
+    public void stop() {
+        synchronized (connectionManagers) {
+            for (int i = 0; i < connectionManagers.size(); i++) {
+                ((MultiThreadedHttpConnectionManager) connectionManagers.get(i)).shutdown();
+            }
+        }
+        server.stop(0);
+    }
+
+    /**
+     * Answer a request with the response set for its call
+     *
+     * @param exchange {@link HttpExchange}
+     * @throws IOException If there is an error writing the response
+     */
+    private void answer(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getRawQuery();
+        String call = path.substring(path.lastIndexOf('/') + 1);
+        requests.add((query == null) ? call : call + "?" + query);
+
+        Object response = null;
+        synchronized (responses) {
+            LinkedList queue = (LinkedList) responses.get(call + "?" + query);
+            if (queue == null) {
+                queue = (LinkedList) responses.get(call);
+            }
+            if (queue != null) {
+                response = (queue.size() > 1) ? queue.removeFirst() : queue.getFirst();
+            }
+        }
+
+        if (response == null) {
+            response = Integer.valueOf(HttpStatus.SC_NOT_FOUND);
+        }
+
+        if (response instanceof Integer) {
+            exchange.sendResponseHeaders(((Integer) response).intValue(), -1);
+        } else {
+            byte[] body = toBytes((String) response);
+            exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+            exchange.sendResponseHeaders(HttpStatus.SC_OK, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+        exchange.close();
+    }
+
+    /**
+     * Encode a response body as UTF-8
+     *
+     * @param body Response body
+     * @return Bytes
+     */
+    private static byte[] toBytes(String body) {
+        try {
+            return body.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.beans;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link TagDictionary}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class TagDictionaryTest extends TestCase {
+
+    private TagDictionary dictionary;
+
+    protected void setUp() {
+        dictionary = new TagDictionary();
+    }
+
+    public void testIdsInOrderFirstSeen() {
+        assertEquals(0, dictionary.intern("java"));
+        assertEquals(1, dictionary.intern("xml"));
+        assertEquals(0, dictionary.intern("java"));
+        assertEquals(2, dictionary.size());
+
+        assertEquals(1, dictionary.getId("xml"));
+        assertEquals(-1, dictionary.getId("unseen"));
+        assertEquals(-1, dictionary.getId(null));
+        assertEquals(2, dictionary.size());
+    }
+
+    public void testNamesAreShared() {
+        String name = dictionary.internName(new String("java"));
+        assertSame(name, dictionary.internName(new String("java")));
+        assertSame(name, dictionary.getTag(0));
+    }
+
+    public void testUnknownIdsAndNullNames() {
+        try {
+            dictionary.getTag(0);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+
+        try {
+            dictionary.intern(null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testGrowsPastInitialCapacity() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, dictionary.intern("tag" + i));
+        }
+
+        assertEquals(1000, dictionary.size());
+        assertEquals("tag999", dictionary.getTag(999));
+    }
+
+    public void testSeedAndRoundTrip() {
+        dictionary.seed(Arrays.asList(new Tag[]{new Tag("java", 3), new Tag("xml", 1)}));
+        dictionary.seed(null);
+        assertEquals(2, dictionary.size());
+
+        int[] ids = dictionary.toIds(Arrays.asList(new String[]{"xml", "rss", "java"}));
+        assertTrue(Arrays.equals(new int[]{1, 2, 0}, ids));
+        assertEquals(Arrays.asList(new String[]{"xml", "rss", "java"}), dictionary.toNames(ids));
+    }
+
+    public void testCompactLink() {
+        List tags = new ArrayList(Arrays.asList(new String[]{"java", "xml"}));
+        Link link = new Link("1", "http://example.com/", null, null, "Example", null, null, tags);
+
+        dictionary.compact(link);
+        assertTrue(Arrays.equals(new int[]{0, 1}, link.getTagIds()));
+        assertTrue(link.hasTagId(1));
+        assertFalse(link.hasTagId(2));
+        assertEquals(tags, link.getTags());
+
+        // Compacting again keeps the ids
+        int[] ids = link.getTagIds();
+        dictionary.compact(link);
+        assertSame(ids, link.getTagIds());
+
+        link.setTags(Arrays.asList(new String[]{"rss"}));
+        assertNull(link.getTagIds());
+        assertFalse(link.hasTagId(0));
+    }
+
+    public void testCompactNote() {
+        Note note = new Note();
+        note.setTags(Arrays.asList(new String[]{"notes"}));
+
+        dictionary.compact(note);
+        assertTrue(Arrays.equals(new int[]{0}, note.getTagIds()));
+        assertEquals(Arrays.asList(new String[]{"notes"}), note.getTags());
+
+        Note untagged = new Note();
+        dictionary.compact(untagged);
+        assertNull(untagged.getTagIds());
+    }
+
+    public void testTagIdsRequireDictionary() {
+        try {
+            new Link().setTagIds(new int[]{0}, null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.beans.Link;
+import junit.framework.TestCase;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests for {@link BulkDeleter} and {@link Checkpoint}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class BulkDeleterTest extends TestCase {
+
+    private StubSimpy simpy;
+    private BulkDeleter deleter;
+    private File file;
+
+    protected void setUp() throws Exception {
+        simpy = new StubSimpy();
+        simpy.setLinks(new String[]{"http://a/", "http://b/", "http://c/"});
+
+        deleter = new BulkDeleter(simpy, 2, 4);
+        deleter.setMaxRetries(0);
+        deleter.setRetryDelay(1);
+        deleter.setReportInterval(0);
+
+        file = new File(System.getProperty("java.io.tmpdir"), "BulkDeleterTest-" + System.nanoTime() + ".checkpoint");
+        deleter.setCheckpointFile(file);
+    }
+
+    protected void tearDown() throws Exception {
+        simpy.shutdown();
+        file.delete();
+    }
+
+    public void testDeletesQueryResults() throws Exception {
+        BulkProgress progress = deleter.deleteLinks(null, null, null, null);
+
+        assertEquals(3, progress.getSucceeded());
+        assertEquals(0, progress.getFailed());
+        assertEquals(new HashSet(Arrays.asList(new String[]{"http://a/", "http://b/", "http://c/"})), simpy.deleted);
+        assertFalse(file.exists());
+    }
+
+    public void testMissingTargetCountsAsDeleted() throws Exception {
+        simpy.missing.add("http://b/");
+        BulkProgress progress = deleter.deleteLinks(null, null, null, null);
+
+        assertEquals(3, progress.getSucceeded());
+        assertFalse(file.exists());
+    }
+
+    public void testIncompleteTargetsAreNotRecorded() throws Exception {
+        simpy.readStatus = SimpyConstants.STATUS_CODE_RETRIEVAL_ERROR;
+        try {
+            deleter.deleteLinks(null, null, null, null);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        simpy.readStatus = SimpyConstants.READ_STATUS_INCOMPLETE;
+        try {
+            deleter.deleteLinks(null, null, null, null);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        assertTrue(simpy.deleted.isEmpty());
+        Checkpoint checkpoint = new Checkpoint(file, "DeleteLinks q=null date=null afterDate=null beforeDate=null");
+        assertNull(checkpoint.getTargets());
+        checkpoint.close();
+    }
+
+    public void testResumeUsesRecordedTargets() throws Exception {
+        simpy.failing.add("http://b/");
+        BulkProgress progress = deleter.deleteLinks(null, null, null, null);
+        assertEquals(2, progress.getSucceeded());
+        assertEquals(1, progress.getFailed());
+        assertTrue(file.exists());
+
+        // The account changed since; the resumed run deletes only what is left of the first list
+        simpy.failing.clear();
+        simpy.deleted.clear();
+        simpy.listed = 0;
+        simpy.setLinks(new String[]{"http://b/", "http://d/"});
+        progress = deleter.deleteLinks(null, null, null, null);
+
+        assertEquals(1, progress.getSucceeded());
+        assertEquals(Collections.singleton("http://b/"), simpy.deleted);
+        assertEquals(0, simpy.listed);
+        assertFalse(file.exists());
+    }
+
+    public void testOtherOperationIsRefused() throws Exception {
+        simpy.failing.add("http://b/");
+        deleter.deleteLinks("java", null, null, null);
+        assertTrue(file.exists());
+
+        try {
+            deleter.deleteLinks("blog", null, null, null);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    public void testSourceRunIsResumedOnlyWithItsId() throws Exception {
+        simpy.failing.add("http://b/");
+        BulkProgress progress = deleter.deleteLinks(source(), "first");
+        assertEquals(1, progress.getFailed());
+        assertTrue(file.exists());
+
+        try {
+            deleter.deleteLinks(source(), "second");
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        try {
+            deleter.deleteLinks(source());
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        simpy.failing.clear();
+        simpy.deleted.clear();
+        progress = deleter.deleteLinks(source(), "first");
+        assertEquals(1, progress.getSucceeded());
+        assertEquals(Collections.singleton("http://b/"), simpy.deleted);
+        assertFalse(file.exists());
+    }
+
+    public void testSourceWithoutRunIdWritesNoCheckpoint() throws Exception {
+        simpy.failing.add("http://b/");
+        BulkProgress progress = deleter.deleteLinks(source());
+
+        assertEquals(2, progress.getSucceeded());
+        assertFalse(file.exists());
+    }
+
+    public void testDryRun() throws Exception {
+        final List reported = Collections.synchronizedList(new ArrayList());
+        deleter.setListener(new BulkListener() {
+            public void itemCompleted(Object item, int status, int httpResult, int attempts) {
+                reported.add(item);
+            }
+        });
+        deleter.setDryRun(true);
+
+        BulkProgress progress = deleter.deleteLinks(null, null, null, null);
+        assertEquals(3, progress.getSucceeded());
+        assertEquals(3, reported.size());
+        assertTrue(simpy.deleted.isEmpty());
+        assertFalse(file.exists());
+
+        progress = deleter.deleteLinks(source(), "first");
+        assertEquals(3, progress.getSucceeded());
+        assertTrue(simpy.deleted.isEmpty());
+        assertFalse(file.exists());
+    }
+
+    public void testCheckpointRoundTrip() throws Exception {
+        Checkpoint checkpoint = new Checkpoint(file, "operation");
+        assertNull(checkpoint.getTargets());
+        checkpoint.setTargets(Arrays.asList(new String[]{"a", "b"}));
+        checkpoint.markDone("a");
+        checkpoint.markDone("a");
+        checkpoint.close();
+
+        checkpoint = new Checkpoint(file, "operation");
+        assertEquals(Arrays.asList(new String[]{"a", "b"}), checkpoint.getTargets());
+        assertTrue(checkpoint.isDone("a"));
+        assertFalse(checkpoint.isDone("b"));
+        assertEquals(1, checkpoint.getDoneCount());
+        checkpoint.delete();
+        assertFalse(file.exists());
+
+        checkpoint = new Checkpoint(file, "operation");
+        checkpoint.close();
+        try {
+            new Checkpoint(file, "another operation");
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    private BulkSource source() {
+        return new IteratorSource(Arrays.asList(new String[]{"http://a/", "http://b/", "http://c/"}).iterator());
+    }
+
+    /**
+     * {@link Simpy} answering link listings and deletes locally
+     */
+    private static class StubSimpy extends Simpy {
+
+        private ThreadLocal httpResult = new ThreadLocal();
+        private volatile List links;
+        volatile int readStatus = SimpyConstants.STATUS_CODE_SUCCESS;
+        volatile int listed;
+        Set deleted = Collections.synchronizedSet(new HashSet());
+        Set failing = Collections.synchronizedSet(new HashSet());
+        Set missing = Collections.synchronizedSet(new HashSet());
+
+        StubSimpy() {
+            super("username", "password", new MultiThreadedHttpConnectionManager());
+        }
+
+        void setLinks(String[] urls) {
+            List links = new ArrayList();
+            for (int i = 0; i < urls.length; i++) {
+                Link link = new Link();
+                link.setUrl(urls[i]);
+                links.add(link);
+            }
+            this.links = links;
+        }
+
+        public List getAllLinks(String q, String date, String afterDate, String beforeDate) {
+            listed++;
+            httpResult.set(Integer.valueOf(HttpStatus.SC_OK));
+            return new ArrayList(links);
+        }
+
+        public int deleteLink(String href) {
+            if (failing.contains(href)) {
+                httpResult.set(Integer.valueOf(HttpStatus.SC_SERVICE_UNAVAILABLE));
+                return -1;
+            }
+
+            httpResult.set(Integer.valueOf(HttpStatus.SC_OK));
+            if (missing.contains(href)) {
+                return SimpyConstants.STATUS_CODE_NON_EXISTENT_ENTITY;
+            }
+
+            deleted.add(href);
+            return SimpyConstants.STATUS_CODE_SUCCESS;
+        }
+
+        public int getHttpResult() {
+            Integer result = (Integer) httpResult.get();
+            return (result == null) ? 0 : result.intValue();
+        }
+
+        public int getReadStatus() {
+            return readStatus;
+        }
+    }
+}
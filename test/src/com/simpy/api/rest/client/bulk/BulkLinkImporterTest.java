@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.beans.Link;
+import junit.framework.TestCase;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link BulkLinkImporter}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class BulkLinkImporterTest extends TestCase {
+
+    private StubSimpy simpy;
+    private BulkLinkImporter importer;
+
+    protected void setUp() {
+        simpy = new StubSimpy();
+
+        importer = new BulkLinkImporter(simpy, 3, 2);
+        importer.setMaxRetries(2);
+        importer.setRetryDelay(1);
+        importer.setReportInterval(0);
+    }
+
+    protected void tearDown() {
+        simpy.shutdown();
+    }
+
+    private static Link link(String url) {
+        Link link = new Link();
+        link.setUrl(url);
+
+        return link;
+    }
+
+    public void testSavesEveryLinkWithDefaults() throws Exception {
+        BulkProgress progress = importer.importLinks(new CsvLinkSource(new StringReader("url,title,accessType,tags\n"
+                + "http://a/,A,private,\"java, xml\"\n"
+                + "http://b/,,1,\n"
+                + "http://c/,C,0,\n")));
+
+        assertEquals(3, progress.getSucceeded());
+        assertEquals(0, progress.getFailed());
+        assertTrue(progress.isFinished());
+        assertEquals("A|" + SimpyConstants.PRIVATE_ACCESS_TYPE + "|java,xml", simpy.saved.get("http://a/"));
+        assertEquals("http://b/|" + SimpyConstants.PUBLIC_ACCESS_TYPE + "|null", simpy.saved.get("http://b/"));
+        assertEquals("C|" + SimpyConstants.PRIVATE_ACCESS_TYPE + "|null", simpy.saved.get("http://c/"));
+    }
+
+    public void testManyLinksThroughSmallQueue() throws Exception {
+        List links = new ArrayList();
+        for (int i = 0; i < 100; i++) {
+            links.add(link("http://example.com/" + i));
+        }
+
+        BulkProgress progress = importer.importLinks(links.iterator());
+        assertEquals(100, progress.getSubmitted());
+        assertEquals(100, progress.getSucceeded());
+        assertEquals(100, simpy.saved.size());
+    }
+
+    public void testRetriesStorageErrorsAndServerErrors() throws Exception {
+        simpy.failures.put("http://a/", new int[]{SimpyConstants.STATUS_CODE_STORAGE_ERROR});
+        simpy.failures.put("http://b/", new int[]{-HttpStatus.SC_SERVICE_UNAVAILABLE, -HttpStatus.SC_BAD_GATEWAY});
+        simpy.failures.put("http://c/", new int[]{-HttpStatus.SC_SERVICE_UNAVAILABLE, -HttpStatus.SC_SERVICE_UNAVAILABLE, -HttpStatus.SC_SERVICE_UNAVAILABLE});
+
+        final Map attempts = Collections.synchronizedMap(new HashMap());
+        importer.setListener(new BulkListener() {
+            public void itemCompleted(Object item, int status, int httpResult, int count) {
+                attempts.put(((Link) item).getUrl(), Integer.valueOf(count));
+            }
+        });
+
+        BulkProgress progress = importer.importLinks(Arrays.asList(new Link[]{
+                link("http://a/"), link("http://b/"), link("http://c/")}).iterator());
+
+        assertEquals(2, progress.getSucceeded());
+        assertEquals(1, progress.getFailed());
+        assertEquals(5, progress.getRetries());
+        assertEquals(Integer.valueOf(2), attempts.get("http://a/"));
+        assertEquals(Integer.valueOf(3), attempts.get("http://b/"));
+        assertEquals(Integer.valueOf(3), attempts.get("http://c/"));
+        assertFalse(simpy.saved.containsKey("http://c/"));
+    }
+
+    public void testClientErrorsAreNotRetried() throws Exception {
+        simpy.failures.put("http://a/", new int[]{-HttpStatus.SC_BAD_REQUEST});
+
+        BulkProgress progress = importer.importLinks(Collections.singletonList(link("http://a/")).iterator());
+        assertEquals(1, progress.getFailed());
+        assertEquals(0, progress.getRetries());
+    }
+
+    /**
+     * {@link Simpy} that records saved links and fails the first attempts listed for a URL,
+     * a negative value standing for an HTTP status
+     */
+    private static class StubSimpy extends Simpy {
+
+        private ThreadLocal httpResult = new ThreadLocal();
+        Map saved = Collections.synchronizedMap(new HashMap());
+        Map failures = Collections.synchronizedMap(new HashMap());
+        Map attempts = Collections.synchronizedMap(new HashMap());
+
+        StubSimpy() {
+            super("username", "password", new MultiThreadedHttpConnectionManager());
+        }
+
+        public int saveLink(String title, String href, int accessType, String tags, String nickname, String note) {
+            int attempt;
+            synchronized (attempts) {
+                Integer previous = (Integer) attempts.get(href);
+                attempt = (previous == null) ? 0 : previous.intValue() + 1;
+                attempts.put(href, Integer.valueOf(attempt));
+            }
+
+            int[] failing = (int[]) failures.get(href);
+            if (failing != null && attempt < failing.length) {
+                if (failing[attempt] < 0) {
+                    httpResult.set(Integer.valueOf(-failing[attempt]));
+                    return -1;
+                }
+
+                httpResult.set(Integer.valueOf(HttpStatus.SC_OK));
+                return failing[attempt];
+            }
+
+            httpResult.set(Integer.valueOf(HttpStatus.SC_OK));
+            saved.put(href, title + "|" + accessType + "|" + tags);
+            return SimpyConstants.STATUS_CODE_SUCCESS;
+        }
+
+        public int getHttpResult() {
+            Integer result = (Integer) httpResult.get();
+            return (result == null) ? 0 : result.intValue();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.beans.Link;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link CsvLinkSource}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class CsvLinkSourceTest extends TestCase {
+
+    private static CsvLinkSource source(String csv) throws IOException {
+        return new CsvLinkSource(new StringReader(csv));
+    }
+
+    public void testColumnsInAnyOrderAndCase() throws Exception {
+        CsvLinkSource source = source("Note,HREF,ignored,Title,tags,accessType,nickname\n"
+                + "A note,http://example.com/,x, Example , java ,private,ex\n");
+
+        Link link = (Link) source.next();
+        assertEquals("http://example.com/", link.getUrl());
+        assertEquals("Example", link.getTitle());
+        assertEquals("A note", link.getNote());
+        assertEquals("private", link.getAccessType());
+        assertEquals("ex", link.getNickname());
+        assertEquals(Collections.singletonList("java"), link.getTags());
+        assertNull(source.next());
+    }
+
+    public void testQuotedFields() throws Exception {
+        CsvLinkSource source = source("url,title,tags,note\n"
+                + "http://example.com/,\"Commas, \"\"quotes\"\"\",\"java, xml\",\"two\nlines\"\n"
+                + "\"http://example.org/\",,,\n");
+
+        Link link = (Link) source.next();
+        assertEquals("Commas, \"quotes\"", link.getTitle());
+        assertEquals(Arrays.asList(new String[]{"java", "xml"}), link.getTags());
+        assertEquals("two\nlines", link.getNote());
+
+        link = (Link) source.next();
+        assertEquals("http://example.org/", link.getUrl());
+        assertNull(link.getTitle());
+        assertNull(link.getNote());
+        assertEquals(0, link.getTags().size());
+        assertNull(source.next());
+    }
+
+    public void testBlankLinesAndShortRecords() throws Exception {
+        CsvLinkSource source = source("url,title,note\n\nhttp://example.com/\n  \n");
+
+        Link link = (Link) source.next();
+        assertEquals("http://example.com/", link.getUrl());
+        assertNull(link.getTitle());
+        assertNull(source.next());
+    }
+
+    public void testUnterminatedQuote() throws Exception {
+        CsvLinkSource source = source("url,title\nhttp://example.com/,\"open\n");
+        try {
+            source.next();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    public void testHeaderRequiresUrlColumn() {
+        try {
+            source("title,tags\nExample,java\n");
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+
+        try {
+            source("");
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.beans.Link;
+import junit.framework.TestCase;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link NetscapeLinkSource}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class NetscapeLinkSourceTest extends TestCase {
+
+    private static final String BOOKMARKS = "<!DOCTYPE NETSCAPE-Bookmark-file-1>\n"
+            + "<META HTTP-EQUIV=\"Content-Type\" CONTENT=\"text/html; charset=UTF-8\">\n"
+            + "<TITLE>Bookmarks</TITLE>\n"
+            + "<DL><p>\n"
+            + "    <DT><H3 ADD_DATE=\"1170000000\">Folder</H3>\n"
+            + "    <DL><p>\n"
+            + "        <DT><A HREF=\"http://example.com/?a=1&amp;b=2\" ADD_DATE=\"1170000000\" PRIVATE=\"1\" TAGS=\"java,xml\">Tom &amp; Jerry&#39;s &lt;site&gt;</A>\n"
+            + "        <DD>Caf&#xe9; &quot;note&quot; &#8364;\n"
+            + "        <DT><a href=\"http://example.org/\"><b>Bold</b> title</a>\n"
+            + "        <DT><A HREF=\"\">No URL</A>\n"
+            + "        <DT><A HREF=\"http://example.net/\">Unknown &nbsp; &#xZZ; entities</A>\n"
+            + "        <DD>\n"
+            + "    </DL><p>\n"
+            + "</DL><p>\n";
+
+    public void testReadsAnchorsAndDescriptions() throws Exception {
+        NetscapeLinkSource source = new NetscapeLinkSource(new StringReader(BOOKMARKS));
+
+        Link link = (Link) source.next();
+        assertEquals("http://example.com/?a=1&b=2", link.getUrl());
+        assertEquals("Tom & Jerry's <site>", link.getTitle());
+        assertEquals(Arrays.asList(new String[]{"java", "xml"}), link.getTags());
+        assertEquals(Integer.toString(SimpyConstants.PRIVATE_ACCESS_TYPE), link.getAccessType());
+        assertEquals("Caf\u00e9 \"note\" \u20ac", link.getNote());
+
+        link = (Link) source.next();
+        assertEquals("http://example.org/", link.getUrl());
+        assertEquals("Bold title", link.getTitle());
+        assertEquals(Integer.toString(SimpyConstants.PUBLIC_ACCESS_TYPE), link.getAccessType());
+        assertEquals(0, link.getTags().size());
+        assertNull(link.getNote());
+
+        link = (Link) source.next();
+        assertEquals("http://example.net/", link.getUrl());
+        assertEquals("Unknown &nbsp; &#xZZ; entities", link.getTitle());
+        assertNull(link.getNote());
+
+        assertNull(source.next());
+    }
+
+    public void testLinkOnLastLine() throws Exception {
+        NetscapeLinkSource source = new NetscapeLinkSource(new StringReader("<DT><A HREF=\"http://example.com/\">Last</A>"));
+
+        assertEquals("Last", ((Link) source.next()).getTitle());
+        assertNull(source.next());
+    }
+
+    public void testOutOfRangeCharacterReferenceIsKept() throws Exception {
+        NetscapeLinkSource source = new NetscapeLinkSource(new StringReader("<DT><A HREF=\"http://example.com/\">&#99999999;</A>"));
+
+        assertEquals("&#99999999;", ((Link) source.next()).getTitle());
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.SimpyUtils;
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.cache.LinkRange;
+import junit.framework.TestCase;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link PartitionedLinkFetcher}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class PartitionedLinkFetcherTest extends TestCase {
+
+    private static final int DAYS = 100;
+
+    private int today;
+    private StubSimpy simpy;
+    private PartitionedLinkFetcher fetcher;
+
+    protected void setUp() throws Exception {
+        today = LinkRange.toDay(System.currentTimeMillis());
+
+        // One link a day for the last DAYS days, newest first
+        List links = new ArrayList();
+        for (int day = today; day > today - DAYS; day--) {
+            Link link = new Link();
+            link.setUrl("http://example.com/" + day);
+            link.setAddDate(SimpyUtils.formatDate(day * LinkRange.MILLIS_PER_DAY));
+            links.add(link);
+        }
+        simpy = new StubSimpy(links);
+
+        fetcher = new PartitionedLinkFetcher(simpy, 3);
+        fetcher.setTargetWindowSize(10);
+        fetcher.setRetryDelay(1);
+        fetcher.setEarliestDate(SimpyUtils.formatDate((today - DAYS - 20) * LinkRange.MILLIS_PER_DAY));
+    }
+
+    protected void tearDown() throws Exception {
+        simpy.shutdown();
+    }
+
+    public void testSmallAccountNeedsOneRequest() throws Exception {
+        fetcher.setTargetWindowSize(DAYS + 1);
+
+        assertAllLinks(fetcher.getAllLinks(null));
+        assertEquals(1, simpy.calls.get());
+    }
+
+    public void testWindowsAreSizedFromTheObservedDensity() throws Exception {
+        assertAllLinks(fetcher.getAllLinks(null));
+
+        // The first request and about one window per target number of links
+        int calls = simpy.calls.get();
+        assertTrue("Calls: " + calls, calls >= DAYS / 10 + 1 && calls <= DAYS / 10 + 5);
+        for (int i = 1; i < simpy.sizes.size(); i++) {
+            int size = ((Integer) simpy.sizes.get(i)).intValue();
+            assertTrue("Window size: " + size, size <= 20);
+        }
+    }
+
+    public void testLinksOnWindowBoundariesAreKeptOnce() throws Exception {
+        // A server that includes the days named by afterDate and beforeDate
+        simpy.inclusive = true;
+
+        assertAllLinks(fetcher.getAllLinks(null));
+    }
+
+    public void testFailedWindowsAreRetried() throws Exception {
+        simpy.fail(3, HttpStatus.SC_SERVICE_UNAVAILABLE, SimpyConstants.STATUS_CODE_SUCCESS);
+        simpy.fail(4, HttpStatus.SC_OK, SimpyConstants.STATUS_CODE_RETRIEVAL_ERROR);
+        simpy.fail(5, HttpStatus.SC_OK, SimpyConstants.READ_STATUS_INCOMPLETE);
+
+        assertAllLinks(fetcher.getAllLinks(null));
+    }
+
+    public void testWindowFailingEveryAttemptFailsTheFetch() throws Exception {
+        fetcher.setMaxRetries(2);
+        for (int call = 2; call < 100; call++) {
+            simpy.fail(call, HttpStatus.SC_OK, SimpyConstants.READ_STATUS_INCOMPLETE);
+        }
+
+        try {
+            fetcher.getAllLinks(null);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    private void assertAllLinks(List links) {
+        assertEquals(DAYS, links.size());
+        for (int i = 0; i < DAYS; i++) {
+            assertEquals("http://example.com/" + (today - i), ((Link) links.get(i)).getUrl());
+        }
+    }
+
+    /**
+     * {@link Simpy} answering link requests from a list, failing chosen calls
+     */
+    private static class StubSimpy extends Simpy {
+
+        private List links;
+        private Map failures = Collections.synchronizedMap(new HashMap());
+        private ThreadLocal httpResult = new ThreadLocal();
+        private ThreadLocal readStatus = new ThreadLocal();
+        volatile boolean inclusive;
+        AtomicInteger calls = new AtomicInteger();
+        List sizes = Collections.synchronizedList(new ArrayList());
+
+        StubSimpy(List links) {
+            super("username", "password", new MultiThreadedHttpConnectionManager());
+            this.links = links;
+        }
+
+        void fail(int call, int httpResult, int readStatus) {
+            failures.put(Integer.valueOf(call), new int[]{httpResult, readStatus});
+        }
+
+        public List getLinks(String q, String date, String afterDate, String beforeDate, int limit) {
+            int call = calls.incrementAndGet();
+            int first = (afterDate == null) ? Integer.MIN_VALUE : toDay(afterDate) + (inclusive ? 0 : 1);
+            int last = (beforeDate == null) ? Integer.MAX_VALUE : toDay(beforeDate) - (inclusive ? 0 : 1);
+
+            List result = new ArrayList();
+            for (int i = 0; i < links.size() && result.size() < limit; i++) {
+                Link link = (Link) links.get(i);
+                int day = LinkRange.toDay(link.getAddDateMillis());
+                if (day >= first && day <= last) {
+                    result.add(link);
+                }
+            }
+
+            int[] failure = (int[]) failures.get(Integer.valueOf(call));
+            if (failure != null) {
+                httpResult.set(Integer.valueOf(failure[0]));
+                readStatus.set(Integer.valueOf(failure[1]));
+
+                // A response that broke off still returns the links read before
+                return (failure[1] == SimpyConstants.READ_STATUS_INCOMPLETE) ? result.subList(0, result.size() / 2) : new ArrayList();
+            }
+
+            httpResult.set(Integer.valueOf(HttpStatus.SC_OK));
+            readStatus.set(Integer.valueOf(SimpyConstants.STATUS_CODE_SUCCESS));
+            sizes.add(Integer.valueOf(result.size()));
+            return result;
+        }
+
+        public int getHttpResult() {
+            return ((Integer) httpResult.get()).intValue();
+        }
+
+        public int getReadStatus() {
+            return ((Integer) readStatus.get()).intValue();
+        }
+
+        private static int toDay(String date) {
+            return LinkRange.toDay(SimpyUtils.parseDate(date));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.bulk;
+
+import com.simpy.api.rest.client.beans.Tag;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link TagRefactoringPlan}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class TagRefactoringPlanTest extends TestCase {
+
+    private static TagRefactoringPlan plan(TagOperation[] operations) {
+        return new TagRefactoringPlan(Arrays.asList(operations));
+    }
+
+    public void testIndependentOperationsShareALayer() {
+        TagOperation rename = TagOperation.rename("a", "b");
+        TagOperation remove = TagOperation.remove("c");
+        TagOperation split = TagOperation.split("d", "e", "f");
+
+        TagRefactoringPlan plan = plan(new TagOperation[]{rename, remove, split});
+        assertEquals(1, plan.getLayers().size());
+        assertEquals(Arrays.asList(new TagOperation[]{rename, remove, split}), plan.getLayers().get(0));
+        assertEquals(0, split.getLayer());
+        assertTrue(plan.getPrerequisites(split).isEmpty());
+    }
+
+    public void testProducerRunsBeforeLaterConsumer() {
+        TagOperation rename = TagOperation.rename("a", "b");
+        TagOperation merge = TagOperation.merge("b", "c", "d");
+        TagOperation remove = TagOperation.remove("x");
+
+        TagRefactoringPlan plan = plan(new TagOperation[]{rename, merge, remove});
+        assertEquals(2, plan.getLayers().size());
+        assertEquals(Arrays.asList(new TagOperation[]{rename, remove}), plan.getLayers().get(0));
+        assertEquals(Arrays.asList(new TagOperation[]{merge}), plan.getLayers().get(1));
+        assertEquals(Arrays.asList(new TagOperation[]{rename}), plan.getPrerequisites(merge));
+        assertEquals(1, merge.getLayer());
+    }
+
+    public void testWritersOfOneTagKeepTheirOrder() {
+        TagOperation first = TagOperation.rename("a", "c");
+        TagOperation second = TagOperation.rename("b", "c");
+
+        TagRefactoringPlan plan = plan(new TagOperation[]{first, second});
+        assertEquals(2, plan.getLayers().size());
+        assertEquals(Arrays.asList(new TagOperation[]{first}), plan.getPrerequisites(second));
+    }
+
+    public void testChainKeepsTheOrderGiven() {
+        TagOperation first = TagOperation.rename("b", "c");
+        TagOperation second = TagOperation.rename("a", "b");
+
+        TagRefactoringPlan plan = plan(new TagOperation[]{first, second});
+        assertEquals(2, plan.getLayers().size());
+        assertEquals(Arrays.asList(new TagOperation[]{first}), plan.getLayers().get(0));
+        assertEquals(Arrays.asList(new TagOperation[]{second}), plan.getLayers().get(1));
+        assertEquals(Arrays.asList(new TagOperation[]{first}), plan.getPrerequisites(second));
+    }
+
+    public void testRemovedTagCanBeReused() {
+        TagOperation remove = TagOperation.remove("b");
+        TagOperation rename = TagOperation.rename("a", "b");
+        TagOperation merge = TagOperation.merge("b", "c", "d");
+
+        TagRefactoringPlan plan = plan(new TagOperation[]{remove, rename, merge});
+        assertEquals(3, plan.getLayers().size());
+        assertEquals(0, remove.getLayer());
+        assertEquals(1, rename.getLayer());
+        assertEquals(2, merge.getLayer());
+        assertEquals(Arrays.asList(new TagOperation[]{remove}), plan.getPrerequisites(rename));
+    }
+
+    public void testSwapIsRejected() {
+        try {
+            plan(new TagOperation[]{TagOperation.rename("a", "b"), TagOperation.rename("b", "a")});
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            plan(new TagOperation[]{TagOperation.rename("a", "b"), TagOperation.rename("b", "c"), TagOperation.rename("c", "a")});
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testSwapThroughTemporaryTag() {
+        TagOperation first = TagOperation.rename("a", "tmp");
+        TagOperation second = TagOperation.rename("b", "a");
+        TagOperation third = TagOperation.rename("tmp", "b");
+
+        TagRefactoringPlan plan = plan(new TagOperation[]{first, second, third});
+        assertEquals(3, plan.getLayers().size());
+        assertEquals(2, third.getLayer());
+    }
+
+    public void testReadingAnEmptiedTagIsRejected() {
+        try {
+            plan(new TagOperation[]{TagOperation.remove("a"), TagOperation.rename("a", "b")});
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            plan(new TagOperation[]{TagOperation.rename("a", "b"), TagOperation.split("a", "c", "d")});
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testMergeIntoAnInputIsAllowed() {
+        TagOperation merge = TagOperation.merge("a", "b", "a");
+        TagOperation rename = TagOperation.rename("a", "c");
+
+        TagRefactoringPlan plan = plan(new TagOperation[]{merge, rename});
+        assertEquals(Arrays.asList(new TagOperation[]{merge}), plan.getPrerequisites(rename));
+    }
+
+    public void testEstimateOrdersLayersLargestFirst() {
+        TagOperation small = TagOperation.rename("a", "b");
+        TagOperation large = TagOperation.rename("c", "d");
+        TagOperation merge = TagOperation.merge("b", "d", "e");
+
+        TagRefactoringPlan plan = new TagRefactoringPlan(Arrays.asList(new TagOperation[]{small, large, merge}),
+                Arrays.asList(new Tag[]{new Tag("a", 2), new Tag("b", 1), new Tag("c", 10)}));
+
+        assertEquals(Arrays.asList(new TagOperation[]{large, small}), plan.getLayers().get(0));
+        assertEquals(2, small.getLinkCount());
+        assertEquals(10, large.getLinkCount());
+        assertEquals(13, merge.getLinkCount());
+    }
+
+    public void testPlanIsUnmodifiable() {
+        TagRefactoringPlan plan = plan(new TagOperation[]{TagOperation.remove("a")});
+        try {
+            ((List) plan.getLayers().get(0)).clear();
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    public void testNullTagsAreRejected() {
+        try {
+            TagOperation.rename("a", null);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
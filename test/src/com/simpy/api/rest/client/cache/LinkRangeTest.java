@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.cache;
+
+import com.simpy.api.rest.client.SimpyUtils;
+import com.simpy.api.rest.client.beans.Link;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link LinkRange}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class LinkRangeTest extends TestCase {
+
+    private static Link link(String url, String addDate) {
+        Link link = new Link();
+        link.setUrl(url);
+        link.setAddDate(addDate);
+
+        return link;
+    }
+
+    private static int day(String date) {
+        return LinkRange.toDay(SimpyUtils.parseDate(date));
+    }
+
+    private static List urls(List links) {
+        List urls = new ArrayList();
+        for (int i = 0; i < links.size(); i++) {
+            urls.add(((Link) links.get(i)).getUrl());
+        }
+
+        return urls;
+    }
+
+    private LinkRange range;
+
+    protected void setUp() {
+        range = new LinkRange(day("2007-01-10"), day("2007-01-20"), Arrays.asList(new Link[]{
+                link("a", "2007-01-20"),
+                link("b", "2007-01-15"),
+                link("c", "2007-01-15"),
+                link("d", "2007-01-10")}));
+    }
+
+    public void testToDay() {
+        assertEquals(0, LinkRange.toDay(0));
+        assertEquals(0, LinkRange.toDay(LinkRange.MILLIS_PER_DAY - 1));
+        assertEquals(-1, LinkRange.toDay(-1));
+        assertEquals(-1, LinkRange.toDay(-LinkRange.MILLIS_PER_DAY));
+    }
+
+    public void testCoversAndTouches() {
+        assertTrue(range.covers(day("2007-01-10"), day("2007-01-20")));
+        assertFalse(range.covers(day("2007-01-09"), day("2007-01-20")));
+
+        assertTrue(range.touches(day("2007-01-21"), day("2007-01-25")));
+        assertTrue(range.touches(day("2007-01-01"), day("2007-01-09")));
+        assertFalse(range.touches(day("2007-01-22"), day("2007-01-25")));
+        assertFalse(range.touches(day("2007-01-01"), day("2007-01-08")));
+    }
+
+    public void testSelectFiltersOnAddDateAndLimit() {
+        assertEquals(Arrays.asList(new String[]{"b", "c"}), urls(range.select(day("2007-01-11"), day("2007-01-19"), 10)));
+        assertEquals(Arrays.asList(new String[]{"a", "b"}), urls(range.select(day("2007-01-10"), day("2007-01-20"), 2)));
+        assertEquals(0, range.select(day("2007-01-16"), day("2007-01-19"), 10).size());
+    }
+
+    public void testExtendKeepsReverseChronologicalOrder() {
+        List newer = Arrays.asList(new Link[]{link("n", "2007-01-22")});
+        List older = Arrays.asList(new Link[]{link("o", "2007-01-05")});
+
+        LinkRange wider = range.extend(newer, day("2007-01-25"), older, day("2007-01-01"));
+        assertEquals(day("2007-01-01"), wider.getFirstDay());
+        assertEquals(day("2007-01-25"), wider.getLastDay());
+        assertEquals(Arrays.asList(new String[]{"n", "a", "b", "c", "d", "o"}), urls(wider.getLinks()));
+        assertEquals(4, range.getLinks().size());
+    }
+
+    public void testDayOf() {
+        assertEquals(day("2007-01-15"), range.dayOf("c"));
+        assertEquals(Integer.MAX_VALUE, range.dayOf("e"));
+    }
+
+    public void testBeforeDropsLaterDays() {
+        LinkRange narrower = range.before(day("2007-01-15"));
+        assertEquals(day("2007-01-10"), narrower.getFirstDay());
+        assertEquals(day("2007-01-14"), narrower.getLastDay());
+        assertEquals(Arrays.asList(new String[]{"d"}), urls(narrower.getLinks()));
+
+        assertSame(range, range.before(day("2007-01-21")));
+        assertSame(range, range.before(Integer.MAX_VALUE));
+        assertNull(range.before(day("2007-01-10")));
+    }
+
+    public void testLinksAreUnmodifiable() {
+        try {
+            range.getLinks().clear();
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+}
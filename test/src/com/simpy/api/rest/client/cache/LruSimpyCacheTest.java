@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.cache;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link LruSimpyCache} and {@link CacheEntry}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class LruSimpyCacheTest extends TestCase {
+
+    private static CacheKey key(String account, String region) {
+        return new CacheKey(account, region, null);
+    }
+
+    public void testGetReturnsStoredValue() {
+        LruSimpyCache cache = new LruSimpyCache(10, 60000);
+        cache.put(key("bob", CacheKey.TAGS), "tags", 5);
+
+        CacheEntry entry = cache.get(key("bob", CacheKey.TAGS));
+        assertNotNull(entry);
+        assertEquals("tags", entry.getValue());
+        assertEquals(5, entry.getSize());
+        assertNull(cache.get(key("alice", CacheKey.TAGS)));
+    }
+
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        LruSimpyCache cache = new LruSimpyCache(2, 60000);
+        cache.put(key("bob", CacheKey.TAGS), "tags", 1);
+        cache.put(key("bob", CacheKey.TOPICS), "topics", 1);
+        cache.get(key("bob", CacheKey.TAGS));
+        cache.put(key("bob", CacheKey.WATCHLISTS), "watchlists", 1);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(key("bob", CacheKey.TAGS)));
+        assertNull(cache.get(key("bob", CacheKey.TOPICS)));
+        assertNotNull(cache.get(key("bob", CacheKey.WATCHLISTS)));
+    }
+
+    public void testSizeLimit() {
+        LruSimpyCache cache = new LruSimpyCache(0, 100, 60000, 0);
+        cache.put(key("bob", CacheKey.TAGS), "tags", 60);
+        cache.put(key("bob", CacheKey.TOPICS), "topics", 60);
+
+        assertEquals(60, cache.getTotalBytes());
+        assertNull(cache.get(key("bob", CacheKey.TAGS)));
+
+        cache.put(key("bob", CacheKey.WATCHLISTS), "watchlists", 101);
+        assertNull(cache.get(key("bob", CacheKey.WATCHLISTS)));
+        assertEquals(60, cache.getTotalBytes());
+
+        cache.put(key("bob", CacheKey.TOPICS), "topics", 10);
+        assertEquals(10, cache.getTotalBytes());
+    }
+
+    public void testInvalidateRegionOnlyAffectsOneAccount() {
+        LruSimpyCache cache = new LruSimpyCache(10, 60000);
+        cache.put(new CacheKey("bob", CacheKey.LINKS, "java"), "bob java", 1);
+        cache.put(new CacheKey("bob", CacheKey.LINKS, ""), "bob all", 1);
+        cache.put(key("bob", CacheKey.TAGS), "bob tags", 1);
+        cache.put(new CacheKey("alice", CacheKey.LINKS, ""), "alice all", 1);
+
+        cache.invalidateRegion("bob", CacheKey.LINKS);
+
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getTotalBytes());
+        assertNotNull(cache.get(key("bob", CacheKey.TAGS)));
+        assertNotNull(cache.get(new CacheKey("alice", CacheKey.LINKS, "")));
+    }
+
+    public void testExpiredEntryIsServedWithinStaleWindow() throws Exception {
+        LruSimpyCache cache = new LruSimpyCache(10, 0, 20, 60000);
+        cache.put(key("bob", CacheKey.TAGS), "tags", 1);
+        Thread.sleep(40);
+
+        CacheEntry entry = cache.get(key("bob", CacheKey.TAGS));
+        assertNotNull(entry);
+        assertTrue(entry.isExpired(System.currentTimeMillis()));
+        assertTrue(entry.startRefresh());
+        assertFalse(entry.startRefresh());
+        entry.endRefresh();
+        assertTrue(entry.startRefresh());
+    }
+
+    public void testExpiredEntryIsDroppedWithoutStaleWindow() throws Exception {
+        LruSimpyCache cache = new LruSimpyCache(10, 20);
+        cache.put(key("bob", CacheKey.TAGS), "tags", 1);
+        Thread.sleep(40);
+
+        assertNull(cache.get(key("bob", CacheKey.TAGS)));
+        assertEquals(0, cache.size());
+    }
+
+    public void testInvalidLimits() {
+        try {
+            new LruSimpyCache(10, 0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.cache;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.StubServer;
+import junit.framework.TestCase;
+import org.apache.commons.httpclient.HttpStatus;
+
+/**
+ * Tests for {@link NegativeCache}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class NegativeCacheTest extends TestCase {
+
+    private static CacheKey topic(int id) {
+        return new CacheKey("bob", CacheKey.TOPIC, String.valueOf(id));
+    }
+
+    public void testMarkMissingAndPresent() {
+        NegativeCache cache = new NegativeCache(10, 60000);
+        assertFalse(cache.isMissing(topic(1)));
+
+        cache.markMissing(topic(1));
+        assertTrue(cache.isMissing(topic(1)));
+        assertFalse(cache.isMissing(new CacheKey("bob", CacheKey.WATCHLIST, "1")));
+
+        cache.markPresent(topic(1));
+        assertFalse(cache.isMissing(topic(1)));
+    }
+
+    public void testEntriesExpire() throws Exception {
+        NegativeCache cache = new NegativeCache(10, 20);
+        cache.markMissing(topic(1));
+        Thread.sleep(40);
+
+        assertFalse(cache.isMissing(topic(1)));
+        assertEquals(0, cache.size());
+    }
+
+    public void testOldestEntriesAreDropped() {
+        NegativeCache cache = new NegativeCache(2, 60000);
+        cache.markMissing(topic(1));
+        cache.markMissing(topic(2));
+        cache.isMissing(topic(1));
+        cache.markMissing(topic(3));
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.isMissing(topic(1)));
+        assertFalse(cache.isMissing(topic(2)));
+        assertTrue(cache.isMissing(topic(3)));
+    }
+
+    public void testRememberedIdsAreAnsweredWithoutARequest() throws Exception {
+        StubServer server = new StubServer();
+        server.respond("GetTopic.do", StubServer.STATUS_NON_EXISTENT);
+        server.respond("GetWatchlist.do", StubServer.status(SimpyConstants.STATUS_CODE_RETRIEVAL_ERROR, "Retrieval error"));
+
+        Simpy simpy = server.createSimpy();
+        simpy.setNegativeCache(new NegativeCache(10, 60000));
+        try {
+            assertNull(simpy.getTopic(1));
+            assertNull(simpy.getTopic(1));
+            assertEquals(1, server.countRequests("GetTopic.do"));
+            assertEquals(HttpStatus.SC_OK, simpy.getHttpResult());
+            assertEquals(SimpyConstants.STATUS_CODE_NON_EXISTENT_ENTITY, simpy.getReadStatus());
+
+            // Other error statuses are asked again
+            assertNull(simpy.getWatchlist(1));
+            assertNull(simpy.getWatchlist(1));
+            assertEquals(2, server.countRequests("GetWatchlist.do"));
+            assertEquals(SimpyConstants.STATUS_CODE_RETRIEVAL_ERROR, simpy.getReadStatus());
+        } finally {
+            simpy.shutdown();
+            server.stop();
+        }
+    }
+}
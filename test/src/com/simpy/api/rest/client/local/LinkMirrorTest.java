@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.local;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.StubServer;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Tests for {@link LinkMirror}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class LinkMirrorTest extends TestCase {
+
+    private static final String LINKS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>"
+            + link("http://example.com/", "2007-05-01")
+            + link("http://example.org/", "2007-04-01")
+            + "</links>";
+
+    private static final String NOTES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<notes>"
+            + "<note accessType=\"1\"><id>42</id><uri>http://www.simpy.com/simpy/NoteDetails.do?noteId=42</uri>"
+            + "<modDate>2007-05-16T01:02:03Z</modDate><addDate>2007-05-16</addDate><title>Title</title>"
+            + "<tags><tag>one</tag></tags><description>Description</description></note>"
+            + "</notes>";
+
+    private StubServer server;
+    private Simpy simpy;
+    private File file;
+
+    protected void setUp() throws Exception {
+        server = new StubServer();
+        simpy = server.createSimpy();
+        file = new File(System.getProperty("java.io.tmpdir"), "LinkMirrorTest-" + System.nanoTime() + ".snapshot");
+
+        server.respond("GetLinks.do", LINKS);
+        server.respond("GetNotes.do", NOTES);
+    }
+
+    protected void tearDown() throws Exception {
+        simpy.shutdown();
+        server.stop();
+        file.delete();
+    }
+
+    private static String link(String url, String day) {
+        return "<link accessType=\"1\"><url>" + url + "</url><modDate>" + day + "T10:00:00Z</modDate>"
+                + "<addDate>" + day + "</addDate><title>Title</title><nickname/><note/>"
+                + "<tags><tag>java</tag></tags></link>";
+    }
+
+    public void testFirstSyncReconcilesAndSaves() throws Exception {
+        LinkMirror mirror = new LinkMirror(simpy, file, Long.MAX_VALUE);
+        assertEquals(3, mirror.sync());
+        assertTrue(mirror.getLastReconcile() > 0);
+
+        LinkMirror loaded = new LinkMirror(simpy, file, Long.MAX_VALUE);
+        assertEquals(2, loaded.getLinks().size());
+        assertEquals(1, loaded.getNotes().size());
+        assertNotNull(loaded.getLink("http://example.org/"));
+        assertEquals(mirror.getLastReconcile(), loaded.getLastReconcile());
+    }
+
+    public void testStatusDocumentKeepsMirror() throws Exception {
+        LinkMirror mirror = new LinkMirror(simpy, file, Long.MAX_VALUE);
+        mirror.reconcile();
+        long saved = file.length();
+
+        // An error reported with HTTP 200 must not be taken for an empty account
+        server.respond("GetLinks.do", StubServer.status(SimpyConstants.STATUS_CODE_RETRIEVAL_ERROR, "Retrieval error"));
+        try {
+            mirror.reconcile();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        assertEquals(2, mirror.getLinks().size());
+        assertEquals(1, mirror.getNotes().size());
+        assertEquals(saved, file.length());
+        assertEquals(2, new LinkMirror(simpy, file, Long.MAX_VALUE).getLinks().size());
+    }
+
+    public void testTruncatedResponseKeepsMirror() throws Exception {
+        LinkMirror mirror = new LinkMirror(simpy, file, Long.MAX_VALUE);
+        mirror.reconcile();
+
+        server.respond("GetLinks.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>"
+                + link("http://example.com/", "2007-05-01") + "<link accessType=\"1\"><url>http://exa");
+        try {
+            mirror.reconcile();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        assertEquals(2, mirror.getLinks().size());
+        assertEquals(2, new LinkMirror(simpy, file, Long.MAX_VALUE).getLinks().size());
+    }
+
+    public void testSyncAppliesNothingWhenALaterRequestFails() throws Exception {
+        LinkMirror mirror = new LinkMirror(simpy, file, Long.MAX_VALUE);
+        mirror.reconcile();
+
+        server.respond("GetLinks.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>"
+                + link("http://example.net/", "2007-05-02") + "</links>");
+        server.respond("GetNotes.do", StubServer.STATUS_STORAGE_ERROR);
+        try {
+            mirror.sync();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        assertEquals(2, mirror.getLinks().size());
+        assertNull(mirror.getLink("http://example.net/"));
+
+        server.respond("GetNotes.do", NOTES);
+        assertEquals(1, mirror.sync());
+        assertEquals(3, mirror.getLinks().size());
+    }
+
+    public void testDeletedItemsAreDroppedByReconcile() throws Exception {
+        LinkMirror mirror = new LinkMirror(simpy, file, Long.MAX_VALUE);
+        mirror.reconcile();
+
+        server.respond("GetLinks.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>"
+                + link("http://example.com/", "2007-05-01") + "</links>");
+        server.respond("GetNotes.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<notes></notes>");
+
+        assertEquals(2, mirror.reconcile());
+        assertEquals(1, mirror.getLinks().size());
+        assertEquals(0, mirror.getNotes().size());
+    }
+}
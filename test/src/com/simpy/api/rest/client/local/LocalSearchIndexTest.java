@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.local;
+
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link LocalSearchIndex}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class LocalSearchIndexTest extends TestCase {
+
+    private LocalSearchIndex index;
+
+    private static Link link(String url, String title, String[] tags) {
+        Link link = new Link();
+        link.setUrl(url);
+        link.setTitle(title);
+        link.setTags(Arrays.asList(tags));
+
+        return link;
+    }
+
+    private static List urls(List links) {
+        List urls = new ArrayList();
+        for (int i = 0; i < links.size(); i++) {
+            urls.add(((Link) links.get(i)).getUrl());
+        }
+
+        return urls;
+    }
+
+    protected void setUp() {
+        List links = Arrays.asList(new Link[]{
+                link("http://blojsom.sf.net/", "Blojsom blog", new String[]{"java", "blog"}),
+                link("http://example.com/python", "Python Tutorial", new String[]{"python"}),
+                link("http://example.com/j2ee", "Java EE guide", new String[]{"java", "web-dev"})});
+
+        Note note = new Note();
+        note.setTitle("Meeting notes");
+        note.setDescription("Discuss the Java client");
+        note.setTags(Arrays.asList(new String[]{"work"}));
+
+        index = new LocalSearchIndex(links, Arrays.asList(new Note[]{note}));
+    }
+
+    public void testWordsAreMatchedCaseInsensitively() {
+        assertEquals(Arrays.asList(new String[]{"http://blojsom.sf.net/", "http://example.com/j2ee"}), urls(index.searchLinks("JAVA")));
+        assertEquals(Arrays.asList(new String[]{"http://example.com/python"}), urls(index.searchLinks("tutorial")));
+        assertEquals(0, index.searchLinks("ruby").size());
+    }
+
+    public void testImpliedAndExplicitOperators() {
+        assertEquals(Arrays.asList(new String[]{"http://example.com/j2ee"}), urls(index.searchLinks("java guide")));
+        assertEquals(Arrays.asList(new String[]{"http://example.com/j2ee"}), urls(index.searchLinks("java AND guide")));
+        assertEquals(Arrays.asList(new String[]{"http://blojsom.sf.net/", "http://example.com/python"}), urls(index.searchLinks("blog OR python")));
+        assertEquals(Arrays.asList(new String[]{"http://blojsom.sf.net/", "http://example.com/python"}), urls(index.searchLinks("java blog OR tutorial")));
+    }
+
+    public void testTagQueries() {
+        assertEquals(Arrays.asList(new String[]{"http://example.com/j2ee"}), urls(index.searchLinks("tags:web-dev")));
+        assertEquals(Arrays.asList(new String[]{"http://blojsom.sf.net/", "http://example.com/j2ee"}), urls(index.searchLinks("tag:java")));
+        assertEquals(0, index.searchLinks("tags:blojsom").size());
+    }
+
+    public void testUnsupportedQueriesReturnNull() {
+        assertNull(index.searchLinks(null));
+        assertNull(index.searchLinks("\"java guide\""));
+        assertNull(index.searchLinks("(java OR python)"));
+        assertNull(index.searchLinks("-java"));
+        assertNull(index.searchLinks("title:java"));
+        assertNull(index.searchLinks("java OR"));
+        assertNull(index.searchLinks("OR java"));
+    }
+
+    public void testNotes() {
+        assertEquals(1, index.searchNotes("java").size());
+        assertEquals(1, index.searchNotes("tags:work").size());
+        assertEquals(0, index.searchNotes("python").size());
+    }
+
+    public void testLocalQueriesRespectLimit() {
+        assertEquals(1, index.getLinks(null, "java", 1).size());
+    }
+}
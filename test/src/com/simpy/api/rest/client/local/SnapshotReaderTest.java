@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.local;
+
+import com.simpy.api.rest.client.beans.Filter;
+import com.simpy.api.rest.client.beans.Link;
+import com.simpy.api.rest.client.beans.Note;
+import com.simpy.api.rest.client.beans.Tag;
+import com.simpy.api.rest.client.beans.Topic;
+import com.simpy.api.rest.client.beans.User;
+import com.simpy.api.rest.client.beans.Watchlist;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link SnapshotWriter} and {@link SnapshotReader}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class SnapshotReaderTest extends TestCase {
+
+    private File file;
+
+    protected void setUp() throws IOException {
+        file = File.createTempFile("simpy-snapshot", ".bin");
+    }
+
+    protected void tearDown() {
+        file.delete();
+    }
+
+    public void testRoundTrip() throws IOException {
+        Link link = new Link("1", "http://blojsom.sf.net/", "2006-08-09T10:11:12Z", "2006-08-09", "blojsom \u3053\u308c\u306f", null, "A note", Arrays.asList(new String[]{"java", "blog"}));
+        Link undated = new Link("0", "http://example.com/", "not a date", null, "Example", "ex", "", Arrays.asList(new String[]{"java"}));
+        Note note = new Note("42", "1", "http://www.simpy.com/simpy/NoteDetails.do?noteId=42", "2007-05-16T01:02:03Z", "2007-05-16", "Title", Arrays.asList(new String[]{"work"}), "I\u00f1t\u00ebrn\u00e2ti\u00f4n\u00e0liz\u00e6ti\u00f8n");
+        Topic topic = new Topic(7, "Java", "All java", "2006-01-01", 3, Arrays.asList(new User[]{new User("bob")}), new Filter("f", "java AND blog"));
+        Watchlist watchlist = new Watchlist(5, "W", "d", "2006-02-02", 1, null, null);
+
+        SnapshotWriter writer = new SnapshotWriter(file);
+        writer.setProperty("syncedAt", "2007-06-01");
+        writer.addLink(link);
+        writer.addTag(new Tag("java", 2));
+        writer.addNote(note);
+        writer.addLink(undated);
+        writer.addTopic(topic);
+        writer.addWatchlist(watchlist);
+        writer.close();
+
+        SnapshotReader reader = new SnapshotReader(file);
+        try {
+            assertEquals("2007-06-01", reader.getProperty("syncedAt"));
+            assertNull(reader.getProperty("missing"));
+            assertEquals(2, reader.getLinkCount());
+            assertEquals(1, reader.getTagCount());
+            assertEquals(1, reader.getNoteCount());
+            assertEquals(1, reader.getTopicCount());
+            assertEquals(1, reader.getWatchlistCount());
+
+            Link first = reader.getLink(0);
+            assertEquals("1", first.getAccessType());
+            assertEquals("http://blojsom.sf.net/", first.getUrl());
+            assertEquals("2006-08-09T10:11:12Z", first.getModDate());
+            assertEquals(link.getModDateMillis(), first.getModDateMillis());
+            assertEquals("2006-08-09", first.getAddDate());
+            assertEquals("blojsom \u3053\u308c\u306f", first.getTitle());
+            assertNull(first.getNickname());
+            assertEquals(Arrays.asList(new String[]{"java", "blog"}), first.getTags());
+
+            Link second = (Link) reader.getLinks().get(1);
+            assertEquals("not a date", second.getModDate());
+            assertNull(second.getAddDate());
+            assertEquals("", second.getNote());
+
+            Tag tag = reader.getTag(0);
+            assertEquals("java", tag.getTag());
+            assertEquals(2, tag.getCount());
+
+            Note readNote = reader.getNote(0);
+            assertEquals("42", readNote.getId());
+            assertEquals("I\u00f1t\u00ebrn\u00e2ti\u00f4n\u00e0liz\u00e6ti\u00f8n", readNote.getDescription());
+            assertEquals(Arrays.asList(new String[]{"work"}), readNote.getTags());
+
+            Topic readTopic = reader.getTopic(0);
+            assertEquals(7, readTopic.getId());
+            assertEquals("bob", ((User) readTopic.getUsers().get(0)).getUsername());
+            assertEquals("java AND blog", readTopic.getFilter().getQuery());
+
+            Watchlist readWatchlist = reader.getWatchlist(0);
+            assertEquals(5, readWatchlist.getId());
+            assertNull(readWatchlist.getUsers());
+            assertNull(readWatchlist.getFilters());
+
+            assertTrue(Arrays.asList(reader.getTagNames()).containsAll(Arrays.asList(new String[]{"java", "blog", "work"})));
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void testRejectsOtherFiles() throws IOException {
+        FileOutputStream output = new FileOutputStream(file);
+        output.write(new byte[256]);
+        output.close();
+
+        try {
+            new SnapshotReader(file);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
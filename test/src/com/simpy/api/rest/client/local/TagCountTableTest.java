@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.local;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.SimpyConstants;
+import com.simpy.api.rest.client.StubServer;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link TagCountTable}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class TagCountTableTest extends TestCase {
+
+    private static final String TAGS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<tags>"
+            + "<tag name=\"java\" count=\"3\"/><tag name=\"blog\" count=\"2\"/><tag name=\"web\" count=\"1\"/>"
+            + "</tags>";
+
+    private StubServer server;
+    private Simpy simpy;
+    private TagCountTable table;
+
+    protected void setUp() throws Exception {
+        server = new StubServer();
+        server.respond("GetTags.do", TAGS);
+        simpy = server.createSimpy();
+        table = new TagCountTable(simpy, null, Long.MAX_VALUE);
+    }
+
+    protected void tearDown() throws Exception {
+        table.close();
+        simpy.shutdown();
+        server.stop();
+    }
+
+    public void testSeededFromServer() {
+        assertEquals(3, table.getTags().size());
+        assertEquals(3, table.getCount("java"));
+        assertEquals(0, table.getCount("unknown"));
+        assertTrue(table.getLastResync() > 0);
+        assertEquals(1, server.countRequests("GetTags.do"));
+    }
+
+    public void testSaveAndResave() {
+        table.getTags();
+
+        table.linkSaved("http://example.com/", "java, news");
+        assertEquals(4, table.getCount("java"));
+        assertEquals(1, table.getCount("news"));
+
+        // Saving the link again replaces its tags
+        table.linkSaved("http://example.com/", "news,web");
+        assertEquals(3, table.getCount("java"));
+        assertEquals(1, table.getCount("news"));
+        assertEquals(2, table.getCount("web"));
+    }
+
+    public void testSavedThroughSimpy() {
+        server.respond("SaveLink.do", StubServer.STATUS_SUCCESS);
+        table.getTags();
+
+        simpy.saveLink("Title", "http://example.com/", 1, "web", null, null);
+        assertEquals(2, table.getCount("web"));
+
+        // Failed saves are not applied
+        server.respond("SaveLink.do", StubServer.STATUS_STORAGE_ERROR);
+        simpy.saveLink("Title", "http://example.org/", 1, "web", null, null);
+        assertEquals(2, table.getCount("web"));
+    }
+
+    public void testDelete() {
+        table.getTags();
+        table.linkSaved("http://example.com/", "java");
+        table.linkDeleted("http://example.com/");
+        assertEquals(3, table.getCount("java"));
+        assertTrue(table.getLastResync() > 0);
+
+        // The tags of a link the table has not seen are unknown
+        table.linkDeleted("http://example.org/");
+        assertEquals(0, table.getLastResync());
+    }
+
+    public void testMerge() {
+        table.getTags();
+        table.linkSaved("http://example.com/", "java");
+        table.tagsMerged("java", "blog", "code");
+
+        assertEquals(0, table.getCount("java"));
+        assertEquals(0, table.getCount("blog"));
+        assertEquals(6, table.getCount("code"));
+
+        // The remembered tags of the saved link follow the merge
+        table.linkSaved("http://example.com/", "web");
+        assertEquals(5, table.getCount("code"));
+        assertEquals(2, table.getCount("web"));
+    }
+
+    public void testSplit() {
+        table.getTags();
+        table.linkSaved("http://example.com/", "blog");
+        table.tagSplit("blog", "personal", "work");
+
+        assertEquals(0, table.getCount("blog"));
+        assertEquals(3, table.getCount("personal"));
+        assertEquals(3, table.getCount("work"));
+
+        table.linkDeleted("http://example.com/");
+        assertEquals(2, table.getCount("personal"));
+        assertEquals(2, table.getCount("work"));
+    }
+
+    public void testRenameAndRemove() {
+        table.getTags();
+        table.linkSaved("http://example.com/", "web");
+        table.tagRenamed("web", "www");
+
+        assertEquals(0, table.getCount("web"));
+        assertEquals(2, table.getCount("www"));
+
+        table.tagRemoved("www");
+        assertEquals(0, table.getCount("www"));
+
+        // The link no longer has the removed tag
+        table.linkDeleted("http://example.com/");
+        assertEquals(3, table.getCount("java"));
+        assertEquals(2, table.getCount("blog"));
+    }
+
+    public void testFailedResyncKeepsCounts() {
+        table.getTags();
+        table.linkSaved("http://example.com/", "news");
+
+        server.respond("GetTags.do", StubServer.status(SimpyConstants.STATUS_CODE_RETRIEVAL_ERROR, "Retrieval error"));
+        assertFalse(table.resync());
+        assertEquals(1, table.getCount("news"));
+        assertEquals(3, table.getCount("java"));
+
+        server.respond("GetTags.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<tags><tag name=\"java\" count=\"3\"/><tag name=\"bl");
+        assertFalse(table.resync());
+        assertEquals(1, table.getCount("news"));
+    }
+
+    public void testResyncForgetsRememberedTags() {
+        table.getTags();
+        table.linkSaved("http://example.com/", "java");
+
+        server.respond("GetTags.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<tags><tag name=\"java\" count=\"4\"/></tags>");
+        assertTrue(table.resync());
+        assertEquals(4, table.getCount("java"));
+        assertEquals(0, table.getCount("blog"));
+
+        // After a resync the earlier tags of the link are no longer known
+        table.linkDeleted("http://example.com/");
+        assertEquals(0, table.getLastResync());
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2005-2007, David A. Czarnecki
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in
+ *   the documentation and/or other materials provided with the
+ *   distribution.
+ *
+ * - Neither the name of simpy-java nor the names of its contributors may
+ *   be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.simpy.api.rest.client.local;
+
+import com.simpy.api.rest.client.Simpy;
+import com.simpy.api.rest.client.StubServer;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+
+/**
+ * Tests for {@link UrlPresenceIndex}
+ *
+ * @author David Czarnecki
+ * @version $Id$
+ * @since 1.4
+ */
+public class UrlPresenceIndexTest extends TestCase {
+
+    public void testCanonicalize() {
+        assertEquals("http://example.com/", UrlPresenceIndex.canonicalize(" HTTP://Example.COM:80 "));
+        assertEquals("https://example.com/?q=1", UrlPresenceIndex.canonicalize("https://example.com:443?q=1"));
+        assertEquals("http://User@example.com/Path", UrlPresenceIndex.canonicalize("http://User@EXAMPLE.com/Path"));
+        assertNull(UrlPresenceIndex.canonicalize("  "));
+    }
+
+    public void testCanonicalizeKeepsFragment() {
+        assertEquals("http://example.com/#top", UrlPresenceIndex.canonicalize("http://example.com#top"));
+        assertEquals("http://example.com/app#/inbox", UrlPresenceIndex.canonicalize("http://example.com/app#/inbox"));
+    }
+
+    public void testUrlsDifferingInFragmentAreDistinct() {
+        UrlPresenceIndex index = new UrlPresenceIndex(100, 0.01);
+        index.add("http://example.com/app#/inbox");
+
+        assertTrue(index.contains("HTTP://example.com/app#/inbox"));
+        assertFalse(index.contains("http://example.com/app#/settings"));
+        assertFalse(index.contains("http://example.com/app"));
+
+        index.remove("http://example.com/app#/inbox");
+        assertFalse(index.contains("http://example.com/app#/inbox"));
+        assertEquals(0, index.size());
+    }
+
+    public void testLoadRequiresCompleteListing() throws Exception {
+        String link = "<link accessType=\"1\"><url>http://example.com/</url><title>Example</title></link>";
+        StubServer server = new StubServer();
+        Simpy simpy = server.createSimpy();
+        try {
+            server.respond("GetLinks.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>" + link + "</links>");
+            assertTrue(UrlPresenceIndex.load(simpy, 0.01).contains("http://example.com"));
+
+            server.respond("GetLinks.do", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<links>" + link + "<link accessType=\"1\"><url>http://exa");
+            try {
+                UrlPresenceIndex.load(simpy, 0.01);
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            simpy.shutdown();
+            server.stop();
+        }
+    }
+}